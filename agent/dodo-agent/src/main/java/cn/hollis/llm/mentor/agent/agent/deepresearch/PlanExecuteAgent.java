@@ -9,9 +9,11 @@ import cn.hollis.llm.mentor.agent.entity.vo.UpdateAnswerRequest;
 import cn.hollis.llm.mentor.agent.prompts.PlanExecutePrompts;
 import cn.hollis.llm.mentor.agent.service.AgentTaskManager;
 import cn.hollis.llm.mentor.agent.service.AiSessionService;
+import cn.hollis.llm.mentor.agent.tool.ToolConcurrencyLimiter;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.ai.chat.client.ChatClient;
@@ -34,10 +36,7 @@ import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 
 @Slf4j
@@ -52,8 +51,8 @@ public class PlanExecuteAgent extends BaseAgent {
     // context 压缩阈值
     private final int contextCharLimit;
 
-    // 控制工具并发调用上限
-    private final Semaphore toolSemaphore;
+    // 计划任务的排队 / 执行耗时指标，可为空
+    private final MeterRegistry meterRegistry;
 
     // 工具重试次数
     private final int maxToolRetries;
@@ -73,14 +72,17 @@ public class PlanExecuteAgent extends BaseAgent {
                             int maxToolRetries,
                             ChatMemory chatMemory,
                             AiSessionService sessionService,
-                            AgentTaskManager taskManager) {
+                            AgentTaskManager taskManager,
+                            ToolConcurrencyLimiter toolConcurrencyLimiter,
+                            MeterRegistry meterRegistry) {
         super("PlanExecuteAgent", chatModel, "plan-execute");
         this.chatClient = ChatClient.builder(chatModel).build();
-        this.tools = tools;
+        // 工具调用受进程级的并发上限约束，所有会话共享
+        this.tools = toolConcurrencyLimiter == null ? tools : toolConcurrencyLimiter.wrap(tools);
         this.maxRounds = maxRounds;
         this.contextCharLimit = contextCharLimit;
         this.maxToolRetries = maxToolRetries;
-        this.toolSemaphore = new Semaphore(3);
+        this.meterRegistry = meterRegistry;
         this.chatMemory = chatMemory;
         this.sessionService = sessionService;
         this.taskManager = taskManager;
@@ -121,6 +123,10 @@ public class PlanExecuteAgent extends BaseAgent {
 
         private AgentTaskManager taskManager;
 
+        private ToolConcurrencyLimiter toolConcurrencyLimiter;
+
+        private MeterRegistry meterRegistry;
+
         public Builder sessionService(AiSessionService sessionService) {
             this.sessionService = sessionService;
             return this;
@@ -131,6 +137,16 @@ public class PlanExecuteAgent extends BaseAgent {
             return this;
         }
 
+        public Builder toolConcurrencyLimiter(ToolConcurrencyLimiter toolConcurrencyLimiter) {
+            this.toolConcurrencyLimiter = toolConcurrencyLimiter;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
         public Builder chatMemory(ChatMemory chatMemory) {
             this.chatMemory = chatMemory;
             return this;
@@ -168,7 +184,8 @@ public class PlanExecuteAgent extends BaseAgent {
 
         public PlanExecuteAgent build() {
             Objects.requireNonNull(chatModel, "chatModel must not be null");
-            return new PlanExecuteAgent(chatModel, tools, maxRounds, contextCharLimit, maxToolRetries, chatMemory, sessionService, taskManager);
+            return new PlanExecuteAgent(chatModel, tools, maxRounds, contextCharLimit, maxToolRetries, chatMemory, sessionService, taskManager,
+                    toolConcurrencyLimiter, meterRegistry);
         }
     }
 
@@ -852,7 +869,7 @@ public class PlanExecuteAgent extends BaseAgent {
 
     /**
      * 执行计划任务
-     * 按照计划任务的顺序和依赖关系执行所有任务，支持同 order 任务并行执行
+     * 按照任务之间的依赖关系调度，依赖就绪的任务立即执行，互不依赖的任务并行执行
      *
      * @param plan           任务计划列表
      * @param state          整体状态
@@ -863,132 +880,30 @@ public class PlanExecuteAgent extends BaseAgent {
      */
     private Map<String, TaskResult> executePlan(List<PlanTask> plan, OverAllState state, Sinks.Many<String> sink,
                                                 AtomicBoolean hasSentFinal, StringBuilder thinkingBuffer) {
+        if (hasSentFinal.get() || compositeDisposable.isDisposed()) {
+            return new ConcurrentHashMap<>();
+        }
 
-        Map<String, TaskResult> results = new ConcurrentHashMap<>();
-
-        // 按 order 分组：order 相同的 task 可并行
-        Map<Integer, List<PlanTask>> grouped = plan.stream().collect(Collectors.groupingBy(PlanTask::order));
-
-        Map<String, String> accumulatedResults = new ConcurrentHashMap<>();
-
-        // 按 order 顺序执行（不同 order 串行）
-        for (Integer order : new TreeSet<>(grouped.keySet())) {
-            if (hasSentFinal.get() || compositeDisposable.isDisposed()) {
-                break;
-            }
+        PlanTaskScheduler scheduler = new PlanTaskScheduler(plan, compositeDisposable, meterRegistry, (task, dependencyContext) -> {
+            TaskResult result = executeWithRetry(task, dependencyContext, sink, hasSentFinal, thinkingBuffer);
 
-            // 构建任务执行的依赖上下文（只传递上一个 order 的结果）
-            String dependencyContext = buildDependencyContext(accumulatedResults, plan, order);
-
-            List<PlanTask> tasks = grouped.get(order);
-
-            // 使用CountDownLatch等待当前order组全部完成
-            CountDownLatch latch = new CountDownLatch(tasks.size());
-
-            for (PlanTask task : tasks) {
-                // 使用Mono包装任务执行
-                Disposable taskDisposable = Mono.fromRunnable(() -> {
-                            boolean acquired = false;
-                            try {
-                                // 检查是否已被停止
-                                if (compositeDisposable.isDisposed()) {
-                                    return;
-                                }
-
-                                // 获取执行许可
-                                toolSemaphore.acquire();
-                                acquired = true;
-
-                                if (task == null || task.id() == null || task.id().isEmpty()) {
-                                    return;
-                                }
-
-                                // 再次检查，避免在acquire后被停止
-                                if (compositeDisposable.isDisposed()) {
-                                    return;
-                                }
-
-                                TaskResult result = executeWithRetry(task, dependencyContext, sink, hasSentFinal, thinkingBuffer);
-                                results.put(task.id(), result);
-
-                                if (result.success() && result.output() != null) {
-                                    accumulatedResults.put(task.id(), result.output());
-                                }
-
-                                // 构建任务结果消息，只在有错误时才显示 error
-                                StringBuilder resultMessage = new StringBuilder();
-                                resultMessage.append("【Completed Task Result】\n");
-                                resultMessage.append("taskId: ").append(task.id()).append("\n");
-                                resultMessage.append("success: ").append(result.success()).append("\n");
-                                if (result.output() != null) {
-                                    resultMessage.append("result:\n").append(result.output()).append("\n");
-                                }
-                                if (result.error() != null) {
-                                    resultMessage.append("error:\n").append(result.error()).append("\n");
-                                }
-                                resultMessage.append("【End Task Result】");
-
-                                state.add(new AssistantMessage(resultMessage.toString()));
-
-                            } catch (InterruptedException e) {
-                                log.info("Task {} 执行被中断", task.id());
-                                Thread.currentThread().interrupt();
-
-                                results.put(task.id(),
-                                        new TaskResult(
-                                                task.id(),
-                                                false,
-                                                null,
-                                                "Task execution interrupted"
-                                        ));
-                            } catch (Exception e) {
-                                // 检查是否是中断导致的异常
-                                if (compositeDisposable.isDisposed() || Thread.currentThread().isInterrupted()
-                                        || (e.getMessage() != null && e.getMessage().contains("interrupted"))) {
-                                    log.info("Task {} 执行被用户停止: {}", task.id(), e.getMessage());
-                                    results.put(task.id(),
-                                            new TaskResult(
-                                                    task.id(),
-                                                    false,
-                                                    null,
-                                                    "Task execution interrupted by user"
-                                            ));
-                                } else {
-                                    log.error("Task execution error", e);
-                                    results.put(task.id(),
-                                            new TaskResult(
-                                                    task.id(),
-                                                    false,
-                                                    null,
-                                                    "Task execution error: " + e.getMessage()
-                                            ));
-                                }
-                            } finally {
-                                // 释放许可
-                                if (acquired) {
-                                    toolSemaphore.release();
-                                }
-                                latch.countDown();
-                            }
-                        })
-                        .subscribeOn(Schedulers.boundedElastic())
-                        .subscribe();
-
-                // 将任务的disposable添加到composite
-                compositeDisposable.add(taskDisposable);
+            // 构建任务结果消息，只在有错误时才显示 error
+            StringBuilder resultMessage = new StringBuilder();
+            resultMessage.append("【Completed Task Result】\n");
+            resultMessage.append("taskId: ").append(task.id()).append("\n");
+            resultMessage.append("success: ").append(result.success()).append("\n");
+            if (result.output() != null) {
+                resultMessage.append("result:\n").append(result.output()).append("\n");
             }
-
-            // 等待当前order组全部完成
-            try {
-                latch.await();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("executePlan interrupted");
-                break;
+            if (result.error() != null) {
+                resultMessage.append("error:\n").append(result.error()).append("\n");
             }
-        }
+            resultMessage.append("【End Task Result】");
 
-        return results;
+            state.add(new AssistantMessage(resultMessage.toString()));
+            return result;
+        });
+        return scheduler.run();
     }
 
 
@@ -1070,53 +985,6 @@ public class PlanExecuteAgent extends BaseAgent {
         );
     }
 
-    /**
-     * 构建任务执行的依赖上下文
-     * 根据任务 order 关系确定依赖：同 order 的任务并行执行不传依赖，不同 order 的任务传递上一个 order 的结果
-     *
-     * @param results      所有已完成任务的结果
-     * @param plan         当前轮次的执行计划（用于获取任务 order）
-     * @param currentOrder 当前任务的 order
-     * @return 依赖上下文字符串（只返回【Available Results】部分）
-     */
-    private String buildDependencyContext(Map<String, String> results, List<PlanTask> plan, int currentOrder) {
-        StringBuilder context = new StringBuilder();
-
-        // 1. 第一个 order 的任务没有依赖
-        if (currentOrder == 1) {
-            return context.append("无\n").toString();
-        }
-
-        // 2. 收集上一个 order 的任务结果
-        boolean hasDependencies = false;
-
-        for (Map.Entry<String, String> entry : results.entrySet()) {
-            // 查找任务对应的 order
-            PlanTask task = plan.stream()
-                    .filter(t -> t.id() != null && t.id().equals(entry.getKey()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (task != null && task.order() == currentOrder - 1) {
-                // 只有上一个 order 的结果才是依赖
-                if (!hasDependencies) {
-                    context.append("任务 ");
-                    hasDependencies = true;
-                }
-                context.append(String.format("%s: %s\n\n",
-                        entry.getKey(),
-                        entry.getValue()));
-            }
-        }
-
-        if (!hasDependencies) {
-            context.append("无\n");
-        }
-
-        return context.toString();
-    }
-
-
     /**
      * 批判评估当前轮次的研究结果
      * 评估本轮研究是否达到预期目标，决定是否需要继续迭代优化
@@ -1210,7 +1078,7 @@ public class PlanExecuteAgent extends BaseAgent {
             return;
         }
 
-        log.warn("===== Context too large, compressing ,size is {} =====", state.currentChars());
+        log.warn("===== Context too large, compressing ,size is {}, estimated tokens {} =====", state.currentChars(), state.currentTokens());
 
         emit(sink, hasSentFinal, "📦 上下文过长，正在压缩...\n", "thinking", thinkingBuffer);
 
@@ -1218,6 +1086,10 @@ public class PlanExecuteAgent extends BaseAgent {
             return;
         }
 
+        // 记录本次压缩覆盖的消息区间，压缩期间追加的消息不参与压缩，替换后保留
+        int compressedCount = state.size();
+        String context = state.renderFullContext();
+
         Prompt prompt = new Prompt(List.of(
                 new SystemMessage(PlanExecutePrompts.getCurrentTime()),
                 new SystemMessage("""
@@ -1229,7 +1101,7 @@ public class PlanExecuteAgent extends BaseAgent {
 
                         """.formatted(contextCharLimit) + PlanExecutePrompts.COMPRESS),
 
-                new UserMessage(state.renderFullContext())
+                new UserMessage(context)
         ));
 
         String snapshot = chatModel.call(prompt)
@@ -1237,8 +1109,7 @@ public class PlanExecuteAgent extends BaseAgent {
                 .getOutput()
                 .getText();
 
-        state.clearMessages();
-        state.add(new SystemMessage("【Compressed Agent State】\n" + snapshot));
+        state.replaceRange(0, compressedCount, new SystemMessage("【Compressed Agent State】\n" + snapshot));
         log.warn("===== Context compress has completed, size is {} =====", state.currentChars());
 
         emit(sink, hasSentFinal, "✅ 上下文压缩完成\n", "thinking", thinkingBuffer);
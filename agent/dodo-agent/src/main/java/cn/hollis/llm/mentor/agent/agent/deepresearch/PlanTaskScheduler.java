@@ -0,0 +1,263 @@
+package cn.hollis.llm.mentor.agent.agent.deepresearch;
+
+import cn.hollis.llm.mentor.agent.entity.record.PlanTask;
+import cn.hollis.llm.mentor.agent.entity.record.TaskResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 计划任务依赖调度器
+ * 按任务之间的实际依赖（dependsOn）调度，某个任务所依赖的任务全部结束后立即开始执行，
+ * 不再按 order 分组整体等待；未声明 dependsOn 的任务依赖上一个 order 的全部任务，与原有语义一致。
+ * <p>
+ * 任务的执行订阅统一加入 compositeDisposable，停止会话时取消尚未开始的任务并立即返回；
+ * 每个任务记录排队耗时（依赖就绪到开始执行）和执行耗时。
+ * 每次执行计划创建一个实例，非线程安全。
+ */
+@Slf4j
+class PlanTaskScheduler {
+
+    /**
+     * 单个任务的执行逻辑
+     */
+    @FunctionalInterface
+    interface TaskRunner {
+
+        /**
+         * @param task              要执行的任务
+         * @param dependencyContext 依赖任务的结果
+         * @return 任务执行结果
+         */
+        TaskResult run(PlanTask task, String dependencyContext);
+    }
+
+    private final Disposable.Composite compositeDisposable;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TaskRunner runner;
+
+    private final Map<String, PlanTask> tasks = new LinkedHashMap<>();
+
+    private final Map<String, List<String>> dependencies = new HashMap<>();
+
+    private final Map<String, List<String>> dependents = new HashMap<>();
+
+    private final Map<String, AtomicInteger> pendingCounts = new HashMap<>();
+
+    private final Map<String, TaskResult> results = new ConcurrentHashMap<>();
+
+    private final Map<String, String> outputs = new ConcurrentHashMap<>();
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private AtomicInteger remaining;
+
+    PlanTaskScheduler(List<PlanTask> plan, Disposable.Composite compositeDisposable, MeterRegistry meterRegistry, TaskRunner runner) {
+        this.compositeDisposable = compositeDisposable;
+        this.meterRegistry = meterRegistry;
+        this.runner = runner;
+        for (PlanTask task : plan) {
+            if (task != null && task.id() != null && !task.id().isEmpty()) {
+                tasks.putIfAbsent(task.id(), task);
+            }
+        }
+        resolveDependencies();
+    }
+
+    /**
+     * 执行全部任务，所有任务结束或会话被停止后返回
+     *
+     * @return 任务执行结果映射（taskId -> TaskResult）
+     */
+    Map<String, TaskResult> run() {
+        List<String> runnable = rejectCycles();
+        if (runnable.isEmpty()) {
+            return results;
+        }
+        remaining = new AtomicInteger(runnable.size());
+
+        // 会话被停止时直接结束等待；composite 已被释放时 add 会立即执行该回调
+        Disposable cancelHook = () -> done.complete(null);
+        compositeDisposable.add(cancelHook);
+        try {
+            long now = System.nanoTime();
+            for (String taskId : runnable) {
+                if (dependencies.get(taskId).isEmpty()) {
+                    submit(tasks.get(taskId), now);
+                }
+            }
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("executePlan interrupted");
+        } catch (ExecutionException e) {
+            log.error("executePlan failed", e.getCause());
+        } finally {
+            compositeDisposable.remove(cancelHook);
+        }
+        return results;
+    }
+
+    /**
+     * 确定每个任务的依赖
+     * 声明了 dependsOn 时只使用其中存在于本轮计划的任务；未声明时依赖上一个 order 的全部任务
+     */
+    private void resolveDependencies() {
+        for (PlanTask task : tasks.values()) {
+            List<String> taskDependencies;
+            if (task.dependsOn() != null) {
+                taskDependencies = task.dependsOn().stream()
+                        .filter(id -> tasks.containsKey(id) && !id.equals(task.id()))
+                        .distinct()
+                        .toList();
+            } else {
+                OptionalInt previousOrder = tasks.values().stream()
+                        .mapToInt(PlanTask::order)
+                        .filter(order -> order < task.order())
+                        .max();
+                taskDependencies = previousOrder.isEmpty() ? List.of() : tasks.values().stream()
+                        .filter(other -> other.order() == previousOrder.getAsInt())
+                        .map(PlanTask::id)
+                        .toList();
+            }
+            dependencies.put(task.id(), taskDependencies);
+            pendingCounts.put(task.id(), new AtomicInteger(taskDependencies.size()));
+            for (String dependency : taskDependencies) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(task.id());
+            }
+        }
+    }
+
+    /**
+     * 拓扑排序检查依赖环，处于环上或依赖环上任务的任务直接判为失败
+     *
+     * @return 可以执行的任务
+     */
+    private List<String> rejectCycles() {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String taskId : tasks.keySet()) {
+            int degree = dependencies.get(taskId).size();
+            inDegree.put(taskId, degree);
+            if (degree == 0) {
+                queue.add(taskId);
+            }
+        }
+        List<String> runnable = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            String taskId = queue.poll();
+            runnable.add(taskId);
+            for (String dependent : dependents.getOrDefault(taskId, List.of())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        if (runnable.size() < tasks.size()) {
+            Set<String> runnableIds = new HashSet<>(runnable);
+            for (String taskId : tasks.keySet()) {
+                if (!runnableIds.contains(taskId)) {
+                    log.warn("Task {} 的依赖存在环，跳过执行, dependsOn={}", taskId, dependencies.get(taskId));
+                    results.put(taskId, new TaskResult(taskId, false, null, "任务依赖存在环: " + dependencies.get(taskId)));
+                }
+            }
+        }
+        return runnable;
+    }
+
+    private void submit(PlanTask task, long readyNanos) {
+        Disposable taskDisposable = Mono.fromRunnable(() -> execute(task, readyNanos))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+        // 将任务的disposable添加到composite，停止会话时一并取消
+        compositeDisposable.add(taskDisposable);
+    }
+
+    private void execute(PlanTask task, long readyNanos) {
+        long startNanos = System.nanoTime();
+        record("dodo_agent.plan_task.queue", null, startNanos - readyNanos);
+        TaskResult result;
+        try {
+            if (compositeDisposable.isDisposed()) {
+                result = new TaskResult(task.id(), false, null, "Task execution interrupted by user");
+            } else {
+                result = runner.run(task, buildDependencyContext(task));
+            }
+        } catch (Exception e) {
+            log.error("Task execution error", e);
+            result = new TaskResult(task.id(), false, null, "Task execution error: " + e.getMessage());
+        }
+        long runNanos = System.nanoTime() - startNanos;
+        record("dodo_agent.plan_task.run", result.success() ? "success" : "failure", runNanos);
+        log.info("Task {} 执行结束, success={}, 排队 {}ms, 执行 {}ms", task.id(), result.success(),
+                TimeUnit.NANOSECONDS.toMillis(startNanos - readyNanos), TimeUnit.NANOSECONDS.toMillis(runNanos));
+
+        results.put(task.id(), result);
+        if (result.success() && result.output() != null) {
+            outputs.put(task.id(), result.output());
+        }
+        onFinished(task.id());
+    }
+
+    /**
+     * 任务结束后释放依赖它的任务；依赖失败时下游任务仍会执行，只是拿不到该依赖的结果
+     */
+    private void onFinished(String taskId) {
+        long now = System.nanoTime();
+        for (String dependent : dependents.getOrDefault(taskId, List.of())) {
+            if (pendingCounts.get(dependent).decrementAndGet() == 0) {
+                submit(tasks.get(dependent), now);
+            }
+        }
+        if (remaining.decrementAndGet() == 0) {
+            done.complete(null);
+        }
+    }
+
+    /**
+     * 构建任务执行的依赖上下文，只包含所依赖任务的成功结果
+     */
+    private String buildDependencyContext(PlanTask task) {
+        StringBuilder context = new StringBuilder();
+        boolean hasDependencies = false;
+        for (String dependency : dependencies.get(task.id())) {
+            String output = outputs.get(dependency);
+            if (output == null) {
+                continue;
+            }
+            if (!hasDependencies) {
+                context.append("任务 ");
+                hasDependencies = true;
+            }
+            context.append(String.format("%s: %s\n\n", dependency, output));
+        }
+
+        if (!hasDependencies) {
+            context.append("无\n");
+        }
+        return context.toString();
+    }
+
+    private void record(String name, String result, long nanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.Builder timer = Timer.builder(name);
+        if (result != null) {
+            timer.tag("result", result);
+        }
+        timer.register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -14,6 +14,7 @@ import cn.hollis.llm.mentor.agent.service.AgentTaskManager;
 import cn.hollis.llm.mentor.agent.service.AiSessionService;
 import cn.hollis.llm.mentor.agent.service.MinioService;
 import cn.hollis.llm.mentor.agent.utils.AppContextClient;
+import cn.hollis.llm.mentor.agent.utils.ImageAssetService;
 import cn.hollis.llm.mentor.agent.utils.ImageGenerationService;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
@@ -46,6 +47,7 @@ public class PPTBuilderAgent extends BaseAgent {
     private final AiPptTemplateService pptTemplateService;
     private final PptPythonRenderService pythonRenderService;
     private final ImageGenerationService imageGenerationService;
+    private final ImageAssetService imageAssetService;
     private final MinioService minioService;
 
     private final List<ToolCallback> toolCallbacks;
@@ -63,6 +65,7 @@ public class PPTBuilderAgent extends BaseAgent {
         this.pptTemplateService = AppContextClient.getBean(AiPptTemplateService.class);
         this.pythonRenderService = AppContextClient.getBean(PptPythonRenderService.class);
         this.imageGenerationService = AppContextClient.getBean(ImageGenerationService.class);
+        this.imageAssetService = AppContextClient.getBean(ImageAssetService.class);
         this.minioService = AppContextClient.getBean(MinioService.class);
 
         this.chatClient = ChatClient.builder(chatModel).build();
@@ -191,6 +194,7 @@ public class PPTBuilderAgent extends BaseAgent {
                 pptTemplateService,
                 pythonRenderService,
                 imageGenerationService,
+                imageAssetService,
                 minioService,
                 sessionService,
                 taskManager,
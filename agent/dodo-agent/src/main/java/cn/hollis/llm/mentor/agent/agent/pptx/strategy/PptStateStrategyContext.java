@@ -2,6 +2,7 @@ package cn.hollis.llm.mentor.agent.agent.pptx.strategy;
 
 import cn.hollis.llm.mentor.agent.entity.record.pptx.AiPptInst;
 import cn.hollis.llm.mentor.agent.service.*;
+import cn.hollis.llm.mentor.agent.utils.ImageAssetService;
 import cn.hollis.llm.mentor.agent.utils.ImageGenerationService;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
@@ -29,6 +30,7 @@ public class PptStateStrategyContext {
     private final AiPptTemplateService pptTemplateService;
     private final PptPythonRenderService pythonRenderService;
     private final ImageGenerationService imageGenerationService;
+    private final ImageAssetService imageAssetService;
     private final MinioService minioService;
     private final AiSessionService sessionService;
     private final AgentTaskManager taskManager;
@@ -45,6 +47,7 @@ public class PptStateStrategyContext {
                                     AiPptTemplateService pptTemplateService,
                                     PptPythonRenderService pythonRenderService,
                                     ImageGenerationService imageGenerationService,
+                                    ImageAssetService imageAssetService,
                                     MinioService minioService,
                                     AiSessionService sessionService,
                                     AgentTaskManager taskManager,
@@ -56,6 +59,7 @@ public class PptStateStrategyContext {
         this.pptTemplateService = pptTemplateService;
         this.pythonRenderService = pythonRenderService;
         this.imageGenerationService = imageGenerationService;
+        this.imageAssetService = imageAssetService;
         this.minioService = minioService;
         this.sessionService = sessionService;
         this.taskManager = taskManager;
@@ -89,6 +93,10 @@ public class PptStateStrategyContext {
         return imageGenerationService;
     }
 
+    public ImageAssetService getImageAssetService() {
+        return imageAssetService;
+    }
+
     public MinioService getMinioService() {
         return minioService;
     }
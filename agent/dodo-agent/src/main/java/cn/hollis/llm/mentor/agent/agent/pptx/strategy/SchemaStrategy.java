@@ -7,24 +7,23 @@ import cn.hollis.llm.mentor.agent.entity.record.pptx.PptInstStatus;
 import cn.hollis.llm.mentor.agent.entity.record.pptx.PptSchema;
 import cn.hollis.llm.mentor.agent.entity.record.pptx.Slide;
 import cn.hollis.llm.mentor.agent.prompts.PptBuilderPrompts;
+import cn.hollis.llm.mentor.agent.utils.ImageAssetService;
 import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.core.ParameterizedTypeReference;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.core.Disposable;
 import reactor.core.scheduler.Schedulers;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Schema生成策略
@@ -57,7 +56,7 @@ public class SchemaStrategy implements PptStateStrategy {
                     context.getPptInstService().updatePptSchema(inst.getId(), pptSchemaJson, TARGET_STATUS);
 
                     // 处理图片生成
-                    processImageGeneration(pptSchema, sink, inst.getConversationId(), context);
+                    processImageGeneration(pptSchema, sink, context);
 
                     // 更新包含图片URL的schema
                     context.getPptInstService().updatePptSchema(inst.getId(), JSON.toJSONString(pptSchema), TARGET_STATUS);
@@ -105,7 +104,7 @@ public class SchemaStrategy implements PptStateStrategy {
                     context.getPptInstService().updatePptSchema(inst.getId(), pptSchemaJson, TARGET_STATUS);
 
                     // 处理图片生成
-                    processImageGeneration(pptSchema, sink, inst.getConversationId(), context);
+                    processImageGeneration(pptSchema, sink, context);
 
                     // 更新包含图片URL的schema
                     context.getPptInstService().updatePptSchema(inst.getId(), JSON.toJSONString(pptSchema), TARGET_STATUS);
@@ -135,8 +134,7 @@ public class SchemaStrategy implements PptStateStrategy {
     /**
      * 处理图片生成
      */
-    private void processImageGeneration(PptSchema pptSchema, Sinks.Many<String> sink, String conversationId,
-                                        PptStateStrategyContext context) {
+    private void processImageGeneration(PptSchema pptSchema, Sinks.Many<String> sink, PptStateStrategyContext context) {
         if (pptSchema.getSlides() == null) {
             return;
         }
@@ -180,69 +178,52 @@ public class SchemaStrategy implements PptStateStrategy {
             return;
         }
 
-        int total = tasks.size();
+        // 相同提示词只生成一次，结果回填到所有引用它的字段
+        Map<String, List<ImageGenerationTask>> tasksByPrompt = new LinkedHashMap<>();
+        for (ImageGenerationTask task : tasks) {
+            tasksByPrompt.computeIfAbsent(task.prompt, k -> new ArrayList<>()).add(task);
+        }
+
+        int total = tasksByPrompt.size();
         sink.tryEmitNext(context.createThinkingResponse("✅PPT内容设计完成，开始生成图片素材\n"));
 
         sink.tryEmitNext(context.createThinkingResponse("共需生成 " + total + " 张图片，开始生成...\n"));
 
-        // 逐个生成图片
-        for (int i = 0; i < tasks.size(); i++) {
-            ImageGenerationTask task = tasks.get(i);
-            int current = i + 1;
-
-            sink.tryEmitNext(context.createThinkingResponse("正在生成图片 (" + current + "/" + total + ")... \n"));
-
-            try {
-                // 调用图片生成服务
-                String originalImageUrl = context.getImageGenerationService().generateImage(task.prompt);
-
-                // 下载图片并上传到MinIO
-                byte[] imageBytes = downloadImageFromUrl(originalImageUrl);
-
-                if (imageBytes != null && imageBytes.length > 0) {
-                    // 上传到MinIO
-                    String objectName = "ppt/" + conversationId + "/images/" + System.currentTimeMillis() + "_" + (i + 1) + ".png";
-                    String minioUrl = context.getMinioService().uploadFile(objectName, imageBytes, "image/png");
+        ImageAssetService imageAssetService = context.getImageAssetService();
+        AtomicInteger finished = new AtomicInteger();
+
+        // 并行生成图片，每张图片完成（生成、下载、上传）后立即回报进度
+        Flux.fromIterable(tasksByPrompt.entrySet())
+                .flatMap(entry -> Mono.fromCallable(() -> imageAssetService.obtainImage(entry.getKey()))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .doOnNext(minioUrl -> {
+                                    // 更新schema中的url为MinIO地址
+                                    entry.getValue().forEach(task -> task.fieldData.setUrl(minioUrl));
+
+                                    emitProgress(sink, context, "✅ 图片生成完成 (" + finished.incrementAndGet() + "/" + total + ")\n");
+                                    log.info("图片已上传到MinIO: {} -> {}", entry.getValue().get(0).key, minioUrl);
+                                })
+                                .onErrorResume(e -> {
+                                    log.error("图片生成或上传失败: {}", entry.getKey(), e);
+                                    // 使用空字符串
+                                    entry.getValue().forEach(task -> task.fieldData.setUrl(""));
+
+                                    emitProgress(sink, context, "⚠ 图片生成失败 (" + finished.incrementAndGet() + "/" + total + "): \n" + entry.getValue().get(0).key);
+                                    return Mono.empty();
+                                }),
+                        imageAssetService.getParallelism())
+                .blockLast();
 
-                    // 更新schema中的url为MinIO地址
-                    task.fieldData.setUrl(minioUrl);
-
-                    sink.tryEmitNext(context.createThinkingResponse("✅ 图片生成完成 (" + current + "/" + total + ")\n"));
-                    log.info("图片已上传到MinIO: {} -> {}", task.key, minioUrl);
-                } else {
-                    throw new RuntimeException("图片下载失败");
-                }
-
-            } catch (Exception e) {
-                log.error("图片生成或上传失败: {}", task.prompt, e);
-                sink.tryEmitNext(context.createThinkingResponse("⚠ 图片生成失败 (" + current + "/" + total + "): \n" + task.key));
-                // 使用空字符串
-                task.fieldData.setUrl("");
-            }
-        }
         sink.tryEmitNext(context.createThinkingResponse("✅ 所有图片生成完成\n"));
         sink.tryEmitNext(context.createThinkingResponse("✅素材准备就绪，开始渲染PPT\n"));
     }
 
     /**
-     * 从URL下载图片
+     * 并行任务在各自线程上回报进度，Sink 不允许并发写入，这里串行化
      */
-    private byte[] downloadImageFromUrl(String imageUrl) throws Exception {
-        HttpClient client = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .build();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(imageUrl))
-                .GET()
-                .build();
-
-        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
-
-        if (response.statusCode() == 200) {
-            return response.body();
-        } else {
-            throw new RuntimeException("下载图片失败，状态码: " + response.statusCode());
+    private void emitProgress(Sinks.Many<String> sink, PptStateStrategyContext context, String message) {
+        synchronized (sink) {
+            sink.tryEmitNext(context.createThinkingResponse(message));
         }
     }
 
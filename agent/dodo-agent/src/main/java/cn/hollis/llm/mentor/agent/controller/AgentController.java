@@ -10,6 +10,8 @@ import cn.hollis.llm.mentor.agent.service.AgentTaskManager;
 import cn.hollis.llm.mentor.agent.service.AiSessionService;
 import cn.hollis.llm.mentor.agent.tool.FileContentService;
 import cn.hollis.llm.mentor.agent.tool.MetasoSearchService;
+import cn.hollis.llm.mentor.agent.tool.ToolConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.memory.ChatMemory;
@@ -56,6 +58,12 @@ public class AgentController implements InitializingBean {
     @Autowired
     private DfaSensitiveWordService sensitiveWordService;
 
+    @Autowired
+    private ToolConcurrencyLimiter toolConcurrencyLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * 网页搜索工具回调
      */
@@ -77,7 +85,8 @@ public class AgentController implements InitializingBean {
             // 使用持久化记忆加载历史记录
             ChatMemory persistentMemory = webSearchReactAgent.createPersistentChatMemory(conversationId, 30);
             webSearchReactAgent.setChatMemory(persistentMemory);
-            return webSearchReactAgent.stream(conversationId, filterQuery(query, conversationId, "webSearch"));
+            return sensitiveWordService.filterStream(
+                    webSearchReactAgent.stream(conversationId, filterQuery(query, conversationId, "webSearch")), conversationId, "webSearch");
         } catch (Exception e) {
             log.error("处理网页搜索请求时发生错误: ", e);
             return Flux.error(e);
@@ -106,7 +115,8 @@ public class AgentController implements InitializingBean {
             // 使用持久化记忆加载历史记录
             ChatMemory persistentMemory = fileReactAgent.createPersistentChatMemory(conversationId, 30);
             fileReactAgent.setChatMemory(persistentMemory);
-            return fileReactAgent.stream(conversationId, filterQuery(query, conversationId, "file"), fileId);
+            return sensitiveWordService.filterStream(
+                    fileReactAgent.stream(conversationId, filterQuery(query, conversationId, "file"), fileId), conversationId, "file");
         } catch (Exception e) {
             log.error("处理文件问答请求时发生错误: ", e);
             return Flux.error(e);
@@ -129,7 +139,8 @@ public class AgentController implements InitializingBean {
             // 使用持久化记忆加载历史记录
             ChatMemory persistentMemory = pptBuilderAgent.createPersistentChatMemory(conversationId, 30);
             pptBuilderAgent.setChatMemory(persistentMemory);
-            return pptBuilderAgent.execute(conversationId, filterQuery(query, conversationId, "pptx"));
+            return sensitiveWordService.filterStream(
+                    pptBuilderAgent.execute(conversationId, filterQuery(query, conversationId, "pptx")), conversationId, "pptx");
         } catch (Exception e) {
             log.error("处理PPT Builder请求时发生错误: ", e);
             return Flux.error(e);
@@ -162,7 +173,8 @@ public class AgentController implements InitializingBean {
             ChatMemory persistentMemory = planExecuteAgent.createPersistentChatMemory(conversationId, 30);
             planExecuteAgent.setChatMemory(persistentMemory);
             // 调用 stream 方法开始流式处理
-            return planExecuteAgent.stream(conversationId, filterQuery(query, conversationId, "deep"));
+            return sensitiveWordService.filterStream(
+                    planExecuteAgent.stream(conversationId, filterQuery(query, conversationId, "deep")), conversationId, "deep");
         } catch (Exception e) {
             log.error("处理深度研究请求时发生错误: ", e);
             return Flux.error(e);
@@ -267,6 +279,8 @@ public class AgentController implements InitializingBean {
                 .tools(webSearchToolCallbacks)
                 .sessionService(sessionService)
                 .taskManager(taskManager)
+                .toolConcurrencyLimiter(toolConcurrencyLimiter)
+                .meterRegistry(meterRegistry)
                 .maxRounds(3)
                 .build();
     }
@@ -1,19 +1,75 @@
 package cn.hollis.llm.mentor.agent.entity;
 
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.springframework.ai.chat.messages.Message;
 
 import java.util.ArrayList;
 import java.util.List;
 
-@Data
+/**
+ * 深度研究的整体状态
+ * <p>
+ * 消息上下文是一个追加写的日志，计划中的多个任务会并发追加执行结果，所有读写都在同一把锁内完成。
+ * 追加时同步维护字符数、估算 token 数以及渲染缓存：
+ * <ul>
+ *   <li>renderFullContext 只会丢弃历史 Critique，因此按最近一次 Critique 把渲染结果分成前后两段增量拼接，
+ *   上下文没有变化时直接返回上次的结果</li>
+ *   <li>extractToolResults 在追加时收集，不再每次遍历全部消息</li>
+ *   <li>压缩时用 replaceRange 替换被压缩的区间，压缩期间追加的消息会保留</li>
+ * </ul>
+ */
 public class OverAllState {
 
+    private static final String CRITIQUE_TAG = "【Critique Feedback】";
+
+    private static final String TASK_RESULT_TAG = "【Completed Task Result】";
+
+    @Getter
     private final String conversationId;
+
+    @Getter
     private final String question;
-    private final List<Message> messages = new ArrayList<>();
+
+    @Getter
     private int round = 0;
-    private String refinedResearchTopic;
+
+    @Getter
+    @Setter
+    private volatile String refinedResearchTopic;
+
+    /**
+     * 以下字段均由 this 保护
+     */
+    private final List<Message> messages = new ArrayList<>();
+
+    private int chars;
+
+    private int estimatedTokens;
+
+    /**
+     * 最近一次 Critique 之前的渲染结果（其中的历史 Critique 已被丢弃）
+     */
+    private final StringBuilder renderedBeforeCritique = new StringBuilder();
+
+    /**
+     * 最近一次 Critique 的渲染结果
+     */
+    private String renderedLastCritique = "";
+
+    /**
+     * 最近一次 Critique 之后的渲染结果
+     */
+    private final StringBuilder renderedAfterCritique = new StringBuilder();
+
+    private String lastCritique;
+
+    private final StringBuilder toolResults = new StringBuilder();
+
+    /**
+     * 上一次 renderFullContext 的结果，上下文变化时置空
+     */
+    private String renderedCache;
 
     public OverAllState(String conversationId, String question) {
         this.question = question;
@@ -24,80 +80,131 @@ public class OverAllState {
         round++;
     }
 
-    public void add(Message m) {
+    public synchronized void add(Message m) {
         messages.add(m);
+        append(m);
+    }
+
+    /**
+     * 当前消息快照
+     */
+    public synchronized List<Message> getMessages() {
+        return List.copyOf(messages);
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    public synchronized int currentChars() {
+        return chars;
     }
 
-    public int currentChars() {
-        return messages.stream()
-                .mapToInt(m -> m.getText() == null ? 0 : m.getText().length())
-                .sum();
+    /**
+     * 估算的 token 数：CJK 字符按 1 个 token，其他字符按 4 个字符 1 个 token
+     */
+    public synchronized int currentTokens() {
+        return estimatedTokens;
     }
 
-    public void clearMessages() {
+    public synchronized void clearMessages() {
+        replaceRange(0, messages.size(), null);
+    }
+
+    /**
+     * 用一条消息替换 [fromIndex, toIndex) 区间，replacement 为 null 时只删除
+     * 用于上下文压缩，替换后重新计算计数和渲染缓存
+     */
+    public synchronized void replaceRange(int fromIndex, int toIndex, Message replacement) {
+        List<Message> tail = new ArrayList<>(messages.subList(toIndex, messages.size()));
+        List<Message> head = new ArrayList<>(messages.subList(0, fromIndex));
         messages.clear();
+        messages.addAll(head);
+        if (replacement != null) {
+            messages.add(replacement);
+        }
+        messages.addAll(tail);
+        rebuild();
     }
 
     /**
      * 渲染完整上下文（过滤历史 Critique，只保留最近一次）
      * 用于 generatePlan 阶段
      */
-    public String renderFullContext() {
-        // 先找到最近一次 Critique Feedback 的索引
-        int lastCritiqueIndex = findLastCritiqueIndex();
-
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < messages.size(); i++) {
-            Message m = messages.get(i);
-            String text = m.getText();
-
-            // 如果这是之前轮次的 Critique Feedback，跳过
-            if (i < lastCritiqueIndex && text != null && text.contains("【Critique Feedback】")) {
-                continue;
-            }
-
-            sb.append("\n\n[").append(m.getMessageType()).append("]\n\n")
-                    .append(text);
+    public synchronized String renderFullContext() {
+        if (renderedCache == null) {
+            renderedCache = new StringBuilder(renderedBeforeCritique.length() + renderedLastCritique.length() + renderedAfterCritique.length())
+                    .append(renderedBeforeCritique)
+                    .append(renderedLastCritique)
+                    .append(renderedAfterCritique)
+                    .toString();
         }
-        return sb.toString();
+        return renderedCache;
     }
 
     /**
      * 提取所有工具执行结果
      * 用于 summarize 阶段生成报告
      */
-    public String extractToolResults() {
-        StringBuilder sb = new StringBuilder();
-        for (Message m : messages) {
-            String text = m.getText();
-            if (text != null && text.contains("【Completed Task Result】")) {
-                sb.append(text).append("\n\n");
-            }
-        }
-        return sb.toString();
+    public synchronized String extractToolResults() {
+        return toolResults.toString();
     }
 
     /**
      * 获取最近一次批判反馈
      */
-    public String getLastCritique() {
-        int index = findLastCritiqueIndex();
-        if (index >= 0) {
-            return messages.get(index).getText();
+    public synchronized String getLastCritique() {
+        return lastCritique;
+    }
+
+    private void append(Message m) {
+        String text = m.getText();
+        if (text != null) {
+            chars += text.length();
+            estimatedTokens += estimateTokens(text);
+        }
+
+        String rendered = "\n\n[" + m.getMessageType() + "]\n\n" + text;
+        if (text != null && text.contains(CRITIQUE_TAG)) {
+            // 之前的 Critique 变为历史，不再渲染；其后的消息并入前段
+            renderedBeforeCritique.append(renderedAfterCritique);
+            renderedAfterCritique.setLength(0);
+            renderedLastCritique = rendered;
+            lastCritique = text;
+        } else {
+            renderedAfterCritique.append(rendered);
+        }
+
+        if (text != null && text.contains(TASK_RESULT_TAG)) {
+            toolResults.append(text).append("\n\n");
         }
-        return null;
+        renderedCache = null;
     }
 
-    /**
-     * 找到最近一次 Critique Feedback 的索引
-     */
-    private int findLastCritiqueIndex() {
-        for (int i = messages.size() - 1; i >= 0; i--) {
-            String text = messages.get(i).getText();
-            if (text != null && text.contains("【Critique Feedback】")) {
-                return i;
+    private void rebuild() {
+        chars = 0;
+        estimatedTokens = 0;
+        renderedBeforeCritique.setLength(0);
+        renderedLastCritique = "";
+        renderedAfterCritique.setLength(0);
+        lastCritique = null;
+        toolResults.setLength(0);
+        renderedCache = null;
+        for (Message m : messages) {
+            append(m);
+        }
+    }
+
+    private static int estimateTokens(String text) {
+        int cjk = 0;
+        int others = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                others++;
             }
         }
-        return -1;
+        return cjk + (others + 3) / 4;
     }
 }
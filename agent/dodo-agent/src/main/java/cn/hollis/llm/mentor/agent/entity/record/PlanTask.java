@@ -1,11 +1,19 @@
 package cn.hollis.llm.mentor.agent.entity.record;
 
+import java.util.List;
+
 /**
  * 计划任务记录
+ *
+ * @param id          任务ID
+ * @param instruction 任务指令
+ * @param order       执行顺序，用于展示；未声明 dependsOn 时依赖上一个 order 的全部任务
+ * @param dependsOn   依赖的任务ID，所依赖的任务完成后即可开始执行
  */
 public record PlanTask(
         String id,
         String instruction,
-        int order
+        int order,
+        List<String> dependsOn
 ) {
 }
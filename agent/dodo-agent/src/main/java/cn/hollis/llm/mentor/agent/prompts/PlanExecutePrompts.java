@@ -52,7 +52,8 @@ public final class PlanExecutePrompts {
             3. 研究型任务的规划要求
                - 优先覆盖事实性、背景性、争议性信息
                - 如存在多个独立信息源，优先并行检索
-               - 如后续步骤依赖前序结果，明确 order 依赖关系
+               - 如后续步骤依赖前序结果，在 dependsOn 中列出所依赖任务的 id，并设置更大的 order
+               - 不依赖其他任务的 task，dependsOn 为空数组，会立即并行执行
 
             4. 如果你判断当前研究信息已经充分
                - 返回一个 task，且 id = null
@@ -67,7 +68,8 @@ public final class PlanExecutePrompts {
               {
                 "id": null,
                 "instruction": "无需调用任何工具",
-                "order": 0
+                "order": 0,
+                "dependsOn": []
               }
             ]
 
@@ -76,12 +78,14 @@ public final class PlanExecutePrompts {
               {
                 "id": "task-1",
                 "instruction": "调用 <工具名> 工具，执行 <明确查询或操作>",
-                "order": 1
+                "order": 1,
+                "dependsOn": []
               },
               {
                 "id": "task-2",
                 "instruction": "调用 <工具名> 工具，执行 <明确查询或操作>",
-                "order": 1
+                "order": 1,
+                "dependsOn": []
               }
             ]
 
@@ -90,20 +94,23 @@ public final class PlanExecutePrompts {
               {
                 "id": "task-1",
                 "instruction": "调用 <工具名> 工具，执行 <明确查询或操作>，获取XX结果",
-                "order": 1
+                "order": 1,
+                "dependsOn": []
               },
               {
                 "id": "task-2",
                 "instruction": "根据task-1的执行结果，调用 <工具名> 工具，执行 <明确查询或操作>",
-                "order": 2
+                "order": 2,
+                "dependsOn": ["task-1"]
               }
             ]
 
             示例4：具有先后关系的执行计划（并行+串行）
             [
-               {"id":"task-1","instruction":"调用 XXX 工具，执行<明确查询或操作>","order":1},
-               {"id":"task-2","instruction":"调用 XXX 工具，执行<明确查询或操作>","order":1},
-               {"id":"task-3","instruction":"根据 task1 和 task-2 的结果，调用 XXX 工具，执行<明确查询或操作>","order":2}
+               {"id":"task-1","instruction":"调用 XXX 工具，执行<明确查询或操作>","order":1,"dependsOn":[]},
+               {"id":"task-2","instruction":"调用 XXX 工具，执行<明确查询或操作>","order":1,"dependsOn":[]},
+               {"id":"task-3","instruction":"根据 task-1 的结果，调用 XXX 工具，执行<明确查询或操作>","order":2,"dependsOn":["task-1"]},
+               {"id":"task-4","instruction":"根据 task-1 和 task-2 的结果，调用 XXX 工具，执行<明确查询或操作>","order":2,"dependsOn":["task-1","task-2"]}
              ]
             """;
 
@@ -0,0 +1,215 @@
+package cn.hollis.llm.mentor.agent.sensitive;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于数组的 Aho-Corasick 自动机
+ * 构建完成后不可变，可在多线程间共享，词库更新时整体替换
+ * <p>
+ * 存储结构：
+ * 根节点使用按字符下标的稠密数组，一次数组访问完成首字符跳转；
+ * 其余节点的出边按节点连续存放（edgeStart 为每个节点的出边起始位置），出边字符有序，用二分查找定位。
+ * 失配时沿 fail 指针回退，扫描文本时每个字符只前进一次，不会从每个下标重新开始匹配。
+ */
+public final class AhoCorasickAutomaton {
+
+    /**
+     * 根节点编号
+     */
+    public static final int ROOT = 0;
+
+    private static final AhoCorasickAutomaton EMPTY = build(List.of());
+
+    /**
+     * 根节点按字符的跳转表，0 表示停留在根节点
+     */
+    private final int[] rootNext;
+
+    /**
+     * 节点 i 的出边位于 [edgeStart[i], edgeStart[i + 1])
+     */
+    private final int[] edgeStart;
+
+    private final char[] edgeChars;
+
+    private final int[] edgeTargets;
+
+    private final int[] fail;
+
+    /**
+     * 节点对应的前缀长度
+     */
+    private final int[] depth;
+
+    /**
+     * 以该节点结尾的最长敏感词长度（含 fail 链上的词），0 表示没有命中
+     */
+    private final int[] matchLength;
+
+    private final int wordCount;
+
+    private AhoCorasickAutomaton(int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                                 int[] fail, int[] depth, int[] matchLength, int wordCount) {
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.depth = depth;
+        this.matchLength = matchLength;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * 空自动机，不命中任何文本
+     */
+    public static AhoCorasickAutomaton empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 根据词库构建自动机
+     *
+     * @param words 敏感词，空串会被忽略
+     * @return 自动机
+     */
+    public static AhoCorasickAutomaton build(Collection<String> words) {
+        // 1. 构建前缀树，key 为 (父节点 << 16) | 字符，只在构建阶段使用
+        Map<Long, Integer> transitions = new HashMap<>();
+        int[] depth = new int[16];
+        int[] wordEnd = new int[16];
+        int stateCount = 1;
+        int wordCount = 0;
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                long key = ((long) state << 16) | word.charAt(i);
+                Integer next = transitions.get(key);
+                if (next == null) {
+                    if (stateCount == depth.length) {
+                        depth = Arrays.copyOf(depth, stateCount * 2);
+                        wordEnd = Arrays.copyOf(wordEnd, stateCount * 2);
+                    }
+                    next = stateCount++;
+                    depth[next] = i + 1;
+                    transitions.put(key, next);
+                }
+                state = next;
+            }
+            if (wordEnd[state] == 0) {
+                wordCount++;
+            }
+            wordEnd[state] = word.length();
+        }
+
+        // 2. 把出边按 (节点, 字符) 排序后连续存放
+        long[] edges = new long[transitions.size()];
+        int edgeCount = 0;
+        for (long key : transitions.keySet()) {
+            edges[edgeCount++] = key;
+        }
+        Arrays.sort(edges);
+        int[] edgeStart = new int[stateCount + 1];
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            int from = (int) (edges[i] >>> 16);
+            char c = (char) (edges[i] & 0xFFFF);
+            int to = transitions.get(edges[i]);
+            edgeStart[from + 1]++;
+            edgeChars[i] = c;
+            edgeTargets[i] = to;
+            if (from == ROOT) {
+                rootNext[c] = to;
+            }
+        }
+        for (int i = 0; i < stateCount; i++) {
+            edgeStart[i + 1] += edgeStart[i];
+        }
+
+        // 3. 按层次遍历计算 fail 指针，并沿 fail 链合并命中的最长词长度
+        int[] fail = new int[stateCount];
+        int[] matchLength = Arrays.copyOf(wordEnd, stateCount);
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(rootNext, edgeStart, edgeChars, edgeTargets,
+                fail, Arrays.copyOf(depth, stateCount), matchLength, wordCount);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int i = edgeStart[ROOT]; i < edgeStart[ROOT + 1]; i++) {
+            queue.add(edgeTargets[i]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = edgeStart[state]; i < edgeStart[state + 1]; i++) {
+                int child = edgeTargets[i];
+                fail[child] = automaton.next(fail[state], edgeChars[i]);
+                matchLength[child] = Math.max(matchLength[child], matchLength[fail[child]]);
+                queue.add(child);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * 读入一个字符后的状态
+     *
+     * @param state 当前状态
+     * @param c     字符
+     * @return 下一个状态
+     */
+    public int next(int state, char c) {
+        while (state != ROOT) {
+            int target = find(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            state = fail[state];
+        }
+        return rootNext[c];
+    }
+
+    /**
+     * 以该状态结尾的最长敏感词长度，0 表示没有命中
+     */
+    public int matchLength(int state) {
+        return matchLength[state];
+    }
+
+    /**
+     * 该状态对应的已匹配前缀长度，后续字符可能与这部分组成敏感词
+     */
+    public int depth(int state) {
+        return depth[state];
+    }
+
+    /**
+     * 词库中的敏感词数量（去重后）
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    private int find(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+}
@@ -1,25 +1,28 @@
 package cn.hollis.llm.mentor.agent.sensitive;
 
+import cn.hollis.llm.mentor.agent.common.AgentResponse;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 基于 DFA 的敏感词过滤服务
- * 启动时加载词库并构建前缀树
- * 运行时先做最长匹配再替换为掩码字符
+ * 敏感词过滤服务
+ * 启动时加载词库并构建 Aho-Corasick 自动机，重新加载时构建新的自动机后整体替换
+ * 支持对完整文本过滤，以及对 Agent 的流式输出逐 token 过滤
  */
 @Slf4j
 @Service
@@ -32,14 +35,14 @@ public class DfaSensitiveWordService {
     private final DfaSensitiveWordProperties properties;
 
     /**
-     * DFA 根节点
-     * key 是首字符
+     * 当前使用的自动机
+     * 只读共享，更新时整体替换引用
      */
-    private volatile Map<Character, DfaNode> root = new ConcurrentHashMap<>();
+    private volatile AhoCorasickAutomaton automaton = AhoCorasickAutomaton.empty();
 
     /**
      * 初始化词库
-     * 容器启动后加载敏感词并构建 DFA
+     * 容器启动后加载敏感词并构建自动机
      */
     @PostConstruct
     public void init() {
@@ -48,14 +51,31 @@ public class DfaSensitiveWordService {
             return;
         }
 
-        List<String> words = loadWords();
-        buildTrie(words);
-        log.info("敏感词词库加载完成, 数量: {}", words.size());
+        reload();
+    }
+
+    /**
+     * 重新加载词库
+     * 新自动机构建完成后才替换，替换前的请求继续使用旧自动机
+     */
+    public void reload() {
+        reload(loadWords());
+    }
+
+    /**
+     * 使用指定词库替换当前自动机，可用于从配置中心等外部来源热更新
+     *
+     * @param words 敏感词列表
+     */
+    public void reload(Collection<String> words) {
+        AhoCorasickAutomaton newAutomaton = AhoCorasickAutomaton.build(words);
+        this.automaton = newAutomaton;
+        log.info("敏感词词库加载完成, 数量: {}", newAutomaton.wordCount());
     }
 
     /**
      * 过滤文本中的敏感词
-     * 使用最长匹配策略避免短词覆盖长词
+     * 所有命中的敏感词（包括相互重叠的）都会被替换为掩码字符
      *
      * @param text 待过滤文本
      * @return 过滤结果
@@ -65,64 +85,68 @@ public class DfaSensitiveWordService {
             return new SensitiveWordFilterResult(text, text, false, List.of());
         }
 
-        List<String> hitWords = new ArrayList<>();
-        StringBuilder filteredText = new StringBuilder(text);
+        AhoCorasickAutomaton current = automaton;
         char maskChar = properties.getMaskChar().charAt(0);
-
-        int index = 0;
-        while (index < text.length()) {
-            MatchResult matchResult = findLongestMatch(text, index);
-            if (!matchResult.hit()) {
-                index++;
+        // 没有命中时不复制文本
+        char[] filtered = null;
+        LinkedHashSet<String> hitWords = null;
+        int state = AhoCorasickAutomaton.ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = current.next(state, text.charAt(i));
+            int matchLength = current.matchLength(state);
+            if (matchLength == 0) {
                 continue;
             }
-
-            hitWords.add(matchResult.word());
-            for (int i = index; i < matchResult.endIndex(); i++) {
-                filteredText.setCharAt(i, maskChar);
+            if (filtered == null) {
+                filtered = text.toCharArray();
+                hitWords = new LinkedHashSet<>();
+            }
+            int start = i + 1 - matchLength;
+            hitWords.add(text.substring(start, i + 1));
+            for (int j = start; j <= i; j++) {
+                filtered[j] = maskChar;
             }
-            index = matchResult.endIndex();
         }
 
-        List<String> distinctHitWords = new ArrayList<>(new LinkedHashSet<>(hitWords));
-        return new SensitiveWordFilterResult(
-                text,
-                filteredText.toString(),
-                !distinctHitWords.isEmpty(),
-                distinctHitWords
-        );
+        if (filtered == null) {
+            return new SensitiveWordFilterResult(text, text, false, List.of());
+        }
+        return new SensitiveWordFilterResult(text, new String(filtered), true, new ArrayList<>(hitWords));
     }
 
     /**
-     * 从指定位置开始查找最长命中的敏感词
-     *
-     * @param text 待匹配文本
-     * @param startIndex 起始下标
-     * @return 匹配结果
+     * 创建流式过滤器，使用当前词库
      */
-    private MatchResult findLongestMatch(String text, int startIndex) {
-        DfaNode currentNode = root.get(text.charAt(startIndex));
-        if (currentNode == null) {
-            return MatchResult.notHit();
-        }
-
-        int endIndex = -1;
-        for (int i = startIndex; i < text.length(); i++) {
-            char currentChar = text.charAt(i);
-            currentNode = i == startIndex ? currentNode : currentNode.children().get(currentChar);
-            if (currentNode == null) {
-                break;
-            }
-            if (currentNode.isWordEnd()) {
-                endIndex = i + 1;
-            }
-        }
+    public SensitiveWordStreamFilter newStreamFilter() {
+        return new SensitiveWordStreamFilter(automaton, properties.getMaskChar().charAt(0));
+    }
 
-        if (endIndex == -1) {
-            return MatchResult.notHit();
+    /**
+     * 过滤 Agent 的流式输出
+     * 只处理 text / thinking 类型的内容，其他类型原样输出；
+     * 可能与后续 token 组成敏感词的尾部会暂缓输出，类型切换或流结束时补发
+     *
+     * @param output         Agent 输出流，每个元素为 {@link AgentResponse} JSON
+     * @param conversationId 会话ID，用于日志
+     * @param scene          场景，用于日志
+     * @return 过滤后的输出流
+     */
+    public Flux<String> filterStream(Flux<String> output, String conversationId, String scene) {
+        if (!properties.isEnabled()) {
+            return output;
         }
-
-        return new MatchResult(true, text.substring(startIndex, endIndex), endIndex);
+        return Flux.defer(() -> {
+            AgentOutputFilter outputFilter = new AgentOutputFilter(newStreamFilter());
+            return output.concatMapIterable(outputFilter::onNext)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(outputFilter.onComplete())))
+                    .doFinally(signal -> {
+                        List<String> hitWords = outputFilter.streamFilter.hitWords();
+                        if (!hitWords.isEmpty()) {
+                            log.warn("输出中检测到敏感词, scene={}, conversationId={}, hitWords={}",
+                                    scene, conversationId, hitWords);
+                        }
+                    });
+        });
     }
 
     /**
@@ -157,63 +181,62 @@ public class DfaSensitiveWordService {
     }
 
     /**
-     * 根据词库构建 DFA 前缀树
-     *
-     * @param words 敏感词列表
+     * 单个输出流的过滤状态
+     * 同一时刻只缓冲一种类型的内容，收到其他类型的元素前先补发缓冲
      */
-    private void buildTrie(List<String> words) {
-        Map<Character, DfaNode> newRoot = new ConcurrentHashMap<>();
-        for (String word : words) {
-            if (!StringUtils.hasText(word)) {
-                continue;
-            }
+    private static final class AgentOutputFilter {
 
-            Map<Character, DfaNode> currentLevel = newRoot;
-            DfaNode currentNode = null;
-            for (char currentChar : word.toCharArray()) {
-                currentNode = currentLevel.computeIfAbsent(currentChar, key -> new DfaNode());
-                currentLevel = currentNode.children();
-            }
+        private final SensitiveWordStreamFilter streamFilter;
 
-            if (currentNode != null) {
-                currentNode.setWordEnd(true);
-            }
-        }
-        this.root = newRoot;
-    }
+        private String pendingType;
 
-    /**
-     * 单次匹配结果
-     *
-     * @param hit 是否命中
-     * @param word 命中的词
-     * @param endIndex 命中结束位置
-     */
-    private record MatchResult(boolean hit, String word, int endIndex) {
-        private static MatchResult notHit() {
-            return new MatchResult(false, null, -1);
+        private AgentOutputFilter(SensitiveWordStreamFilter streamFilter) {
+            this.streamFilter = streamFilter;
         }
-    }
 
-    /**
-     * DFA 节点
-     * children 保存下一个字符的分支
-     * wordEnd 表示当前路径是否能组成一个完整敏感词
-     */
-    private static final class DfaNode {
-        private final Map<Character, DfaNode> children = new ConcurrentHashMap<>();
-        private boolean wordEnd;
+        private List<String> onNext(String chunk) {
+            List<String> result = new ArrayList<>(2);
+            JSONObject response = parse(chunk);
+            String type = response == null ? null : response.getString("type");
+            if (!AgentResponse.TYPE_TEXT.equals(type) && !AgentResponse.TYPE_THINKING.equals(type)) {
+                flush(result);
+                result.add(chunk);
+                return result;
+            }
+
+            if (!type.equals(pendingType)) {
+                flush(result);
+                pendingType = type;
+            }
+            String filtered = streamFilter.append(response.getString("content"));
+            if (!filtered.isEmpty()) {
+                result.add(AgentResponse.json(type, filtered));
+            }
+            return result;
+        }
 
-        public Map<Character, DfaNode> children() {
-            return children;
+        private List<String> onComplete() {
+            List<String> result = new ArrayList<>(1);
+            flush(result);
+            return result;
         }
 
-        public boolean isWordEnd() {
-            return wordEnd;
+        private void flush(List<String> result) {
+            String remaining = streamFilter.finish();
+            if (!remaining.isEmpty()) {
+                result.add(AgentResponse.json(pendingType, remaining));
+            }
         }
 
-        public void setWordEnd(boolean wordEnd) {
-            this.wordEnd = wordEnd;
+        private static JSONObject parse(String chunk) {
+            if (chunk == null || chunk.isEmpty() || chunk.charAt(0) != '{') {
+                return null;
+            }
+            try {
+                return JSON.parseObject(chunk);
+            } catch (Exception e) {
+                return null;
+            }
         }
     }
 }
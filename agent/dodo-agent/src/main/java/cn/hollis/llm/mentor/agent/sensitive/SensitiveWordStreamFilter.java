@@ -0,0 +1,102 @@
+package cn.hollis.llm.mentor.agent.sensitive;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 流式敏感词过滤器
+ * 用于大模型逐 token 输出的场景，敏感词被拆在多个 token 中时同样能够命中
+ * <p>
+ * 每次追加文本后，只输出已经不可能再参与匹配的部分；
+ * 自动机当前状态对应的前缀（最多为最长敏感词长度 - 1 个字符）暂存在缓冲中，等后续文本或 {@link #finish()} 再输出。
+ * <p>
+ * 有状态，非线程安全，每个输出流使用一个实例。
+ */
+public final class SensitiveWordStreamFilter {
+
+    private final AhoCorasickAutomaton automaton;
+
+    private final char maskChar;
+
+    /**
+     * 尚未输出的文本（已掩码）
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    /**
+     * 尚未输出的原始文本，用于记录命中的词
+     */
+    private final StringBuilder original = new StringBuilder();
+
+    private final Set<String> hitWords = new LinkedHashSet<>();
+
+    private int state = AhoCorasickAutomaton.ROOT;
+
+    SensitiveWordStreamFilter(AhoCorasickAutomaton automaton, char maskChar) {
+        this.automaton = automaton;
+        this.maskChar = maskChar;
+    }
+
+    /**
+     * 追加一段文本
+     *
+     * @param chunk 新到达的文本
+     * @return 可以立即输出的已过滤文本，可能为空串
+     */
+    public String append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return "";
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            pending.append(c);
+            original.append(c);
+            state = automaton.next(state, c);
+            int matchLength = automaton.matchLength(state);
+            if (matchLength > 0) {
+                int end = pending.length();
+                hitWords.add(original.substring(end - matchLength, end));
+                for (int j = end - matchLength; j < end; j++) {
+                    pending.setCharAt(j, maskChar);
+                }
+            }
+        }
+
+        // 当前前缀之前的字符不会再被后续文本命中，可以输出
+        int emitLength = pending.length() - automaton.depth(state);
+        if (emitLength <= 0) {
+            return "";
+        }
+        String output = pending.substring(0, emitLength);
+        pending.delete(0, emitLength);
+        original.delete(0, emitLength);
+        return output;
+    }
+
+    /**
+     * 输出流结束，返回缓冲中剩余的文本并重置匹配状态
+     */
+    public String finish() {
+        String output = pending.toString();
+        pending.setLength(0);
+        original.setLength(0);
+        state = AhoCorasickAutomaton.ROOT;
+        return output;
+    }
+
+    /**
+     * 是否有尚未输出的文本
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * 到目前为止命中的敏感词（去重）
+     */
+    public List<String> hitWords() {
+        return new ArrayList<>(hitWords);
+    }
+}
@@ -1,7 +1,9 @@
 package cn.hollis.llm.mentor.agent.service;
 
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.Item;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -22,8 +24,21 @@ public class MinioService {
     @Value("${minio.endpoint}")
     private String endpoint;
 
+    /**
+     * 流式上传未知长度内容时的分片大小
+     */
+    private static final long STREAM_PART_SIZE = 10L * 1024 * 1024;
+
+    /**
+     * bucket 是否已确认存在，避免每次上传都多一次往返
+     */
+    private volatile boolean bucketReady;
+
     // 确保 bucket 存在
     private void createBucketIfNotExists(boolean publicRead) throws Exception {
+        if (bucketReady) {
+            return;
+        }
         if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
             minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
 
@@ -38,6 +53,7 @@ public class MinioService {
                 );
             }
         }
+        bucketReady = true;
     }
 
     // 上传文件
@@ -76,6 +92,61 @@ public class MinioService {
         }
     }
 
+    /**
+     * 流式上传，内容直接从输入流写入 MinIO，不在内存中整体缓冲
+     *
+     * @param objectName  对象名
+     * @param stream      输入流，由调用方负责关闭
+     * @param size        内容长度，未知时传 -1，按分片上传
+     * @param contentType 内容类型
+     * @return 对象访问地址
+     */
+    public String uploadStream(String objectName, InputStream stream, long size, String contentType) throws Exception {
+        createBucketIfNotExists(true);
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .stream(stream, size, size >= 0 ? -1 : STREAM_PART_SIZE)
+                        .contentType(contentType)
+                        .build()
+        );
+        return getObjectUrl(objectName);
+    }
+
+    /**
+     * 查找以指定前缀开头的第一个对象，只发起一次列举请求
+     *
+     * @param prefix 对象名前缀
+     * @return 对象名，不存在时返回 null
+     */
+    public String findObjectName(String prefix) throws Exception {
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .maxKeys(1)
+                    .build())) {
+                return result.get().objectName();
+            }
+            return null;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchBucket".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 对象访问地址
+     */
+    public String getObjectUrl(String objectName) {
+        // 确保endpoint末尾没有斜杠，避免重复斜杠
+        String cleanEndpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        return String.format("%s/%s/%s", cleanEndpoint, bucketName, objectName);
+    }
+
     // 下载文件（返回 InputStream）
     public InputStream downloadFile(String objectName) throws Exception {
         GetObjectResponse response = minioClient.getObject(
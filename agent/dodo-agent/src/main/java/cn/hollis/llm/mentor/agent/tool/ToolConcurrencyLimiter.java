@@ -0,0 +1,116 @@
+package cn.hollis.llm.mentor.agent.tool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工具并发限制器
+ * 为每个工具维护一个进程级的信号量，包装后的 ToolCallback 在调用前获取许可，
+ * 不同会话、不同 Agent 实例共享同一份并发预算
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ToolConcurrencyLimiter {
+
+    private final ToolConcurrencyProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 工具名称 -> 信号量
+     */
+    private final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    /**
+     * 包装工具回调，调用时受并发上限约束
+     *
+     * @param tools 原始工具回调
+     * @return 包装后的工具回调
+     */
+    public List<ToolCallback> wrap(List<ToolCallback> tools) {
+        return tools.stream()
+                .map(tool -> tool instanceof LimitedToolCallback ? tool : new LimitedToolCallback(tool))
+                .toList();
+    }
+
+    private Semaphore semaphore(String toolName) {
+        return semaphores.computeIfAbsent(toolName, name -> {
+            int limit = properties.getLimits().getOrDefault(name, properties.getDefaultLimit());
+            Semaphore semaphore = new Semaphore(limit, true);
+            meterRegistry.gauge("dodo_agent.tool.available_permits", Tags.of("tool", name), semaphore, Semaphore::availablePermits);
+            log.info("工具并发上限, tool={}, limit={}", name, limit);
+            return semaphore;
+        });
+    }
+
+    /**
+     * 受并发限制的工具回调
+     */
+    private final class LimitedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        private LimitedToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            String toolName = delegate.getToolDefinition().name();
+            Semaphore semaphore = semaphore(toolName);
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = semaphore.tryAcquire(properties.getAcquireTimeoutSeconds(), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("工具调用被中断: " + toolName, e);
+            }
+            Timer.builder("dodo_agent.tool.wait")
+                    .tag("tool", toolName)
+                    .tag("result", acquired ? "acquired" : "timeout")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                log.warn("工具并发已满，等待超时, tool={}", toolName);
+                return "工具 " + toolName + " 当前调用繁忙，请稍后重试或改用其他方式完成任务";
+            }
+
+            try {
+                return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+            } finally {
+                semaphore.release();
+            }
+        }
+    }
+}
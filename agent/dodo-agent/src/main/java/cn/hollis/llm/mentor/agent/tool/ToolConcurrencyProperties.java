@@ -0,0 +1,33 @@
+package cn.hollis.llm.mentor.agent.tool;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工具并发配置
+ * 并发上限按工具名称在整个进程内共享，所有会话共用
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.tool-concurrency")
+public class ToolConcurrencyProperties {
+
+    /**
+     * 未单独配置的工具的并发上限
+     */
+    private int defaultLimit = 8;
+
+    /**
+     * 按工具名称配置的并发上限
+     */
+    private Map<String, Integer> limits = new HashMap<>();
+
+    /**
+     * 等待并发许可的超时时间（秒）
+     */
+    private long acquireTimeoutSeconds = 60;
+}
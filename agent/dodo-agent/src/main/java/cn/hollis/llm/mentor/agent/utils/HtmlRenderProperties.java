@@ -0,0 +1,44 @@
+package cn.hollis.llm.mentor.agent.utils;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTML 渲染浏览器池配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.html-render")
+public class HtmlRenderProperties {
+
+    /**
+     * 浏览器池大小，即同时可渲染的页面数，每个槽位持有一个独立的浏览器和页面
+     */
+    private int poolSize = 4;
+
+    /**
+     * 单个浏览器累计渲染多少次后回收重建，避免长期运行的内存膨胀
+     */
+    private int maxRendersPerBrowser = 200;
+
+    /**
+     * 等待空闲浏览器的超时时间（秒）
+     */
+    private long acquireTimeoutSeconds = 60;
+
+    /**
+     * 写入 HTML 后等待渲染的时间（毫秒）
+     */
+    private int renderWaitMillis = 300;
+
+    /**
+     * 视口宽度
+     */
+    private int width = 1280;
+
+    /**
+     * 视口高度
+     */
+    private int height = 720;
+}
@@ -1,36 +1,272 @@
 package cn.hollis.llm.mentor.agent.utils;
 
 import com.microsoft.playwright.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * HTML 渲染服务
+ * 维护一个长期存活的无头浏览器池，每个槽位持有独立的 Playwright、浏览器和页面，
+ * 渲染时独占借出、用完归还，避免每张幻灯片都冷启动一次浏览器。
+ * Playwright 对象不是线程安全的，同一个槽位同一时刻只会被一个线程使用。
+ */
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class HtmlRenderService {
 
+    private final HtmlRenderProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 空闲的浏览器槽位，后进先出，优先复用最近用过的
+     */
+    private final BlockingDeque<RenderWorker> idleWorkers = new LinkedBlockingDeque<>();
+
+    /**
+     * 当前存活的浏览器数
+     */
+    private final AtomicInteger liveBrowsers = new AtomicInteger();
+
+    /**
+     * 当前正在渲染的槽位数
+     */
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+
+    /**
+     * 槽位许可，数量等于池大小
+     */
+    private Semaphore permits;
+
+    /**
+     * 批量渲染使用的线程池，大小与浏览器池一致
+     */
+    private ExecutorService renderExecutor;
+
+    private Timer acquireTimer;
+
+    private Timer batchTimer;
+
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, properties.getPoolSize());
+        permits = new Semaphore(poolSize, true);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        renderExecutor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread thread = new Thread(r, "html-render-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        acquireTimer = Timer.builder("dodo_agent.html_render.acquire")
+                .description("等待空闲浏览器的耗时")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("dodo_agent.html_render.batch")
+                .description("整份幻灯片批量渲染耗时")
+                .register(meterRegistry);
+        meterRegistry.gauge("dodo_agent.html_render.pool.busy", busyWorkers);
+        meterRegistry.gauge("dodo_agent.html_render.pool.browsers", liveBrowsers);
+        meterRegistry.gauge("dodo_agent.html_render.pool.waiting", permits, Semaphore::getQueueLength);
+
+        log.info("HTML渲染浏览器池初始化, poolSize={}, maxRendersPerBrowser={}", poolSize, properties.getMaxRendersPerBrowser());
+    }
+
+    /**
+     * 渲染单页 HTML 为 PNG
+     *
+     * @param html HTML 内容
+     * @return PNG 图片字节
+     */
     public byte[] htmlToImage(String html) {
+        RenderWorker worker = acquire();
+        long start = System.nanoTime();
+        try {
+            byte[] image = worker.render(html);
+            recordRender("success", start);
+            release(worker);
+            return image;
+        } catch (RuntimeException e) {
+            recordRender("error", start);
+            discard(worker, "error");
+            throw new RuntimeException("HTML渲染失败", e);
+        }
+    }
+
+    /**
+     * 并发渲染多页 HTML，返回的图片顺序与输入一致
+     *
+     * @param htmlList HTML 列表
+     * @return PNG 图片字节列表
+     */
+    public List<byte[]> htmlToImages(List<String> htmlList) {
+        if (htmlList == null || htmlList.isEmpty()) {
+            return List.of();
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<CompletableFuture<byte[]>> futures = htmlList.stream()
+                    .map(html -> CompletableFuture.supplyAsync(() -> htmlToImage(html), renderExecutor))
+                    .toList();
 
-        try (Playwright playwright = Playwright.create()) {
+            List<byte[]> images = new ArrayList<>(futures.size());
+            for (CompletableFuture<byte[]> future : futures) {
+                images.add(future.join());
+            }
+            return images;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        } finally {
+            sample.stop(batchTimer);
+        }
+    }
 
-            Browser browser = playwright.chromium()
-                    .launch(new BrowserType.LaunchOptions()
-                            .setHeadless(true));
+    private RenderWorker acquire() {
+        if (closed) {
+            throw new IllegalStateException("HTML渲染服务已关闭");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(properties.getAcquireTimeoutSeconds(), TimeUnit.SECONDS)) {
+                throw new IllegalStateException("等待渲染浏览器超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待渲染浏览器被中断", e);
+        } finally {
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
 
-            BrowserContext context = browser.newContext(
-                    new Browser.NewContextOptions()
-                            .setViewportSize(1280, 720)
-            );
+        try {
+            RenderWorker worker;
+            while ((worker = idleWorkers.pollFirst()) != null) {
+                if (worker.isHealthy()) {
+                    break;
+                }
+                closeWorker(worker, "unhealthy");
+            }
+            if (worker == null) {
+                worker = new RenderWorker();
+            }
+            busyWorkers.incrementAndGet();
+            return worker;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(RenderWorker worker) {
+        busyWorkers.decrementAndGet();
+        if (closed) {
+            closeWorker(worker, "shutdown");
+        } else if (worker.renders >= properties.getMaxRendersPerBrowser()) {
+            closeWorker(worker, "max_renders");
+        } else {
+            idleWorkers.offerFirst(worker);
+        }
+        permits.release();
+    }
+
+    private void discard(RenderWorker worker, String reason) {
+        busyWorkers.decrementAndGet();
+        closeWorker(worker, reason);
+        permits.release();
+    }
+
+    private void closeWorker(RenderWorker worker, String reason) {
+        Counter.builder("dodo_agent.html_render.recycled")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        worker.close();
+    }
+
+    private void recordRender(String outcome, long startNanos) {
+        Timer.builder("dodo_agent.html_render.render")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        renderExecutor.shutdownNow();
+        RenderWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            worker.close();
+        }
+    }
+
+    /**
+     * 浏览器槽位：一个 Playwright 实例、一个浏览器和一个复用的页面
+     */
+    private final class RenderWorker {
+
+        private final Playwright playwright;
+
+        private final Browser browser;
+
+        private final Page page;
 
-            Page page = context.newPage();
+        private int renders;
 
+        private RenderWorker() {
+            Playwright created = Playwright.create();
+            try {
+                browser = created.chromium()
+                        .launch(new BrowserType.LaunchOptions()
+                                .setHeadless(true));
+                BrowserContext context = browser.newContext(
+                        new Browser.NewContextOptions()
+                                .setViewportSize(properties.getWidth(), properties.getHeight())
+                );
+                page = context.newPage();
+            } catch (RuntimeException e) {
+                created.close();
+                throw e;
+            }
+            playwright = created;
+            liveBrowsers.incrementAndGet();
+        }
+
+        private boolean isHealthy() {
+            return browser.isConnected() && !page.isClosed();
+        }
+
+        private byte[] render(String html) {
+            renders++;
             page.setContent(html);
-            page.waitForTimeout(300); // 等待渲染
+            page.waitForTimeout(properties.getRenderWaitMillis()); // 等待渲染
 
             return page.screenshot(
                     new Page.ScreenshotOptions()
                             .setFullPage(false)
             );
         }
+
+        private void close() {
+            liveBrowsers.decrementAndGet();
+            try {
+                playwright.close();
+            } catch (RuntimeException e) {
+                log.warn("关闭渲染浏览器失败", e);
+            }
+        }
     }
 }
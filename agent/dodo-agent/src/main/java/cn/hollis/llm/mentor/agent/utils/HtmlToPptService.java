@@ -27,12 +27,12 @@ public class HtmlToPptService {
 
             ppt.setPageSize(new Dimension(WIDTH, HEIGHT));
 
-            for (String html : htmlSlides) {
+            // HTML → PNG，整份幻灯片并发渲染，结果顺序与输入一致
+            List<byte[]> images = renderService.htmlToImages(htmlSlides);
 
-                XSLFSlide slide = ppt.createSlide();
+            for (byte[] image : images) {
 
-                // HTML → PNG
-                byte[] image = renderService.htmlToImage(html);
+                XSLFSlide slide = ppt.createSlide();
 
                 // PNG → PPT
                 XSLFPictureData pd = ppt.addPicture(
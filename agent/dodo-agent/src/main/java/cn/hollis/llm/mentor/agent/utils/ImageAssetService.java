@@ -0,0 +1,145 @@
+package cn.hollis.llm.mentor.agent.utils;
+
+import cn.hollis.llm.mentor.agent.common.ImageProvider;
+import cn.hollis.llm.mentor.agent.service.MinioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 图片素材服务
+ * 负责"生成 → 下载 → 存入 MinIO"的完整流程。对象名由服务商和提示词哈希决定，扩展名取自下载响应的 Content-Type，
+ * 相同提示词再次出现时（例如修改PPT后重新生成）直接复用已存储的图片。图片只与提示词有关，不区分会话。
+ */
+@Slf4j
+@Service
+public class ImageAssetService {
+
+    private static final String OBJECT_PREFIX = "ppt/images/";
+
+    private static final String DEFAULT_CONTENT_TYPE = "image/png";
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(30))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    @Autowired
+    private ImageGenerationService imageGenerationService;
+
+    @Autowired
+    private MinioService minioService;
+
+    @Autowired
+    private ImageGenerationProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 单份PPT内并行处理的图片数
+     */
+    public int getParallelism() {
+        return Math.max(1, properties.getParallelism());
+    }
+
+    /**
+     * 获取提示词对应的图片（默认使用qwen）
+     *
+     * @param prompt 提示词
+     * @return MinIO 中的图片地址
+     */
+    public String obtainImage(String prompt) throws Exception {
+        return obtainImage(prompt, ImageProvider.QWEN);
+    }
+
+    /**
+     * 获取提示词对应的图片，命中缓存时直接返回，否则生成后流式写入 MinIO
+     *
+     * @param prompt   提示词
+     * @param provider 图像生成服务提供商
+     * @return MinIO 中的图片地址
+     */
+    public String obtainImage(String prompt, ImageProvider provider) throws Exception {
+        long start = System.nanoTime();
+        String baseName = OBJECT_PREFIX + provider.name().toLowerCase() + "/" + promptHash(prompt);
+
+        // 扩展名在下载后才能确定，按 "哈希." 前缀查找已存储的图片
+        if (properties.isCacheEnabled()) {
+            String cachedObjectName = minioService.findObjectName(baseName + ".");
+            if (cachedObjectName != null) {
+                log.info("图片缓存命中: {}", cachedObjectName);
+                record("cache", start);
+                return minioService.getObjectUrl(cachedObjectName);
+            }
+        }
+
+        String imageUrl = imageGenerationService.generateImage(prompt, provider);
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            throw new RuntimeException("图片生成失败");
+        }
+
+        String minioUrl = transferToMinio(imageUrl, baseName);
+        record("generated", start);
+        return minioUrl;
+    }
+
+    /**
+     * 下载图片并直接以流的方式写入 MinIO，对象扩展名与实际的图片格式一致
+     */
+    private String transferToMinio(String imageUrl, String baseName) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(imageUrl))
+                .timeout(Duration.ofMinutes(2))
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new RuntimeException("下载图片失败，状态码: " + response.statusCode());
+            }
+            long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            String contentType = response.headers().firstValue("Content-Type")
+                    .map(value -> value.split(";")[0].trim().toLowerCase())
+                    .filter(value -> value.startsWith("image/"))
+                    .orElse(DEFAULT_CONTENT_TYPE);
+            return minioService.uploadStream(baseName + "." + extension(contentType), body, size, contentType);
+        }
+    }
+
+    /**
+     * 图片 Content-Type 对应的扩展名
+     */
+    private static String extension(String contentType) {
+        return switch (contentType) {
+            case "image/jpeg", "image/jpg" -> "jpg";
+            case "image/svg+xml" -> "svg";
+            default -> contentType.substring("image/".length());
+        };
+    }
+
+    private static String promptHash(String prompt) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(prompt.trim().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void record(String source, long startNanos) {
+        Timer.builder("dodo_agent.image.asset")
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+}
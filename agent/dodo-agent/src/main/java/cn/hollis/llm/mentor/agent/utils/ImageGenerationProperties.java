@@ -0,0 +1,59 @@
+package cn.hollis.llm.mentor.agent.utils;
+
+import cn.hollis.llm.mentor.agent.common.ImageProvider;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 图片生成配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "agent.image-generation")
+public class ImageGenerationProperties {
+
+    /**
+     * 单份PPT内并行处理（生成、下载、上传）的图片数
+     */
+    private int parallelism = 4;
+
+    /**
+     * 等待服务商调用许可的超时时间（秒）
+     */
+    private long acquireTimeoutSeconds = 300;
+
+    /**
+     * 是否按提示词哈希复用已生成的图片
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * 按服务商配置的限流，未配置的服务商使用默认值
+     */
+    private Map<ImageProvider, ProviderLimit> providers = new EnumMap<>(ImageProvider.class);
+
+    public ProviderLimit limitOf(ImageProvider provider) {
+        return providers.getOrDefault(provider, new ProviderLimit());
+    }
+
+    /**
+     * 服务商级限流配置，进程内所有会话共享
+     */
+    @Data
+    public static class ProviderLimit {
+
+        /**
+         * 同时进行中的生成请求上限
+         */
+        private int maxConcurrency = 2;
+
+        /**
+         * 每分钟最多发起的生成请求数，0 表示不限制
+         */
+        private int requestsPerMinute = 0;
+    }
+}
@@ -4,6 +4,7 @@ import cn.hollis.llm.mentor.agent.common.ImageProvider;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +17,9 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -31,6 +35,14 @@ public class ImageGenerationService {
     private String grsAiApiKey;
     private static final String GRS_AI_GENERATION_URL = "https://grsai.dakka.com.cn/v1/draw/nano-banana";
 
+    @Autowired
+    private ImageGenerationProperties properties;
+
+    /**
+     * 服务商 -> 限流器，进程内所有会话共享
+     */
+    private final Map<ImageProvider, ProviderLimiter> limiters = new ConcurrentHashMap<>();
+
     /**
      * 生成图像（默认使用qwen）
      *
@@ -49,10 +61,17 @@ public class ImageGenerationService {
      * @return 图像URL
      */
     public String generateImage(String prompt, ImageProvider provider) {
-        if (provider == ImageProvider.QWEN) {
-            return generateWithQwen(prompt);
-        } else {
-            return generateWithNanoBanana(prompt);
+        ProviderLimiter limiter = limiters.computeIfAbsent(provider,
+                p -> new ProviderLimiter(p, properties.limitOf(p)));
+        limiter.acquire();
+        try {
+            if (provider == ImageProvider.QWEN) {
+                return generateWithQwen(prompt);
+            } else {
+                return generateWithNanoBanana(prompt);
+            }
+        } finally {
+            limiter.release();
         }
     }
 
@@ -232,6 +251,66 @@ public class ImageGenerationService {
         return null;
     }
 
+    /**
+     * 服务商级限流器：信号量限制同时进行中的请求数，
+     * 按每分钟请求数预约发起时间，两次请求的间隔不小于 60s / requestsPerMinute
+     */
+    private final class ProviderLimiter {
+
+        private final ImageProvider provider;
+
+        private final Semaphore concurrency;
+
+        private final long intervalNanos;
+
+        private long nextSlotNanos = System.nanoTime();
+
+        private ProviderLimiter(ImageProvider provider, ImageGenerationProperties.ProviderLimit limit) {
+            this.provider = provider;
+            this.concurrency = new Semaphore(Math.max(1, limit.getMaxConcurrency()), true);
+            this.intervalNanos = limit.getRequestsPerMinute() > 0
+                    ? TimeUnit.MINUTES.toNanos(1) / limit.getRequestsPerMinute()
+                    : 0;
+            log.info("图像生成限流, provider={}, maxConcurrency={}, requestsPerMinute={}",
+                    provider, limit.getMaxConcurrency(), limit.getRequestsPerMinute());
+        }
+
+        private void acquire() {
+            try {
+                if (!concurrency.tryAcquire(properties.getAcquireTimeoutSeconds(), TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("等待图像生成许可超时, provider=" + provider);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待图像生成许可被中断", e);
+            }
+            long waitNanos = reserveSlot();
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    concurrency.release();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待图像生成许可被中断", e);
+                }
+            }
+        }
+
+        private synchronized long reserveSlot() {
+            if (intervalNanos == 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + intervalNanos;
+            return slot - now;
+        }
+
+        private void release() {
+            concurrency.release();
+        }
+    }
+
     private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(30))
             .build();
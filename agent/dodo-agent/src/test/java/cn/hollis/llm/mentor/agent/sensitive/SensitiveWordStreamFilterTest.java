@@ -0,0 +1,100 @@
+package cn.hollis.llm.mentor.agent.sensitive;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SensitiveWordStreamFilterTest {
+
+    private static SensitiveWordStreamFilter newFilter(String... words) {
+        return new SensitiveWordStreamFilter(AhoCorasickAutomaton.build(List.of(words)), '*');
+    }
+
+    /**
+     * 逐块追加后拼接全部输出
+     */
+    private static String filterChunks(SensitiveWordStreamFilter filter, String... chunks) {
+        StringBuilder output = new StringBuilder();
+        for (String chunk : chunks) {
+            output.append(filter.append(chunk));
+        }
+        output.append(filter.finish());
+        return output.toString();
+    }
+
+    @Test
+    public void testFailLinkCarriesShorterWordMatch() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(List.of("he", "she", "his", "hers"));
+        int state = AhoCorasickAutomaton.ROOT;
+        for (char c : "she".toCharArray()) {
+            state = automaton.next(state, c);
+        }
+        // "she" 结尾同时命中 "he"，取最长的词
+        assertEquals(3, automaton.matchLength(state));
+        assertEquals(3, automaton.depth(state));
+
+        // "sh" + 'i' 失配后沿 fail 指针回到 "h"，继续匹配出 "his"
+        state = AhoCorasickAutomaton.ROOT;
+        for (char c : "shis".toCharArray()) {
+            state = automaton.next(state, c);
+        }
+        assertEquals(3, automaton.matchLength(state));
+        assertEquals(4, automaton.wordCount());
+    }
+
+    @Test
+    public void testOverlappingWordsAreAllMasked() {
+        SensitiveWordStreamFilter filter = newFilter("he", "she", "his", "hers");
+        assertEquals("u*****", filterChunks(filter, "ushers"));
+        assertEquals(List.of("she", "hers"), filter.hitWords());
+    }
+
+    @Test
+    public void testWordInsideLongerPrefixIsMasked() {
+        // "abcx" 在 x 处失配，但经过的 "bc" 已经命中
+        SensitiveWordStreamFilter filter = newFilter("abcd", "bc");
+        assertEquals("a**x", filterChunks(filter, "abcx"));
+        assertEquals(List.of("bc"), filter.hitWords());
+    }
+
+    @Test
+    public void testWordSplitAcrossChunks() {
+        SensitiveWordStreamFilter filter = newFilter("敏感词");
+        assertEquals("这是", filter.append("这是敏"));
+        assertEquals("", filter.append("感"));
+        assertEquals("***。", filter.append("词。"));
+        assertEquals("", filter.finish());
+        assertEquals(List.of("敏感词"), filter.hitWords());
+    }
+
+    @Test
+    public void testEachCharacterAsChunk() {
+        SensitiveWordStreamFilter filter = newFilter("he", "she", "his", "hers");
+        assertEquals("u*****, ***s", filterChunks(filter, "u", "s", "h", "e", "r", "s", ",", " ", "h", "i", "s", "s"));
+    }
+
+    @Test
+    public void testFinishFlushesHeldBackTail() {
+        SensitiveWordStreamFilter filter = newFilter("abc");
+        // 结尾的 "ab" 可能与后续文本组成敏感词，先暂存
+        assertEquals("xy", filter.append("xyab"));
+        assertTrue(filter.hasPending());
+        assertEquals("ab", filter.finish());
+        assertFalse(filter.hasPending());
+        assertTrue(filter.hitWords().isEmpty());
+
+        // finish 会重置匹配状态，暂存的前缀不会和下一段文本拼成敏感词
+        assertEquals("c", filter.append("c"));
+        assertEquals("", filter.finish());
+    }
+
+    @Test
+    public void testEmptyAutomatonPassesThrough() {
+        SensitiveWordStreamFilter filter = new SensitiveWordStreamFilter(AhoCorasickAutomaton.empty(), '*');
+        assertEquals("hello", filter.append("hello"));
+        assertFalse(filter.hasPending());
+        assertEquals("", filter.finish());
+    }
+}
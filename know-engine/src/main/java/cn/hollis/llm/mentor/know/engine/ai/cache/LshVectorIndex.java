@@ -0,0 +1,151 @@
+package cn.hollis.llm.mentor.know.engine.ai.cache;
+
+import java.util.*;
+
+/**
+ * 基于随机超平面 LSH（SimHash）的近似最近邻索引
+ * <p>
+ * 每个哈希表用 bits 个随机超平面为向量生成签名，余弦相似的向量大概率落入同一个桶；
+ * 多个哈希表取候选集并集以提高召回率，最后在候选集上精确计算余弦相似度。
+ * <p>
+ * 要求写入和查询的向量均已归一化为单位向量（此时点积即余弦相似度）。非线程安全，由调用方加锁。
+ */
+public class LshVectorIndex {
+
+    private static final long HYPERPLANE_SEED = 20240101L;
+
+    private final int tables;
+
+    private final int bits;
+
+    /**
+     * 随机超平面，[table][bit][dimension]，首次写入时按向量维度生成
+     */
+    private float[][][] hyperplanes;
+
+    /**
+     * 每个哈希表的桶：签名 -> key 集合
+     */
+    private final List<Map<Integer, Set<String>>> buckets;
+
+    /**
+     * key -> 向量
+     */
+    private final Map<String, float[]> vectors = new HashMap<>();
+
+    public LshVectorIndex(int tables, int bits) {
+        if (bits <= 0 || bits > 31) {
+            throw new IllegalArgumentException("bits must be between 1 and 31");
+        }
+        this.tables = tables;
+        this.bits = bits;
+        this.buckets = new ArrayList<>(tables);
+        for (int i = 0; i < tables; i++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public void add(String key, float[] vector) {
+        remove(key);
+        ensureHyperplanes(vector.length);
+        vectors.put(key, vector);
+        for (int t = 0; t < tables; t++) {
+            buckets.get(t).computeIfAbsent(signature(t, vector), k -> new HashSet<>()).add(key);
+        }
+    }
+
+    public void remove(String key) {
+        float[] vector = vectors.remove(key);
+        if (vector == null) {
+            return;
+        }
+        for (int t = 0; t < tables; t++) {
+            int signature = signature(t, vector);
+            Set<String> bucket = buckets.get(t).get(signature);
+            if (bucket != null) {
+                bucket.remove(key);
+                if (bucket.isEmpty()) {
+                    buckets.get(t).remove(signature);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查找最相似的向量
+     *
+     * @param vector 查询向量（单位向量）
+     * @return 最相似的结果，索引为空或维度不一致时返回 null
+     */
+    public Match nearest(float[] vector) {
+        if (vectors.isEmpty() || hyperplanes == null || hyperplanes[0][0].length != vector.length) {
+            return null;
+        }
+        Set<String> candidates = new HashSet<>();
+        for (int t = 0; t < tables; t++) {
+            Set<String> bucket = buckets.get(t).get(signature(t, vector));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        Match best = null;
+        for (String candidate : candidates) {
+            double similarity = dot(vector, vectors.get(candidate));
+            if (best == null || similarity > best.similarity()) {
+                best = new Match(candidate, similarity);
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    private void ensureHyperplanes(int dimension) {
+        if (hyperplanes != null) {
+            if (hyperplanes[0][0].length != dimension) {
+                throw new IllegalArgumentException("vector dimension mismatch, expected " + hyperplanes[0][0].length + " but was " + dimension);
+            }
+            return;
+        }
+        Random random = new Random(HYPERPLANE_SEED);
+        float[][][] planes = new float[tables][bits][dimension];
+        for (int t = 0; t < tables; t++) {
+            for (int b = 0; b < bits; b++) {
+                for (int d = 0; d < dimension; d++) {
+                    planes[t][b][d] = (float) random.nextGaussian();
+                }
+            }
+        }
+        hyperplanes = planes;
+    }
+
+    private int signature(int table, float[] vector) {
+        int signature = 0;
+        for (int b = 0; b < bits; b++) {
+            if (dot(hyperplanes[table][b], vector) >= 0) {
+                signature |= 1 << b;
+            }
+        }
+        return signature;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 近邻查询结果
+     *
+     * @param key        命中的 key
+     * @param similarity 余弦相似度
+     */
+    public record Match(String key, double similarity) {
+    }
+}
@@ -0,0 +1,93 @@
+package cn.hollis.llm.mentor.know.engine.ai.cache;
+
+import cn.hollis.llm.mentor.know.engine.ai.model.IntentRecognitionResult;
+import cn.hollis.llm.mentor.know.engine.rag.model.QueryRouteResult;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 语义缓存条目
+ * <p>
+ * 以归一化后的问题文本为 key，缓存意图识别结果、问题改写结果和路由决策结果，
+ * 三者在一次对话的不同阶段分别写入。
+ * <p>
+ * 缓存中保存的条目不会被修改：{@link SemanticCacheService#lookup} 返回的是条目的副本，每次请求各自持有一份，
+ * 各阶段的结果写入副本后，由 {@link SemanticCacheService} 合并成新的条目替换缓存中的旧条目。
+ */
+@Data
+@NoArgsConstructor
+public class SemanticCacheEntry {
+
+    /**
+     * 归一化后的问题文本
+     */
+    private String normalizedQuery;
+
+    /**
+     * 问题向量（已归一化为单位向量），向量化失败时为 null，此时只能按文本精确命中
+     */
+    private float[] embedding;
+
+    /**
+     * 意图识别结果
+     */
+    private volatile IntentRecognitionResult intentRecognitionResult;
+
+    /**
+     * 问题改写结果（LLM 原始输出，不含时间等上下文）
+     */
+    private volatile String rewrittenQuery;
+
+    /**
+     * 路由决策结果
+     */
+    private volatile QueryRouteResult queryRouteResult;
+
+    /**
+     * 过期时间戳（毫秒）
+     */
+    private long expireAt;
+
+    /**
+     * 本次请求已统计过命中情况的阶段，只属于请求持有的副本，不参与序列化
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final transient Set<String> recordedStages = ConcurrentHashMap.newKeySet();
+
+    public SemanticCacheEntry(String normalizedQuery, float[] embedding, long expireAt) {
+        this.normalizedQuery = normalizedQuery;
+        this.embedding = embedding;
+        this.expireAt = expireAt;
+    }
+
+    public boolean isExpired(long now) {
+        return expireAt <= now;
+    }
+
+    /**
+     * 复制条目，不包含请求级的统计状态。向量数组只读，副本之间共享
+     */
+    public SemanticCacheEntry copy() {
+        SemanticCacheEntry copy = new SemanticCacheEntry(normalizedQuery, embedding, expireAt);
+        copy.setIntentRecognitionResult(intentRecognitionResult);
+        copy.setRewrittenQuery(rewrittenQuery);
+        copy.setQueryRouteResult(queryRouteResult);
+        return copy;
+    }
+
+    /**
+     * 标记本次请求已统计过该阶段
+     *
+     * @return 首次标记时返回 true
+     */
+    boolean markStageRecorded(String stage) {
+        return recordedStages.add(stage);
+    }
+}
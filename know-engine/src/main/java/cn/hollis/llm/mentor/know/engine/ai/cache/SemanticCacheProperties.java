@@ -0,0 +1,89 @@
+package cn.hollis.llm.mentor.know.engine.ai.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 语义缓存配置
+ */
+@ConfigurationProperties(prefix = SemanticCacheProperties.PREFIX)
+public class SemanticCacheProperties {
+    public static final String PREFIX = "semantic-cache";
+
+    /**
+     * 是否开启语义缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 相似度阈值（余弦相似度），超过该值视为同一个问题
+     */
+    private double similarityThreshold = 0.92;
+
+    /**
+     * 缓存有效期（秒）
+     */
+    private long ttlSeconds = 3600;
+
+    /**
+     * 本地缓存最大条数，超出后按 LRU 淘汰
+     */
+    private int maxSize = 10000;
+
+    /**
+     * LSH 哈希表数量，越多召回率越高
+     */
+    private int lshTables = 8;
+
+    /**
+     * 每个 LSH 哈希表的签名位数，越多桶越细、候选集越小
+     */
+    private int lshBits = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getLshTables() {
+        return lshTables;
+    }
+
+    public void setLshTables(int lshTables) {
+        this.lshTables = lshTables;
+    }
+
+    public int getLshBits() {
+        return lshBits;
+    }
+
+    public void setLshBits(int lshBits) {
+        this.lshBits = lshBits;
+    }
+}
@@ -0,0 +1,354 @@
+package cn.hollis.llm.mentor.know.engine.ai.cache;
+
+import cn.hollis.llm.mentor.know.engine.ai.model.IntentRecognitionResult;
+import cn.hollis.llm.mentor.know.engine.rag.model.QueryRouteResult;
+import com.alibaba.fastjson2.JSON;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 语义缓存
+ * <p>
+ * 对同一个（或语义相近的）问题复用意图识别、问题改写、路由决策三次 LLM 调用的结果。查找顺序：
+ * <ol>
+ *     <li>本地精确命中：按归一化后的问题文本查找</li>
+ *     <li>Redis 精确命中：按归一化文本的 MD5 查找，多实例之间共享</li>
+ *     <li>本地近似命中：问题向量化后在 LSH 索引中查找最相似的问题，相似度超过阈值视为命中</li>
+ * </ol>
+ * 本地缓存按 LRU 淘汰、按 TTL 过期；Redis 层只做精确匹配，依赖 key 过期清理。
+ * <p>
+ * 缓存中的条目视为不可变：查找返回副本，写入时把副本中的结果合并到缓存中已有的条目上，生成新条目整体替换，
+ * 并发请求之间不会共享可变对象。
+ * <p>
+ * 命中率通过 Micrometer 指标暴露：
+ * <ul>
+ *     <li>{@code know_engine.semantic_cache.lookup}：按 result（local_exact/redis_exact/ann/miss）统计条目查找结果</li>
+ *     <li>{@code know_engine.semantic_cache.stage}：按 stage（intent/rewrite/route）与 result（hit/miss）统计各阶段是否复用了缓存，
+ *     每次请求每个阶段只统计一次（路由会对改写后的问题和原始问题各执行一次）</li>
+ *     <li>{@code know_engine.semantic_cache.similarity}：近似查找时最近邻的相似度分布，用于调整阈值</li>
+ *     <li>{@code know_engine.semantic_cache.size}：本地缓存条数</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class SemanticCacheService {
+
+    public static final String STAGE_INTENT = "intent";
+
+    public static final String STAGE_REWRITE = "rewrite";
+
+    public static final String STAGE_ROUTE = "route";
+
+    private static final String REDIS_KEY_PREFIX = "semantic-cache:";
+
+    private static final String METRIC_PREFIX = "know_engine.semantic_cache";
+
+    /**
+     * 归一化时去除的字符：标点、符号、空白
+     */
+    private static final Pattern IGNORED_CHARS = Pattern.compile("[\\p{P}\\p{S}\\s]+");
+
+    @Autowired
+    private SemanticCacheProperties properties;
+
+    @Autowired
+    private OpenAiEmbeddingModel embeddingModel;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地缓存，按访问顺序排列，用于 LRU 淘汰
+     */
+    private final LinkedHashMap<String, SemanticCacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private LshVectorIndex index;
+
+    private final Object lock = new Object();
+
+    private DistributionSummary similaritySummary;
+
+    @PostConstruct
+    public void init() {
+        index = new LshVectorIndex(properties.getLshTables(), properties.getLshBits());
+        similaritySummary = DistributionSummary.builder(METRIC_PREFIX + ".similarity")
+                .description("近似查找时最近邻问题的余弦相似度")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".size", this, SemanticCacheService::size)
+                .description("本地语义缓存条数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查找问题对应的缓存条目
+     * <p>
+     * 命中时返回缓存条目的副本，未命中时返回一个新条目（尚未写入缓存），后续各阶段通过 put 方法把结果写入该条目。
+     * 缓存关闭时同样返回新条目，但 get/put 均不生效。
+     *
+     * @param query 用户问题
+     * @return 缓存条目，不会为 null
+     */
+    public SemanticCacheEntry lookup(String query) {
+        String normalizedQuery = normalize(query);
+        long now = System.currentTimeMillis();
+        if (!properties.isEnabled()) {
+            return new SemanticCacheEntry(normalizedQuery, null, now);
+        }
+
+        SemanticCacheEntry entry = getLocal(normalizedQuery, now);
+        if (entry != null) {
+            recordLookup("local_exact");
+            return entry.copy();
+        }
+
+        entry = getRemote(normalizedQuery, now);
+        if (entry != null) {
+            putLocal(entry);
+            recordLookup("redis_exact");
+            return entry.copy();
+        }
+
+        float[] embedding = embed(normalizedQuery);
+        if (embedding != null) {
+            entry = getNearest(embedding, now);
+            if (entry != null) {
+                recordLookup("ann");
+                return entry.copy();
+            }
+        }
+
+        recordLookup("miss");
+        return new SemanticCacheEntry(normalizedQuery, embedding, now + TimeUnit.SECONDS.toMillis(properties.getTtlSeconds()));
+    }
+
+    public IntentRecognitionResult getIntentRecognitionResult(SemanticCacheEntry entry) {
+        return recordStage(STAGE_INTENT, entry, entry == null ? null : entry.getIntentRecognitionResult());
+    }
+
+    public void putIntentRecognitionResult(SemanticCacheEntry entry, IntentRecognitionResult intentRecognitionResult) {
+        if (entry == null || intentRecognitionResult == null) {
+            return;
+        }
+        entry.setIntentRecognitionResult(intentRecognitionResult);
+        save(entry);
+    }
+
+    public String getRewrittenQuery(SemanticCacheEntry entry) {
+        return recordStage(STAGE_REWRITE, entry, entry == null ? null : entry.getRewrittenQuery());
+    }
+
+    public void putRewrittenQuery(SemanticCacheEntry entry, String rewrittenQuery) {
+        if (entry == null || rewrittenQuery == null || rewrittenQuery.isBlank()) {
+            return;
+        }
+        entry.setRewrittenQuery(rewrittenQuery);
+        save(entry);
+    }
+
+    public QueryRouteResult getQueryRouteResult(SemanticCacheEntry entry) {
+        return recordStage(STAGE_ROUTE, entry, entry == null ? null : entry.getQueryRouteResult());
+    }
+
+    public void putQueryRouteResult(SemanticCacheEntry entry, QueryRouteResult queryRouteResult) {
+        if (entry == null || queryRouteResult == null) {
+            return;
+        }
+        entry.setQueryRouteResult(queryRouteResult);
+        save(entry);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 问题文本归一化：全角转半角（NFKC）、转小写、去掉标点符号和空白，
+     * 使"怎么保养？"与"怎么保养"、"ＡＢＳ"与"abs"能够精确命中同一条缓存
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return IGNORED_CHARS.matcher(normalized).replaceAll("");
+    }
+
+    /**
+     * 写入本地缓存和 Redis
+     * <p>
+     * 请求持有的副本不直接放入缓存：把副本中已有的结果合并到缓存中的当前条目上，生成新条目整体替换，
+     * 避免覆盖其他请求并发写入的阶段结果，也避免缓存条目被请求继续修改
+     */
+    private void save(SemanticCacheEntry entry) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long ttlMillis = entry.getExpireAt() - now;
+        if (ttlMillis <= 0) {
+            return;
+        }
+        SemanticCacheEntry merged;
+        synchronized (lock) {
+            SemanticCacheEntry current = entries.get(entry.getNormalizedQuery());
+            merged = current == null || current.isExpired(now) ? entry.copy() : current.copy();
+            if (entry.getIntentRecognitionResult() != null) {
+                merged.setIntentRecognitionResult(entry.getIntentRecognitionResult());
+            }
+            if (entry.getRewrittenQuery() != null) {
+                merged.setRewrittenQuery(entry.getRewrittenQuery());
+            }
+            if (entry.getQueryRouteResult() != null) {
+                merged.setQueryRouteResult(entry.getQueryRouteResult());
+            }
+            putLocal(merged);
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(redisKey(merged.getNormalizedQuery()), JSON.toJSONString(merged), ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Semantic cache write to redis failed, query={}", entry.getNormalizedQuery(), e);
+        }
+    }
+
+    private SemanticCacheEntry getLocal(String normalizedQuery, long now) {
+        synchronized (lock) {
+            SemanticCacheEntry entry = entries.get(normalizedQuery);
+            if (entry != null && entry.isExpired(now)) {
+                removeLocal(normalizedQuery);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private SemanticCacheEntry getNearest(float[] embedding, long now) {
+        synchronized (lock) {
+            LshVectorIndex.Match match = index.nearest(embedding);
+            if (match == null) {
+                return null;
+            }
+            similaritySummary.record(match.similarity());
+            if (match.similarity() < properties.getSimilarityThreshold()) {
+                return null;
+            }
+            SemanticCacheEntry entry = entries.get(match.key());
+            if (entry == null || entry.isExpired(now)) {
+                removeLocal(match.key());
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putLocal(SemanticCacheEntry entry) {
+        synchronized (lock) {
+            entries.put(entry.getNormalizedQuery(), entry);
+            if (entry.getEmbedding() != null) {
+                index.add(entry.getNormalizedQuery(), entry.getEmbedding());
+            }
+            Iterator<Map.Entry<String, SemanticCacheEntry>> iterator = entries.entrySet().iterator();
+            while (entries.size() > properties.getMaxSize() && iterator.hasNext()) {
+                String eldest = iterator.next().getKey();
+                iterator.remove();
+                index.remove(eldest);
+            }
+        }
+    }
+
+    private void removeLocal(String normalizedQuery) {
+        entries.remove(normalizedQuery);
+        index.remove(normalizedQuery);
+    }
+
+    private SemanticCacheEntry getRemote(String normalizedQuery, long now) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(redisKey(normalizedQuery));
+            if (json == null) {
+                return null;
+            }
+            SemanticCacheEntry entry = JSON.parseObject(json, SemanticCacheEntry.class);
+            return entry == null || entry.isExpired(now) ? null : entry;
+        } catch (Exception e) {
+            log.warn("Semantic cache read from redis failed, query={}", normalizedQuery, e);
+            return null;
+        }
+    }
+
+    /**
+     * 问题向量化并归一化为单位向量，失败时返回 null（退化为只按文本精确命中）
+     */
+    private float[] embed(String normalizedQuery) {
+        if (normalizedQuery.isEmpty()) {
+            return null;
+        }
+        try {
+            float[] vector = embeddingModel.embed(normalizedQuery).content().vector();
+            double norm = 0;
+            for (float v : vector) {
+                norm += v * v;
+            }
+            norm = Math.sqrt(norm);
+            if (norm == 0) {
+                return null;
+            }
+            float[] unit = new float[vector.length];
+            for (int i = 0; i < vector.length; i++) {
+                unit[i] = (float) (vector[i] / norm);
+            }
+            return unit;
+        } catch (Exception e) {
+            log.warn("Semantic cache embedding failed, query={}", normalizedQuery, e);
+            return null;
+        }
+    }
+
+    private String redisKey(String normalizedQuery) {
+        return REDIS_KEY_PREFIX + DigestUtils.md5DigestAsHex(normalizedQuery.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void recordLookup(String result) {
+        Counter.builder(METRIC_PREFIX + ".lookup")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private <T> T recordStage(String stage, SemanticCacheEntry entry, T cached) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        // 同一请求内同一阶段只统计一次
+        if (entry != null && !entry.markStageRecorded(stage)) {
+            return cached;
+        }
+        Counter.builder(METRIC_PREFIX + ".stage")
+                .tag("stage", stage)
+                .tag("result", cached != null ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+        return cached;
+    }
+}
@@ -1,19 +1,34 @@
 package cn.hollis.llm.mentor.know.engine.ai.config;
 
+import cn.hollis.llm.mentor.know.engine.ai.memory.PersistentChatMemoryStore;
+import cn.hollis.llm.mentor.know.engine.ai.memory.TokenBudgetChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class MemoryConfig {
 
+    /**
+     * 每个会话记忆窗口保留的最大 token 数
+     * 记忆中只保存未注入检索内容的原始问题，本轮问题不会被淘汰
+     */
+    @Value("${chat-memory.max-tokens:4000}")
+    private int maxTokens;
+
+    /**
+     * 估算 token 数使用的分词模型
+     */
+    @Value("${chat-memory.token-estimator-model:gpt-4o}")
+    private String tokenEstimatorModel;
+
     @Bean
-    public ChatMemoryProvider chatMemoryProvider() {
-        // 根据 memoryId 动态创建独立的记忆窗口
-        return memoryId -> MessageWindowChatMemory.builder()
-                .id(memoryId) // 设置记忆ID
-                .maxMessages(10) // 每个会话保留10条
-                .build();
+    public ChatMemoryProvider chatMemoryProvider(PersistentChatMemoryStore chatMemoryStore) {
+        OpenAiTokenCountEstimator tokenCountEstimator = new OpenAiTokenCountEstimator(tokenEstimatorModel);
+        // ChatMemory 本身只保存 id 和窗口配置，消息由 chatMemoryStore 统一管理
+        // 按 token 数裁剪窗口
+        return memoryId -> new TokenBudgetChatMemory(memoryId, maxTokens, tokenCountEstimator, chatMemoryStore);
     }
-}
\ No newline at end of file
+}
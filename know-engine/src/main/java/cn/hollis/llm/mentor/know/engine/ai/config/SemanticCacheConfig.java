@@ -0,0 +1,10 @@
+package cn.hollis.llm.mentor.know.engine.ai.config;
+
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(SemanticCacheProperties.class)
+public class SemanticCacheConfig {
+}
@@ -0,0 +1,117 @@
+package cn.hollis.llm.mentor.know.engine.ai.memory;
+
+import cn.hollis.llm.mentor.know.engine.chat.constant.ChatMessageType;
+import cn.hollis.llm.mentor.know.engine.chat.service.ChatMessageService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话记忆存储
+ * <p>
+ * chat_message 表是对话记忆的持久化来源：用户问题在对话开始前写入，助手回答在流式输出结束后写入。
+ * 本存储在进程内维护一个有界的热点会话集合（Caffeine，按会话数量限制并在空闲后过期），
+ * 每轮对话的读写只访问热点集合；会话不在热点集合中（首次访问、被淘汰或由其他节点接管）时，
+ * 才通过 {@link ChatMessageService#getRecentMessages} 从数据库懒加载最近的完整问答轮次。
+ * <p>
+ * 记忆窗口的裁剪由 {@link TokenBudgetChatMemory} 按 token 数完成，这里只保存裁剪后的结果。
+ */
+@Slf4j
+@Component
+public class PersistentChatMemoryStore implements ChatMemoryStore {
+
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 热点集合最多保留的会话数
+     */
+    @Value("${chat-memory.hot-conversations:10000}")
+    private long hotConversations;
+
+    /**
+     * 会话空闲多久后移出热点集合（分钟）
+     */
+    @Value("${chat-memory.idle-expire-minutes:30}")
+    private long idleExpireMinutes;
+
+    /**
+     * 懒加载时从数据库读取的最近消息条数
+     */
+    @Value("${chat-memory.rehydrate-messages:20}")
+    private int rehydrateMessages;
+
+    private Cache<Object, List<ChatMessage>> hotSet;
+
+    @PostConstruct
+    public void init() {
+        hotSet = Caffeine.newBuilder()
+                .maximumSize(hotConversations)
+                .expireAfterAccess(idleExpireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, hotSet, "chat_memory_hot_set");
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return hotSet.get(memoryId, this::rehydrate);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        hotSet.put(memoryId, List.copyOf(messages));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        hotSet.invalidate(memoryId);
+    }
+
+    /**
+     * 从 chat_message 表恢复会话记忆
+     * <p>
+     * 只恢复已完成的问答轮次：没有回答的问题（包括本轮刚写入、还未生成回答的问题）和内容为空的助手消息都会被跳过，
+     * 本轮问题由 AiServices 在读取记忆后自行追加。
+     */
+    private List<ChatMessage> rehydrate(Object memoryId) {
+        List<cn.hollis.llm.mentor.know.engine.chat.entity.ChatMessage> records =
+                chatMessageService.getRecentMessages(memoryId.toString(), rehydrateMessages);
+
+        List<ChatMessage> messages = new ArrayList<>();
+        String question = null;
+        for (cn.hollis.llm.mentor.know.engine.chat.entity.ChatMessage record : records) {
+            if (record.getType() == ChatMessageType.USER) {
+                question = record.getContent();
+            } else if (record.getType() == ChatMessageType.ASSISTANT
+                    && hasText(question) && hasText(record.getContent())) {
+                messages.add(UserMessage.from(question));
+                messages.add(AiMessage.from(record.getContent()));
+                question = null;
+            }
+        }
+        log.debug("从数据库恢复对话记忆，memoryId: {}，消息数: {}", memoryId, messages.size());
+        return List.copyOf(messages);
+    }
+
+    private static boolean hasText(String text) {
+        return text != null && !text.isBlank();
+    }
+}
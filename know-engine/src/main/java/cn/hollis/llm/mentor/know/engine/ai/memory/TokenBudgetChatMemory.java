@@ -0,0 +1,115 @@
+package cn.hollis.llm.mentor.know.engine.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算裁剪的对话记忆
+ * <p>
+ * 与 {@link dev.langchain4j.memory.chat.TokenWindowChatMemory} 一样从最早的消息开始淘汰，区别是最后一条用户消息及其之后的消息
+ * （即本轮问题和本轮已产生的回答、工具调用）永远不会被淘汰：单轮内容超过预算时只清空更早的历史，
+ * 不会把本轮问题本身淘汰掉、导致模型收不到用户消息。系统消息同样不参与淘汰。
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private final Object id;
+
+    private final int maxTokens;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final ChatMemoryStore store;
+
+    public TokenBudgetChatMemory(Object id, int maxTokens, TokenCountEstimator tokenCountEstimator, ChatMemoryStore store) {
+        this.id = id;
+        this.maxTokens = maxTokens;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.store = store;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        if (message instanceof SystemMessage) {
+            int existing = indexOfSystemMessage(messages);
+            if (existing >= 0) {
+                if (messages.get(existing).equals(message)) {
+                    return;
+                }
+                messages.remove(existing);
+            }
+            messages.addFirst(message);
+        } else {
+            messages.add(message);
+        }
+        evict(messages);
+        store.updateMessages(id, messages);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return new ArrayList<>(store.getMessages(id));
+    }
+
+    @Override
+    public void clear() {
+        store.deleteMessages(id);
+    }
+
+    /**
+     * 超出预算时从最早的历史消息开始淘汰，最后一条用户消息之前的消息才可被淘汰
+     */
+    private void evict(List<ChatMessage> messages) {
+        int tokens = tokenCountEstimator.estimateTokenCountInMessages(messages);
+        while (tokens > maxTokens) {
+            int protectedFrom = lastIndexOfUserMessage(messages);
+            int oldest = messages.isEmpty() || !(messages.getFirst() instanceof SystemMessage) ? 0 : 1;
+            if (oldest >= protectedFrom) {
+                log.warn("本轮对话超出记忆 token 预算，仅保留本轮消息，memoryId: {}，tokens: {}，maxTokens: {}", id, tokens, maxTokens);
+                return;
+            }
+            ChatMessage evicted = messages.remove(oldest);
+            // 工具调用请求与其执行结果必须一起淘汰，否则模型会收到没有请求的工具结果
+            if (evicted instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                while (oldest < messages.size() && messages.get(oldest) instanceof ToolExecutionResultMessage) {
+                    messages.remove(oldest);
+                }
+            }
+            tokens = tokenCountEstimator.estimateTokenCountInMessages(messages);
+        }
+    }
+
+    private static int indexOfSystemMessage(List<ChatMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof SystemMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOfUserMessage(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return messages.size();
+    }
+}
@@ -1,5 +1,6 @@
 package cn.hollis.llm.mentor.know.engine.ai.service;
 
+import dev.langchain4j.invocation.InvocationParameters;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.UserMessage;
 import reactor.core.publisher.Flux;
@@ -8,6 +9,11 @@ public interface KnowEngineChatAiService {
 
     public Flux<String> streamChat(@MemoryId String conversationId, @UserMessage String message);
 
+    /**
+     * 流式对话，invocationParameters 中携带请求上下文，供 RAG 管道中的单例组件读取
+     */
+    public Flux<String> streamChat(@MemoryId String conversationId, @UserMessage String message, InvocationParameters invocationParameters);
+
     public String chat(@MemoryId String conversationId, @UserMessage String message);
 
 }
@@ -1,5 +1,9 @@
 package cn.hollis.llm.mentor.know.engine.chat.controller;
 
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheEntry;
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheService;
+import cn.hollis.llm.mentor.know.engine.ai.memory.PersistentChatMemoryStore;
+import cn.hollis.llm.mentor.know.engine.ai.model.IntentRecognitionResult;
 import cn.hollis.llm.mentor.know.engine.ai.service.CommonChatService;
 import cn.hollis.llm.mentor.know.engine.ai.service.IntentRecognitionService;
 import cn.hollis.llm.mentor.know.engine.ai.service.TitleSummaryService;
@@ -20,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
 
 import java.util.List;
 import java.util.Map;
@@ -38,6 +43,9 @@ public class ChatController {
     @Autowired
     private ChatMessageService chatMessageService;
 
+    @Autowired
+    private PersistentChatMemoryStore chatMemoryStore;
+
     @Autowired
     private CommonChatService commonChatService;
 
@@ -53,6 +61,9 @@ public class ChatController {
     @Autowired
     private ChatApplicationService chatApplicationService;
 
+    @Autowired
+    private SemanticCacheService semanticCacheService;
+
     /**
      * 流式对话接口
      * <p>
@@ -114,11 +125,20 @@ public class ChatController {
         return Flux.just("[PROGRESS]:正在识别您的意图...")
                 .concatWith(
                         Mono.fromCallable(() -> {
-                            IntentRecognitionService intentRecognitionService = AiServices.builder(IntentRecognitionService.class).chatModel(chatModel).build();
-                            return intentRecognitionService.chat(content);
+                            // 相同或语义相近的问题直接复用缓存的意图识别结果
+                            SemanticCacheEntry cacheEntry = semanticCacheService.lookup(content);
+                            IntentRecognitionResult intentRecognitionResult = semanticCacheService.getIntentRecognitionResult(cacheEntry);
+                            if (intentRecognitionResult == null) {
+                                IntentRecognitionService intentRecognitionService = AiServices.builder(IntentRecognitionService.class).chatModel(chatModel).build();
+                                intentRecognitionResult = intentRecognitionService.chat(content);
+                                semanticCacheService.putIntentRecognitionResult(cacheEntry, intentRecognitionResult);
+                            }
+                            return Tuples.of(cacheEntry, intentRecognitionResult);
                         })
                         .subscribeOn(Schedulers.boundedElastic())
-                        .flatMapMany(intentRecognitionResult -> {
+                        .flatMapMany(tuple -> {
+                            SemanticCacheEntry cacheEntry = tuple.getT1();
+                            IntentRecognitionResult intentRecognitionResult = tuple.getT2();
                             // 4. 如果用户问题不相关，使用一个通用的LLM做对话
                             if (!intentRecognitionResult.related()) {
                                 return Flux.concat(
@@ -127,7 +147,7 @@ public class ChatController {
                                 );
                             }
                             // 5. 相关问题，走RAG流程（进度由内部组件发出）
-                            return chatApplicationService.chat(new ChatParam(userId, finalConversationId, messageId, content, intentRecognitionResult));
+                            return chatApplicationService.chat(new ChatParam(userId, finalConversationId, messageId, content, intentRecognitionResult, cacheEntry));
                         })
                 )
                 .doOnError(e -> log.error("流式对话异常: conversationId={}", finalConversationId, e))
@@ -163,6 +183,7 @@ public class ChatController {
     @DeleteMapping("/{conversationId}")
     public boolean deleteConversation(@PathVariable String conversationId) {
         chatMessageService.deleteMessagesByConversationId(conversationId);
+        chatMemoryStore.deleteMessages(conversationId);
         return chatConversationService.deleteConversation(conversationId);
     }
 }
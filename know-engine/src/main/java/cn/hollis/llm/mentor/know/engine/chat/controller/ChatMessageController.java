@@ -1,5 +1,6 @@
 package cn.hollis.llm.mentor.know.engine.chat.controller;
 
+import cn.hollis.llm.mentor.know.engine.ai.memory.PersistentChatMemoryStore;
 import cn.hollis.llm.mentor.know.engine.chat.entity.ChatMessage;
 import cn.hollis.llm.mentor.know.engine.chat.service.ChatMessageService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,9 @@ public class ChatMessageController {
     @Autowired
     private ChatMessageService chatMessageService;
 
+    @Autowired
+    private PersistentChatMemoryStore chatMemoryStore;
+
     /**
      * 获取会话的消息列表
      *
@@ -105,6 +109,7 @@ public class ChatMessageController {
     @DeleteMapping("/deleteByConversation")
     public Map<String, Object> deleteMessagesByConversation(@RequestParam String conversationId) {
         boolean success = chatMessageService.deleteMessagesByConversationId(conversationId);
+        chatMemoryStore.deleteMessages(conversationId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("success", success);
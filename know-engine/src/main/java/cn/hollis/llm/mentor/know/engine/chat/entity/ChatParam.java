@@ -1,7 +1,8 @@
 package cn.hollis.llm.mentor.know.engine.chat.entity;
 
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheEntry;
 import cn.hollis.llm.mentor.know.engine.ai.model.IntentRecognitionResult;
 
 public record ChatParam(String userId, String conversationId, String messageId, String content,
-                        IntentRecognitionResult intentRecognitionResult) {
+                        IntentRecognitionResult intentRecognitionResult, SemanticCacheEntry semanticCacheEntry) {
 }
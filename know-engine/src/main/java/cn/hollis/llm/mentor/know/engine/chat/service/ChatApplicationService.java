@@ -1,37 +1,40 @@
 package cn.hollis.llm.mentor.know.engine.chat.service;
 
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheService;
+import cn.hollis.llm.mentor.know.engine.ai.constant.KnowEngineIntent;
 import cn.hollis.llm.mentor.know.engine.ai.service.KnowEngineChatAiService;
 import cn.hollis.llm.mentor.know.engine.ai.service.PromptService;
 import cn.hollis.llm.mentor.know.engine.chat.entity.ChatParam;
 import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
+import cn.hollis.llm.mentor.know.engine.rag.model.reranker.RerankEngine;
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineElasticsearchContentRetriever;
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryRouter;
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryTransformer;
+import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineRetrievalAugmentor;
+import cn.hollis.llm.mentor.know.engine.rag.modules.LazyNeo4jContentRetriever;
 import cn.hollis.llm.mentor.know.engine.rag.modules.ProgressAwareContentAggregator;
-import cn.hollis.llm.mentor.know.engine.rag.modules.reranker.BgeScoringModel;
 import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.ProgressAwareContentRetriever;
-import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jGraph;
-import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jText2CypherRetriever;
 import dev.langchain4j.experimental.rag.content.retriever.sql.SqlDatabaseContentRetriever;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.input.PromptTemplate;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
-import dev.langchain4j.model.scoring.onnx.OnnxScoringModel;
-import dev.langchain4j.rag.DefaultRetrievalAugmentor;
 import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.aggregator.ContentAggregator;
 import dev.langchain4j.rag.content.aggregator.ReRankingContentAggregator;
-import dev.langchain4j.rag.content.injector.ContentInjector;
-import dev.langchain4j.rag.content.injector.DefaultContentInjector;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.elasticsearch.ElasticsearchContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchConfigurationFullText;
 import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchConfigurationKnn;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.client.RestClient;
 import org.neo4j.driver.Driver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
@@ -39,11 +42,11 @@ import reactor.core.scheduler.Schedulers;
 
 import javax.sql.DataSource;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static cn.hollis.llm.mentor.know.engine.rag.config.ElasticSearchConfiguration.INDEX_NAME;
 
+@Slf4j
 @Service
 public class ChatApplicationService {
 
@@ -74,6 +77,92 @@ public class ChatApplicationService {
     @Autowired
     private ChatMessageService chatMessageService;
 
+    @Autowired
+    private SemanticCacheService semanticCacheService;
+
+    @Autowired
+    private RerankEngine rerankEngine;
+
+    @Autowired
+    private ChatMemoryProvider chatMemoryProvider;
+
+    /**
+     * 是否开启推测检索
+     */
+    @Value("${rag.speculative-retrieval:true}")
+    private boolean speculativeRetrieval;
+
+    /**
+     * 启动时构建的 AI 服务代理，RAG 管道中的全部组件均为线程安全的单例，
+     * 请求级别的状态通过 {@link ChatRequestContext} 传递
+     */
+    private KnowEngineChatAiService knowEngineChatAiService;
+
+    /**
+     * 构建 RAG 管道
+     * <p>
+     * 检索器、重排序聚合器、检索增强器以及 {@link AiServices} 代理的构建成本较高（反射生成代理等），
+     * 这里在启动时一次性构建，避免每次对话都重新创建。图数据库检索器依赖外部 Neo4j，延迟到首次检索时构建。
+     */
+    @PostConstruct
+    public void init() {
+        KnowEngineQueryTransformer queryTransformer = new KnowEngineQueryTransformer(chatModel, null);
+
+        ContentRetriever embeddingRetriever = new ProgressAwareContentRetriever(KnowEngineElasticsearchContentRetriever.builder()
+                .configuration(ElasticsearchConfigurationKnn.builder().build())
+                .maxResults(5)
+                .minScore(0.5)
+                .embeddingModel(openAiEmbeddingModel)
+                .restClient(restClient)
+                .indexName(INDEX_NAME)
+                .knowledgeSegmentService(knowledgeSegmentService)
+                .build());
+
+        ContentRetriever fullTextRetriever = new ProgressAwareContentRetriever(ElasticsearchContentRetriever.builder()
+                .configuration(ElasticsearchConfigurationFullText.builder().build())
+                .restClient(restClient)
+                .indexName(INDEX_NAME)
+                .maxResults(5)
+                .build());
+
+        ContentRetriever sqlRetriever = new ProgressAwareContentRetriever(SqlDatabaseContentRetriever.builder().dataSource(dataSource)
+                //todo
+                .promptTemplate(new PromptTemplate("textToSqlPrompt.getContentAsString(UTF_8)"))
+                .databaseStructure("tablesSql.getContentAsString(UTF_8)")
+                .chatModel(chatModel)
+                .build());
+
+        // Neo4j schema 在首次检索时才拉取，Neo4j 不可用不影响启动
+        ContentRetriever neo4jRetriever = new ProgressAwareContentRetriever(new LazyNeo4jContentRetriever(neo4jDriver, chatModel));
+
+        // 使用带进度通知的聚合器包装原始聚合器
+        ContentAggregator contentAggregator = new ProgressAwareContentAggregator(
+                ReRankingContentAggregator.builder()
+                        .scoringModel(rerankEngine)
+                        .maxResults(5)
+                        .querySelector(queryToContents -> queryToContents.keySet().iterator().next())
+                        .build(),
+                chatMessageService
+        );
+
+        // 开启推测检索时，知识库检索与 LLM 路由决策并行执行
+        KnowEngineQueryRouter queryRouter = new KnowEngineQueryRouter(List.of(embeddingRetriever, fullTextRetriever, sqlRetriever, neo4jRetriever), chatModel, speculativeRetrieval, semanticCacheService);
+
+        // 每种意图对应一个提示词模板，由检索增强器按请求上下文中的意图分发
+        RetrievalAugmentor retrievalAugmentor = new KnowEngineRetrievalAugmentor(queryTransformer, queryRouter, contentAggregator, promptService::getPrompt);
+
+        knowEngineChatAiService = AiServices.builder(KnowEngineChatAiService.class)
+                .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
+                .chatMemoryProvider(chatMemoryProvider)
+                .retrievalAugmentor(retrievalAugmentor)
+                // 记忆中只保存原始问题，检索内容只随本轮请求发送，避免注入的片段挤占记忆窗口
+                .storeRetrievedContentInChatMemory(false)
+                .build();
+
+        log.info("RAG 管道构建完成");
+    }
+
     /**
      * 流式对话（无进度回调）
      */
@@ -94,6 +183,7 @@ public class ChatApplicationService {
      *   <li>排序筛选 — 由 {@link ProgressAwareContentAggregator} 发送</li>
      *   <li>生成回答 — 由 {@link ProgressAwareContentAggregator} 在聚合完成后发送</li>
      * </ol>
+     * 管道组件均在启动时构建，这里只创建轻量的 {@link ChatRequestContext} 承载本次请求的状态。
      *
      * @param chatParam        对话参数
      * @param progressCallback 进度回调，可为 null
@@ -111,84 +201,19 @@ public class ChatApplicationService {
 
                     String assistantMessageId = chatMessageService.saveAssistantMessage(chatParam.conversationId());
 
-                    // 构建查询改写器（带进度回调）
-                    KnowEngineQueryTransformer queryTransformer = new KnowEngineQueryTransformer(chatModel, chatParam.messageId(), callback);
-
-                    ProgressAwareContentRetriever embeddingRetriever = new ProgressAwareContentRetriever(KnowEngineElasticsearchContentRetriever.builder()
-                            .configuration(ElasticsearchConfigurationKnn.builder().build())
-                            .maxResults(5)
-                            .minScore(0.5)
-                            .embeddingModel(openAiEmbeddingModel)
-                            .restClient(restClient)
-                            .indexName(INDEX_NAME)
-                            .knowledgeSegmentService(knowledgeSegmentService)
-                            .build(), callback);
-
-                    ProgressAwareContentRetriever fullTextRetriever = new ProgressAwareContentRetriever(ElasticsearchContentRetriever.builder()
-                            .configuration(ElasticsearchConfigurationFullText.builder().build())
-                            .restClient(restClient)
-                            .indexName(INDEX_NAME)
-                            .maxResults(5)
-                            .build(), callback);
-
-                    ProgressAwareContentRetriever sqlRetriever = new ProgressAwareContentRetriever(SqlDatabaseContentRetriever.builder().dataSource(dataSource)
-                            //todo
-                            .promptTemplate(new PromptTemplate("textToSqlPrompt.getContentAsString(UTF_8)"))
-                            .databaseStructure("tablesSql.getContentAsString(UTF_8)")
-                            .chatModel(chatModel)
-                            .build(), callback);
-
-                    ProgressAwareContentRetriever neo4jRetriever = new ProgressAwareContentRetriever(Neo4jText2CypherRetriever.builder()
-                            .graph(Neo4jGraph.builder()
-                                    .driver(neo4jDriver)
-                                    .build())
-                            .chatModel(chatModel)
-                            .build(), callback);
-
-                    OnnxScoringModel scoringModel = BgeScoringModel.getInstance();
-
-                    // 使用带进度通知的聚合器包装原始聚合器
-                    ContentAggregator contentAggregator = new ProgressAwareContentAggregator(
-                            ReRankingContentAggregator.builder()
-                                    .scoringModel(scoringModel)
-                                    .maxResults(5)
-                                    .querySelector(queryToContents -> queryToContents.keySet().iterator().next())
-                                    .build(),
-                            callback, assistantMessageId, chatMessageService
-                    );
-
-                    String prompt = promptService.getPrompt(chatParam.intentRecognitionResult());
-
-                    ContentInjector contentInjector = new DefaultContentInjector(PromptTemplate.from(prompt));
-
-                    // 构建查询路由器（带进度回调）
-                    RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
-                            .queryRouter(new KnowEngineQueryRouter(List.of(embeddingRetriever, fullTextRetriever, sqlRetriever, neo4jRetriever), chatModel, callback))
-                            .queryTransformer(queryTransformer)
-                            .contentAggregator(contentAggregator)
-                            .contentInjector(contentInjector)
-                            .build();
-
-                    KnowEngineChatAiService knowEngineChatAiService = AiServices.builder(KnowEngineChatAiService.class)
-                            .chatModel(chatModel)
-                            .streamingChatModel(streamingChatModel)
-                            .chatMemoryProvider(memoryId -> MessageWindowChatMemory.builder().maxMessages(10).build())
-                            .retrievalAugmentor(retrievalAugmentor)
-                            .build();
+                    ChatRequestContext requestContext = new ChatRequestContext(chatParam.messageId(), assistantMessageId,
+                            KnowEngineIntent.getIntent(chatParam.intentRecognitionResult()), callback, chatParam.semanticCacheEntry());
 
                     // 订阅 LLM 流式输出，桥接到 sink
-                    AtomicBoolean firstToken = new AtomicBoolean(true);
                     StringBuilder contentBuilder = new StringBuilder();
-                    Disposable disposable = knowEngineChatAiService.streamChat(chatParam.conversationId(), chatParam.content())
-                            .doOnNext(token -> {
-                                // 首个 token 到达时，如果之前没有发出"正在生成回答"，则补发
-                                // （正常情况下由 ProgressAwareContentAggregator 已发出，此处为兜底）
-                                if (firstToken.compareAndSet(true, false)) {
-                                    // 标记已开始接收 token
-                                }
-                                contentBuilder.append(token);
-                            })
+                    Disposable disposable = knowEngineChatAiService.streamChat(chatParam.conversationId(), chatParam.content(), requestContext.toInvocationParameters())
+                            .doOnNext(contentBuilder::append)
                             .doOnComplete(() -> chatMessageService.updateContent(assistantMessageId, contentBuilder.toString()))
+                            // 完成、出错或取消时都立即写入本轮合并的字段更新，用户消息上缓冲的改写结果一并写入
+                            .doFinally(signal -> {
+                                chatMessageService.flushUpdates(requestContext.getUserMessageId());
+                                chatMessageService.flushUpdates(assistantMessageId);
+                            })
                             .subscribe(sink::next, sink::error, sink::complete);
 
                     // 取消时同步取消内部订阅
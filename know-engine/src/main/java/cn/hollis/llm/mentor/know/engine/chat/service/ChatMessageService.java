@@ -58,6 +58,16 @@ public interface ChatMessageService extends IService<ChatMessage> {
      */
     void updateContent(String messageId, String content);
 
+    /**
+     * 消息的字段更新已全部产生，立即写入数据库
+     * <p>
+     * updateTransformContent / updateRagReferences / updateContent 先合并在内存中，
+     * 调用本方法或超过最大延迟后，与其他消息的更新一起批量写入
+     *
+     * @param messageId 消息ID
+     */
+    void flushUpdates(String messageId);
+
     /**
      * 对话完成后保存 Assistant 消息（插入新记录）
      *
@@ -7,6 +7,7 @@ import cn.hollis.llm.mentor.know.engine.chat.service.ChatMessageService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -19,17 +20,24 @@ import java.util.UUID;
 @Service
 public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatMessage> implements ChatMessageService {
 
+    @Autowired
+    private ChatMessageUpdateBuffer updateBuffer;
+
     @Override
     public List<ChatMessage> getMessagesByConversationId(String conversationId) {
-        return this.list(new LambdaQueryWrapper<ChatMessage>()
+        List<ChatMessage> messages = this.list(new LambdaQueryWrapper<ChatMessage>()
                 .eq(ChatMessage::getConversationId, conversationId)
                 .orderByAsc(ChatMessage::getCreatedAt));
+        messages.forEach(updateBuffer::overlay);
+        return messages;
     }
 
     @Override
     public ChatMessage getByMessageId(String messageId) {
-        return this.getOne(new LambdaQueryWrapper<ChatMessage>()
+        ChatMessage message = this.getOne(new LambdaQueryWrapper<ChatMessage>()
                 .eq(ChatMessage::getMessageId, messageId));
+        updateBuffer.overlay(message);
+        return message;
     }
 
     @Override
@@ -49,26 +57,22 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
 
     @Override
     public void updateTransformContent(String messageId, String transformContent) {
-        ChatMessage update = new ChatMessage();
-        update.setTransformContent(transformContent);
-        this.update(update, new LambdaQueryWrapper<ChatMessage>()
-                .eq(ChatMessage::getMessageId, messageId));
+        updateBuffer.setTransformContent(messageId, transformContent);
     }
 
     @Override
     public void updateRagReferences(String messageId, List<ChatMessage.RagReference> ragReferences) {
-        ChatMessage update = new ChatMessage();
-        update.setRagReferences(ragReferences);
-        this.update(update, new LambdaQueryWrapper<ChatMessage>()
-                .eq(ChatMessage::getMessageId, messageId));
+        updateBuffer.setRagReferences(messageId, ragReferences);
     }
 
     @Override
     public void updateContent(String messageId, String content) {
-        ChatMessage update = new ChatMessage();
-        update.setContent(content);
-        this.update(update, new LambdaQueryWrapper<ChatMessage>()
-                .eq(ChatMessage::getMessageId, messageId));
+        updateBuffer.setContent(messageId, content);
+    }
+
+    @Override
+    public void flushUpdates(String messageId) {
+        updateBuffer.complete(messageId);
     }
 
     @Override
@@ -103,6 +107,7 @@ public class ChatMessageServiceImpl extends ServiceImpl<ChatMessageMapper, ChatM
         // 返回列表需要反转，使其按时间正序排列
         List<ChatMessage> records = page.getRecords();
         java.util.Collections.reverse(records);
+        records.forEach(updateBuffer::overlay);
         return records;
     }
 }
@@ -0,0 +1,289 @@
+package cn.hollis.llm.mentor.know.engine.chat.service.impl;
+
+import cn.hollis.llm.mentor.know.engine.chat.entity.ChatMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * chat_message 字段更新的写后缓冲
+ * <p>
+ * 一轮对话中改写结果、RAG 引用、回答内容分别在不同阶段产生，原先各自执行一次 UPDATE。
+ * 这里按 messageId 合并这些字段，在对话结束（{@link #complete}）或超过最大延迟后，
+ * 由后台线程通过一条 JDBC batch 把多条消息的更新一起写入；写入失败的更新合并回缓冲，下个周期重试。
+ */
+@Slf4j
+@Component
+public class ChatMessageUpdateBuffer {
+
+    /**
+     * 只覆盖非空字段，一条语句覆盖三个字段的所有组合，便于整批复用同一个 PreparedStatement
+     */
+    private static final String UPDATE_SQL = "UPDATE chat_message SET "
+            + "transform_content = COALESCE(?, transform_content), "
+            + "rag_references = COALESCE(?, rag_references), "
+            + "content = COALESCE(?, content) "
+            + "WHERE message_id = ? AND deleted = 0";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 刷盘线程的检查周期（毫秒）
+     */
+    @Value("${chat-message.write-behind.flush-interval-millis:200}")
+    private long flushIntervalMillis;
+
+    /**
+     * 未结束的消息最多缓冲多久（毫秒），覆盖对话被取消或异常中断、不会调用 complete 的情况
+     */
+    @Value("${chat-message.write-behind.max-delay-millis:5000}")
+    private long maxDelayMillis;
+
+    /**
+     * 单个 JDBC batch 的最大消息数
+     */
+    @Value("${chat-message.write-behind.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 单条更新的最大写入次数，超过后丢弃并记录错误日志
+     */
+    @Value("${chat-message.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    private final Map<String, PendingUpdate> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    private Thread flusher;
+
+    @PostConstruct
+    public void init() {
+        running = true;
+        flusher = Thread.ofPlatform().name("chat-message-flusher").daemon().start(this::flushLoop);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停机前把剩余的更新全部写入
+        flush(true);
+        if (!pending.isEmpty()) {
+            log.error("停机时仍有 {} 条消息更新未能写入", pending.size());
+        }
+    }
+
+    public void setTransformContent(String messageId, String transformContent) {
+        pending.compute(messageId, (id, update) -> (update != null ? update : new PendingUpdate()).transformContent(transformContent));
+    }
+
+    public void setRagReferences(String messageId, List<ChatMessage.RagReference> ragReferences) {
+        pending.compute(messageId, (id, update) -> (update != null ? update : new PendingUpdate()).ragReferences(ragReferences));
+    }
+
+    public void setContent(String messageId, String content) {
+        pending.compute(messageId, (id, update) -> (update != null ? update : new PendingUpdate()).content(content));
+    }
+
+    /**
+     * 标记消息的更新已全部产生，唤醒刷盘线程立即写入
+     */
+    public void complete(String messageId) {
+        if (messageId == null) {
+            return;
+        }
+        PendingUpdate update = pending.computeIfPresent(messageId, (id, current) -> current.complete());
+        if (update != null) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * 把尚未写入的字段覆盖到查询结果上，保证写入前读到的也是最新内容
+     */
+    public void overlay(ChatMessage message) {
+        if (message == null || pending.isEmpty()) {
+            return;
+        }
+        PendingUpdate update = pending.get(message.getMessageId());
+        if (update == null) {
+            return;
+        }
+        synchronized (update) {
+            if (update.transformContent != null) {
+                message.setTransformContent(update.transformContent);
+            }
+            if (update.ragReferences != null) {
+                message.setRagReferences(update.ragReferences);
+            }
+            if (update.content != null) {
+                message.setContent(update.content);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+            try {
+                flush(false);
+            } catch (Exception e) {
+                log.error("消息更新刷盘异常", e);
+            }
+        }
+    }
+
+    /**
+     * 写入已结束或已超过最大延迟的更新
+     *
+     * @param all 是否忽略延迟写入全部更新
+     */
+    private void flush(boolean all) {
+        long now = System.nanoTime();
+        long deadline = now - TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        List<Map.Entry<String, PendingUpdate>> ready = new ArrayList<>();
+        for (String messageId : pending.keySet()) {
+            PendingUpdate candidate = pending.get(messageId);
+            if (candidate == null || !(all || candidate.isReady(now, deadline))) {
+                continue;
+            }
+            // 从缓冲中取出后由刷盘线程独占，之后到达的更新会进入新的 PendingUpdate
+            PendingUpdate update = pending.remove(messageId);
+            if (update != null) {
+                ready.add(Map.entry(messageId, update));
+            }
+            if (ready.size() >= batchSize) {
+                write(ready);
+                ready = new ArrayList<>();
+            }
+        }
+        if (!ready.isEmpty()) {
+            write(ready);
+        }
+    }
+
+    private void write(List<Map.Entry<String, PendingUpdate>> updates) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+            for (Map.Entry<String, PendingUpdate> entry : updates) {
+                PendingUpdate update = entry.getValue();
+                statement.setString(1, update.transformContent);
+                statement.setString(2, update.ragReferences == null ? null : OBJECT_MAPPER.writeValueAsString(update.ragReferences));
+                statement.setString(3, update.content);
+                statement.setString(4, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            log.debug("消息更新已写入，数量: {}", updates.size());
+        } catch (SQLException | JsonProcessingException e) {
+            log.warn("消息更新写入失败，数量: {}，稍后重试", updates.size(), e);
+            updates.forEach(entry -> retry(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * 把写入失败的更新合并回缓冲，按指数退避延后重试，期间新到达的字段优先
+     */
+    private void retry(String messageId, PendingUpdate failed) {
+        if (failed.attempts + 1 >= maxAttempts) {
+            log.error("消息更新多次写入失败，放弃: messageId={}", messageId);
+            return;
+        }
+        long backoffNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis) << failed.attempts;
+        pending.merge(messageId, failed.retried(System.nanoTime() + backoffNanos), (newer, retried) -> retried.mergeNewer(newer));
+    }
+
+    /**
+     * 单条消息待写入的字段，null 表示不更新该字段
+     */
+    private static final class PendingUpdate {
+
+        private final long firstUpdateNanos = System.nanoTime();
+
+        private String transformContent;
+
+        private List<ChatMessage.RagReference> ragReferences;
+
+        private String content;
+
+        private volatile boolean completed;
+
+        private int attempts;
+
+        private long notBeforeNanos;
+
+        synchronized PendingUpdate transformContent(String transformContent) {
+            this.transformContent = transformContent;
+            return this;
+        }
+
+        synchronized PendingUpdate ragReferences(List<ChatMessage.RagReference> ragReferences) {
+            this.ragReferences = ragReferences;
+            return this;
+        }
+
+        synchronized PendingUpdate content(String content) {
+            this.content = content;
+            return this;
+        }
+
+        PendingUpdate complete() {
+            this.completed = true;
+            return this;
+        }
+
+        /**
+         * 已结束或超过最大延迟，且不在重试退避期内
+         */
+        boolean isReady(long now, long deadline) {
+            return (completed || firstUpdateNanos - deadline <= 0) && now - notBeforeNanos >= 0;
+        }
+
+        PendingUpdate retried(long notBeforeNanos) {
+            this.attempts++;
+            this.notBeforeNanos = notBeforeNanos;
+            this.completed = true;
+            return this;
+        }
+
+        synchronized PendingUpdate mergeNewer(PendingUpdate newer) {
+            synchronized (newer) {
+                if (newer.transformContent != null) {
+                    transformContent = newer.transformContent;
+                }
+                if (newer.ragReferences != null) {
+                    ragReferences = newer.ragReferences;
+                }
+                if (newer.content != null) {
+                    content = newer.content;
+                }
+            }
+            return this;
+        }
+    }
+}
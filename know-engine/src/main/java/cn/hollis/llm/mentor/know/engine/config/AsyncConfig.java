@@ -1,6 +1,7 @@
 package cn.hollis.llm.mentor.know.engine.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -49,4 +50,53 @@ public class AsyncConfig {
         
         return executor;
     }
+
+    /**
+     * 文档转换专用线程池
+     * 用于异步执行 MinerU 文档解析任务，队列满时拒绝提交，避免阻塞上传请求线程
+     */
+    @Bean("documentConvertExecutor")
+    public Executor documentConvertExecutor(@Value("${file.parse.executor.core-pool-size:4}") int corePoolSize,
+                                            @Value("${file.parse.executor.max-pool-size:8}") int maxPoolSize,
+                                            @Value("${file.parse.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("document-convert-");
+        executor.setKeepAliveSeconds(60);
+        // 队列满时直接拒绝，由上传接口返回失败，而不是占用请求线程执行转换
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("文档转换线程池初始化完成");
+
+        return executor;
+    }
+
+    /**
+     * 向量化补偿专用线程池
+     * 队列满时由补偿任务线程自己执行，限制同时进行的向量化数量
+     */
+    @Bean("documentCompensationExecutor")
+    public Executor documentCompensationExecutor(@Value("${document.compensation.parallelism:8}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism);
+        executor.setThreadNamePrefix("document-compensation-");
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("向量化补偿线程池初始化完成");
+
+        return executor;
+    }
 }
@@ -0,0 +1,198 @@
+package cn.hollis.llm.mentor.know.engine.document.cache;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 分段文本两级缓存
+ * <p>
+ * 第一级为进程内近端缓存（Caffeine，W-TinyLFU 淘汰，按文本字节数限制总大小），第二级为 Redis。
+ * 分段切分后文本不再变化，所以 Redis 使用较长的 TTL，并加上随机抖动避免同一批分段同时过期；
+ * 不存在的 chunkId 只在 Redis 中短时间缓存空值。
+ * <p>
+ * 分段被删除或修改时，通过 Redis pub/sub 广播失效消息，所有节点清理各自的近端缓存。
+ * pub/sub 不保证送达，近端缓存另设写入后过期时间兜底，漏收的失效消息最多影响一个过期周期。
+ */
+@Slf4j
+@Component
+public class SegmentTextCache implements MessageListener {
+
+    public static final String INVALIDATE_CHANNEL = "segment-text-cache:invalidate";
+
+    private static final String KEY_PREFIX = "segment-text:";
+
+    /**
+     * 每条近端缓存记录的固定开销（字节），用于估算权重
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 近端缓存的最大总字节数
+     */
+    @Value("${segment-cache.near-cache-max-bytes:67108864}")
+    private long nearCacheMaxBytes;
+
+    /**
+     * 近端缓存写入后的过期时间（秒），兜底漏收的失效消息
+     */
+    @Value("${segment-cache.near-cache-expire-seconds:600}")
+    private long nearCacheExpireSeconds;
+
+    /**
+     * Redis 缓存时间（秒）
+     */
+    @Value("${segment-cache.redis-ttl-seconds:86400}")
+    private long redisTtlSeconds;
+
+    /**
+     * Redis 缓存时间的随机抖动上限（秒）
+     */
+    @Value("${segment-cache.redis-ttl-jitter-seconds:3600}")
+    private long redisTtlJitterSeconds;
+
+    /**
+     * 空值缓存时间（秒）
+     */
+    @Value("${segment-cache.null-ttl-seconds:60}")
+    private long nullTtlSeconds;
+
+    private Cache<String, String> nearCache;
+
+    @PostConstruct
+    public void init() {
+        nearCache = Caffeine.newBuilder()
+                .maximumWeight(nearCacheMaxBytes)
+                .weigher((String chunkId, String text) -> ENTRY_OVERHEAD_BYTES + 2 * (chunkId.length() + text.length()))
+                .expireAfterWrite(nearCacheExpireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "segment_text_near_cache");
+    }
+
+    /**
+     * 批量获取分段文本：近端缓存 -> Redis MGET -> loader 回源
+     *
+     * @param chunkIds 分段ID集合
+     * @param loader   回源加载，参数为两级缓存都未命中的 chunkId，返回 chunkId -> 文本
+     * @return chunkId -> 文本，不存在的 chunkId 不会出现在结果中
+     */
+    public Map<String, String> getAll(Collection<String> chunkIds, Function<List<String>, Map<String, String>> loader) {
+        Map<String, String> result = new HashMap<>();
+        if (chunkIds == null || chunkIds.isEmpty()) {
+            return result;
+        }
+
+        // 1. 近端缓存
+        Set<String> distinctIds = new LinkedHashSet<>(chunkIds);
+        result.putAll(nearCache.getAllPresent(distinctIds));
+        if (result.size() == distinctIds.size()) {
+            return result;
+        }
+
+        // 2. Redis MGET 一次性读取
+        List<String> redisMissed = new ArrayList<>();
+        for (String chunkId : distinctIds) {
+            if (!result.containsKey(chunkId)) {
+                redisMissed.add(chunkId);
+            }
+        }
+        List<String> cachedTexts = stringRedisTemplate.opsForValue().multiGet(redisMissed.stream().map(SegmentTextCache::redisKey).toList());
+
+        List<String> missedKeys = new ArrayList<>();
+        for (int i = 0; i < redisMissed.size(); i++) {
+            String chunkId = redisMissed.get(i);
+            String text = cachedTexts == null ? null : cachedTexts.get(i);
+            if (text == null) {
+                missedKeys.add(chunkId);
+            } else if (!text.isEmpty()) {
+                result.put(chunkId, text);
+                nearCache.put(chunkId, text);
+            }
+        }
+
+        if (missedKeys.isEmpty()) {
+            return result;
+        }
+
+        // 3. 回源，并通过 pipeline 回写 Redis；不存在的 chunkId 短时间缓存空值，避免缓存击穿
+        Map<String, String> loadedTexts = loader.apply(missedKeys);
+        result.putAll(loadedTexts);
+        nearCache.putAll(loadedTexts);
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String chunkId : missedKeys) {
+                String text = loadedTexts.get(chunkId);
+                if (text != null) {
+                    stringConnection.setEx(redisKey(chunkId), jitteredTtlSeconds(), text);
+                } else {
+                    stringConnection.setEx(redisKey(chunkId), nullTtlSeconds, "");
+                }
+            }
+            return null;
+        });
+
+        return result;
+    }
+
+    /**
+     * 使分段缓存失效：删除 Redis 缓存并广播，所有节点清理近端缓存
+     *
+     * @param chunkIds 分段ID集合
+     */
+    public void invalidate(Collection<String> chunkIds) {
+        if (chunkIds == null || chunkIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = chunkIds.stream().filter(Objects::nonNull).distinct().toList();
+        nearCache.invalidateAll(ids);
+        stringRedisTemplate.delete(ids.stream().map(SegmentTextCache::redisKey).toList());
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, JSON.toJSONString(ids));
+        log.info("分段缓存已失效，数量: {}", ids.size());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            List<String> ids = JSON.parseArray(new String(message.getBody(), StandardCharsets.UTF_8), String.class);
+            nearCache.invalidateAll(ids);
+        } catch (Exception e) {
+            // 无法解析时清空近端缓存，宁可多回源也不返回已删除的分段
+            log.warn("解析分段缓存失效消息失败，清空近端缓存", e);
+            nearCache.invalidateAll();
+        }
+    }
+
+    private long jitteredTtlSeconds() {
+        return redisTtlSeconds + (redisTtlJitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(redisTtlJitterSeconds + 1) : 0);
+    }
+
+    private static String redisKey(String chunkId) {
+        return KEY_PREFIX + chunkId;
+    }
+}
@@ -0,0 +1,67 @@
+package cn.hollis.llm.mentor.know.engine.document.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 文档解析（MinerU）HTTP 客户端配置
+ * 所有解析请求共享一个带连接池、keep-alive 的客户端，避免每个文档都新建连接
+ */
+@Slf4j
+@Configuration
+public class MinerUHttpClientConfiguration {
+
+    @Value("${file.parse.api.connectTimeout:30000}")
+    private int connectTimeout;
+
+    @Value("${file.parse.api.responseTimeout:300000}")
+    private int responseTimeout;
+
+    @Value("${file.parse.api.maxConnTotal:20}")
+    private int maxConnTotal;
+
+    @Value("${file.parse.api.maxConnPerRoute:10}")
+    private int maxConnPerRoute;
+
+    @Value("${file.parse.api.idleEvictSeconds:60}")
+    private int idleEvictSeconds;
+
+    @Bean("minerUHttpClient")
+    public CloseableHttpClient minerUHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnTotal)
+                .setMaxConnPerRoute(maxConnPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+                        .build())
+                .build();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                // 从连接池获取连接的等待时间
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                .build();
+
+        log.info("文档解析 HTTP 连接池初始化完成，maxConnTotal: {}, maxConnPerRoute: {}", maxConnTotal, maxConnPerRoute);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictSeconds))
+                .build();
+    }
+}
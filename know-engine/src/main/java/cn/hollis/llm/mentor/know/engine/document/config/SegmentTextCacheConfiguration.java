@@ -0,0 +1,25 @@
+package cn.hollis.llm.mentor.know.engine.document.config;
+
+import cn.hollis.llm.mentor.know.engine.document.cache.SegmentTextCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 分段文本缓存配置
+ * 订阅分段缓存失效频道，收到消息后清理本节点的近端缓存
+ */
+@Configuration
+public class SegmentTextCacheConfiguration {
+
+    @Bean
+    public RedisMessageListenerContainer segmentTextCacheListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                          SegmentTextCache segmentTextCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(segmentTextCache, new ChannelTopic(SegmentTextCache.INVALIDATE_CHANNEL));
+        return container;
+    }
+}
@@ -13,6 +13,10 @@ public enum DocumentStatus {
      * 转换中
      */
     CONVERTING,
+    /**
+     * 转换失败，失败原因记录在 extension 中，可通过转换接口或补偿任务重新转换
+     */
+    CONVERT_FAILED,
     /**
      * 转换完成
      */
@@ -58,6 +58,20 @@ public class KnowledgeDocumentController {
         return documentProcessService.upload(new DocumentUploadParam(file, uploadUser, title, accessibleBy, description, knowledgeBaseType, tableName));
     }
 
+    /**
+     * 重新转换文档
+     * 用于转换失败（CONVERT_FAILED）后的手动重试，源文件从 MinIO 重新读取
+     *
+     * @param documentId 文档ID
+     * @return 结果
+     */
+    @PostMapping("/convert/{documentId}")
+    public String convertDocument(@PathVariable Long documentId) {
+        KnowledgeDocument document = knowledgeDocumentService.getById(documentId);
+        documentProcessService.convert(document);
+        return "success";
+    }
+
     /**
      * 对文档进行切分
      * 注意：此方法为手动触发切分接口，正常流程由事件驱动自动执行
@@ -3,13 +3,16 @@ package cn.hollis.llm.mentor.know.engine.document.entity;
 import cn.hollis.llm.mentor.know.engine.document.constant.DocumentStatus;
 import cn.hollis.llm.mentor.know.engine.document.constant.KnowledgeBaseType;
 import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -71,6 +74,30 @@ public class KnowledgeDocument extends BaseEntity {
      */
     private String extension;
 
+    /**
+     * 向量化补偿重试次数，只由补偿任务通过条件更新维护
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Integer retryCount;
+
+    /**
+     * 下次允许补偿的时间
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private LocalDateTime nextRetryAt;
+
+    /**
+     * 补偿任务租约持有者
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private String leaseOwner;
+
+    /**
+     * 补偿任务租约过期时间
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private LocalDateTime leaseExpireAt;
+
     @JsonIgnore
     public Boolean isOverride() {
         if (extension != null && !extension.isEmpty()) {
@@ -98,4 +125,30 @@ public class KnowledgeDocument extends BaseEntity {
         extensionMap.put("tableName", tableName);
         this.extension = JSON.toJSONString(extensionMap);
     }
+
+    /**
+     * 最近一次转换失败的原因
+     */
+    public String getConvertError() {
+        if (extension != null && !extension.isEmpty()) {
+            return (String) JSON.parseObject(extension, Map.class).get("convertError");
+        }
+        return null;
+    }
+
+    @JsonIgnore
+    public void setConvertError(String convertError) {
+        Map<String, Serializable> extensionMap;
+        if (extension == null) {
+            extensionMap = new HashMap<String, Serializable>();
+        } else {
+            extensionMap = JSON.parseObject(extension, Map.class);
+        }
+        if (convertError == null) {
+            extensionMap.remove("convertError");
+        } else {
+            extensionMap.put("convertError", convertError);
+        }
+        this.extension = JSON.toJSONString(extensionMap);
+    }
 }
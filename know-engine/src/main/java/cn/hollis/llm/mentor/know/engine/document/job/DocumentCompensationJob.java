@@ -6,13 +6,23 @@ import cn.hollis.llm.mentor.know.engine.document.service.DocumentProcessService;
 import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeDocumentService;
 import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 文档处理补偿任务
@@ -31,10 +41,39 @@ public class DocumentCompensationJob {
     @Autowired
     private DocumentProcessService documentProcessService;
 
+    @Autowired
+    @Qualifier("documentCompensationExecutor")
+    private Executor documentCompensationExecutor;
+
     /**
      * 最大重试次数
      */
-    private static final int MAX_RETRY_COUNT = 5;
+    @Value("${document.compensation.max-retry:5}")
+    private int maxRetryCount;
+
+    /**
+     * 每页扫描的文档数
+     */
+    @Value("${document.compensation.page-size:100}")
+    private int pageSize;
+
+    /**
+     * 租约时长（秒），需大于单个文档向量化的最长耗时，节点宕机后租约过期即可被其他节点重新抢占
+     */
+    @Value("${document.compensation.lease-seconds:1800}")
+    private long leaseSeconds;
+
+    /**
+     * 重试退避的基础时间（秒）
+     */
+    @Value("${document.compensation.backoff-base-seconds:60}")
+    private long backoffBaseSeconds;
+
+    /**
+     * 重试退避的最长时间（秒）
+     */
+    @Value("${document.compensation.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
 
     /**
      * 补偿阈值（分钟）- 超过此时间才进行补偿
@@ -95,96 +134,197 @@ public class DocumentCompensationJob {
 
     /**
      * 向量化补偿任务
-     * 扫描 CHUNKED 状态但存在未向量化的 segment，重新触发向量化
+     * <p>
+     * 扫描 CHUNKED 状态且到达重试时间的文档，按 doc_id 分页（keyset）读取，支持 XXL-JOB 分片广播：
+     * 每个执行器节点只处理 doc_id % shardTotal == shardIndex 的文档。
+     * 每页文档先通过条件更新抢占租约（lease_owner + lease_expire_at），抢到的文档交给有界线程池并发向量化；
+     * 失败后 retry_count + 1，并按指数退避设置 next_retry_at。
      */
     @XxlJob("documentEmbeddingCompensation")
     public void documentEmbeddingCompensation() {
-        log.info("========== 开始执行向量化补偿任务 ==========");
+        int shardIndex = Math.max(XxlJobHelper.getShardIndex(), 0);
+        int shardTotal = Math.max(XxlJobHelper.getShardTotal(), 1);
+        String owner = UUID.randomUUID().toString();
+        log.info("========== 开始执行向量化补偿任务，分片: {}/{} ==========", shardIndex, shardTotal);
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failCount = new AtomicInteger();
+
+        try {
+            long lastDocId = 0;
+            while (true) {
+                List<Long> docIds = findCandidates(lastDocId, shardIndex, shardTotal);
+                if (docIds.isEmpty()) {
+                    break;
+                }
+                lastDocId = docIds.get(docIds.size() - 1);
+
+                List<KnowledgeDocument> claimed = claim(docIds, owner);
+                log.info("本页待补偿文档 {} 个，抢占成功 {} 个", docIds.size(), claimed.size());
+
+                List<CompletableFuture<Void>> futures = new ArrayList<>(claimed.size());
+                for (KnowledgeDocument document : claimed) {
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        if (compensate(document, owner)) {
+                            successCount.incrementAndGet();
+                        } else {
+                            failCount.incrementAndGet();
+                        }
+                    }, documentCompensationExecutor));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            }
+        } catch (Exception e) {
+            log.error("向量化补偿任务执行异常", e);
+            XxlJobHelper.handleFail("向量化补偿任务执行异常: " + e.getMessage());
+        }
+
+        log.info("========== 向量化补偿任务完成，成功: {}，失败: {} ==========", successCount.get(), failCount.get());
+        XxlJobHelper.log("向量化补偿任务完成，分片: {}/{}，成功: {}，失败: {}", shardIndex, shardTotal, successCount.get(), failCount.get());
+    }
+
+    /**
+     * 转换补偿任务
+     * <p>
+     * 扫描 CONVERT_FAILED 状态且到达重试时间的文档，按 doc_id 分页（keyset）读取，分片规则与向量化补偿相同。
+     * 每个文档先通过条件更新占用一次重试次数（retry_count + 1，并按指数退避设置 next_retry_at），
+     * 占用成功后从 MinIO 重新读取源文件提交转换；转换成功后重试计数清零。
+     */
+    @XxlJob("documentConvertCompensation")
+    public void documentConvertCompensation() {
+        int shardIndex = Math.max(XxlJobHelper.getShardIndex(), 0);
+        int shardTotal = Math.max(XxlJobHelper.getShardTotal(), 1);
+        log.info("========== 开始执行转换补偿任务，分片: {}/{} ==========", shardIndex, shardTotal);
         int successCount = 0;
         int failCount = 0;
 
         try {
-            // 查询 CHUNKED 状态的文档
-            LambdaQueryWrapper<KnowledgeDocument> docQueryWrapper = new LambdaQueryWrapper<>();
-            docQueryWrapper.eq(KnowledgeDocument::getStatus, DocumentStatus.CHUNKED);
-
-            List<KnowledgeDocument> documents = knowledgeDocumentService.list(docQueryWrapper);
-            log.info("发现 {} 个 CHUNKED 状态的文档", documents.size());
-
-            for (KnowledgeDocument document : documents) {
-                try {
-                    // 检查重试次数
-                    int retryCount = getRetryCount(document);
-                    if (retryCount >= MAX_RETRY_COUNT) {
-                        log.warn("文档 {} 已达最大重试次数 {}，跳过补偿", document.getDocId(), retryCount);
+            long lastDocId = 0;
+            while (true) {
+                LocalDateTime now = LocalDateTime.now();
+                List<KnowledgeDocument> documents = knowledgeDocumentService.list(Wrappers.<KnowledgeDocument>lambdaQuery()
+                        .select(KnowledgeDocument::getDocId, KnowledgeDocument::getRetryCount)
+                        .eq(KnowledgeDocument::getStatus, DocumentStatus.CONVERT_FAILED)
+                        .lt(KnowledgeDocument::getRetryCount, maxRetryCount)
+                        .and(w -> w.isNull(KnowledgeDocument::getNextRetryAt).or().le(KnowledgeDocument::getNextRetryAt, now))
+                        .gt(KnowledgeDocument::getDocId, lastDocId)
+                        .apply(shardTotal > 1, "doc_id % {0} = {1}", shardTotal, shardIndex)
+                        .orderByAsc(KnowledgeDocument::getDocId)
+                        .last("LIMIT " + pageSize));
+                if (documents.isEmpty()) {
+                    break;
+                }
+                lastDocId = documents.get(documents.size() - 1).getDocId();
+
+                for (KnowledgeDocument candidate : documents) {
+                    int retryCount = candidate.getRetryCount() == null ? 0 : candidate.getRetryCount();
+                    // 以 retry_count 做条件更新，多个节点只有一个能占用本次重试
+                    boolean claimed = knowledgeDocumentService.update(Wrappers.<KnowledgeDocument>lambdaUpdate()
+                            .set(KnowledgeDocument::getRetryCount, retryCount + 1)
+                            .set(KnowledgeDocument::getNextRetryAt, now.plusSeconds(backoffSeconds(retryCount + 1)))
+                            .eq(KnowledgeDocument::getDocId, candidate.getDocId())
+                            .eq(KnowledgeDocument::getStatus, DocumentStatus.CONVERT_FAILED)
+                            .eq(KnowledgeDocument::getRetryCount, retryCount));
+                    if (!claimed) {
                         continue;
                     }
-
-                    // 执行向量化
-                    boolean success = documentProcessService.embedAndStore(document);
-
-                    if (success) {
-                        // 更新重试次数
-                        updateRetryCount(document.getDocId(), retryCount + 1);
-                        log.info("向量化补偿成功，documentId: {}", document.getDocId());
+                    try {
+                        documentProcessService.convert(knowledgeDocumentService.getById(candidate.getDocId()));
                         successCount++;
-                    } else {
-                        log.warn("向量化补偿失败，documentId: {}", document.getDocId());
+                    } catch (Exception e) {
+                        log.error("转换补偿失败，documentId: {}，retryCount: {}", candidate.getDocId(), retryCount + 1, e);
                         failCount++;
                     }
-                } catch (Exception e) {
-                    log.error("向量化补偿失败，documentId: {}", document.getDocId(), e);
-                    failCount++;
                 }
             }
         } catch (Exception e) {
-            log.error("向量化补偿任务执行异常", e);
+            log.error("转换补偿任务执行异常", e);
+            XxlJobHelper.handleFail("转换补偿任务执行异常: " + e.getMessage());
         }
 
-        log.info("========== 向量化补偿任务完成，成功: {}，失败: {} ==========", successCount, failCount);
+        log.info("========== 转换补偿任务完成，提交: {}，失败: {} ==========", successCount, failCount);
+        XxlJobHelper.log("转换补偿任务完成，分片: {}/{}，提交: {}，失败: {}", shardIndex, shardTotal, successCount, failCount);
     }
 
     /**
-     * 从 extension 字段获取重试次数
+     * 查询一页待补偿的文档ID：CHUNKED 状态、未超过最大重试次数、到达重试时间且租约已过期
+     * <p>
+     * 从未补偿过的文档需要在 CHUNKED 状态停留超过阈值，避免与正常流程中正在进行的向量化重复执行
      */
-    private int getRetryCount(KnowledgeDocument document) {
-        String extension = document.getExtension();
-        if (extension == null || extension.isEmpty()) {
-            return 0;
-        }
-        try {
-            com.alibaba.fastjson2.JSONObject json = com.alibaba.fastjson2.JSON.parseObject(extension);
-            return json.getIntValue("retryCount");
-        } catch (Exception e) {
-            return 0;
-        }
+    private List<Long> findCandidates(long lastDocId, int shardIndex, int shardTotal) {
+        LocalDateTime now = LocalDateTime.now();
+        LambdaQueryWrapper<KnowledgeDocument> queryWrapper = Wrappers.<KnowledgeDocument>lambdaQuery()
+                .select(KnowledgeDocument::getDocId)
+                .eq(KnowledgeDocument::getStatus, DocumentStatus.CHUNKED)
+                .lt(KnowledgeDocument::getRetryCount, maxRetryCount)
+                .and(w -> w.le(KnowledgeDocument::getNextRetryAt, now)
+                        .or(o -> o.isNull(KnowledgeDocument::getNextRetryAt)
+                                .le(KnowledgeDocument::getUpdatedAt, now.minusMinutes(COMPENSATION_THRESHOLD_MINUTES))))
+                .and(w -> w.isNull(KnowledgeDocument::getLeaseExpireAt).or().lt(KnowledgeDocument::getLeaseExpireAt, now))
+                .gt(KnowledgeDocument::getDocId, lastDocId)
+                .apply(shardTotal > 1, "doc_id % {0} = {1}", shardTotal, shardIndex)
+                .orderByAsc(KnowledgeDocument::getDocId)
+                .last("LIMIT " + pageSize);
+        return knowledgeDocumentService.list(queryWrapper).stream().map(KnowledgeDocument::getDocId).toList();
+    }
+
+    /**
+     * 通过条件更新抢占租约，返回本次抢占成功的文档
+     */
+    private List<KnowledgeDocument> claim(List<Long> docIds, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        knowledgeDocumentService.update(Wrappers.<KnowledgeDocument>lambdaUpdate()
+                .set(KnowledgeDocument::getLeaseOwner, owner)
+                .set(KnowledgeDocument::getLeaseExpireAt, now.plusSeconds(leaseSeconds))
+                .in(KnowledgeDocument::getDocId, docIds)
+                .eq(KnowledgeDocument::getStatus, DocumentStatus.CHUNKED)
+                .and(w -> w.isNull(KnowledgeDocument::getLeaseExpireAt).or().lt(KnowledgeDocument::getLeaseExpireAt, now)));
+
+        return knowledgeDocumentService.list(Wrappers.<KnowledgeDocument>lambdaQuery()
+                .in(KnowledgeDocument::getDocId, docIds)
+                .eq(KnowledgeDocument::getLeaseOwner, owner));
     }
 
     /**
-     * 更新重试次数到 extension 字段
+     * 对单个文档执行向量化补偿，并释放租约
      */
-    private void updateRetryCount(Long documentId, int retryCount) {
-        KnowledgeDocument document = knowledgeDocumentService.getById(documentId);
-        if (document == null) {
-            return;
+    private boolean compensate(KnowledgeDocument document, String owner) {
+        boolean success;
+        try {
+            success = documentProcessService.embedAndStore(document);
+        } catch (Exception e) {
+            log.error("向量化补偿失败，documentId: {}", document.getDocId(), e);
+            success = false;
         }
 
-        com.alibaba.fastjson2.JSONObject json;
-        String extension = document.getExtension();
-        if (extension == null || extension.isEmpty()) {
-            json = new com.alibaba.fastjson2.JSONObject();
+        LambdaUpdateWrapper<KnowledgeDocument> release = Wrappers.<KnowledgeDocument>lambdaUpdate()
+                .set(KnowledgeDocument::getLeaseOwner, null)
+                .set(KnowledgeDocument::getLeaseExpireAt, null)
+                .eq(KnowledgeDocument::getDocId, document.getDocId())
+                .eq(KnowledgeDocument::getLeaseOwner, owner);
+        if (success) {
+            release.set(KnowledgeDocument::getRetryCount, 0)
+                    .set(KnowledgeDocument::getNextRetryAt, null);
+            log.info("向量化补偿成功，documentId: {}", document.getDocId());
         } else {
-            try {
-                json = com.alibaba.fastjson2.JSON.parseObject(extension);
-            } catch (Exception e) {
-                json = new com.alibaba.fastjson2.JSONObject();
+            int retryCount = (document.getRetryCount() == null ? 0 : document.getRetryCount()) + 1;
+            LocalDateTime nextRetryAt = LocalDateTime.now().plusSeconds(backoffSeconds(retryCount));
+            release.set(KnowledgeDocument::getRetryCount, retryCount)
+                    .set(KnowledgeDocument::getNextRetryAt, nextRetryAt);
+            if (retryCount >= maxRetryCount) {
+                log.warn("文档 {} 已达最大重试次数 {}，不再补偿", document.getDocId(), retryCount);
+            } else {
+                log.warn("向量化补偿失败，documentId: {}，retryCount: {}，下次重试时间: {}", document.getDocId(), retryCount, nextRetryAt);
             }
         }
+        knowledgeDocumentService.update(release);
+        return success;
+    }
 
-        json.put("retryCount", retryCount);
-        json.put("lastRetryTime", LocalDateTime.now().toString());
-
-        document.setExtension(json.toJSONString());
-        knowledgeDocumentService.updateById(document);
+    /**
+     * 指数退避：base * 2^(retryCount - 1)，不超过上限
+     */
+    private long backoffSeconds(int retryCount) {
+        long backoff = backoffBaseSeconds << Math.min(retryCount - 1, 20);
+        return Math.min(backoff, backoffMaxSeconds);
     }
 }
@@ -0,0 +1,186 @@
+package cn.hollis.llm.mentor.know.engine.document.pipeline;
+
+import cn.hollis.llm.mentor.know.engine.document.service.impl.ExcelProcessServiceImpl.ColumnInfo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Excel 导入列类型推断
+ * <p>
+ * 根据样本行推断列的 MySQL 类型，只在样本中全部非空值都符合时才使用数值或日期类型，否则为字符串。
+ * 带前导零的数字（如编号、邮编）按字符串处理，避免丢失前导零。
+ */
+public final class ExcelColumnTypes {
+
+    public static final String BIGINT = "BIGINT";
+
+    public static final String DATE = "DATE";
+
+    public static final String DATETIME = "DATETIME";
+
+    public static final String VARCHAR = "VARCHAR(500)";
+
+    public static final String TEXT = "TEXT";
+
+    /**
+     * VARCHAR 列的最大字符数
+     */
+    public static final int VARCHAR_LENGTH = 500;
+
+    /**
+     * DECIMAL 整数部分位数
+     */
+    private static final int DECIMAL_INTEGER_DIGITS = 20;
+
+    /**
+     * DECIMAL 最大小数位数
+     */
+    private static final int DECIMAL_MAX_SCALE = 10;
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("-?(0|[1-9]\\d{0," + (DECIMAL_INTEGER_DIGITS - 1) + "})(\\.\\d+)?");
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private static final Pattern DATETIME_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}");
+
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private ExcelColumnTypes() {
+    }
+
+    /**
+     * 根据样本值推断列类型
+     *
+     * @param samples 样本值，空值会被忽略
+     * @return MySQL 列类型
+     */
+    public static String infer(List<String> samples) {
+        boolean allInteger = true;
+        boolean allDecimal = true;
+        boolean allDate = true;
+        boolean allDatetime = true;
+        boolean hasValue = false;
+        int maxScale = 0;
+        int maxLength = 0;
+
+        for (String value : samples) {
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            hasValue = true;
+            maxLength = Math.max(maxLength, value.length());
+            allInteger = allInteger && INTEGER_PATTERN.matcher(value).matches();
+            if (allDecimal && DECIMAL_PATTERN.matcher(value).matches()) {
+                int dot = value.indexOf('.');
+                maxScale = Math.max(maxScale, dot < 0 ? 0 : value.length() - dot - 1);
+            } else {
+                allDecimal = false;
+            }
+            allDate = allDate && isDate(value);
+            allDatetime = allDatetime && isDatetime(value);
+        }
+
+        if (!hasValue) {
+            return VARCHAR;
+        }
+        if (allInteger) {
+            return BIGINT;
+        }
+        if (allDecimal) {
+            return decimal(Math.min(Math.max(maxScale, 1), DECIMAL_MAX_SCALE));
+        }
+        if (allDate) {
+            return DATE;
+        }
+        if (allDatetime) {
+            return DATETIME;
+        }
+        return maxLength > VARCHAR_LENGTH ? TEXT : VARCHAR;
+    }
+
+    /**
+     * 判断值能否写入该类型的列，空值总是可以写入
+     * DECIMAL 列超出的小数位由 MySQL 四舍五入，不视为不兼容
+     */
+    public static boolean accepts(String dataType, String value) {
+        if (value == null || value.isEmpty()) {
+            return true;
+        }
+        if (BIGINT.equals(dataType)) {
+            return INTEGER_PATTERN.matcher(value).matches();
+        }
+        if (dataType.startsWith("DECIMAL")) {
+            return DECIMAL_PATTERN.matcher(value).matches();
+        }
+        if (DATE.equals(dataType)) {
+            return isDate(value);
+        }
+        if (DATETIME.equals(dataType)) {
+            return isDatetime(value);
+        }
+        if (VARCHAR.equals(dataType)) {
+            return value.length() <= VARCHAR_LENGTH;
+        }
+        return true;
+    }
+
+    /**
+     * 值与列类型不兼容时，放宽后的类型
+     */
+    public static String widen(String value) {
+        return value.length() > VARCHAR_LENGTH ? TEXT : VARCHAR;
+    }
+
+    /**
+     * 生成列定义，用于建表和修改列类型
+     */
+    public static String columnDefinition(ColumnInfo column) {
+        return "`" + column.getColumnName() + "` " + column.getDataType()
+                + " DEFAULT NULL COMMENT '" + escapeSqlComment(column.getOriginalHeader()) + "'";
+    }
+
+    /**
+     * 转义SQL注释中的特殊字符
+     */
+    public static String escapeSqlComment(String comment) {
+        if (comment == null) {
+            return "";
+        }
+        return comment.replace("\\", "\\\\").replace("'", "\\'");
+    }
+
+    private static String decimal(int scale) {
+        return "DECIMAL(" + (DECIMAL_INTEGER_DIGITS + scale) + "," + scale + ")";
+    }
+
+    private static boolean isDate(String value) {
+        if (!DATE_PATTERN.matcher(value).matches()) {
+            return false;
+        }
+        try {
+            LocalDate.parse(value);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDatetime(String value) {
+        if (!DATETIME_PATTERN.matcher(value).matches()) {
+            return false;
+        }
+        try {
+            LocalDateTime.parse(value, DATETIME_FORMATTER);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package cn.hollis.llm.mentor.know.engine.document.pipeline;
+
+import cn.hollis.llm.mentor.know.engine.document.service.impl.ExcelProcessServiceImpl.ColumnInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Excel 数据流式写入器
+ * <p>
+ * 每行数据直接绑定到 PreparedStatement 并加入批次，攒满 batchSize 行执行一次 executeBatch
+ * （配合连接串的 rewriteBatchedStatements=true 由驱动改写为多值 INSERT），每 commitRows 行提交一次事务。
+ * 内存中只保留当前批次，与表格总行数无关。
+ * <p>
+ * 遇到与推断类型不兼容的值时，先提交已写入的数据，再把该列放宽为字符串类型后继续写入。
+ * 使用独立连接，不参与外部事务；非线程安全，一次导入使用一个实例。
+ */
+@Slf4j
+public class ExcelTableLoader implements AutoCloseable {
+
+    private final String tableName;
+
+    private final List<ColumnInfo> columns;
+
+    private final int batchSize;
+
+    private final int commitRows;
+
+    private final Connection connection;
+
+    private final PreparedStatement insertStatement;
+
+    private int pendingRows;
+
+    private int uncommittedRows;
+
+    private int loadedRows;
+
+    private boolean finished;
+
+    public ExcelTableLoader(DataSource dataSource, String tableName, List<ColumnInfo> columns, int batchSize, int commitRows) throws SQLException {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.batchSize = batchSize;
+        this.commitRows = commitRows;
+
+        String columnNames = columns.stream()
+                .map(c -> "`" + c.getColumnName() + "`")
+                .collect(Collectors.joining(", "));
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+        String insertSql = "INSERT INTO `" + tableName + "` (" + columnNames + ") VALUES (" + placeholders + ")";
+
+        this.connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            this.insertStatement = connection.prepareStatement(insertSql);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 写入一行数据
+     *
+     * @param row 按列顺序排列的单元格值，长度不足的列视为空
+     */
+    public void add(List<String> row) throws SQLException {
+        // 先检查整行，必要时放宽列类型，再统一绑定参数
+        for (ColumnInfo column : columns) {
+            String value = valueAt(row, column.getIndex());
+            if (!ExcelColumnTypes.accepts(column.getDataType(), value)) {
+                widenColumn(column, value);
+            }
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnInfo column = columns.get(i);
+            bind(i + 1, column.getDataType(), valueAt(row, column.getIndex()));
+        }
+        insertStatement.addBatch();
+        pendingRows++;
+
+        if (pendingRows >= batchSize) {
+            executeBatch();
+            if (uncommittedRows >= commitRows) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * 写入剩余数据并提交
+     *
+     * @return 写入的总行数
+     */
+    public int finish() throws SQLException {
+        executeBatch();
+        commit();
+        finished = true;
+        return loadedRows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!finished) {
+                connection.rollback();
+            }
+            insertStatement.close();
+        } finally {
+            connection.setAutoCommit(true);
+            connection.close();
+        }
+    }
+
+    private void executeBatch() throws SQLException {
+        if (pendingRows == 0) {
+            return;
+        }
+        insertStatement.executeBatch();
+        uncommittedRows += pendingRows;
+        loadedRows += pendingRows;
+        pendingRows = 0;
+    }
+
+    private void commit() throws SQLException {
+        connection.commit();
+        log.info("表 {} 已提交 {} 行", tableName, loadedRows);
+        uncommittedRows = 0;
+    }
+
+    /**
+     * 放宽列类型为字符串
+     * ALTER TABLE 在 MySQL 中会隐式提交，所以先把当前批次写入并提交
+     */
+    private void widenColumn(ColumnInfo column, String value) throws SQLException {
+        executeBatch();
+        commit();
+
+        String oldType = column.getDataType();
+        column.setDataType(ExcelColumnTypes.widen(value));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE `" + tableName + "` MODIFY COLUMN " + ExcelColumnTypes.columnDefinition(column));
+        }
+        log.info("表 {} 的列 {} 类型由 {} 放宽为 {}", tableName, column.getColumnName(), oldType, column.getDataType());
+    }
+
+    private void bind(int parameterIndex, String dataType, String value) throws SQLException {
+        if (value.isEmpty()) {
+            insertStatement.setNull(parameterIndex, Types.VARCHAR);
+        } else if (ExcelColumnTypes.BIGINT.equals(dataType)) {
+            insertStatement.setLong(parameterIndex, Long.parseLong(value));
+        } else if (dataType.startsWith("DECIMAL")) {
+            insertStatement.setBigDecimal(parameterIndex, new BigDecimal(value));
+        } else {
+            insertStatement.setString(parameterIndex, value);
+        }
+    }
+
+    private static String valueAt(List<String> row, int index) {
+        if (index >= row.size()) {
+            return "";
+        }
+        String value = row.get(index);
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,294 @@
+package cn.hollis.llm.mentor.know.engine.document.pipeline;
+
+import cn.hollis.llm.mentor.know.engine.document.constant.SegmentStatus;
+import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeSegment;
+import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.google.common.base.Stopwatch;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档片段向量化流水线
+ * <p>
+ * 将向量化拆成三个阶段，阶段之间通过有界队列连接，下游处理不过来时上游阻塞（背压）：
+ * <ol>
+ *   <li><b>读取</b>：按片段 id 做 keyset 分页（id > lastId），读取待向量化的片段并按 batchSize 切批。
+ *   扫描过程中被更新状态的行不会导致后续页偏移漏读</li>
+ *   <li><b>向量化</b>：concurrency 个工作线程并发调用 Embedding 模型</li>
+ *   <li><b>写入</b>：单线程批量写入 Elasticsearch，并批量回写片段的 embeddingId 和状态</li>
+ * </ol>
+ * 任一阶段失败时置位中止标记并中断其余阶段，未写入的片段保持 STORED 状态，由补偿任务重新处理。
+ * 队列读写都以超时轮询并检查中止标记，中止后不再投递结束标记，避免阻塞在已无人消费的满队列上。
+ */
+@Slf4j
+@Component
+public class SegmentEmbeddingPipeline {
+
+    private static final EmbeddingBatch END_OF_EMBEDDING = new EmbeddingBatch(List.of());
+
+    private static final StoreBatch END_OF_STORE = new StoreBatch(List.of(), List.of(), List.of());
+
+    /**
+     * 队列读写的轮询间隔（毫秒），每次超时后检查中止标记
+     */
+    private static final long QUEUE_POLL_MILLIS = 100;
+
+    @Autowired
+    private KnowledgeSegmentService knowledgeSegmentService;
+
+    @Autowired
+    private ElasticsearchEmbeddingStore elasticsearchEmbeddingStore;
+
+    @Autowired
+    private OpenAiEmbeddingModel openAiEmbeddingModel;
+
+    /**
+     * 每次从数据库读取的片段数
+     */
+    @Value("${document.embedding.page-size:200}")
+    private int pageSize;
+
+    /**
+     * 每个向量化任务的片段数
+     */
+    @Value("${document.embedding.batch-size:9}")
+    private int batchSize;
+
+    /**
+     * 向量化并发数
+     */
+    @Value("${document.embedding.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * 阶段之间队列的容量（批次数）
+     */
+    @Value("${document.embedding.queue-capacity:8}")
+    private int queueCapacity;
+
+    /**
+     * 对文档下全部待向量化的片段执行向量化并写入向量库
+     *
+     * @param documentId 文档ID
+     * @return 执行结果
+     */
+    public Result run(Long documentId) {
+        Assert.notNull(documentId, "documentId不能为空");
+        BlockingQueue<EmbeddingBatch> embeddingQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<StoreBatch> storeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger runningEmbedders = new AtomicInteger(concurrency);
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicInteger storedCount = new AtomicInteger();
+        AtomicLong embeddingNanos = new AtomicLong();
+        AtomicLong storeNanos = new AtomicLong();
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("segment-embedding-" + documentId + "-", 0).factory())) {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            int tasks = 0;
+
+            completionService.submit(() -> read(documentId, embeddingQueue, aborted));
+            tasks++;
+            for (int i = 0; i < concurrency; i++) {
+                completionService.submit(() -> embed(embeddingQueue, storeQueue, runningEmbedders, embeddingNanos, aborted));
+                tasks++;
+            }
+            completionService.submit(() -> store(storeQueue, storedCount, storeNanos, aborted));
+            tasks++;
+
+            for (int i = 0; i < tasks; i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    abort(executor, aborted, embeddingQueue, storeQueue);
+                    throw new RuntimeException("文档向量化失败, docId: " + documentId, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("文档向量化被中断, docId: " + documentId, e);
+        }
+
+        Result result = new Result(storedCount.get(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        log.info("文档向量化完成, docId: {}, 片段数: {}, 耗时: {}ms, 吞吐: {} segments/s, 向量化累计耗时: {}ms, 写入累计耗时: {}ms",
+                documentId, result.segmentCount(), result.elapsedMillis(), String.format("%.1f", result.throughput()),
+                TimeUnit.NANOSECONDS.toMillis(embeddingNanos.get()), TimeUnit.NANOSECONDS.toMillis(storeNanos.get()));
+        return result;
+    }
+
+    /**
+     * 读取阶段：keyset 分页读取待向量化的片段
+     */
+    private Void read(Long documentId, BlockingQueue<EmbeddingBatch> embeddingQueue, AtomicBoolean aborted) throws InterruptedException {
+        long lastId = 0;
+        try {
+            while (true) {
+                LambdaQueryWrapper<KnowledgeSegment> queryWrapper = Wrappers.<KnowledgeSegment>lambdaQuery()
+                        .select(KnowledgeSegment::getId, KnowledgeSegment::getText, KnowledgeSegment::getMetadata, KnowledgeSegment::getLockVersion)
+                        .eq(KnowledgeSegment::getDocumentId, documentId)
+                        .eq(KnowledgeSegment::getStatus, SegmentStatus.STORED)
+                        .isNull(KnowledgeSegment::getEmbeddingId)
+                        .eq(KnowledgeSegment::getSkipEmbedding, 0)
+                        .gt(KnowledgeSegment::getId, lastId)
+                        .orderByAsc(KnowledgeSegment::getId);
+                List<KnowledgeSegment> segments = knowledgeSegmentService.page(new Page<>(1, pageSize, false), queryWrapper).getRecords();
+                if (segments.isEmpty()) {
+                    break;
+                }
+                lastId = segments.getLast().getId();
+
+                for (int from = 0; from < segments.size(); from += batchSize) {
+                    put(embeddingQueue, new EmbeddingBatch(segments.subList(from, Math.min(from + batchSize, segments.size()))), aborted);
+                }
+
+                if (segments.size() < pageSize) {
+                    break;
+                }
+            }
+        } finally {
+            // 通知每个向量化线程结束，中止后不再投递
+            for (int i = 0; i < concurrency && !aborted.get(); i++) {
+                put(embeddingQueue, END_OF_EMBEDDING, aborted);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 向量化阶段：调用 Embedding 模型
+     */
+    private Void embed(BlockingQueue<EmbeddingBatch> embeddingQueue, BlockingQueue<StoreBatch> storeQueue,
+                       AtomicInteger runningEmbedders, AtomicLong embeddingNanos, AtomicBoolean aborted) throws InterruptedException {
+        try {
+            while (true) {
+                EmbeddingBatch batch = take(embeddingQueue, aborted);
+                if (batch == END_OF_EMBEDDING) {
+                    break;
+                }
+                List<TextSegment> textSegments = batch.segments().stream()
+                        .map(segment -> TextSegment.from(segment.getText(), Metadata.from(segment.getMetadataMap())))
+                        .toList();
+                long start = System.nanoTime();
+                List<Embedding> embeddings = openAiEmbeddingModel.embedAll(textSegments).content();
+                embeddingNanos.addAndGet(System.nanoTime() - start);
+                put(storeQueue, new StoreBatch(batch.segments(), textSegments, embeddings), aborted);
+            }
+        } finally {
+            // 最后一个结束的向量化线程通知写入线程结束，中止后不再投递
+            if (runningEmbedders.decrementAndGet() == 0 && !aborted.get()) {
+                put(storeQueue, END_OF_STORE, aborted);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入阶段：批量写入 Elasticsearch 并批量回写片段状态
+     */
+    private Void store(BlockingQueue<StoreBatch> storeQueue, AtomicInteger storedCount, AtomicLong storeNanos,
+                       AtomicBoolean aborted) throws InterruptedException {
+        while (true) {
+            StoreBatch batch = take(storeQueue, aborted);
+            if (batch == END_OF_STORE) {
+                return null;
+            }
+            long start = System.nanoTime();
+            List<String> embeddingIds = elasticsearchEmbeddingStore.addAll(batch.embeddings(), batch.textSegments());
+
+            // 只回写 embeddingId 和状态，避免把 text、metadata 等大字段一起 UPDATE
+            List<KnowledgeSegment> updates = new ArrayList<>(embeddingIds.size());
+            for (int i = 0; i < embeddingIds.size(); i++) {
+                KnowledgeSegment segment = batch.segments().get(i);
+                KnowledgeSegment update = new KnowledgeSegment();
+                update.setId(segment.getId());
+                update.setLockVersion(segment.getLockVersion());
+                update.setEmbeddingId(embeddingIds.get(i));
+                update.setStatus(SegmentStatus.VECTOR_STORED);
+                updates.add(update);
+            }
+            boolean updateResult = knowledgeSegmentService.updateBatchById(updates);
+            Assert.isTrue(updateResult, "更新知识片段状态失败");
+            storeNanos.addAndGet(System.nanoTime() - start);
+            storedCount.addAndGet(updates.size());
+        }
+    }
+
+    /**
+     * 中止流水线：先置位中止标记，再清空队列腾出空间，最后中断各阶段线程
+     */
+    private void abort(ExecutorService executor, AtomicBoolean aborted,
+                       BlockingQueue<EmbeddingBatch> embeddingQueue, BlockingQueue<StoreBatch> storeQueue) {
+        aborted.set(true);
+        embeddingQueue.clear();
+        storeQueue.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 投递到队列，队列满时轮询等待，流水线中止后放弃
+     */
+    private static <T> void put(BlockingQueue<T> queue, T item, AtomicBoolean aborted) throws InterruptedException {
+        while (!queue.offer(item, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (aborted.get()) {
+                throw new CancellationException("文档向量化已中止");
+            }
+        }
+    }
+
+    /**
+     * 从队列获取，队列空时轮询等待，流水线中止后放弃
+     */
+    private static <T> T take(BlockingQueue<T> queue, AtomicBoolean aborted) throws InterruptedException {
+        while (true) {
+            T item = queue.poll(QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+            if (aborted.get()) {
+                throw new CancellationException("文档向量化已中止");
+            }
+        }
+    }
+
+    private record EmbeddingBatch(List<KnowledgeSegment> segments) {
+    }
+
+    private record StoreBatch(List<KnowledgeSegment> segments, List<TextSegment> textSegments, List<Embedding> embeddings) {
+    }
+
+    /**
+     * 向量化结果
+     *
+     * @param segmentCount  写入向量库的片段数
+     * @param elapsedMillis 总耗时（毫秒）
+     */
+    public record Result(int segmentCount, long elapsedMillis) {
+
+        /**
+         * 吞吐量（segments/s）
+         */
+        public double throughput() {
+            return elapsedMillis == 0 ? segmentCount : segmentCount * 1000.0 / elapsedMillis;
+        }
+    }
+}
@@ -20,6 +20,14 @@ public interface DocumentProcessService {
      */
     public KnowledgeDocument upload(DocumentUploadParam documentUploadParam) throws IOException;
 
+    /**
+     * 重新转换文档
+     * 从 MinIO 读取上传时保存的源文件，交给对应的文件处理服务转换，用于转换失败后的重试
+     *
+     * @param document 文档，状态需为 UPLOADED 或 CONVERT_FAILED
+     */
+    public void convert(KnowledgeDocument document);
+
     /**
      * 对文档进行切分
      * 使用 MarkdownHeaderParentTextSplitter 进行切分
@@ -3,8 +3,10 @@ package cn.hollis.llm.mentor.know.engine.document.service;
 import cn.hollis.llm.mentor.know.engine.document.constant.FileType;
 import cn.hollis.llm.mentor.know.engine.document.constant.KnowledgeBaseType;
 import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeDocument;
+import cn.hollis.llm.mentor.know.engine.document.util.UploadContext;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -22,6 +24,24 @@ public interface FileProcessService {
      */
     public void processDocument(KnowledgeDocument document, InputStream inputStream);
 
+    /**
+     * 处理上传的文档，内容从上传时写入的临时文件读取，不再重新读取上传文件
+     *
+     * @param document 文档对象
+     * @param upload   上传上下文，上传时需以 spool 方式读取
+     */
+    default void processDocument(KnowledgeDocument document, UploadContext upload) throws IOException {
+        processDocument(document, upload.openParseStream());
+    }
+
+    /**
+     * 是否异步转换
+     * 返回 true 时 processDocument 只提交转换任务，文档状态由任务推进（UPLOADED -> CONVERTING -> CONVERTED / CONVERT_FAILED），调用方不应再修改状态
+     */
+    default boolean isAsync() {
+        return false;
+    }
+
     /**
      * 判断是否支持该文件
      */
@@ -23,8 +23,16 @@ public class FileStorageService {
     @Value("${minio.endpoint}")
     private String endpoint;
 
+    /**
+     * bucket 已确认存在，后续上传不再重复检查
+     */
+    private volatile boolean bucketReady;
+
     // 确保 bucket 存在
     private void createBucketIfNotExists(boolean publicRead) throws Exception {
+        if (bucketReady) {
+            return;
+        }
         if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
             minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
 
@@ -39,6 +47,7 @@ public class FileStorageService {
                 );
             }
         }
+        bucketReady = true;
     }
 
     // 上传文件
@@ -73,6 +82,22 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * 流式上传文件，不需要把内容整体读入内存
+     */
+    public String uploadFile(String objectName, InputStream stream, long size, String contentType) throws Exception {
+        createBucketIfNotExists(true);
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .stream(stream, size, -1)
+                        .contentType(contentType)
+                        .build()
+        );
+        return String.format("%s/%s/%s", endpoint, bucketName, objectName);
+    }
+
     // 下载文件（返回 InputStream）
     public InputStream downloadFile(String objectName) throws Exception {
         GetObjectResponse response = minioClient.getObject(
@@ -0,0 +1,115 @@
+package cn.hollis.llm.mentor.know.engine.document.service;
+
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片描述服务
+ * 所有解析器共享同一个多模态模型实例，并按图片内容哈希缓存描述结果，重复出现的图片（如每页的 logo）只描述一次
+ */
+@Slf4j
+@Service
+public class ImageCaptionService {
+
+    private static final String CAPTION_CACHE_PREFIX = "image-caption:";
+
+    private static final String CAPTION_PROMPT = "请描述这张图片的内容，包括场景、对象、布局、颜色、文字信息，直接输出纯文本描述，不要多余说明。";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${langchain4j.open-ai.chat-model.api-key}")
+    private String chatModelApiKey;
+
+    @Value("${langchain4j.open-ai.chat-model.base-url}")
+    private String chatModelBaseUrl;
+
+    @Value("${file.parse.image.caption-model:qwen3-vl-plus}")
+    private String captionModelName;
+
+    /**
+     * 图片描述缓存天数
+     */
+    @Value("${file.parse.image.caption-cache-days:30}")
+    private long captionCacheDays;
+
+    private ChatModel visionChatModel;
+
+    /**
+     * 正在生成中的描述，同一张图片并发请求时只调用一次模型
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        visionChatModel = OpenAiChatModel.builder()
+                .apiKey(chatModelApiKey)
+                .baseUrl(chatModelBaseUrl)
+                .modelName(captionModelName)
+                .temperature(0.7)
+                .logResponses(true)
+                .logRequests(true)
+                .build();
+    }
+
+    /**
+     * 生成图片描述，优先使用内容哈希缓存
+     *
+     * @param contentHash 图片内容的 SHA-256
+     * @param imageUrl    图片地址
+     * @return 图片描述
+     */
+    public String describe(String contentHash, String imageUrl) {
+        String cacheKey = CAPTION_CACHE_PREFIX + contentHash;
+        String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+        if (cached != null) {
+            log.info("图片描述命中缓存: {}", imageUrl);
+            return cached;
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(contentHash, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            String description = generateImageDescription(imageUrl);
+            stringRedisTemplate.opsForValue().set(cacheKey, description, captionCacheDays, TimeUnit.DAYS);
+            future.complete(description);
+            return description;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(contentHash, future);
+        }
+    }
+
+    /**
+     * 生成图片描述
+     * 需要注意的是，如果你用的是外部的模型，这个url需要是公网可以访问的url。否则模型需要能和MinIO进行内网通信。
+     */
+    public String generateImageDescription(String imageUrl) {
+        UserMessage userMessage = UserMessage.from(new TextContent(CAPTION_PROMPT), new ImageContent(imageUrl));
+        return visionChatModel.chat(userMessage).aiMessage().text();
+    }
+}
@@ -4,6 +4,8 @@ import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeSegment;
 import com.baomidou.mybatisplus.extension.service.IService;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * 知识片段表 Service 接口
@@ -11,4 +13,14 @@ import java.io.Serializable;
 public interface KnowledgeSegmentService extends IService<KnowledgeSegment> {
 
     public String getTextByChunkId(Serializable chunkId);
+
+    /**
+     * 批量根据 chunkId 获取分段文本
+     * <p>
+     * 依次查询近端缓存、Redis（MGET 一次性读取），两级都未命中的部分再用一条 IN 查询从数据库补齐
+     *
+     * @param chunkIds 分段ID集合
+     * @return chunkId -> 文本，不存在的 chunkId 不会出现在结果中
+     */
+    public Map<String, String> getTextsByChunkIds(Collection<String> chunkIds);
 }
@@ -10,26 +10,24 @@ import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeDocument;
 import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeSegment;
 import cn.hollis.llm.mentor.know.engine.document.event.DocumentChunkedEvent;
 import cn.hollis.llm.mentor.know.engine.document.event.DocumentConvertedEvent;
+import cn.hollis.llm.mentor.know.engine.document.pipeline.SegmentEmbeddingPipeline;
 import cn.hollis.llm.mentor.know.engine.document.service.*;
 import cn.hollis.llm.mentor.know.engine.document.util.FileTypeUtil;
+import cn.hollis.llm.mentor.know.engine.document.util.UploadContext;
 import cn.hollis.llm.mentor.know.engine.infra.lock.DistributeLock;
 import cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant;
 import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.DocumentSplitterFactory;
 import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.ExcelSplitter;
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.StreamingDocumentSplitter;
 import com.alibaba.fastjson2.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.google.common.base.Stopwatch;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.Metadata;
-import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
-import dev.langchain4j.model.output.Response;
-import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,11 +38,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 文档处理服务实现类
@@ -67,10 +69,7 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
     private KnowledgeSegmentService knowledgeSegmentService;
 
     @Autowired
-    private ElasticsearchEmbeddingStore elasticsearchEmbeddingStore;
-
-    @Autowired
-    private OpenAiEmbeddingModel openAiEmbeddingModel;
+    private SegmentEmbeddingPipeline segmentEmbeddingPipeline;
 
     @Autowired
     private ApplicationEventPublisher eventPublisher;
@@ -78,14 +77,23 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
     @Value("${minio.bucketName}")
     private String bucketName;
 
+    /**
+     * 切分时每批保存的片段数
+     */
+    @Value("${document.split.save-batch-size:500}")
+    private int splitSaveBatchSize;
+
     @Override
     @DistributeLock(scene = "document-upload", keyExpression = "#uploadUser", waitTime = 0)
     public KnowledgeDocument upload(DocumentUploadParam documentUploadParam) throws IOException {
-        try {
+        String fileName = documentUploadParam.file().getOriginalFilename();
+        // 上传文件只读取一次：文件头用于类型检测，上传 MinIO 时如需解析则同时写入临时文件
+        try (UploadContext upload = UploadContext.open(documentUploadParam.file(), fileName)) {
             log.info("start to upload ....");
-            String fileName = documentUploadParam.file().getOriginalFilename();
+            FileProcessService fileProcessService = fileProcessServiceFactory.get(upload.getFileType(), KnowledgeBaseType.valueOf(documentUploadParam.knowledgeBaseType()));
+
             // 用minio上传
-            String fileUrl = fileStorageService.uploadFile(documentUploadParam.file(), fileName);
+            String fileUrl = fileStorageService.uploadFile(fileName, upload.openUploadStream(fileProcessService != null), upload.getSize(), upload.getContentType());
 
             // 构建文档记录
             KnowledgeDocument document = new KnowledgeDocument();
@@ -102,9 +110,12 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
             boolean result = knowledgeDocumentService.save(document);
             Assert.isTrue(result, "文件上传失败");
 
-            FileProcessService fileProcessService = fileProcessServiceFactory.get(FileTypeUtil.getFileType(fileName, documentUploadParam.file()), document.getKnowledgeBaseType());
             if (fileProcessService != null) {
-                fileProcessService.processDocument(document, documentUploadParam.file().getInputStream());
+                fileProcessService.processDocument(document, upload);
+                // 异步转换时状态由转换任务推进，这里直接返回
+                if (fileProcessService.isAsync()) {
+                    return document;
+                }
             }
 
             if (document.getKnowledgeBaseType() == KnowledgeBaseType.DOCUMENT_SEARCH) {
@@ -124,6 +135,29 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
         }
     }
 
+    @Override
+    public void convert(KnowledgeDocument document) {
+        Assert.notNull(document, "文档不存在");
+        if (document.getStatus() != DocumentStatus.UPLOADED && document.getStatus() != DocumentStatus.CONVERT_FAILED) {
+            throw new RuntimeException("文档状态不为UPLOADED或CONVERT_FAILED，无法重新转换");
+        }
+
+        FileProcessService fileProcessService = fileProcessServiceFactory.get(FileTypeUtil.getFileType(document.getDocUrl()), document.getKnowledgeBaseType());
+        Assert.notNull(fileProcessService, "该文档无需转换");
+
+        String objectName = extractObjectNameFromUrl(document.getDocUrl());
+        Assert.notNull(objectName, "无法解析文档URL");
+
+        InputStream inputStream;
+        try {
+            inputStream = fileStorageService.downloadFile(objectName);
+        } catch (Exception e) {
+            throw new RuntimeException("读取源文件失败: " + e.getMessage(), e);
+        }
+        // 输入流由文件处理服务负责关闭
+        fileProcessService.processDocument(document, inputStream);
+    }
+
     @Override
     @Transactional
     @DistributeLock(scene = "document-split", keyExpression = "#document.docId", waitTime = 0)
@@ -147,58 +181,31 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
         String objectName = extractObjectNameFromUrl(convertedDocUrl);
         Assert.notNull(objectName, "无法解析文档URL");
 
-        List<KnowledgeSegment> knowledgeSegments = new ArrayList<>();
-        List<TextSegment> segments = new ArrayList<>();
+        // 3. 切分并分批保存片段，每攒满 splitSaveBatchSize 个片段写一次库，内存占用与文档大小无关
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        SegmentBatchSaver segmentBatchSaver = new SegmentBatchSaver(document);
         try (InputStream inputStream = fileStorageService.downloadFile(objectName)) {
+            StreamingDocumentSplitter streamingSplitter = DocumentSplitterFactory.getStreamingInstance(documentSplitParam);
             //EXCEL单独处理，因为他不是Document类型
             if (FileType.EXCEL == FileTypeUtil.getFileType(document.getConvertedDocUrl()) || FileType.CSV == FileTypeUtil.getFileType(document.getConvertedDocUrl())) {
                 ExcelSplitter splitter = new ExcelSplitter(documentSplitParam.chunkSize(), false);
-                segments = splitter.split(inputStream.readAllBytes());
+                splitter.split(inputStream.readAllBytes()).forEach(segmentBatchSaver);
+            } else if (streamingSplitter != null) {
+                // Markdown 按标题切分：逐行读取 MinIO 流，边切分边保存
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                streamingSplitter.split(reader, new HashMap<>(), segmentBatchSaver);
             } else {
                 DocumentSplitter splitter = DocumentSplitterFactory.getInstance(documentSplitParam);
                 Document doc = Document.from(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
-                segments = splitter.split(doc);
+                splitter.split(doc).forEach(segmentBatchSaver);
             }
         } catch (Exception e) {
-            throw new RuntimeException("下载文档失败: " + e.getMessage(), e);
+            throw new RuntimeException("切分文档失败: " + e.getMessage(), e);
         }
-
-        // 4. 转换为 KnowledgeSegment 并保存
-        for (int i = 0; i < segments.size(); i++) {
-            TextSegment segment = segments.get(i);
-            KnowledgeSegment knowledgeSegment = new KnowledgeSegment();
-            knowledgeSegment.setText(segment.text());
-            knowledgeSegment.setChunkId(segment.metadata().getString(MetadataKeyConstant.CHUNK_ID));
-            Metadata metadata = segment.metadata();
-            metadata.put(MetadataKeyConstant.DOC_ID, document.getDocId());
-            metadata.put(MetadataKeyConstant.FILE_NAME, document.getDocTitle());
-            metadata.put(MetadataKeyConstant.URL, document.getDocUrl());
-
-            //todo metadata统一处理(权限相关、多版本相关）
-            knowledgeSegment.setMetadata(JSON.toJSONString(metadata.toMap()));
-            knowledgeSegment.setDocumentId(document.getDocId());
-            knowledgeSegment.setChunkOrder(i);
-
-            // 检查是否需要跳过嵌入
-            Integer skipEmbedding = metadata.getInteger(MetadataKeyConstant.SKIP_EMBEDDING);
-            if (skipEmbedding != null && skipEmbedding == 1) {
-                knowledgeSegment.setSkipEmbedding(1);
-                knowledgeSegment.setStatus(SegmentStatus.STORED);
-            } else {
-                knowledgeSegment.setSkipEmbedding(0);
-                knowledgeSegment.setStatus(SegmentStatus.STORED);
-            }
-
-            knowledgeSegments.add(knowledgeSegment);
-        }
-
-        // 5. 批量保存片段
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        boolean saveResult = knowledgeSegmentService.saveBatch(knowledgeSegments);
-        Assert.isTrue(saveResult, "保存知识片段失败");
+        segmentBatchSaver.flush();
         log.info("保存知识片段耗时: {}", stopwatch.elapsed().toMillis());
 
-        int segmentCount = knowledgeSegments.size();
+        int segmentCount = segmentBatchSaver.getSegmentCount();
 
         // 6. 更新文档状态为 CHUNKED
         document.setStatus(DocumentStatus.CHUNKED);
@@ -226,39 +233,15 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
             return false;
         }
 
-        // 分页扫描全部document_id为docId且status为STORED的文档片段
+        // 流水线执行：keyset 分页读取 -> 并发向量化 -> 批量写入向量库并回写片段状态
+        segmentEmbeddingPipeline.run(document.getDocId());
+
         LambdaQueryWrapper<KnowledgeSegment> queryWrapper = Wrappers.<KnowledgeSegment>lambdaQuery()
                 .eq(KnowledgeSegment::getDocumentId, document.getDocId())
                 .eq(KnowledgeSegment::getStatus, SegmentStatus.STORED)
                 .isNull(KnowledgeSegment::getEmbeddingId)
                 .eq(KnowledgeSegment::getSkipEmbedding, 0);
 
-        Page<KnowledgeSegment> page = knowledgeSegmentService.page(new Page<>(1, 100), queryWrapper);
-
-        while (page.getCurrent() == 1 || page.hasNext()) {
-            List<KnowledgeSegment> textSegmentsToEmbed = page.getRecords();
-            List<TextSegment> textSegments = textSegmentsToEmbed.stream().map(segment -> TextSegment.from(segment.getText(), Metadata.from(segment.getMetadataMap()))).toList();
-            // 获取嵌入向量
-            Response<List<Embedding>> embeddingResponse = openAiEmbeddingModel.embedAll(textSegments);
-
-            // 存储嵌入向量
-            List<String> embeddingIds = elasticsearchEmbeddingStore.addAll(embeddingResponse.content(), textSegments);
-
-            //todo 事务处理
-
-            // 更新文档片段状态
-            for (int i = 0; i < textSegmentsToEmbed.size(); i++) {
-                String embeddingId = embeddingIds.get(i);
-                KnowledgeSegment knowledgeSegment = textSegmentsToEmbed.get(i);
-                knowledgeSegment.setEmbeddingId(embeddingId);
-                knowledgeSegment.setStatus(SegmentStatus.VECTOR_STORED);
-                knowledgeSegmentService.updateById(knowledgeSegment);
-            }
-
-            // 继续扫描下一页
-            page = knowledgeSegmentService.page(new Page<>(page.getCurrent() + 1, 100), queryWrapper);
-        }
-
         //double check
         long segmentCount = knowledgeSegmentService.count(queryWrapper);
         if (segmentCount == 0) {
@@ -271,6 +254,68 @@ public class DocumentProcessServiceImpl implements DocumentProcessService {
         return false;
     }
 
+    /**
+     * 片段分批保存器
+     * <p>
+     * 切分器每输出一个分段就转换为 {@link KnowledgeSegment} 放入缓冲区，缓冲区满时批量写库并清空。
+     */
+    private class SegmentBatchSaver implements Consumer<TextSegment> {
+
+        private final KnowledgeDocument document;
+
+        private final List<KnowledgeSegment> buffer = new ArrayList<>(splitSaveBatchSize);
+
+        private int segmentCount;
+
+        private SegmentBatchSaver(KnowledgeDocument document) {
+            this.document = document;
+        }
+
+        @Override
+        public void accept(TextSegment segment) {
+            KnowledgeSegment knowledgeSegment = new KnowledgeSegment();
+            knowledgeSegment.setText(segment.text());
+            knowledgeSegment.setChunkId(segment.metadata().getString(MetadataKeyConstant.CHUNK_ID));
+            Metadata metadata = segment.metadata();
+            metadata.put(MetadataKeyConstant.DOC_ID, document.getDocId());
+            metadata.put(MetadataKeyConstant.FILE_NAME, document.getDocTitle());
+            metadata.put(MetadataKeyConstant.URL, document.getDocUrl());
+
+            //todo metadata统一处理(权限相关、多版本相关）
+            knowledgeSegment.setMetadata(JSON.toJSONString(metadata.toMap()));
+            knowledgeSegment.setDocumentId(document.getDocId());
+            knowledgeSegment.setChunkOrder(segmentCount++);
+
+            // 检查是否需要跳过嵌入
+            Integer skipEmbedding = metadata.getInteger(MetadataKeyConstant.SKIP_EMBEDDING);
+            if (skipEmbedding != null && skipEmbedding == 1) {
+                knowledgeSegment.setSkipEmbedding(1);
+                knowledgeSegment.setStatus(SegmentStatus.STORED);
+            } else {
+                knowledgeSegment.setSkipEmbedding(0);
+                knowledgeSegment.setStatus(SegmentStatus.STORED);
+            }
+
+            buffer.add(knowledgeSegment);
+            if (buffer.size() >= splitSaveBatchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            boolean saveResult = knowledgeSegmentService.saveBatch(buffer);
+            Assert.isTrue(saveResult, "保存知识片段失败");
+            buffer.clear();
+        }
+
+        private int getSegmentCount() {
+            return segmentCount;
+        }
+    }
+
     // ==================== 事件发布方法 ====================
 
     /**
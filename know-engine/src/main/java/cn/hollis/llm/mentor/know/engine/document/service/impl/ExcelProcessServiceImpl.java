@@ -5,25 +5,27 @@ import cn.hollis.llm.mentor.know.engine.document.constant.KnowledgeBaseType;
 import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeDocument;
 import cn.hollis.llm.mentor.know.engine.document.entity.TableMeta;
 import cn.hollis.llm.mentor.know.engine.document.mapper.TableMetaMapper;
+import cn.hollis.llm.mentor.know.engine.document.pipeline.ExcelColumnTypes;
+import cn.hollis.llm.mentor.know.engine.document.pipeline.ExcelTableLoader;
 import cn.hollis.llm.mentor.know.engine.document.service.FileProcessService;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelAnalysisException;
 import com.alibaba.excel.read.listener.ReadListener;
 import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
-import java.io.IOException;
+import javax.sql.DataSource;
 import java.io.InputStream;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Excel处理服务实现类
@@ -36,7 +38,25 @@ public class ExcelProcessServiceImpl implements FileProcessService {
     private TableMetaMapper tableMetaMapper;
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private DataSource dataSource;
+
+    /**
+     * 用于推断列类型的样本行数
+     */
+    @Value("${document.excel.sample-rows:1000}")
+    private int sampleSize;
+
+    /**
+     * 每批 executeBatch 的行数
+     */
+    @Value("${document.excel.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 每提交一次事务写入的行数
+     */
+    @Value("${document.excel.commit-rows:20000}")
+    private int commitRows;
 
     // 表名前缀
     private static final String TABLE_PREFIX = "custom_data_query_";
@@ -44,30 +64,130 @@ public class ExcelProcessServiceImpl implements FileProcessService {
     private static final Pattern VALID_TABLE_NAME_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$");
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void processDocument(KnowledgeDocument document, InputStream inputStream) {
         String documentTitle = document.getDocTitle();
-        String originalTableName = document.getTableName();
         log.info("开始处理Excel文件: {}", documentTitle);
 
-        // 1. 解析Excel文件
+        // 1. 边解析边写入：表头之后先缓存样本行推断列类型，建表后其余行直接流式写入
+        ExcelImportListener listener = new ExcelImportListener(document);
         try {
-            List<List<String>> excelData = parseExcel(inputStream);
+            // EasyExcel 默认将第一行视为表头，不会通过 ReadListener.invoke() 回调返回，设置 headRowNumber(0) 从第一行开始读取
+            EasyExcel.read(inputStream, listener).headRowNumber(0).sheet().doRead();
+            int insertedCount = listener.finish();
+            log.info("插入数据 {} 行", insertedCount);
 
-            if (excelData.isEmpty() || excelData.size() < 2) {
+            // 2. 保存表元数据，建表SQL按写入过程中放宽后的最终列类型生成
+            String createTableSql = generateCreateTableSql(listener.tableName, document.getDescription(), listener.columns);
+            TableMeta tableMeta = new TableMeta();
+            tableMeta.setTableName(listener.tableName);
+            tableMeta.setDescription(document.getDescription() != null ? document.getDescription() : "从Excel导入: " + documentTitle);
+            tableMeta.setCreateSql(createTableSql);
+            tableMeta.setColumnsInfo(JSON.toJSONString(listener.columns));
+            tableMeta.setCreatedAt(LocalDateTime.now());
+            tableMeta.setUpdatedAt(LocalDateTime.now());
+            int result = tableMetaMapper.insert(tableMeta);
+            Assert.isTrue(result == 1, "表元数据保存失败");
+            log.info("表元数据保存成功, ID: {}", tableMeta.getId());
+        } catch (RuntimeException e) {
+            // 建表语句会隐式提交，失败时删除本次创建的表，避免残留半张表
+            listener.dropCreatedTable();
+            if (e instanceof ExcelAnalysisException && e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            listener.closeLoader();
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (Exception ignored) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+    }
+
+    /**
+     * Excel 导入监听器
+     * 第一行作为表头，随后缓存 sampleRows 行用于推断列类型，建表后样本行和后续行都通过 {@link ExcelTableLoader} 批量写入
+     */
+    private class ExcelImportListener implements ReadListener<Map<Integer, String>> {
+
+        private final KnowledgeDocument document;
+
+        private final List<List<String>> sampleRows = new ArrayList<>();
+
+        private List<String> headers;
+
+        private List<ColumnInfo> columns;
+
+        private String tableName;
+
+        private boolean tableCreated;
+
+        private ExcelTableLoader loader;
+
+        private int rowCount;
+
+        ExcelImportListener(KnowledgeDocument document) {
+            this.document = document;
+        }
+
+        @Override
+        public void invoke(Map<Integer, String> data, AnalysisContext context) {
+            List<String> row = toRow(data);
+            if (headers == null) {
+                headers = row;
+                return;
+            }
+
+            rowCount++;
+            if (loader != null) {
+                addRow(row);
+                return;
+            }
+            sampleRows.add(row);
+            if (sampleRows.size() >= sampleSize) {
+                startLoad();
+            }
+        }
+
+        @Override
+        public void doAfterAllAnalysed(AnalysisContext context) {
+            log.info("Excel解析完成，共 {} 行", rowCount + (headers != null ? 1 : 0));
+        }
+
+        /**
+         * 写入剩余数据并提交
+         *
+         * @return 写入的总行数
+         */
+        int finish() {
+            if (headers == null || rowCount == 0) {
                 throw new IllegalArgumentException("Excel文件为空或只有表头，没有数据行");
             }
+            if (loader == null) {
+                startLoad();
+            }
+            try {
+                return loader.finish();
+            } catch (SQLException e) {
+                throw new RuntimeException("Excel数据写入失败: " + e.getMessage(), e);
+            }
+        }
 
-            // 2. 获取表头
-            List<String> headers = excelData.get(0);
+        /**
+         * 根据表头和样本行建表，并写入样本行
+         */
+        private void startLoad() {
             if (headers.isEmpty()) {
                 throw new IllegalArgumentException("Excel表头为空");
             }
 
-            // 3. 生成或验证表名
-            String tableName = generateTableName(originalTableName);
+            // 生成或验证表名
+            tableName = generateTableName(document.getTableName());
 
-            // 4. 检查表名是否已存在
+            // 检查表名是否已存在
             if (tableMetaMapper.checkTableExists(tableName) > 0) {
                 if (document.isOverride()) {
                     dropTable(tableName);
@@ -76,47 +196,55 @@ public class ExcelProcessServiceImpl implements FileProcessService {
                 }
             }
 
-            // 5. 生成列信息
-            List<ColumnInfo> columns = generateColumnInfo(headers);
+            // 生成列信息，根据样本行推断列类型
+            columns = generateColumnInfo(headers, sampleRows);
 
-            // 6. 生成建表SQL
-            String createTableSql = generateCreateTableSql(tableName,document.getDescription(), columns);
+            String createTableSql = generateCreateTableSql(tableName, document.getDescription(), columns);
             log.info("生成建表SQL: {}", createTableSql);
-
-            // 7. 执行建表
             tableMetaMapper.executeCreateTable(createTableSql);
+            tableCreated = true;
             log.info("表 {} 创建成功", tableName);
 
-            // 8. 插入数据
-            List<List<String>> dataRows = excelData.subList(1, excelData.size());
-            int insertedCount = insertData(tableName, columns, dataRows);
-            log.info("插入数据 {} 行", insertedCount);
+            try {
+                loader = new ExcelTableLoader(dataSource, tableName, columns, batchSize, commitRows);
+            } catch (SQLException e) {
+                throw new RuntimeException("获取数据库连接失败: " + e.getMessage(), e);
+            }
+            sampleRows.forEach(this::addRow);
+            sampleRows.clear();
+        }
 
-            // 9. 保存表元数据
-            TableMeta tableMeta = new TableMeta();
-            tableMeta.setTableName(tableName);
-            tableMeta.setDescription(document.getDescription() != null ? document.getDescription() : "从Excel导入: " + documentTitle);
-            tableMeta.setCreateSql(createTableSql);
-            tableMeta.setColumnsInfo(JSON.toJSONString(columns));
-            tableMeta.setCreatedAt(LocalDateTime.now());
-            tableMeta.setUpdatedAt(LocalDateTime.now());
-            int result = tableMetaMapper.insert(tableMeta);
-            Assert.isTrue(result == 1, "表元数据保存失败");
-            log.info("表元数据保存成功, ID: {}", tableMeta.getId());
+        private void addRow(List<String> row) {
+            try {
+                loader.add(row);
+            } catch (SQLException e) {
+                throw new RuntimeException("Excel数据写入失败: " + e.getMessage(), e);
+            }
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (inputStream != null) {
+        void dropCreatedTable() {
+            closeLoader();
+            if (tableCreated) {
                 try {
-                    inputStream.close();
-                } catch (Exception ignored) {
-                    // 忽略关闭异常
+                    dropTable(tableName);
+                } catch (Exception e) {
+                    log.warn("删除导入失败的表 {} 失败", tableName, e);
                 }
             }
         }
-    }
 
+        void closeLoader() {
+            if (loader == null) {
+                return;
+            }
+            try {
+                loader.close();
+            } catch (SQLException e) {
+                log.warn("关闭Excel导入连接失败", e);
+            }
+            loader = null;
+        }
+    }
 
     @Autowired
     protected TransactionTemplate transactionTemplate;
@@ -142,34 +270,18 @@ public class ExcelProcessServiceImpl implements FileProcessService {
     }
 
     /**
-     * 解析Excel文件
+     * 把 EasyExcel 读到的一行转换为按列顺序排列的值
      */
-    private List<List<String>> parseExcel(InputStream inputStream) throws IOException {
-        List<List<String>> result = new ArrayList<>();
-
-        EasyExcel.read(inputStream, new ReadListener<Map<Integer, String>>() {
-            @Override
-            public void invoke(Map<Integer, String> data, AnalysisContext context) {
-                List<String> row = new ArrayList<>();
-                // 获取当前行的最大索引
-                int maxIndex = data.keySet().stream().max(Integer::compareTo).orElse(-1);
-                // 按顺序填充每一列
-                for (int i = 0; i <= maxIndex; i++) {
-                    String value = data.getOrDefault(i, "");
-                    row.add(value != null ? value : "");
-                }
-                result.add(row);
-            }
-
-            @Override
-            public void doAfterAllAnalysed(AnalysisContext context) {
-                log.info("Excel解析完成，共 {} 行", result.size());
-            }
-            //EasyExcel 默认将第一行视为表头，不会通过 ReadListener.invoke() 回调返回。所以 parseExcel 返回的数据实际上是从 Excel 的第二行开始的。
-            //需要设置 headRowNumber(0) 告诉 EasyExcel 从第一行就开始读取数据
-        }).headRowNumber(0).sheet().doRead();
-
-        return result;
+    private List<String> toRow(Map<Integer, String> data) {
+        List<String> row = new ArrayList<>();
+        // 获取当前行的最大索引
+        int maxIndex = data.keySet().stream().max(Integer::compareTo).orElse(-1);
+        // 按顺序填充每一列
+        for (int i = 0; i <= maxIndex; i++) {
+            String value = data.getOrDefault(i, "");
+            row.add(value != null ? value : "");
+        }
+        return row;
     }
 
     /**
@@ -224,7 +336,7 @@ public class ExcelProcessServiceImpl implements FileProcessService {
     /**
      * 生成列信息
      */
-    private List<ColumnInfo> generateColumnInfo(List<String> headers) {
+    private List<ColumnInfo> generateColumnInfo(List<String> headers, List<List<String>> sampleRows) {
         List<ColumnInfo> columns = new ArrayList<>();
         Set<String> usedNames = new HashSet<>();
 
@@ -244,7 +356,10 @@ public class ExcelProcessServiceImpl implements FileProcessService {
             column.setIndex(i);
             column.setOriginalHeader(header);
             column.setColumnName(columnName);
-            column.setDataType("VARCHAR(500)"); // 默认使用VARCHAR类型
+            int index = i;
+            column.setDataType(ExcelColumnTypes.infer(sampleRows.stream()
+                    .map(row -> index < row.size() ? row.get(index) : "")
+                    .toList()));
             columns.add(column);
         }
 
@@ -290,11 +405,7 @@ public class ExcelProcessServiceImpl implements FileProcessService {
 
         // 添加Excel列
         for (ColumnInfo column : columns) {
-            sql.append("  `").append(column.getColumnName()).append("` ")
-                    .append(column.getDataType())
-                    .append(" DEFAULT NULL COMMENT '")
-                    .append(escapeSqlComment(column.getOriginalHeader()))
-                    .append("',\n");
+            sql.append("  ").append(ExcelColumnTypes.columnDefinition(column)).append(",\n");
         }
 
         // 添加创建时间和更新时间
@@ -308,89 +419,6 @@ public class ExcelProcessServiceImpl implements FileProcessService {
         return sql.toString();
     }
 
-    /**
-     * 转义SQL注释中的特殊字符
-     */
-    private String escapeSqlComment(String comment) {
-        if (comment == null) {
-            return "";
-        }
-        return comment.replace("'", "\\'").replace("\\", "\\\\");
-    }
-
-    /**
-     * 插入数据
-     */
-    private int insertData(String tableName, List<ColumnInfo> columns, List<List<String>> dataRows) {
-        int batchSize = 500; // 每批插入500条
-        int totalInserted = 0;
-
-        for (int i = 0; i < dataRows.size(); i += batchSize) {
-            List<List<String>> batch = dataRows.subList(i, Math.min(i + batchSize, dataRows.size()));
-            String insertSql = generateBatchInsertSql(tableName, columns, batch);
-            // 使用 JdbcTemplate 执行，绕过 MyBatis-Plus 的BlockAttackInnerInterceptor拦截器
-            jdbcTemplate.execute(insertSql);
-            totalInserted += batch.size();
-        }
-
-        return totalInserted;
-    }
-
-    /**
-     * 生成批量插入SQL
-     */
-    private String generateBatchInsertSql(String tableName, List<ColumnInfo> columns, List<List<String>> rows) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("INSERT INTO `").append(tableName).append("` (");
-
-        // 列名
-        String columnNames = columns.stream()
-                .map(c -> "`" + c.getColumnName() + "`")
-                .collect(Collectors.joining(", "));
-        sql.append(columnNames).append(") VALUES ");
-
-        // 值
-        for (int i = 0; i < rows.size(); i++) {
-            List<String> row = rows.get(i);
-            if (i > 0) {
-                sql.append(", ");
-            }
-            sql.append("(");
-
-            for (int j = 0; j < columns.size(); j++) {
-                if (j > 0) {
-                    sql.append(", ");
-                }
-
-                String value = j < row.size() ? row.get(j) : "";
-                sql.append(escapeSqlValue(value));
-            }
-
-            sql.append(")");
-        }
-
-        return sql.toString();
-    }
-
-    /**
-     * 转义SQL值
-     */
-    private String escapeSqlValue(String value) {
-        if (value == null || value.isEmpty()) {
-            return "NULL";
-        }
-
-        // 转义单引号
-        String escaped = value.replace("'", "''");
-        // 处理换行符和制表符
-        escaped = escaped.replace("\\", "\\\\");
-        escaped = escaped.replace("\n", "\\n");
-        escaped = escaped.replace("\r", "\\r");
-        escaped = escaped.replace("\t", "\\t");
-
-        return "'" + escaped + "'";
-    }
-
     @Override
     public boolean supports(FileType fileType, KnowledgeBaseType knowledgeBaseType) {
         /**
@@ -1,16 +1,16 @@
 package cn.hollis.llm.mentor.know.engine.document.service.impl;
 
+import cn.hollis.llm.mentor.know.engine.document.cache.SegmentTextCache;
 import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeSegment;
 import cn.hollis.llm.mentor.know.engine.document.mapper.KnowledgeSegmentMapper;
 import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
 
 /**
  * 知识片段表 Service 实现类
@@ -19,30 +19,62 @@ import java.util.concurrent.TimeUnit;
 public class KnowledgeSegmentServiceImpl extends ServiceImpl<KnowledgeSegmentMapper, KnowledgeSegment> implements KnowledgeSegmentService {
 
     @Autowired
-    private StringRedisTemplate stringRedisTemplate;
+    private SegmentTextCache segmentTextCache;
 
     @Override
     public String getTextByChunkId(Serializable chunkId) {
-        String text = stringRedisTemplate.opsForValue().get(chunkId);
-        if (text != null) {
-            if (text.isEmpty()) {
-                return null;
+        return getTextsByChunkIds(List.of(chunkId.toString())).get(chunkId.toString());
+    }
+
+    @Override
+    public Map<String, String> getTextsByChunkIds(Collection<String> chunkIds) {
+        // 两级缓存都未命中的部分用一条 IN 查询补齐
+        return segmentTextCache.getAll(chunkIds, missedKeys -> {
+            List<KnowledgeSegment> segments = this.list(new LambdaQueryWrapper<KnowledgeSegment>()
+                    .select(KnowledgeSegment::getChunkId, KnowledgeSegment::getText)
+                    .in(KnowledgeSegment::getChunkId, missedKeys));
+
+            Map<String, String> loadedTexts = new HashMap<>();
+            for (KnowledgeSegment segment : segments) {
+                loadedTexts.put(segment.getChunkId(), segment.getText());
             }
-            return text;
-        }
+            return loadedTexts;
+        });
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        List<String> chunkIds = listChunkIds(new LambdaQueryWrapper<KnowledgeSegment>().eq(KnowledgeSegment::getId, id));
+        boolean removed = super.removeById(id);
+        segmentTextCache.invalidate(chunkIds);
+        return removed;
+    }
 
-        QueryWrapper<KnowledgeSegment> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("chunk_id", chunkId);
-        KnowledgeSegment segment = super.getOne(queryWrapper);
+    @Override
+    public boolean removeByIds(Collection<?> list) {
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+        List<String> chunkIds = listChunkIds(new LambdaQueryWrapper<KnowledgeSegment>().in(KnowledgeSegment::getId, list));
+        boolean removed = super.removeByIds(list);
+        segmentTextCache.invalidate(chunkIds);
+        return removed;
+    }
 
-        if (segment != null) {
-            stringRedisTemplate.opsForValue().set(chunkId.toString(), segment.getText(), 30, TimeUnit.SECONDS);
-            return segment.getText();
-        } else {
-            // 缓存空值，避免缓存击穿，重复查询数据库
-            stringRedisTemplate.opsForValue().set(chunkId.toString(), "");
+    @Override
+    public boolean updateById(KnowledgeSegment entity) {
+        boolean updated = super.updateById(entity);
+        // 修改分段文本时同步失效缓存
+        if (updated && entity.getText() != null) {
+            segmentTextCache.invalidate(listChunkIds(new LambdaQueryWrapper<KnowledgeSegment>().eq(KnowledgeSegment::getId, entity.getId())));
         }
+        return updated;
+    }
 
-        return null;
+    private List<String> listChunkIds(LambdaQueryWrapper<KnowledgeSegment> wrapper) {
+        return this.list(wrapper.select(KnowledgeSegment::getChunkId)).stream()
+                .map(KnowledgeSegment::getChunkId)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -7,21 +7,20 @@ import cn.hollis.llm.mentor.know.engine.document.service.FileProcessService;
 import cn.hollis.llm.mentor.know.engine.document.service.FileStorageService;
 import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeDocumentService;
 import com.alibaba.fastjson2.JSON;
-import dev.langchain4j.data.message.ImageContent;
-import dev.langchain4j.data.message.TextContent;
-import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.model.openai.OpenAiChatModel;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import cn.hollis.llm.mentor.know.engine.document.service.ImageCaptionService;
+import cn.hollis.llm.mentor.know.engine.document.util.UploadContext;
+import com.google.common.base.Stopwatch;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PostConstruct;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.Assert;
 
@@ -34,7 +33,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -51,20 +66,60 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
 
     private static final String CONVERTED_FILE_DIR = "converted/";
 
+    /**
+     * 图片标签的正则表达式: ![alt](path)
+     */
+    private static final Pattern IMAGE_TAG_PATTERN = Pattern.compile("!\\[(.*?)\\]\\(([^)]+)\\)");
+
     @Autowired
     private FileStorageService fileStorageService;
 
     @Autowired
     private KnowledgeDocumentService knowledgeDocumentService;
 
+    @Autowired
+    private ImageCaptionService imageCaptionService;
+
+    @Autowired
+    @Qualifier("minerUHttpClient")
+    private CloseableHttpClient httpClient;
+
+    @Autowired
+    @Qualifier("documentConvertExecutor")
+    private Executor documentConvertExecutor;
+
     @Value("${file.parse.api.url:http://localhost:8000}")
     private String fileParseApiUrl;
 
-    @Value("${file.parse.api.connectTimeout:30000}")
-    private int connectTimeout;
+    /**
+     * 是否异步转换，开启后上传接口只提交转换任务即返回
+     */
+    @Value("${file.parse.async:true}")
+    private boolean async;
 
-    @Value("${file.parse.api.responseTimeout:300000}")
-    private int responseTimeout;
+    /**
+     * 每种解析器同时进行的转换任务数上限
+     */
+    @Value("${file.parse.max-concurrency:2}")
+    private int maxConcurrency;
+
+    /**
+     * 单个文档同时处理（上传、描述）的图片数上限
+     */
+    @Value("${file.parse.image.parallelism:8}")
+    private int imageParallelism;
+
+    private Semaphore concurrencyLimiter;
+
+    @PostConstruct
+    public void init() {
+        concurrencyLimiter = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public boolean isAsync() {
+        return async;
+    }
 
     /**
      * 处理文档转换 - Markdown 格式
@@ -72,11 +127,112 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
      * 2. 调用文档解析接口获取md/zip
      * 3. 转换后的文档保存在minio上
      * 3. 更新文档状态和转换后的 URL
+     * <p>
+     * 异步模式下先把文件落到本地临时文件（请求结束后上传流不可再读），再提交到转换线程池执行
      *
      * @param document 文档对象
      */
     public void processDocument(KnowledgeDocument document, InputStream inputStream) {
-        processDocumentToMarkdownFromZip(document, inputStream);
+        if (!async) {
+            convertWithLimit(document, inputStream);
+            return;
+        }
+
+        Path sourceFile;
+        try {
+            sourceFile = Files.createTempFile("mineru-source-", ".tmp");
+            Files.copy(inputStream, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("暂存待转换文件失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(inputStream);
+        }
+        submitConvertJob(document, sourceFile);
+    }
+
+    /**
+     * 处理上传的文档
+     * 异步模式下直接接管上传时写入的临时文件，不再复制一份
+     */
+    @Override
+    public void processDocument(KnowledgeDocument document, UploadContext upload) throws IOException {
+        if (!async) {
+            convertWithLimit(document, upload.openParseStream());
+            return;
+        }
+        submitConvertJob(document, upload.takeSpoolFile());
+    }
+
+    /**
+     * 提交异步转换任务，任务结束后删除临时文件
+     */
+    private void submitConvertJob(KnowledgeDocument document, Path sourceFile) {
+        Long docId = document.getDocId();
+        try {
+            documentConvertExecutor.execute(() -> runConvertJob(docId, sourceFile));
+            log.info("文档转换任务已提交，documentId: {}", docId);
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(sourceFile);
+            throw new RuntimeException("文档转换任务队列已满，请稍后重试", e);
+        }
+    }
+
+    /**
+     * 执行异步转换任务
+     * 任务中重新查询文档，避免与上传线程共享同一个实体对象。
+     * 临时文件只是源文件的本地副本，源文件始终保存在 MinIO（docUrl），重新转换时从 MinIO 读取
+     */
+    private void runConvertJob(Long docId, Path sourceFile) {
+        try {
+            KnowledgeDocument document = knowledgeDocumentService.getById(docId);
+            if (document == null || (document.getStatus() != DocumentStatus.UPLOADED && document.getStatus() != DocumentStatus.CONVERT_FAILED)) {
+                log.warn("文档不存在或状态不为UPLOADED/CONVERT_FAILED，跳过转换，documentId: {}", docId);
+                return;
+            }
+            convertWithLimit(document, Files.newInputStream(sourceFile));
+            // 转换成功后清空补偿重试计数
+            knowledgeDocumentService.update(Wrappers.<KnowledgeDocument>lambdaUpdate()
+                    .set(KnowledgeDocument::getRetryCount, 0)
+                    .set(KnowledgeDocument::getNextRetryAt, null)
+                    .eq(KnowledgeDocument::getDocId, docId));
+        } catch (Exception e) {
+            log.error("文档异步转换失败，documentId: {}", docId, e);
+            // 转换开始前的失败（如等待许可被中断）不会经过转换方法的失败处理，这里兜底记录
+            KnowledgeDocument document = knowledgeDocumentService.getById(docId);
+            if (document != null && (document.getStatus() == DocumentStatus.UPLOADED || document.getStatus() == DocumentStatus.CONVERTING)) {
+                markConvertFailed(document, e);
+            }
+        } finally {
+            deleteQuietly(sourceFile);
+        }
+    }
+
+    /**
+     * 记录转换失败状态和原因
+     */
+    private void markConvertFailed(KnowledgeDocument document, Exception e) {
+        document.setStatus(DocumentStatus.CONVERT_FAILED);
+        document.setConvertError(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        boolean result = knowledgeDocumentService.updateById(document);
+        Assert.isTrue(result, "文件CONVERT_FAILED状态更新失败");
+    }
+
+    /**
+     * 在解析器并发上限内执行转换
+     */
+    private void convertWithLimit(KnowledgeDocument document, InputStream inputStream) {
+        try {
+            concurrencyLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeQuietly(inputStream);
+            throw new RuntimeException("等待文档转换许可被中断", e);
+        }
+        try {
+            processDocumentToMarkdownFromZip(document, inputStream);
+        } finally {
+            concurrencyLimiter.release();
+        }
     }
 
     /**
@@ -107,15 +263,14 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
             // 更新文档状态为已转换
             document.setStatus(DocumentStatus.CONVERTED);
             document.setConvertedDocUrl(convertedUrl);
+            document.setConvertError(null);
             result = knowledgeDocumentService.updateById(document);
             Assert.isTrue(result, "文件CONVERTED状态更新失败");
             log.info("文档 Markdown 转换完成，documentId: {}", document.getDocTitle());
         } catch (Exception e) {
             log.error("文档 Markdown 转换失败，documentId: {}", document.getDocTitle(), e);
-            // 转换失败，状态回滚为 UPLOADED
-            document.setStatus(DocumentStatus.UPLOADED);
-            result = knowledgeDocumentService.updateById(document);
-            Assert.isTrue(result, "文件UPLOADED状态更新失败");
+            // 转换失败，记录失败状态和原因，可通过转换接口或补偿任务从 MinIO 重新读取源文件转换
+            markConvertFailed(document, e);
             throw new RuntimeException("文档 Markdown 转换失败: " + e.getMessage(), e);
         } finally {
             closeQuietly(inputStream);
@@ -153,16 +308,15 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
             // 更新文档状态为已转换
             document.setStatus(DocumentStatus.CONVERTED);
             document.setConvertedDocUrl(convertedUrl);
+            document.setConvertError(null);
             result = knowledgeDocumentService.updateById(document);
             Assert.isTrue(result, "文件CONVERTED状态更新失败");
 
             log.info("文档 ZIP 转换完成，documentId: {}", document.getDocTitle());
         } catch (Exception e) {
             log.error("文档 ZIP 转换失败，documentId: {}", document.getDocTitle(), e);
-            // 转换失败，状态回滚为 UPLOADED
-            document.setStatus(DocumentStatus.UPLOADED);
-            result = knowledgeDocumentService.updateById(document);
-            Assert.isTrue(result, "文件UPLOADED状态更新失败");
+            // 转换失败，记录失败状态和原因，可通过转换接口或补偿任务从 MinIO 重新读取源文件转换
+            markConvertFailed(document, e);
             throw new RuntimeException("文档 ZIP 转换失败: " + e.getMessage(), e);
         } finally {
             closeQuietly(inputStream);
@@ -219,16 +373,15 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
             // 5. 更新文档状态为已转换，保存 md 的 MinIO 地址
             document.setStatus(DocumentStatus.CONVERTED);
             document.setConvertedDocUrl(mdMinioUrl);
+            document.setConvertError(null);
             result = knowledgeDocumentService.updateById(document);
             Assert.isTrue(result, "文件CONVERTED状态更新失败");
 
             log.info("文档 ZIP 转换完成，documentId: {}, mdUrl: {}", document.getDocTitle(), mdMinioUrl);
         } catch (Exception e) {
             log.error("文档 ZIP 转换失败，documentId: {}", document.getDocTitle(), e);
-            // 转换失败，状态回滚为 UPLOADED
-            document.setStatus(DocumentStatus.UPLOADED);
-            result = knowledgeDocumentService.updateById(document);
-            Assert.isTrue(result, "文件UPLOADED状态更新失败");
+            // 转换失败，记录失败状态和原因，可通过转换接口或补偿任务从 MinIO 重新读取源文件转换
+            markConvertFailed(document, e);
             throw new RuntimeException("文档 ZIP 转换失败: " + e.getMessage(), e);
         } finally {
             closeQuietly(inputStream);
@@ -274,7 +427,7 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
 
         // 查找所有的 md 文件和图片文件
         Path mdFile = null;
-        java.util.List<Path> imageFiles = new java.util.ArrayList<>();
+        List<Path> imageFiles = new ArrayList<>();
 
         try (Stream<Path> paths = Files.walk(extractPath)) {
             for (Path path : paths.toList()) {
@@ -297,25 +450,20 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
 
         log.info("找到 Markdown 文件: {}, 图片文件数量: {}", mdFile, imageFiles.size());
 
-        // 上传图片到 MinIO，并建立本地文件名到 MinIO URL 的映射
-        java.util.Map<String, String> imageUrlMap = new java.util.HashMap<>();
-        String baseObjectName = CONVERTED_FILE_DIR + document.getDocTitle() + "/";
-
-        for (Path imagePath : imageFiles) {
-            String imageName = imagePath.getFileName().toString();
-            byte[] imageBytes = Files.readAllBytes(imagePath);
-            String contentType = getImageContentType(imageName);
-            String objectName = baseObjectName + "images/" + imageName;
-            String imageUrl = fileStorageService.uploadFile(objectName, imageBytes, contentType);
-            imageUrlMap.put(imageName, imageUrl);
-            log.info("图片已上传到 MinIO: {} -> {}", imageName, imageUrl);
+        // 读取 md 文件内容，只有被 md 引用的图片才需要生成描述
+        String mdContent = Files.readString(mdFile, StandardCharsets.UTF_8);
+        Set<String> referencedImages = new HashSet<>();
+        Matcher matcher = IMAGE_TAG_PATTERN.matcher(mdContent);
+        while (matcher.find()) {
+            referencedImages.add(Paths.get(matcher.group(2)).getFileName().toString());
         }
 
-        // 读取 md 文件内容
-        String mdContent = Files.readString(mdFile, StandardCharsets.UTF_8);
+        // 并发上传图片并生成描述
+        String baseObjectName = CONVERTED_FILE_DIR + document.getDocTitle() + "/";
+        Map<String, ProcessedImage> processedImages = processImages(baseObjectName, imageFiles, referencedImages);
 
-        // 替换 md 中的图片地址为 MinIO 地址，并生成图片描述
-        String processedMdContent = processMarkdownImages(mdContent, imageUrlMap);
+        // 替换 md 中的图片地址为 MinIO 地址，并填入图片描述
+        String processedMdContent = processMarkdownImages(mdContent, processedImages);
 
         // 上传处理后的 md 文件到 MinIO
         String mdObjectName = baseObjectName + mdFile.getFileName().toString();
@@ -325,6 +473,80 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
         return mdUrl;
     }
 
+    /**
+     * 已上传的图片及其描述
+     *
+     * @param url         MinIO 地址
+     * @param description 图片描述，未被 md 引用的图片为 null
+     */
+    private record ProcessedImage(String url, String description) {
+    }
+
+    /**
+     * 并发处理图片：流式上传到 MinIO，同时计算内容哈希，被 md 引用的图片再生成描述
+     * 同时处理的图片数不超过 imageParallelism，任一图片失败则取消其余任务
+     *
+     * @return 图片文件名到处理结果的映射
+     */
+    private Map<String, ProcessedImage> processImages(String baseObjectName, List<Path> imageFiles, Set<String> referencedImages) throws Exception {
+        Map<String, ProcessedImage> processedImages = new ConcurrentHashMap<>();
+        if (imageFiles.isEmpty()) {
+            return processedImages;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Semaphore permits = new Semaphore(imageParallelism);
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mineru-image-", 0).factory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(imageFiles.size());
+            for (Path imagePath : imageFiles) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        String imageName = imagePath.getFileName().toString();
+                        processedImages.put(imageName, processImage(baseObjectName, imagePath, referencedImages.contains(imageName)));
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("图片处理完成，数量: {}，耗时: {} ms", imageFiles.size(), stopwatch.elapsed().toMillis());
+        return processedImages;
+    }
+
+    /**
+     * 处理单张图片
+     */
+    private ProcessedImage processImage(String baseObjectName, Path imagePath, boolean needDescription) throws Exception {
+        String imageName = imagePath.getFileName().toString();
+        String objectName = baseObjectName + "images/" + imageName;
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String imageUrl;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(imagePath), digest)) {
+            imageUrl = fileStorageService.uploadFile(objectName, in, Files.size(imagePath), getImageContentType(imageName));
+        }
+        log.info("图片已上传到 MinIO: {} -> {}", imageName, imageUrl);
+
+        if (!needDescription) {
+            return new ProcessedImage(imageUrl, null);
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        return new ProcessedImage(imageUrl, imageCaptionService.describe(contentHash, imageUrl));
+    }
+
     /**
      * 获取图片的 Content-Type
      */
@@ -339,67 +561,45 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
     }
 
     /**
-     * 处理 Markdown 中的图片标签：替换地址并生成图片描述
+     * 处理 Markdown 中的图片标签：替换地址并填入图片描述
      * 匹配格式: ![](xxx.png) 或 ![alt](xxx.png)
      */
-    private String processMarkdownImages(String mdContent, java.util.Map<String, String> imageUrlMap) {
-        // 匹配图片标签的正则表达式: ![alt](path)
-        Pattern pattern = Pattern.compile("!\\[(.*?)\\]\\(([^)]+)\\)");
-        Matcher matcher = pattern.matcher(mdContent);
+    private String processMarkdownImages(String mdContent, Map<String, ProcessedImage> processedImages) {
+        Matcher matcher = IMAGE_TAG_PATTERN.matcher(mdContent);
 
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         while (matcher.find()) {
-            String altText = matcher.group(1);
             String imagePath = matcher.group(2);
 
             // 提取图片文件名
             String imageName = Paths.get(imagePath).getFileName().toString();
 
             // 获取 MinIO 上的图片 URL
-            String minioUrl = imageUrlMap.get(imageName);
-            if (minioUrl == null) {
+            ProcessedImage processedImage = processedImages.get(imageName);
+            if (processedImage == null) {
                 // 如果找不到对应的 MinIO URL，保持原样
                 log.warn("未找到图片 {} 对应的 MinIO URL", imageName);
                 matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
                 continue;
             }
 
-            // 生成图片描述（mock 实现）
-            String imageDescription = generateImageDescription(minioUrl);
-
             // 构建新的图片标签: ![描述](minio_url)
-            String newImageTag = "![" + imageDescription + "](" + minioUrl + ")";
+            String newImageTag = "![" + processedImage.description() + "](" + processedImage.url() + ")";
             matcher.appendReplacement(result, Matcher.quoteReplacement(newImageTag));
 
-            log.info("图片标签已处理: {} -> {}", imagePath, minioUrl);
+            log.info("图片标签已处理: {} -> {}", imagePath, processedImage.url());
         }
         matcher.appendTail(result);
 
         return result.toString();
     }
 
-    @Value("${langchain4j.open-ai.chat-model.api-key}")
-    private String chatModelApiKey;
-
-    @Value("${langchain4j.open-ai.chat-model.base-url}")
-    private String chatModelBaseUrl;
-
     /**
      * 生成图片描述
      * 需要注意的是，如果你用的是外部的模型，这个url需要是公网可以访问的url。否则模型需要能和MinIO进行内网通信。
      */
     public String generateImageDescription(String imageUrl) {
-        OpenAiChatModel chatModel = OpenAiChatModel.builder()
-                .apiKey(chatModelApiKey)
-                .baseUrl(chatModelBaseUrl)
-                .modelName("qwen3-vl-plus")
-                .temperature(0.7)
-                .logResponses(true)
-                .logRequests(true)
-                .build();
-
-        UserMessage userMessage = UserMessage.from(new TextContent("请描述这张图片的内容，包括场景、对象、布局、颜色、文字信息，直接输出纯文本描述，不要多余说明。"), new ImageContent(imageUrl));
-        return chatModel.chat(userMessage).aiMessage().text();
+        return imageCaptionService.generateImageDescription(imageUrl);
     }
 
     /**
@@ -451,7 +651,7 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
 
     /**
      * 调用文件解析接口
-     * 使用 Apache HttpClient 5 替代 HttpURLConnection，提供更好的超时控制和连接管理
+     * 使用共享的 Apache HttpClient 5 连接池，超时配置见 {@link cn.hollis.llm.mentor.know.engine.document.config.MinerUHttpClientConfiguration}
      *
      * @param fileName   文件名
      * @param fileStream 文件输入流
@@ -460,10 +660,7 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
     private String parseDocumentToMarkdown(String fileName, InputStream fileStream) {
         String url = fileParseApiUrl + "/file_parse";
 
-        // 配置请求超时
-        RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeout)).setResponseTimeout(Timeout.ofMilliseconds(responseTimeout)).build();
-
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build()) {
+        try {
 
             HttpPost httpPost = new HttpPost(url);
             httpPost.setHeader("Accept", "application/json");
@@ -500,7 +697,7 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
 
     /**
      * 调用文件解析接口，获取 ZIP 格式响应
-     * 使用 Apache HttpClient 5，支持流式下载大文件
+     * 使用共享的 Apache HttpClient 5 连接池，支持流式下载大文件
      *
      * @param fileName   文件名
      * @param fileStream 文件输入流
@@ -509,10 +706,7 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
     private byte[] parseDocumentToZip(String fileName, InputStream fileStream) {
         String url = fileParseApiUrl + "/file_parse";
 
-        // 配置请求超时
-        RequestConfig requestConfig = RequestConfig.custom().setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeout)).setResponseTimeout(Timeout.ofMilliseconds(responseTimeout)).build();
-
-        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build()) {
+        try {
 
             HttpPost httpPost = new HttpPost(url);
             httpPost.setHeader("Accept", "application/json");
@@ -553,6 +747,17 @@ public abstract class MinerUProcessBaseServiceImpl implements FileProcessService
         }
     }
 
+    /**
+     * 安静删除临时文件，忽略异常
+     */
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", path, e);
+        }
+    }
+
     /**
      * 安静关闭输入流，忽略异常
      *
@@ -13,30 +13,58 @@ public class FileTypeUtil {
 
     private static final Tika tika = new Tika();
 
+    /**
+     * 内容嗅探读取的文件头长度，与 Tika 魔数检测读取的最大长度一致
+     */
+    public static final int SNIFF_LENGTH = 64 * 1024;
+
     public static FileType getFileType(String fileName, MultipartFile file) {
         if (file == null) {
             return null;
         }
 
-        if (isPdfFile(fileName) || isPdfContent(file)) {
+        try (InputStream is = file.getInputStream()) {
+            return getFileType(fileName, is.readNBytes(SNIFF_LENGTH));
+        } catch (IOException e) {
+            log.error("文件类型检测失败: {}", e.getMessage());
+            return getFileType(fileName, new byte[0]);
+        }
+    }
+
+    /**
+     * 根据文件名和文件头判断文件类型
+     * <p>
+     * 文件头只做一次 Tika 检测，各类型按 PDF、CSV、Excel、Word、Markdown、TXT 的顺序依次匹配后缀名或检测结果
+     *
+     * @param fileName 文件名
+     * @param header   文件开头最多 {@link #SNIFF_LENGTH} 字节
+     */
+    public static FileType getFileType(String fileName, byte[] header) {
+        if (header == null) {
+            return null;
+        }
+
+        String mimeType = header.length == 0 ? null : tika.detect(header);
+
+        if (isPdfFile(fileName) || "application/pdf".equals(mimeType)) {
             return FileType.PDF;
         }
         if (isCsvFile(fileName)) {
             return FileType.CSV;
         }
-        if (isExcelFile(fileName) || isExcelFile(file)) {
+        if (isExcelFile(fileName) || isExcelMimeType(mimeType)) {
             return FileType.EXCEL;
         }
 
-        if (isDocFile(fileName) || isDocFile(file)) {
+        if (isDocFile(fileName) || isDocMimeType(mimeType)) {
             return FileType.DOC;
         }
 
-        if (isMarkdownFile(fileName) || isMarkdownFile(file)) {
+        if (isMarkdownFile(fileName) || isMarkdownMimeType(mimeType)) {
             return FileType.MARKDOWN;
         }
 
-        if (isTxtFile(fileName) || isTxtFile(file)) {
+        if (isTxtFile(fileName) || isTxtMimeType(mimeType)) {
             return FileType.TXT;
         }
 
@@ -82,61 +110,24 @@ public class FileTypeUtil {
         return fileName.toLowerCase().endsWith(".pdf");
     }
 
-    /**
-     * 通过 Apache Tika 检测文件内容类型判断是否为 PDF 文件
-     */
-    private static boolean isPdfContent(MultipartFile file) {
-        try (InputStream is = file.getInputStream()) {
-            String mimeType = tika.detect(is);
-            return "application/pdf".equals(mimeType);
-        } catch (IOException e) {
-            log.error("文件类型检测失败: {}", e.getMessage());
-            return false;
-        }
+    private static boolean isExcelMimeType(String mimeType) {
+        return "application/vnd.ms-excel".equals(mimeType) ||
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet".equals(mimeType);
     }
 
-    private static boolean isExcelFile(MultipartFile file) {
-        try (InputStream is = file.getInputStream()) {
-            String mimeType = tika.detect(is);
-            return mimeType.equals("application/vnd.ms-excel") ||
-                    mimeType.equals("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        } catch (IOException e) {
-            log.error("文件类型检测失败: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    private static boolean isDocFile(MultipartFile file) {
-        try (InputStream is = file.getInputStream()) {
-            String mimeType = tika.detect(is);
-            return mimeType.equals("application/msword") ||
-                    mimeType.equals("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        } catch (IOException e) {
-            log.error("文件类型检测失败: {}", e.getMessage());
-            return false;
-        }
+    private static boolean isDocMimeType(String mimeType) {
+        return "application/msword".equals(mimeType) ||
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document".equals(mimeType);
     }
 
-    private static boolean isTxtFile(MultipartFile file) {
-        try (InputStream is = file.getInputStream()) {
-            String mimeType = tika.detect(is);
-            return mimeType.equals("text/plain") ||
-                    mimeType.equals("application/txt");
-        } catch (IOException e) {
-            log.error("文件类型检测失败: {}", e.getMessage());
-            return false;
-        }
+    private static boolean isTxtMimeType(String mimeType) {
+        return "text/plain".equals(mimeType) ||
+                "application/txt".equals(mimeType);
     }
 
-    private static boolean isMarkdownFile(MultipartFile file) {
-        try (InputStream is = file.getInputStream()) {
-            String mimeType = tika.detect(is);
-            return mimeType.equals("text/plain") ||
-                    mimeType.equals("application/markdown");
-        } catch (IOException e) {
-            log.error("文件类型检测失败: {}", e.getMessage());
-            return false;
-        }
+    private static boolean isMarkdownMimeType(String mimeType) {
+        return "text/plain".equals(mimeType) ||
+                "application/markdown".equals(mimeType);
     }
 
     /**
@@ -0,0 +1,221 @@
+package cn.hollis.llm.mentor.know.engine.document.util;
+
+import cn.hollis.llm.mentor.know.engine.document.constant.FileType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 单次上传的上下文
+ * <p>
+ * 上传文件只打开一次输入流：先读取文件头（最多 {@link FileTypeUtil#SNIFF_LENGTH} 字节）完成类型检测，
+ * 上传 MinIO 时复用文件头缓冲并继续读取同一个流的剩余部分；需要解析时在上传过程中同步写入本地临时文件，
+ * 解析直接读取临时文件，不再重新读取上传内容。文件小于文件头长度时全部内容都在缓冲中，不产生临时文件。
+ * <p>
+ * 非线程安全，只在上传请求线程中使用。
+ */
+@Slf4j
+public class UploadContext implements Closeable {
+
+    private final MultipartFile file;
+
+    private final String fileName;
+
+    private final InputStream source;
+
+    private final byte[] header;
+
+    private final FileType fileType;
+
+    private boolean consumed;
+
+    private SpoolingInputStream spoolingStream;
+
+    private Path spoolFile;
+
+    private UploadContext(MultipartFile file, String fileName, InputStream source, byte[] header) {
+        this.file = file;
+        this.fileName = fileName;
+        this.source = source;
+        this.header = header;
+        this.fileType = FileTypeUtil.getFileType(fileName, header);
+    }
+
+    /**
+     * 打开上传文件并读取文件头
+     */
+    public static UploadContext open(MultipartFile file, String fileName) throws IOException {
+        InputStream source = file.getInputStream();
+        try {
+            return new UploadContext(file, fileName, source, source.readNBytes(FileTypeUtil.SNIFF_LENGTH));
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return file.getSize();
+    }
+
+    public String getContentType() {
+        return file.getContentType();
+    }
+
+    /**
+     * 基于文件头检测的文件类型，只检测一次
+     */
+    public FileType getFileType() {
+        return fileType;
+    }
+
+    /**
+     * 打开用于上传的完整内容流，只能调用一次
+     *
+     * @param spool 是否同时写入本地临时文件，供后续 {@link #openParseStream()} / {@link #takeSpoolFile()} 使用
+     */
+    public InputStream openUploadStream(boolean spool) throws IOException {
+        if (consumed) {
+            throw new IllegalStateException("上传内容只能读取一次");
+        }
+        consumed = true;
+        InputStream content = new SequenceInputStream(new ByteArrayInputStream(header), source);
+        if (!spool || isFullyBuffered()) {
+            return content;
+        }
+        spoolFile = Files.createTempFile("upload-", ".tmp");
+        spoolingStream = new SpoolingInputStream(content, Files.newOutputStream(spoolFile));
+        return spoolingStream;
+    }
+
+    /**
+     * 打开用于解析的内容流，需先以 spool 方式调用 {@link #openUploadStream(boolean)}
+     */
+    public InputStream openParseStream() throws IOException {
+        if (isFullyBuffered()) {
+            return new ByteArrayInputStream(header);
+        }
+        return Files.newInputStream(finishSpool());
+    }
+
+    /**
+     * 取走完整内容的临时文件，之后由调用方负责删除（如异步转换任务）
+     */
+    public Path takeSpoolFile() throws IOException {
+        Path taken;
+        if (isFullyBuffered()) {
+            taken = Files.createTempFile("upload-", ".tmp");
+            Files.write(taken, header);
+        } else {
+            taken = finishSpool();
+            spoolFile = null;
+        }
+        return taken;
+    }
+
+    @Override
+    public void close() {
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("关闭上传文件流失败: {}", fileName, e);
+        }
+        if (spoolingStream != null) {
+            try {
+                spoolingStream.closeSpool();
+            } catch (IOException e) {
+                log.warn("关闭上传临时文件失败: {}", spoolFile, e);
+            }
+        }
+        if (spoolFile != null) {
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                log.warn("删除上传临时文件失败: {}", spoolFile, e);
+            }
+        }
+    }
+
+    /**
+     * 文件头没有读满，说明已经读到文件末尾，全部内容都在缓冲中
+     */
+    private boolean isFullyBuffered() {
+        return header.length < FileTypeUtil.SNIFF_LENGTH;
+    }
+
+    /**
+     * 确保临时文件包含完整内容：上传方没有读到末尾时把剩余部分读完
+     */
+    private Path finishSpool() throws IOException {
+        if (spoolingStream == null || spoolFile == null) {
+            throw new IllegalStateException("上传时未写入临时文件，无法再次读取内容");
+        }
+        spoolingStream.transferTo(OutputStream.nullOutputStream());
+        spoolingStream.closeSpool();
+        return spoolFile;
+    }
+
+    /**
+     * 读取的同时把内容写入临时文件
+     * 关闭时不关闭底层上传流，由 {@link UploadContext#close()} 统一关闭
+     */
+    private static class SpoolingInputStream extends FilterInputStream {
+
+        private final OutputStream spool;
+
+        private boolean spoolClosed;
+
+        private SpoolingInputStream(InputStream in, OutputStream spool) {
+            super(in);
+            this.spool = new BufferedOutputStream(spool, 64 * 1024);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                spool.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                spool.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的内容也需要写入临时文件
+            return n <= 0 ? 0 : Math.max(read(new byte[(int) Math.min(n, 8192)]), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void closeSpool() throws IOException {
+            if (spoolClosed) {
+                return;
+            }
+            spoolClosed = true;
+            spool.close();
+        }
+    }
+}
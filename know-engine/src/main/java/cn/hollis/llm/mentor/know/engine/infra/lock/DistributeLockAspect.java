@@ -1,5 +1,8 @@
 package cn.hollis.llm.mentor.know.engine.infra.lock;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -12,26 +15,51 @@ import org.springframework.core.StandardReflectionParameterNameDiscoverer;
 import org.springframework.core.annotation.Order;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式锁切面
- *
+ * <p>
+ * 注解、SpEL 表达式（MIXED 编译模式，多次执行后编译为字节码）和参数名按 {@link Method} 缓存，只在第一次调用时解析。
+ * 按 scene 输出 Micrometer 指标：
+ * <ul>
+ *   <li>know_engine.distribute_lock.wait：获取锁的等待时间，result 区分 acquired / failed</li>
+ *   <li>know_engine.distribute_lock.hold：持有锁的时间</li>
+ *   <li>know_engine.distribute_lock.contention：加锁时锁已被其他线程或节点持有的次数</li>
+ * </ul>
  */
 @Aspect
 @Component
 @Order(Integer.MIN_VALUE)
 public class DistributeLockAspect {
 
+    private static final String METRIC_PREFIX = "know_engine.distribute_lock";
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, DistributeLockAspect.class.getClassLoader()));
+
+    private static final StandardReflectionParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new StandardReflectionParameterNameDiscoverer();
+
     private RedissonClient redissonClient;
 
-    public DistributeLockAspect(RedissonClient redissonClient) {
+    private MeterRegistry meterRegistry;
+
+    private final Map<Method, LockDefinition> definitions = new ConcurrentHashMap<>();
+
+    private final Map<String, LockMeters> meters = new ConcurrentHashMap<>();
+
+    public DistributeLockAspect(RedissonClient redissonClient, MeterRegistry meterRegistry) {
         this.redissonClient = redissonClient;
+        this.meterRegistry = meterRegistry;
     }
 
     private static final Logger LOG = LoggerFactory.getLogger(DistributeLockAspect.class);
@@ -40,26 +68,15 @@ public class DistributeLockAspect {
     public Object process(ProceedingJoinPoint pjp) throws Exception {
         Object response = null;
         Method method = ((MethodSignature) pjp.getSignature()).getMethod();
-        DistributeLock distributeLock = method.getAnnotation(DistributeLock.class);
-
-        String key = distributeLock.key();
-        if (DistributeLockConstant.NONE_KEY.equals(key)) {
-            if (DistributeLockConstant.NONE_KEY.equals(distributeLock.keyExpression())) {
-                throw new DistributeLockException("no lock key found...");
-            }
-            SpelExpressionParser parser = new SpelExpressionParser();
-            Expression expression = parser.parseExpression(distributeLock.keyExpression());
+        LockDefinition definition = definitions.computeIfAbsent(method, DistributeLockAspect::resolve);
+        DistributeLock distributeLock = definition.distributeLock();
 
+        String key = definition.key();
+        if (key == null) {
             EvaluationContext context = new StandardEvaluationContext();
-            // 获取参数值
-            Object[] args = pjp.getArgs();
-
-            // 获取运行时参数的名称
-            StandardReflectionParameterNameDiscoverer discoverer
-                    = new StandardReflectionParameterNameDiscoverer();
-            String[] parameterNames = discoverer.getParameterNames(method);
-
             // 将参数绑定到context中
+            Object[] args = pjp.getArgs();
+            String[] parameterNames = definition.parameterNames();
             if (parameterNames != null) {
                 for (int i = 0; i < parameterNames.length; i++) {
                     context.setVariable(parameterNames[i], args[i]);
@@ -67,7 +84,7 @@ public class DistributeLockAspect {
             }
 
             // 解析表达式，获取结果
-            key = String.valueOf(expression.getValue(context));
+            key = String.valueOf(definition.keyExpression().getValue(context));
         }
 
         String scene = distributeLock.scene();
@@ -76,44 +93,94 @@ public class DistributeLockAspect {
 
         int expireTime = distributeLock.expireTime();
         int waitTime = distributeLock.waitTime();
-        RLock rLock= redissonClient.getLock(lockKey);
+        LockMeters lockMeters = meters.computeIfAbsent(scene, this::createMeters);
+        RLock rLock = redissonClient.getLock(lockKey);
+        long waitStart = System.nanoTime();
+        long acquiredAt = 0;
         try {
-            boolean lockResult = false;
-            if (waitTime == DistributeLockConstant.DEFAULT_WAIT_TIME) {
-                if (expireTime == DistributeLockConstant.DEFAULT_EXPIRE_TIME) {
-                    LOG.info(String.format("lock for key : %s", lockKey));
-                    rLock.lock();
-                } else {
-                    LOG.info(String.format("lock for key : %s , expire : %s", lockKey, expireTime));
-                    rLock.lock(expireTime, TimeUnit.MILLISECONDS);
-                }
-                lockResult = true;
-            } else {
-                if (expireTime == DistributeLockConstant.DEFAULT_EXPIRE_TIME) {
-                    LOG.info(String.format("try lock for key : %s , wait : %s", lockKey, waitTime));
-                    lockResult = rLock.tryLock(waitTime, TimeUnit.MILLISECONDS);
-                } else {
-                    LOG.info(String.format("try lock for key : %s , expire : %s , wait : %s", lockKey, expireTime, waitTime));
-                    lockResult = rLock.tryLock(waitTime, expireTime, TimeUnit.MILLISECONDS);
+            // 先做一次不等待的尝试，失败说明锁已被持有，记为一次竞争后再按注解配置等待
+            boolean lockResult = expireTime == DistributeLockConstant.DEFAULT_EXPIRE_TIME
+                    ? rLock.tryLock()
+                    : rLock.tryLock(0, expireTime, TimeUnit.MILLISECONDS);
+            if (!lockResult) {
+                lockMeters.contention().increment();
+                LOG.debug("lock contended for key : {}", lockKey);
+                if (waitTime == DistributeLockConstant.DEFAULT_WAIT_TIME) {
+                    if (expireTime == DistributeLockConstant.DEFAULT_EXPIRE_TIME) {
+                        rLock.lock();
+                    } else {
+                        rLock.lock(expireTime, TimeUnit.MILLISECONDS);
+                    }
+                    lockResult = true;
+                } else if (waitTime > 0) {
+                    if (expireTime == DistributeLockConstant.DEFAULT_EXPIRE_TIME) {
+                        lockResult = rLock.tryLock(waitTime, TimeUnit.MILLISECONDS);
+                    } else {
+                        lockResult = rLock.tryLock(waitTime, expireTime, TimeUnit.MILLISECONDS);
+                    }
                 }
             }
 
+            long waited = System.nanoTime() - waitStart;
             if (!lockResult) {
-                LOG.warn(String.format("lock failed for key : %s , expire : %s", lockKey, expireTime));
+                lockMeters.failedWait().record(waited, TimeUnit.NANOSECONDS);
+                LOG.warn("lock failed for key : {} , expire : {} , wait : {}", lockKey, expireTime, waitTime);
                 throw new DistributeLockException("acquire lock failed... key : " + lockKey);
             }
+            lockMeters.acquiredWait().record(waited, TimeUnit.NANOSECONDS);
+            acquiredAt = System.nanoTime();
 
-
-            LOG.info(String.format("lock success for key : %s , expire : %s", lockKey, expireTime));
+            LOG.debug("lock success for key : {} , expire : {}", lockKey, expireTime);
             response = pjp.proceed();
         } catch (Throwable e) {
             throw new Exception(e);
         } finally {
             if (rLock.isHeldByCurrentThread()) {
                 rLock.unlock();
-                LOG.info(String.format("unlock for key : %s , expire : %s", lockKey, expireTime));
+                LOG.debug("unlock for key : {} , expire : {}", lockKey, expireTime);
+            }
+            if (acquiredAt != 0) {
+                lockMeters.hold().record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
             }
         }
         return response;
     }
+
+    /**
+     * 解析方法上的锁定义，结果按 Method 缓存
+     */
+    private static LockDefinition resolve(Method method) {
+        DistributeLock distributeLock = method.getAnnotation(DistributeLock.class);
+        if (!DistributeLockConstant.NONE_KEY.equals(distributeLock.key())) {
+            return new LockDefinition(distributeLock, distributeLock.key(), null, null);
+        }
+        if (DistributeLockConstant.NONE_KEY.equals(distributeLock.keyExpression())) {
+            throw new DistributeLockException("no lock key found...");
+        }
+        Expression expression = PARSER.parseExpression(distributeLock.keyExpression());
+        // 获取运行时参数的名称
+        String[] parameterNames = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        return new LockDefinition(distributeLock, null, expression, parameterNames);
+    }
+
+    private LockMeters createMeters(String scene) {
+        return new LockMeters(
+                Timer.builder(METRIC_PREFIX + ".wait").description("分布式锁获取等待时间")
+                        .tag("scene", scene).tag("result", "acquired").register(meterRegistry),
+                Timer.builder(METRIC_PREFIX + ".wait").description("分布式锁获取等待时间")
+                        .tag("scene", scene).tag("result", "failed").register(meterRegistry),
+                Timer.builder(METRIC_PREFIX + ".hold").description("分布式锁持有时间")
+                        .tag("scene", scene).register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".contention").description("加锁时锁已被持有的次数")
+                        .tag("scene", scene).register(meterRegistry));
+    }
+
+    /**
+     * 方法上的锁定义：固定 key，或 key 表达式及参数名
+     */
+    private record LockDefinition(DistributeLock distributeLock, String key, Expression keyExpression, String[] parameterNames) {
+    }
+
+    private record LockMeters(Timer acquiredWait, Timer failedWait, Timer hold, Counter contention) {
+    }
 }
@@ -0,0 +1,35 @@
+package cn.hollis.llm.mentor.know.engine.infra.snowflake;
+
+/**
+ * 按块预取ID的生成器
+ * 每次从 {@link SnowflakeIdGenerator} 预留 blockSize 个ID，用完再预留下一块，
+ * 适合单线程连续生成大量ID的场景（如一次文档切分）。非线程安全，每个调用方各自创建。
+ */
+public class BufferedIdGenerator {
+
+    private final SnowflakeIdGenerator generator;
+
+    private final int blockSize;
+
+    private IdBlock block;
+
+    public BufferedIdGenerator(int blockSize) {
+        this(SnowflakeIdGenerator.getInstance(), blockSize);
+    }
+
+    public BufferedIdGenerator(SnowflakeIdGenerator generator, int blockSize) {
+        this.generator = generator;
+        this.blockSize = blockSize;
+    }
+
+    public long nextId() {
+        if (block == null || !block.hasNext()) {
+            block = generator.nextIdBlock(blockSize);
+        }
+        return block.nextId();
+    }
+
+    public String nextIdStr() {
+        return String.valueOf(nextId());
+    }
+}
@@ -0,0 +1,41 @@
+package cn.hollis.llm.mentor.know.engine.infra.snowflake;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 一段预留好的连续ID
+ * 由 {@link SnowflakeIdGenerator#nextIdBlock(int)} 一次 CAS 预留，取ID时不再访问共享状态。非线程安全。
+ */
+public final class IdBlock {
+
+    private final long end;
+
+    private final long workerId;
+
+    private long next;
+
+    IdBlock(long start, long end, long workerId) {
+        this.next = start;
+        this.end = end;
+        this.workerId = workerId;
+    }
+
+    public boolean hasNext() {
+        return next < end;
+    }
+
+    public int remaining() {
+        return (int) (end - next);
+    }
+
+    public long nextId() {
+        if (next >= end) {
+            throw new NoSuchElementException("IdBlock exhausted");
+        }
+        return SnowflakeIdGenerator.compose(next++, workerId);
+    }
+
+    public String nextIdStr() {
+        return String.valueOf(nextId());
+    }
+}
@@ -1,5 +1,7 @@
 package cn.hollis.llm.mentor.know.engine.infra.snowflake;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * 雪花算法ID生成器
  * 生成的ID是64位长整型，具有以下结构：
@@ -7,7 +9,12 @@ package cn.hollis.llm.mentor.know.engine.infra.snowflake;
  * - 41位时间戳（毫秒级，可使用约69年）
  * - 10位工作机器ID（0-1023）
  * - 12位序列号（毫秒内自增，每毫秒可生成4096个ID）
- *
+ * <p>
+ * 时间戳和序列号合并为一个 long 状态，通过 CAS 推进，不加锁也不自旋等待下一毫秒：
+ * 同一毫秒内序列号用完时直接进位到下一毫秒（ID 中的时间戳暂时领先于时钟），时钟回拨时沿用上次的状态继续递增。
+ * 因为状态是连续的，一次 CAS 就可以预留一段连续的ID，见 {@link #nextIdBlock(int)}。
+ * <p>
+ * 工作机器ID默认取进程ID的低10位，Spring 环境下由 {@link WorkerIdLeaseManager} 通过 Redis 租约分配，保证多节点不重复。
  */
 public class SnowflakeIdGenerator {
 
@@ -29,7 +36,7 @@ public class SnowflakeIdGenerator {
     /**
      * 机器ID的最大值
      */
-    private static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
 
     /**
      * 序列号的最大值
@@ -49,17 +56,12 @@ public class SnowflakeIdGenerator {
     /**
      * 工作机器ID
      */
-    private final long workerId;
-
-    /**
-     * 序列号
-     */
-    private long sequence = 0L;
+    private volatile long workerId;
 
     /**
-     * 上次生成ID的时间戳
+     * 最后一个已分配ID的状态：(时间戳 - EPOCH) << SEQUENCE_BITS | 序列号
      */
-    private long lastTimestamp = -1L;
+    private final AtomicLong state = new AtomicLong();
 
     /**
      * 单例实例
@@ -67,15 +69,12 @@ public class SnowflakeIdGenerator {
     private static volatile SnowflakeIdGenerator instance;
 
     /**
-     * 私有构造函数
+     * 构造函数
      *
      * @param workerId 工作机器ID (0-1023)
      */
-    private SnowflakeIdGenerator(long workerId) {
-        if (workerId < 0 || workerId > MAX_WORKER_ID) {
-            throw new IllegalArgumentException(
-                    String.format("workerId must be between 0 and %d", MAX_WORKER_ID));
-        }
+    SnowflakeIdGenerator(long workerId) {
+        checkWorkerId(workerId);
         this.workerId = workerId;
     }
 
@@ -88,7 +87,7 @@ public class SnowflakeIdGenerator {
         if (instance == null) {
             synchronized (SnowflakeIdGenerator.class) {
                 if (instance == null) {
-                    // 默认使用进程ID作为workerId
+                    // 默认使用进程ID作为workerId，Spring 启动后由租约分配的ID替换
                     long workerId = getWorkerId();
                     instance = new SnowflakeIdGenerator(workerId);
                 }
@@ -116,53 +115,34 @@ public class SnowflakeIdGenerator {
         return 1L;
     }
 
+    private static void checkWorkerId(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException(
+                    String.format("workerId must be between 0 and %d", MAX_WORKER_ID));
+        }
+    }
+
     /**
-     * 生成下一个ID（线程安全）
+     * 更新工作机器ID
      *
-     * @return 唯一ID
+     * @param workerId 工作机器ID (0-1023)
      */
-    public synchronized long nextId() {
-        long timestamp = System.currentTimeMillis();
-
-        // 时钟回拨检测
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(
-                    String.format("Clock moved backwards. Refusing to generate id for %d milliseconds",
-                            lastTimestamp - timestamp));
-        }
-
-        // 同一毫秒内
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & SEQUENCE_MASK;
-            // 序列号溢出，等待下一毫秒
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            // 新的毫秒，序列号重置为0
-            sequence = 0L;
-        }
-
-        lastTimestamp = timestamp;
+    public void updateWorkerId(long workerId) {
+        checkWorkerId(workerId);
+        this.workerId = workerId;
+    }
 
-        // 组装ID
-        return ((timestamp - EPOCH) << TIMESTAMP_SHIFT)
-                | (workerId << WORKER_ID_SHIFT)
-                | sequence;
+    public long getCurrentWorkerId() {
+        return workerId;
     }
 
     /**
-     * 阻塞到下一毫秒
+     * 生成下一个ID（线程安全，无锁）
      *
-     * @param lastTimestamp 上次生成ID的时间戳
-     * @return 当前时间戳
+     * @return 唯一ID
      */
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = System.currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = System.currentTimeMillis();
-        }
-        return timestamp;
+    public long nextId() {
+        return compose(reserve(1), workerId);
     }
 
     /**
@@ -173,4 +153,44 @@ public class SnowflakeIdGenerator {
     public String nextIdStr() {
         return String.valueOf(nextId());
     }
+
+    /**
+     * 一次预留 count 个连续的ID
+     *
+     * @param count 预留数量
+     * @return ID块，按需逐个取出
+     */
+    public IdBlock nextIdBlock(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        long start = reserve(count);
+        return new IdBlock(start, start + count, workerId);
+    }
+
+    /**
+     * 通过 CAS 推进状态，预留 [start, start + count) 区间
+     *
+     * @return 区间起始状态
+     */
+    private long reserve(int count) {
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            // 时钟前进则从新毫秒的 0 号序列开始，否则紧接上次分配的状态（序列号溢出自动进位到下一毫秒）
+            long start = Math.max(now, last + 1);
+            if (state.compareAndSet(last, start + count - 1)) {
+                return start;
+            }
+        }
+    }
+
+    /**
+     * 把状态和工作机器ID组装为ID
+     */
+    static long compose(long state, long workerId) {
+        return ((state >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                | (workerId << WORKER_ID_SHIFT)
+                | (state & SEQUENCE_MASK);
+    }
 }
@@ -0,0 +1,125 @@
+package cn.hollis.llm.mentor.know.engine.infra.snowflake;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 雪花算法工作机器ID租约管理
+ * <p>
+ * 启动时在 Redis 中抢占一个空闲的 workerId（snowflake:worker:{id}），并定时续期；
+ * 续期发现租约已丢失（如长时间 GC 或网络分区导致过期）时重新抢占，并切换 {@link SnowflakeIdGenerator} 的 workerId。
+ * Redis 不可用时保留默认的 workerId，不影响启动。
+ */
+@Slf4j
+@Component
+public class WorkerIdLeaseManager {
+
+    private static final String WORKER_KEY_PREFIX = "snowflake:worker:";
+
+    /**
+     * 仅当租约仍属于自己时续期
+     */
+    private static final String RENEW_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+
+    /**
+     * 仅当租约仍属于自己时释放
+     */
+    private static final String RELEASE_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('del', KEYS[1]) else return 0 end";
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    /**
+     * 租约时长（秒），每 1/3 租约时长续期一次
+     */
+    @Value("${snowflake.worker-lease-seconds:60}")
+    private long leaseSeconds;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile long leasedWorkerId = -1;
+
+    private ScheduledExecutorService renewExecutor;
+
+    @PostConstruct
+    public void init() {
+        acquire();
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("snowflake-lease-renew").daemon().factory());
+        long period = Math.max(1, leaseSeconds * 1000 / 3);
+        renewExecutor.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewExecutor != null) {
+            renewExecutor.shutdownNow();
+        }
+        if (leasedWorkerId < 0) {
+            return;
+        }
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.<Object>of(WORKER_KEY_PREFIX + leasedWorkerId), owner);
+        } catch (Exception e) {
+            log.warn("释放 workerId 租约失败: {}", leasedWorkerId, e);
+        }
+    }
+
+    /**
+     * 抢占一个空闲的 workerId，优先尝试上一次持有的ID
+     */
+    private void acquire() {
+        long size = SnowflakeIdGenerator.MAX_WORKER_ID + 1;
+        long offset = leasedWorkerId >= 0 ? leasedWorkerId : ThreadLocalRandom.current().nextLong(size);
+        try {
+            for (long i = 0; i < size; i++) {
+                long workerId = (offset + i) % size;
+                RBucket<String> bucket = redissonClient.getBucket(WORKER_KEY_PREFIX + workerId, StringCodec.INSTANCE);
+                if (bucket.trySet(owner, leaseSeconds, TimeUnit.SECONDS)) {
+                    leasedWorkerId = workerId;
+                    SnowflakeIdGenerator.getInstance().updateWorkerId(workerId);
+                    log.info("获取 workerId 租约成功: {}", workerId);
+                    return;
+                }
+            }
+            log.error("没有空闲的 workerId，继续使用当前 workerId: {}", SnowflakeIdGenerator.getInstance().getCurrentWorkerId());
+        } catch (Exception e) {
+            log.warn("获取 workerId 租约失败，继续使用当前 workerId: {}", SnowflakeIdGenerator.getInstance().getCurrentWorkerId(), e);
+        }
+    }
+
+    private void renew() {
+        if (leasedWorkerId < 0) {
+            acquire();
+            return;
+        }
+        try {
+            Long renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                    RScript.ReturnType.INTEGER, List.<Object>of(WORKER_KEY_PREFIX + leasedWorkerId), owner, String.valueOf(leaseSeconds * 1000));
+            if (renewed == null || renewed == 0) {
+                log.warn("workerId 租约已丢失: {}，重新获取", leasedWorkerId);
+                acquire();
+            }
+        } catch (Exception e) {
+            // Redis 暂时不可用时保留当前 workerId，下个周期重试
+            log.warn("workerId 租约续期失败: {}", leasedWorkerId, e);
+        }
+    }
+}
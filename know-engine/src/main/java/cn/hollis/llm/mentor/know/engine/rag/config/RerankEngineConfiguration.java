@@ -0,0 +1,18 @@
+package cn.hollis.llm.mentor.know.engine.rag.config;
+
+import cn.hollis.llm.mentor.know.engine.rag.model.reranker.BgeScoringModel;
+import cn.hollis.llm.mentor.know.engine.rag.model.reranker.RerankEngine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RerankEngineProperties.class)
+public class RerankEngineConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public RerankEngine rerankEngine(RerankEngineProperties properties) {
+        // 模型文件路径延迟到首次打分时解析，模型文件缺失时只影响需要重排序的请求，不影响启动
+        return new RerankEngine(BgeScoringModel::modelPath, BgeScoringModel::tokenizerPath, properties);
+    }
+}
@@ -0,0 +1,128 @@
+package cn.hollis.llm.mentor.know.engine.rag.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 重排序引擎配置
+ */
+@ConfigurationProperties(prefix = RerankEngineProperties.PREFIX)
+public class RerankEngineProperties {
+    public static final String PREFIX = "reranker";
+
+    /**
+     * 单个 query/passage 对的最大 token 数，超出部分截断
+     */
+    private int maxLength = 8192;
+
+    /**
+     * 推理工作线程数，每个线程独立组批并调用 ONNX Runtime
+     */
+    private int workers = 2;
+
+    /**
+     * ONNX Runtime 单次推理的算子内并行线程数，workers * intraOpThreads 不宜超过 CPU 核数
+     */
+    private int intraOpThreads = 4;
+
+    /**
+     * 单批最多包含的 query/passage 对数
+     */
+    private int maxBatchPairs = 32;
+
+    /**
+     * 单批 padding 后的最大 token 数（条数 * 批内最长序列），限制长序列批次的内存占用
+     */
+    private int maxBatchTokens = 16384;
+
+    /**
+     * 组批最长等待时间（毫秒），等待其他请求的 pair 拼入同一批
+     */
+    private long maxWaitMillis = 2;
+
+    /**
+     * padding 使用的 token id，bge-reranker-v2-m3（XLM-RoBERTa）为 1
+     */
+    private long padTokenId = 1;
+
+    /**
+     * 是否对输出 logit 做 sigmoid 归一化
+     */
+    private boolean normalize = false;
+
+    /**
+     * 单次重排序的最长等待时间（毫秒）
+     */
+    private long timeoutMillis = 30000;
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getIntraOpThreads() {
+        return intraOpThreads;
+    }
+
+    public void setIntraOpThreads(int intraOpThreads) {
+        this.intraOpThreads = intraOpThreads;
+    }
+
+    public int getMaxBatchPairs() {
+        return maxBatchPairs;
+    }
+
+    public void setMaxBatchPairs(int maxBatchPairs) {
+        this.maxBatchPairs = maxBatchPairs;
+    }
+
+    public int getMaxBatchTokens() {
+        return maxBatchTokens;
+    }
+
+    public void setMaxBatchTokens(int maxBatchTokens) {
+        this.maxBatchTokens = maxBatchTokens;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public long getPadTokenId() {
+        return padTokenId;
+    }
+
+    public void setPadTokenId(long padTokenId) {
+        this.padTokenId = padTokenId;
+    }
+
+    public boolean isNormalize() {
+        return normalize;
+    }
+
+    public void setNormalize(boolean normalize) {
+        this.normalize = normalize;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+}
@@ -9,10 +9,9 @@ import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineElasticsearchContentRetriever;
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryRouter;
 import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryTransformer;
+import cn.hollis.llm.mentor.know.engine.rag.modules.LazyNeo4jContentRetriever;
 import cn.hollis.llm.mentor.know.engine.rag.modules.reranker.BgeScoringModel;
 import com.alibaba.fastjson2.JSON;
-import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jGraph;
-import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jText2CypherRetriever;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.experimental.rag.content.retriever.sql.SqlDatabaseContentRetriever;
@@ -96,7 +95,7 @@ public class RagModuleController {
 
     private SqlDatabaseContentRetriever sqlRetriever;
 
-    private Neo4jText2CypherRetriever neo4jRetriever;
+    private LazyNeo4jContentRetriever neo4jRetriever;
 
     private static final int MAX_RESULT = 5;
 
@@ -120,12 +119,7 @@ public class RagModuleController {
                 .chatModel(chatModel)
                 .build();
 
-        this.neo4jRetriever = Neo4jText2CypherRetriever.builder()
-                .graph(Neo4jGraph.builder()
-                        .driver(neo4jDriver)
-                        .build())
-                .chatModel(chatModel)
-                .build();
+        this.neo4jRetriever = new LazyNeo4jContentRetriever(neo4jDriver, chatModel);
     }
 
     @GetMapping("/router")
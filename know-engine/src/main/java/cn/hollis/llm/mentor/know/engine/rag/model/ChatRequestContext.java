@@ -0,0 +1,125 @@
+package cn.hollis.llm.mentor.know.engine.rag.model;
+
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheEntry;
+import cn.hollis.llm.mentor.know.engine.ai.constant.KnowEngineIntent;
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.rag.query.Metadata;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * RAG 单次请求上下文
+ * <p>
+ * RAG 管道中的改写器、路由器、检索器、聚合器均为启动时构建的单例，
+ * 请求级别的状态（进度回调、消息ID、意图）由本对象承载，
+ * 通过 {@link InvocationParameters} 随 {@link Query#metadata()} 在管道各环节之间传递。
+ */
+public class ChatRequestContext {
+
+    /**
+     * 在 InvocationParameters 中存放上下文的 key
+     */
+    public static final String PARAM_KEY = "knowEngineChatRequestContext";
+
+    /**
+     * 用户消息ID，用于回写问题改写结果
+     */
+    private final String userMessageId;
+
+    /**
+     * assistant 消息ID，用于回写 RAG 引用
+     */
+    private final String assistantMessageId;
+
+    /**
+     * 意图，用于选择对应的提示词模板
+     */
+    private final KnowEngineIntent intent;
+
+    /**
+     * 进度回调，用于流式返回前端进度信息
+     */
+    private final Consumer<String> progressCallback;
+
+    /**
+     * 语义缓存条目，用于复用相似问题的改写和路由结果，可为 null
+     */
+    private final SemanticCacheEntry semanticCacheEntry;
+
+    /**
+     * 已发送过的进度阶段，确保同一阶段的进度只发送一次
+     */
+    private final Set<String> sentStages = ConcurrentHashMap.newKeySet();
+
+    public ChatRequestContext(String userMessageId, String assistantMessageId, KnowEngineIntent intent, Consumer<String> progressCallback) {
+        this(userMessageId, assistantMessageId, intent, progressCallback, null);
+    }
+
+    public ChatRequestContext(String userMessageId, String assistantMessageId, KnowEngineIntent intent, Consumer<String> progressCallback,
+                              SemanticCacheEntry semanticCacheEntry) {
+        this.userMessageId = userMessageId;
+        this.assistantMessageId = assistantMessageId;
+        this.intent = intent;
+        this.progressCallback = progressCallback;
+        this.semanticCacheEntry = semanticCacheEntry;
+    }
+
+    /**
+     * 发送进度消息
+     */
+    public void progress(String message) {
+        if (progressCallback != null) {
+            progressCallback.accept(message);
+        }
+    }
+
+    /**
+     * 发送进度消息，同一阶段只发送一次（DefaultRetrievalAugmentor 可能对多个 query 多次调用同一组件）
+     *
+     * @param stage   阶段标识
+     * @param message 进度消息
+     */
+    public void progressOnce(String stage, String message) {
+        if (sentStages.add(stage)) {
+            progress(message);
+        }
+    }
+
+    public InvocationParameters toInvocationParameters() {
+        return InvocationParameters.from(Map.of(PARAM_KEY, this));
+    }
+
+    public static ChatRequestContext from(Query query) {
+        if (query == null || query.metadata() == null) {
+            return null;
+        }
+        return from(query.metadata());
+    }
+
+    public static ChatRequestContext from(Metadata metadata) {
+        if (metadata == null || metadata.invocationParameters() == null) {
+            return null;
+        }
+        return metadata.invocationParameters().get(PARAM_KEY);
+    }
+
+    public String getUserMessageId() {
+        return userMessageId;
+    }
+
+    public String getAssistantMessageId() {
+        return assistantMessageId;
+    }
+
+    public KnowEngineIntent getIntent() {
+        return intent;
+    }
+
+    public SemanticCacheEntry getSemanticCacheEntry() {
+        return semanticCacheEntry;
+    }
+}
@@ -76,6 +76,20 @@ public class BgeScoringModel {
         return instance;
     }
 
+    /**
+     * 模型文件的绝对路径，供 {@link RerankEngine} 直接创建 ONNX Runtime 会话
+     */
+    public static String modelPath() {
+        return resolveClasspathToFilePath(CLASSPATH_MODEL);
+    }
+
+    /**
+     * tokenizer.json 的绝对路径
+     */
+    public static String tokenizerPath() {
+        return resolveClasspathToFilePath(CLASSPATH_TOKENIZER);
+    }
+
     /**
      * 将 classpath 资源解析为文件绝对路径
      * <p>
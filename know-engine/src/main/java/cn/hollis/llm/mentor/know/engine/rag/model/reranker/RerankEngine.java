@@ -0,0 +1,323 @@
+package cn.hollis.llm.mentor.know.engine.rag.model.reranker;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import cn.hollis.llm.mentor.know.engine.rag.config.RerankEngineProperties;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 基于 ONNX Runtime 的 BGE-RERANKER 重排序引擎
+ * <p>
+ * 与直接使用 OnnxScoringModel 在请求线程上逐次推理相比：
+ * <ul>
+ *   <li>请求线程只负责分词，query/passage 对进入共享队列，由推理线程把多个对话请求的 pair 合并成一批推理</li>
+ *   <li>每批按实际 token 长度分桶，只 padding 到批内最长序列，短分段不会被补齐到 maxLength</li>
+ *   <li>推理线程数和 ONNX Runtime 算子内线程数均可配置，避免并发请求之间争抢 CPU</li>
+ * </ul>
+ * 模型和推理线程在第一次打分时才初始化，模型文件路径同样在此时才解析，模型文件缺失不影响应用启动。
+ */
+@Slf4j
+public class RerankEngine implements ScoringModel, AutoCloseable {
+
+    /**
+     * 序列长度分桶边界，同一批内的 pair 必须落在同一个桶
+     */
+    private static final int[] LENGTH_BUCKETS = {64, 128, 256, 512, 1024, 2048, 4096, 8192};
+
+    private final Supplier<String> modelPathSupplier;
+
+    private final Supplier<String> tokenizerPathSupplier;
+
+    private final RerankEngineProperties properties;
+
+    private final BlockingQueue<PendingPair> queue = new LinkedBlockingQueue<>();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean started;
+
+    private volatile boolean closed;
+
+    private OrtEnvironment environment;
+
+    private OrtSession session;
+
+    private HuggingFaceTokenizer tokenizer;
+
+    private boolean needsTokenTypeIds;
+
+    public RerankEngine(String modelPath, String tokenizerPath, RerankEngineProperties properties) {
+        this(() -> modelPath, () -> tokenizerPath, properties);
+    }
+
+    /**
+     * @param modelPathSupplier     模型文件路径，首次打分时才调用
+     * @param tokenizerPathSupplier tokenizer.json 路径，首次打分时才调用
+     * @param properties            引擎配置
+     */
+    public RerankEngine(Supplier<String> modelPathSupplier, Supplier<String> tokenizerPathSupplier, RerankEngineProperties properties) {
+        this.modelPathSupplier = modelPathSupplier;
+        this.tokenizerPathSupplier = tokenizerPathSupplier;
+        this.properties = properties;
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments == null || segments.isEmpty()) {
+            return Response.from(List.of());
+        }
+        ensureStarted();
+
+        // 分词在请求线程完成，全部 pair 一次性入队，便于推理线程整体组批
+        List<PendingPair> pairs = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            Encoding encoding = tokenizer.encode(query, segment.text());
+            pairs.add(new PendingPair(encoding.getIds(), encoding.getTypeIds(), encoding.getAttentionMask(), new CompletableFuture<>()));
+        }
+        queue.addAll(pairs);
+
+        CompletableFuture<?>[] futures = pairs.stream().map(PendingPair::score).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).get(properties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(pairs);
+            throw new RuntimeException("重排序被中断", e);
+        } catch (TimeoutException e) {
+            cancel(pairs);
+            throw new RuntimeException("重排序超时，候选数: " + pairs.size(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("重排序失败", e.getCause());
+        }
+
+        List<Double> scores = new ArrayList<>(pairs.size());
+        for (PendingPair pair : pairs) {
+            scores.add(pair.score().join());
+        }
+        return Response.from(scores);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<PendingPair> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        IllegalStateException closedException = new IllegalStateException("重排序引擎已关闭");
+        remaining.forEach(pair -> pair.score().completeExceptionally(closedException));
+
+        try {
+            if (session != null) {
+                session.close();
+            }
+        } catch (OrtException e) {
+            log.warn("关闭重排序模型失败", e);
+        }
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+
+    private void ensureStarted() {
+        if (started) {
+            return;
+        }
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            if (closed) {
+                throw new IllegalStateException("重排序引擎已关闭");
+            }
+            String modelPath = modelPathSupplier.get();
+            String tokenizerPath = tokenizerPathSupplier.get();
+            log.info("正在初始化重排序引擎，模型路径: {}，Tokenizer路径: {}", modelPath, tokenizerPath);
+            environment = OrtEnvironment.getEnvironment();
+            try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                options.setIntraOpNumThreads(properties.getIntraOpThreads());
+                options.setInterOpNumThreads(1);
+                options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+                session = environment.createSession(modelPath, options);
+                needsTokenTypeIds = session.getInputNames().contains("token_type_ids");
+                // 分词时不做 padding，padding 在组批时按批内最长序列进行
+                tokenizer = HuggingFaceTokenizer.newInstance(Paths.get(tokenizerPath), Map.of(
+                        "padding", "false",
+                        "truncation", "true",
+                        "maxLength", String.valueOf(properties.getMaxLength())));
+            } catch (OrtException | IOException e) {
+                throw new IllegalStateException("初始化重排序引擎失败", e);
+            }
+
+            ThreadFactory threadFactory = Thread.ofPlatform().name("rerank-worker-", 0).daemon().factory();
+            for (int i = 0; i < properties.getWorkers(); i++) {
+                Thread worker = threadFactory.newThread(this::workLoop);
+                workers.add(worker);
+                worker.start();
+            }
+            started = true;
+            log.info("重排序引擎初始化完成，推理线程数: {}，算子内线程数: {}", properties.getWorkers(), properties.getIntraOpThreads());
+        }
+    }
+
+    /**
+     * 推理线程主循环：取到第一个 pair 后，在 maxWaitMillis 内尽量凑满一批，再按长度分桶推理
+     */
+    private void workLoop() {
+        List<PendingPair> drained = new ArrayList<>();
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getMaxWaitMillis());
+        while (!closed) {
+            try {
+                drained.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (drained.size() < properties.getMaxBatchPairs()) {
+                    if (queue.drainTo(drained, properties.getMaxBatchPairs() - drained.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingPair next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    drained.add(next);
+                }
+                for (List<PendingPair> batch : bucketize(drained, properties.getMaxBatchPairs(), properties.getMaxBatchTokens())) {
+                    runBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                IllegalStateException closedException = new IllegalStateException("重排序引擎已关闭");
+                drained.forEach(pair -> pair.score().completeExceptionally(closedException));
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("重排序批次处理失败", e);
+                drained.forEach(pair -> pair.score().completeExceptionally(e));
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    /**
+     * 将待推理的 pair 按长度排序后切分成批次
+     * <p>
+     * 同一批内的 pair 落在同一个长度桶，且条数不超过 maxBatchPairs、padding 后的 token 数不超过 maxBatchTokens；
+     * 单个超过 maxBatchTokens 的 pair 单独成批。已取消或已完成的 pair 直接跳过。
+     */
+    static List<List<PendingPair>> bucketize(List<PendingPair> pairs, int maxBatchPairs, int maxBatchTokens) {
+        List<PendingPair> sorted = pairs.stream()
+                .filter(pair -> !pair.score().isDone())
+                .sorted(Comparator.comparingInt(PendingPair::length))
+                .toList();
+
+        List<List<PendingPair>> batches = new ArrayList<>();
+        List<PendingPair> current = new ArrayList<>();
+        int currentBucket = -1;
+        for (PendingPair pair : sorted) {
+            int bucket = bucketOf(pair.length());
+            // 按长度升序遍历，当前 pair 即为批内最长序列，padding 后的 token 数 = 条数 * 当前长度
+            if (!current.isEmpty() && (bucket != currentBucket
+                    || current.size() >= maxBatchPairs
+                    || (long) (current.size() + 1) * pair.length() > maxBatchTokens)) {
+                batches.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(pair);
+            currentBucket = bucket;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    static int bucketOf(int length) {
+        for (int i = 0; i < LENGTH_BUCKETS.length; i++) {
+            if (length <= LENGTH_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return LENGTH_BUCKETS.length;
+    }
+
+    private void runBatch(List<PendingPair> batch) {
+        int rows = batch.size();
+        int width = batch.get(rows - 1).length();
+        long[][] inputIds = new long[rows][width];
+        long[][] attentionMask = new long[rows][width];
+        long[][] tokenTypeIds = new long[rows][width];
+        for (int i = 0; i < rows; i++) {
+            PendingPair pair = batch.get(i);
+            int length = pair.length();
+            System.arraycopy(pair.ids(), 0, inputIds[i], 0, length);
+            Arrays.fill(inputIds[i], length, width, properties.getPadTokenId());
+            System.arraycopy(pair.attentionMask(), 0, attentionMask[i], 0, length);
+            System.arraycopy(pair.typeIds(), 0, tokenTypeIds[i], 0, length);
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            if (needsTokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                Object logits = result.get(0).getValue();
+                for (int i = 0; i < rows; i++) {
+                    double logit = logits instanceof float[][] matrix ? matrix[i][0] : ((float[]) logits)[i];
+                    batch.get(i).score().complete(properties.isNormalize() ? sigmoid(logit) : logit);
+                }
+            }
+            log.debug("重排序批次完成，条数: {}，序列长度: {}", rows, width);
+        } catch (Exception e) {
+            log.error("重排序推理失败，条数: {}，序列长度: {}", rows, width, e);
+            batch.forEach(pair -> pair.score().completeExceptionally(e));
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static void cancel(List<PendingPair> pairs) {
+        pairs.forEach(pair -> pair.score().cancel(false));
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    /**
+     * 已分词、等待推理的 query/passage 对
+     */
+    record PendingPair(long[] ids, long[] typeIds, long[] attentionMask, CompletableFuture<Double> score) {
+
+        int length() {
+            return ids.length;
+        }
+    }
+}
@@ -13,13 +13,17 @@ import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.elasticsearch.*;
 import dev.langchain4j.store.embedding.filter.Filter;
+import com.google.common.base.Stopwatch;
 import org.elasticsearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.BROTHER_CHUNK_ID;
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.BROTHER_CHUNK_TOTAL;
 import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.PARENT_CHUNK_ID;
 import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
 
@@ -40,6 +44,9 @@ import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metad
  *   <li>父分段：从 Redis 中读取父分段的完整文本，替换子分段以获得更完整的语义</li>
  * </ul>
  * <p>
+ * 兄弟分段和父分段均在首轮 KNN 之后统一批量获取：兄弟分段一次 terms 查询，父分段一次 Redis MGET（未命中再一次数据库 IN 查询），
+ * 各阶段耗时会打印到日志中。
+ * <p>
  *
  * @see ElasticsearchContentRetriever
  * @see ContentRetriever
@@ -47,6 +54,12 @@ import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metad
 public class KnowEngineElasticsearchContentRetriever extends AbstractElasticsearchEmbeddingStore implements ContentRetriever {
 
     private static final Logger log = LoggerFactory.getLogger(ElasticsearchContentRetriever.class);
+
+    /**
+     * 兄弟分段缺少 brotherChunkTotal 元数据时，每组预估的分段数量
+     */
+    private static final int DEFAULT_BROTHER_CHUNK_TOTAL = 10;
+
     private final EmbeddingModel embeddingModel;
     private final int maxResults;
     private final double minScore;
@@ -131,66 +144,100 @@ public class KnowEngineElasticsearchContentRetriever extends AbstractElasticsear
         }
 
         // 向量检索模式（默认）：执行 KNN 向量相似度搜索
+        Stopwatch stopwatch = Stopwatch.createStarted();
         List<Content> searchContents = mapResultsToContentList(this.search(request));
         // 去重并按文本内容排序
         searchContents = searchContents.stream().distinct().sorted(Comparator.comparing(content -> content.textSegment().text())).toList();
-        List<Content> finalContents = new ArrayList<>(searchContents);
+        long knnCost = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+        // 收集首轮 KNN 结果中全部的 brotherChunkId 和 parentChunkId，后续批量扩展
+        Set<String> brotherChunkIds = new LinkedHashSet<>();
+        Set<String> parentChunkIds = new LinkedHashSet<>();
+        int brotherMaxResults = 0;
+        for (Content content : searchContents) {
+            String brotherChunkId = content.textSegment().metadata().getString(BROTHER_CHUNK_ID);
+            if (brotherChunkId != null && brotherChunkIds.add(brotherChunkId)) {
+                Integer brotherChunkTotal = content.textSegment().metadata().getInteger(BROTHER_CHUNK_TOTAL);
+                brotherMaxResults += brotherChunkTotal != null ? brotherChunkTotal : DEFAULT_BROTHER_CHUNK_TOTAL;
+            }
+            String parentChunkId = content.textSegment().metadata().getString(PARENT_CHUNK_ID);
+            if (parentChunkId != null) {
+                parentChunkIds.add(parentChunkId);
+            }
+        }
+
+        // 兄弟分段扩展：一次 terms 查询取回全部兄弟分段，再按 brotherChunkId 分组
+        stopwatch.reset().start();
+        Map<String, List<Content>> brotherDocMap = fetchBrotherContents(brotherChunkIds, brotherMaxResults);
+        long brotherCost = stopwatch.elapsed(TimeUnit.MILLISECONDS);
 
-        // 兄弟分段缓存和父分段缓存，避免重复查询
-        Map<String, List<Content>> brotherDocMap = new HashMap<>();
-        Map<String, List<Content>> parentDocMap = new HashMap<>();
+        // 父分段扩展：一次 Redis MGET + 一次数据库 IN 查询取回全部父分段文本
+        stopwatch.reset().start();
+        Map<String, String> parentTextMap = parentChunkIds.isEmpty() || knowledgeSegmentService == null
+                ? Map.of()
+                : knowledgeSegmentService.getTextsByChunkIds(parentChunkIds);
+        long parentCost = stopwatch.elapsed(TimeUnit.MILLISECONDS);
 
-        Iterator<Content> iterator = searchContents.iterator();
+        List<Content> finalContents = new ArrayList<>(searchContents);
+        // 已经追加过的兄弟分段组和已经替换过的父分段，避免重复
+        Set<String> appendedBrotherIds = new HashSet<>();
+        Set<String> replacedParentIds = new HashSet<>();
 
-        for (; iterator.hasNext(); ) {
-            Content content = iterator.next();
-            // 兄弟分段扩展：检索具有相同 brotherChunkId 的其他兄弟分段
+        for (Content content : searchContents) {
+            // 兄弟分段扩展：追加具有相同 brotherChunkId 的其他兄弟分段
             String brotherChunkId = content.textSegment().metadata().getString(BROTHER_CHUNK_ID);
-            if (brotherChunkId != null) {
-                List<Content> cachedBrotherDocs = brotherDocMap.get(brotherChunkId);
-                if (cachedBrotherDocs != null) {
-                    // 命中缓存，直接使用已检索的兄弟分段
-                    finalContents.addAll(cachedBrotherDocs);
-                } else {
-                    // 未命中缓存，按 brotherChunkId 过滤检索兄弟分段
-                    Filter brotherFilter = metadataKey(BROTHER_CHUNK_ID).isEqualTo(brotherChunkId);
-                    request = EmbeddingSearchRequest.builder()
-                            .filter(brotherFilter)
-                            .build();
-                    List<Content> brotherDocs = mapResultsToContentList(this.search(request));
-                    brotherDocMap.put(brotherChunkId, brotherDocs);
-                    finalContents.addAll(brotherDocs);
-                }
+            if (brotherChunkId != null && appendedBrotherIds.add(brotherChunkId)) {
+                finalContents.addAll(brotherDocMap.getOrDefault(brotherChunkId, List.of()));
             }
 
             // 父分段替换：用父分段的完整文本替换子分段，获取更完整的语义
             String parentChunkId = content.textSegment().metadata().getString(PARENT_CHUNK_ID);
-            if (parentChunkId != null) {
-                List<Content> cachedParentDocs = parentDocMap.get(parentChunkId);
-                if (cachedParentDocs != null) {
-                    // 如果已经缓存中有过这个父分段了，说明已经用过了，这里就不用再加了，避免重复
+            if (parentChunkId != null && knowledgeSegmentService != null) {
+                if (replacedParentIds.contains(parentChunkId)) {
+                    // 如果这个父分段已经用过了，这里就不用再加了，避免重复
                     finalContents.remove(content);
-                } else if (knowledgeSegmentService != null) {
-                    // 读取 parentChunk 的文本内容
-                    String segmentText = knowledgeSegmentService.getTextByChunkId(parentChunkId);
-                    if (segmentText != null) {
-                        // 用父分段文本构造新的 Content，替换当前的子分段内容
-                        TextSegment parentSegment = TextSegment.from(segmentText, content.textSegment().metadata());
-                        Content parentContent = Content.from(parentSegment, content.metadata());
-                        List<Content> parentDocs = List.of(parentContent);
-                        parentDocMap.put(parentChunkId, parentDocs);
-                        finalContents.remove(content);
-                        finalContents.addAll(parentDocs);
-                    } else {
-                        log.warn("parentChunk not found in Redis, chunkId: {}", parentChunkId);
-                        finalContents.remove(content);
-                    }
+                    continue;
+                }
+                String segmentText = parentTextMap.get(parentChunkId);
+                finalContents.remove(content);
+                if (segmentText != null) {
+                    // 用父分段文本构造新的 Content，替换当前的子分段内容
+                    TextSegment parentSegment = TextSegment.from(segmentText, content.textSegment().metadata());
+                    finalContents.add(Content.from(parentSegment, content.metadata()));
+                    replacedParentIds.add(parentChunkId);
+                } else {
+                    log.warn("parentChunk not found, chunkId: {}", parentChunkId);
                 }
             }
         }
+
+        log.info("Retrieve finished, knn: {}ms ({} hits), brother: {}ms ({} groups), parent: {}ms ({} ids)",
+                knnCost, searchContents.size(), brotherCost, brotherChunkIds.size(), parentCost, parentChunkIds.size());
         return finalContents;
     }
 
+    /**
+     * 批量检索兄弟分段
+     * <p>
+     * 使用 brotherChunkId 的 terms 过滤一次性查询全部兄弟分段，替代逐个 brotherChunkId 的串行查询
+     *
+     * @param brotherChunkIds 兄弟分段ID集合
+     * @param maxResults      最大返回数量，按各组 brotherChunkTotal 之和估算
+     * @return brotherChunkId -> 兄弟分段列表
+     */
+    private Map<String, List<Content>> fetchBrotherContents(Collection<String> brotherChunkIds, int maxResults) {
+        if (brotherChunkIds.isEmpty()) {
+            return Map.of();
+        }
+        Filter brotherFilter = metadataKey(BROTHER_CHUNK_ID).isIn(brotherChunkIds);
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .filter(brotherFilter)
+                .maxResults(maxResults)
+                .build();
+        return mapResultsToContentList(this.search(request)).stream()
+                .collect(Collectors.groupingBy(content -> content.textSegment().metadata().getString(BROTHER_CHUNK_ID)));
+    }
+
     private List<Content> mapResultsToContentList(EmbeddingSearchResult<TextSegment> searchResult) {
         List<Content> result = searchResult.matches().stream()
                 .filter(f -> f.score() > minScore)
@@ -1,6 +1,8 @@
 package cn.hollis.llm.mentor.know.engine.rag.modules;
 
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheService;
 import cn.hollis.llm.mentor.know.engine.infra.json.JsonUtil;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
 import cn.hollis.llm.mentor.know.engine.rag.model.QueryRouteResult;
 import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.ProgressAwareContentRetriever;
 import com.alibaba.fastjson2.JSON;
@@ -10,16 +12,17 @@ import dev.langchain4j.experimental.rag.content.retriever.sql.SqlDatabaseContent
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.store.embedding.elasticsearch.AbstractElasticsearchEmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -45,6 +48,13 @@ import static dev.langchain4j.internal.Utils.getOrDefault;
  * </ol>
  * <p>
  * 当路由决策失败（JSON 解析异常或其他错误）时，返回空列表作为降级处理。
+ * <p>
+ * 作为单例复用时，进度通过查询元数据中的 {@link ChatRequestContext} 发送。
+ * <p>
+ * <b>推测检索：</b>开启后，在 LLM 路由决策的同时，在虚拟线程上提前启动开销较小的 Elasticsearch KNN 和全文检索。
+ * 路由结果为知识库时直接复用推测检索的结果（省去一次 LLM 往返的等待），否则取消推测检索。
+ * <p>
+ * <b>语义缓存：</b>传入 {@link SemanticCacheService} 时，相同或语义相近的问题直接复用缓存的路由决策，不再调用 LLM。
  *
  * @see QueryRouter
  * @see ContentRetriever
@@ -68,6 +78,22 @@ public class KnowEngineQueryRouter implements QueryRouter {
      */
     private final AtomicBoolean routeProgressSent = new AtomicBoolean(false);
 
+    /**
+     * 是否开启推测检索
+     */
+    private final boolean speculative;
+
+    /**
+     * 语义缓存，可为 null
+     */
+    private final SemanticCacheService semanticCacheService;
+
+    /**
+     * 推测检索线程池，每个任务一个虚拟线程
+     */
+    private static final ExecutorService SPECULATIVE_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("speculative-retrieval-", 0).factory());
+
     public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, ChatModel chatModel) {
         this(contentRetrievers, QUERY_ROUTE_PROMPT, chatModel, null);
     }
@@ -77,10 +103,36 @@ public class KnowEngineQueryRouter implements QueryRouter {
     }
 
     public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, PromptTemplate promptTemplate, ChatModel chatModel, Consumer<String> progressCallback) {
+        this(contentRetrievers, promptTemplate, chatModel, progressCallback, false);
+    }
+
+    /**
+     * @param speculative 是否开启推测检索，开启后在 LLM 路由决策的同时提前执行知识库检索
+     */
+    public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, ChatModel chatModel, boolean speculative) {
+        this(contentRetrievers, QUERY_ROUTE_PROMPT, chatModel, null, speculative);
+    }
+
+    /**
+     * @param speculative          是否开启推测检索
+     * @param semanticCacheService 语义缓存，用于复用相似问题的路由决策
+     */
+    public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, ChatModel chatModel, boolean speculative, SemanticCacheService semanticCacheService) {
+        this(contentRetrievers, QUERY_ROUTE_PROMPT, chatModel, null, speculative, semanticCacheService);
+    }
+
+    public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, PromptTemplate promptTemplate, ChatModel chatModel, Consumer<String> progressCallback, boolean speculative) {
+        this(contentRetrievers, promptTemplate, chatModel, progressCallback, speculative, null);
+    }
+
+    public KnowEngineQueryRouter(Collection<ContentRetriever> contentRetrievers, PromptTemplate promptTemplate, ChatModel chatModel, Consumer<String> progressCallback,
+                                 boolean speculative, SemanticCacheService semanticCacheService) {
         this.promptTemplate = getOrDefault(promptTemplate, QUERY_ROUTE_PROMPT);
         this.contentRetrievers = contentRetrievers;
         this.chatModel = chatModel;
         this.progressCallback = progressCallback;
+        this.speculative = speculative;
+        this.semanticCacheService = semanticCacheService;
     }
 
     private static final PromptTemplate QUERY_ROUTE_PROMPT = PromptTemplate.from("""
@@ -125,21 +177,42 @@ public class KnowEngineQueryRouter implements QueryRouter {
     @Override
     public Collection<ContentRetriever> route(Query query) {
         // 发送进度：开始问题路由（仅发送一次，避免多个 query 导致重复）
-        if (progressCallback != null && routeProgressSent.compareAndSet(false, true)) {
+        ChatRequestContext context = ChatRequestContext.from(query);
+        if (context != null) {
+            context.progressOnce("route", "[PROGRESS]:正在路由您的问题...");
+        } else if (progressCallback != null && routeProgressSent.compareAndSet(false, true)) {
             progressCallback.accept("[PROGRESS]:正在路由您的问题...");
-            System.out.println("[PROGRESS]:正在路由您的问题...");
         }
 
-        String response = chatModel.chat(createPrompt(query).text());
+        // 相同或语义相近的问题直接复用缓存的路由决策
+        QueryRouteResult cachedRouteResult = semanticCacheService != null && context != null
+                ? semanticCacheService.getQueryRouteResult(context.getSemanticCacheEntry())
+                : null;
+
+        // 推测执行：在 LLM 路由决策的同时提前启动知识库检索，决策为知识库时直接复用结果
+        Map<ContentRetriever, Future<List<Content>>> speculations = speculative && cachedRouteResult == null ? startSpeculativeRetrieval(query) : Map.of();
+
+        String response = null;
+        if (cachedRouteResult == null) {
+            try {
+                response = chatModel.chat(createPrompt(query).text());
+            } catch (RuntimeException e) {
+                speculations.values().forEach(future -> future.cancel(true));
+                throw e;
+            }
+        }
 
+        Collection<ContentRetriever> routedRetrievers = List.of();
         try {
-            QueryRouteResult queryRouteResult = JSON.parseObject(JsonUtil.fixJson(response), QueryRouteResult.class);
+            QueryRouteResult queryRouteResult = cachedRouteResult != null
+                    ? cachedRouteResult
+                    : JSON.parseObject(JsonUtil.fixJson(response), QueryRouteResult.class);
             String strategy = queryRouteResult.strategy();
-            log.info("Route Success , query: {} , strategy: {}", query, strategy);
+            log.info("Route Success , query: {} , strategy: {} , cached: {}", query, strategy, cachedRouteResult != null);
 
             switch (strategy) {
                 case "relational_db":
-                    return contentRetrievers.stream().filter(retriever ->
+                    routedRetrievers = contentRetrievers.stream().filter(retriever ->
                     {
                         if (retriever instanceof ProgressAwareContentRetriever) {
                             return ((ProgressAwareContentRetriever) retriever).getDelegate() instanceof SqlDatabaseContentRetriever;
@@ -148,24 +221,19 @@ public class KnowEngineQueryRouter implements QueryRouter {
                         return retriever instanceof SqlDatabaseContentRetriever;
 
                     }).collect(Collectors.toList());
+                    break;
                 case "graph_db":
-                    return contentRetrievers.stream().filter(retriever ->
-                    {
-                        if (retriever instanceof ProgressAwareContentRetriever) {
-                            return ((ProgressAwareContentRetriever) retriever).getDelegate() instanceof Neo4jText2CypherRetriever;
-                        }
-                        return retriever instanceof Neo4jText2CypherRetriever;
-
-                    }).collect(Collectors.toList());
+                    routedRetrievers = contentRetrievers.stream().filter(KnowEngineQueryRouter::isGraphRetriever).collect(Collectors.toList());
+                    break;
                 case "knowledge_base":
-                    return contentRetrievers.stream().filter(retriever -> {
-                        if (retriever instanceof ProgressAwareContentRetriever) {
-                            return ((ProgressAwareContentRetriever) retriever).getDelegate() instanceof AbstractElasticsearchEmbeddingStore;
-                        }
-                        return retriever instanceof AbstractElasticsearchEmbeddingStore;
-                    }).collect(Collectors.toList());
+                    routedRetrievers = contentRetrievers.stream().filter(KnowEngineQueryRouter::isKnowledgeBaseRetriever).collect(Collectors.toList());
+                    break;
                 default:
-                    return contentRetrievers;
+                    routedRetrievers = contentRetrievers;
+            }
+
+            if (cachedRouteResult == null && semanticCacheService != null && context != null) {
+                semanticCacheService.putQueryRouteResult(context.getSemanticCacheEntry(), queryRouteResult);
             }
 
         } catch (JSONException jsonException) {
@@ -177,7 +245,57 @@ public class KnowEngineQueryRouter implements QueryRouter {
             log.info("Route Failed , jsonException: {}", e);
             // fixme
         }
-        return List.of();
+        return applySpeculations(routedRetrievers, speculations);
+    }
+
+    /**
+     * 为知识库检索器（Elasticsearch KNN / 全文检索）启动推测检索，运行在虚拟线程上
+     * <p>
+     * 这里直接调用被包装的原始检索器，进度通知延迟到结果被采纳时再发送
+     */
+    private Map<ContentRetriever, Future<List<Content>>> startSpeculativeRetrieval(Query query) {
+        Map<ContentRetriever, Future<List<Content>>> speculations = new HashMap<>();
+        for (ContentRetriever retriever : contentRetrievers) {
+            if (isKnowledgeBaseRetriever(retriever)) {
+                ContentRetriever target = retriever instanceof ProgressAwareContentRetriever progressAwareRetriever
+                        ? progressAwareRetriever.getDelegate()
+                        : retriever;
+                speculations.put(retriever, SPECULATIVE_EXECUTOR.submit(() -> target.retrieve(query)));
+            }
+        }
+        return speculations;
+    }
+
+    /**
+     * 用推测检索结果替换路由命中的知识库检索器，未被采纳的推测检索全部取消
+     */
+    private Collection<ContentRetriever> applySpeculations(Collection<ContentRetriever> routedRetrievers,
+                                                           Map<ContentRetriever, Future<List<Content>>> speculations) {
+        if (speculations.isEmpty()) {
+            return routedRetrievers;
+        }
+        List<ContentRetriever> result = new ArrayList<>(routedRetrievers.size());
+        Map<ContentRetriever, Future<List<Content>>> unused = new HashMap<>(speculations);
+        for (ContentRetriever retriever : routedRetrievers) {
+            Future<List<Content>> future = unused.remove(retriever);
+            result.add(future == null ? retriever : new SpeculativeContentRetriever(retriever, future));
+        }
+        unused.values().forEach(future -> future.cancel(true));
+        return result;
+    }
+
+    private static boolean isGraphRetriever(ContentRetriever retriever) {
+        ContentRetriever target = retriever instanceof ProgressAwareContentRetriever progressAwareRetriever
+                ? progressAwareRetriever.getDelegate()
+                : retriever;
+        return target instanceof Neo4jText2CypherRetriever || target instanceof LazyNeo4jContentRetriever;
+    }
+
+    private static boolean isKnowledgeBaseRetriever(ContentRetriever retriever) {
+        if (retriever instanceof ProgressAwareContentRetriever) {
+            return ((ProgressAwareContentRetriever) retriever).getDelegate() instanceof AbstractElasticsearchEmbeddingStore;
+        }
+        return retriever instanceof AbstractElasticsearchEmbeddingStore;
     }
 
     protected Prompt createPrompt(Query query) {
@@ -1,6 +1,8 @@
 package cn.hollis.llm.mentor.know.engine.rag.modules;
 
+import cn.hollis.llm.mentor.know.engine.ai.cache.SemanticCacheService;
 import cn.hollis.llm.mentor.know.engine.chat.service.ChatMessageService;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
@@ -32,13 +34,16 @@ import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
  * <b>处理流程：</b>
  * <ol>
  *   <li>发送进度事件通知前端"正在优化您的问题"</li>
- *   <li>使用 LLM 根据 Prompt 模板改写用户查询</li>
+ *   <li>使用 LLM 根据 Prompt 模板改写用户查询（相同或语义相近的问题复用语义缓存中的改写结果）</li>
  *   <li>构造增强查询（添加用户ID、当前时间等上下文）</li>
  *   <li>异步回写改写结果到数据库</li>
  *   <li>返回改写后的查询和原始查询</li>
  * </ol>
  * <p>
  * <b>注意：</b>返回的集合包含两个查询 - 改写后的查询（用于语义检索）和原始查询（用于精确匹配）
+ * <p>
+ * 作为单例复用时，进度回调和消息ID从查询元数据中的 {@link ChatRequestContext} 获取，
+ * 构造时传入的 chatMessageId 和 progressCallback 仅在没有请求上下文时生效。
  *
  * @see QueryTransformer
  */
@@ -83,6 +88,18 @@ public class KnowEngineQueryTransformer implements QueryTransformer {
         }
     }
 
+    private SemanticCacheService getSemanticCacheService() {
+        if (applicationContext == null) {
+            return null;
+        }
+        try {
+            return applicationContext.getBean(SemanticCacheService.class);
+        } catch (Exception e) {
+            log.warn("获取 SemanticCacheService 失败", e);
+            return null;
+        }
+    }
+
     private static final PromptTemplate LG_AGENT_PROMPT = PromptTemplate.from("""
             你是一个汽车智能客服助手，你的职责范围是汽车相关的咨询场景，包括购车咨询、车型信息、保养维修、保险年检、售后服务等。你需要对用户的问题进行改写，使得改写后的问题在查询向量数据库/关系型数据库/图数据库时有更好的结果，并删除任何无关信息，确保查询简洁明了、具体明确。下面有一些改写的策略。
             
@@ -137,15 +154,30 @@ public class KnowEngineQueryTransformer implements QueryTransformer {
 
     @Override
     public Collection<Query> transform(Query query) {
+        ChatRequestContext context = ChatRequestContext.from(query);
+        String chatMessageId = context != null ? context.getUserMessageId() : this.chatMessageId;
+
         // 发送进度：开始问题改写
-        if (progressCallback != null) {
+        if (context != null) {
+            context.progress("[PROGRESS]:正在优化您的问题...");
+        } else if (progressCallback != null) {
             progressCallback.accept("[PROGRESS]:正在优化您的问题...");
-            System.out.println("[PROGRESS]:正在优化您的问题...");
         }
 
-        log.info("开始问题改写, 原始问题: {}", query.text());
-        String response = chatModel.chat(createPrompt(query).text());
-        log.info("问题改写完成, 改写结果: {}", response);
+        // 相同或语义相近的问题直接复用缓存的改写结果
+        SemanticCacheService semanticCacheService = context != null && context.getSemanticCacheEntry() != null ? getSemanticCacheService() : null;
+        String response = semanticCacheService != null ? semanticCacheService.getRewrittenQuery(context.getSemanticCacheEntry()) : null;
+        if (response != null) {
+            log.info("问题改写命中语义缓存, 原始问题: {}, 改写结果: {}", query.text(), response);
+        } else {
+            log.info("开始问题改写, 原始问题: {}", query.text());
+            response = chatModel.chat(createPrompt(query).text());
+            log.info("问题改写完成, 改写结果: {}", response);
+            if (semanticCacheService != null) {
+                semanticCacheService.putRewrittenQuery(context.getSemanticCacheEntry(), response);
+            }
+        }
+        String rewrittenQuery = response;
 
         String newQuery = "我的问题是：" + response + ", 我的用户Id是: 123321" + ", 现在是：" + LocalDateTime.now();
 
@@ -154,18 +186,12 @@ public class KnowEngineQueryTransformer implements QueryTransformer {
                 : Query.from(newQuery, query.metadata());
         log.info("Compressed Success, source query: {}, compressed query: {}", query.text(), compressedQuery.text());
 
-        // 异步回写改写结果到 chat_message
+        // 回写改写结果到 chat_message，只记入写后缓冲，随本轮对话的其他字段一起写入
         if (chatMessageId != null) {
             ChatMessageService chatMessageService = getChatMessageService();
             if (chatMessageService != null) {
-                Thread.ofVirtual().name("query-transform-" + chatMessageId).start(() -> {
-                    try {
-                        chatMessageService.updateTransformContent(chatMessageId, newQuery);
-                        log.info("改写结果已回写: assistantMsgId={}, transformContent={}", chatMessageId, response);
-                    } catch (Exception e) {
-                        log.warn("改写结果回写失败: assistantMsgId={}", chatMessageId, e);
-                    }
-                });
+                chatMessageService.updateTransformContent(chatMessageId, newQuery);
+                log.info("改写结果已记录: assistantMsgId={}, transformContent={}", chatMessageId, rewrittenQuery);
             }
         }
 
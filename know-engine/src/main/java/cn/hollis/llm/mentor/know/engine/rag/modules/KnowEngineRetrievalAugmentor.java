@@ -0,0 +1,59 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules;
+
+import cn.hollis.llm.mentor.know.engine.ai.constant.KnowEngineIntent;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
+import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.rag.AugmentationRequest;
+import dev.langchain4j.rag.AugmentationResult;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.RetrievalAugmentor;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.injector.DefaultContentInjector;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import dev.langchain4j.rag.query.transformer.QueryTransformer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 按意图分发的检索增强器
+ * <p>
+ * 不同意图使用不同的提示词模板，而 {@link dev.langchain4j.rag.content.injector.ContentInjector} 拿不到请求上下文，
+ * 因此启动时为每种意图各构建一个 {@link DefaultRetrievalAugmentor}，它们共享同一组改写器、路由器和聚合器，
+ * 仅内容注入器不同。每次请求根据 {@link ChatRequestContext} 中的意图选择对应的增强器，
+ * 没有上下文时使用 {@link KnowEngineIntent#CAR_OTHER_QUERY}。
+ */
+public class KnowEngineRetrievalAugmentor implements RetrievalAugmentor {
+
+    private final Map<KnowEngineIntent, RetrievalAugmentor> intentAugmentors = new EnumMap<>(KnowEngineIntent.class);
+
+    /**
+     * @param queryTransformer  查询改写器（单例）
+     * @param queryRouter       查询路由器（单例）
+     * @param contentAggregator 内容聚合器（单例）
+     * @param promptProvider    意图 -> 提示词模板内容
+     */
+    public KnowEngineRetrievalAugmentor(QueryTransformer queryTransformer,
+                                        QueryRouter queryRouter,
+                                        ContentAggregator contentAggregator,
+                                        Function<KnowEngineIntent, String> promptProvider) {
+        for (KnowEngineIntent intent : KnowEngineIntent.values()) {
+            intentAugmentors.put(intent, DefaultRetrievalAugmentor.builder()
+                    .queryTransformer(queryTransformer)
+                    .queryRouter(queryRouter)
+                    .contentAggregator(contentAggregator)
+                    .contentInjector(new DefaultContentInjector(PromptTemplate.from(promptProvider.apply(intent))))
+                    .build());
+        }
+    }
+
+    @Override
+    public AugmentationResult augment(AugmentationRequest augmentationRequest) {
+        ChatRequestContext context = ChatRequestContext.from(augmentationRequest.metadata());
+        KnowEngineIntent intent = context == null || context.getIntent() == null
+                ? KnowEngineIntent.CAR_OTHER_QUERY
+                : context.getIntent();
+        return intentAugmentors.get(intent).augment(augmentationRequest);
+    }
+}
@@ -0,0 +1,68 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules;
+
+import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jGraph;
+import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jText2CypherRetriever;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+
+import java.util.List;
+
+/**
+ * 延迟构建的图数据库检索器
+ * <p>
+ * {@link Neo4jGraph} 构建时会立即拉取 Neo4j schema，在启动阶段构建会让 Neo4j 不可用时整个应用启动失败。
+ * 这里推迟到首次检索时再构建 {@link Neo4jText2CypherRetriever}；构建失败只记录日志并返回空结果，
+ * 下一次检索会重新尝试，Neo4j 恢复后无需重启即可使用图数据库检索。
+ *
+ * @see KnowEngineQueryRouter
+ */
+@Slf4j
+public class LazyNeo4jContentRetriever implements ContentRetriever {
+
+    private final Driver driver;
+
+    private final ChatModel chatModel;
+
+    private volatile Neo4jText2CypherRetriever delegate;
+
+    public LazyNeo4jContentRetriever(Driver driver, ChatModel chatModel) {
+        this.driver = driver;
+        this.chatModel = chatModel;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        Neo4jText2CypherRetriever retriever = getOrCreate();
+        if (retriever == null) {
+            return List.of();
+        }
+        return retriever.retrieve(query);
+    }
+
+    private Neo4jText2CypherRetriever getOrCreate() {
+        Neo4jText2CypherRetriever retriever = delegate;
+        if (retriever != null) {
+            return retriever;
+        }
+        synchronized (this) {
+            if (delegate == null) {
+                try {
+                    delegate = Neo4jText2CypherRetriever.builder()
+                            .graph(Neo4jGraph.builder()
+                                    .driver(driver)
+                                    .build())
+                            .chatModel(chatModel)
+                            .build();
+                    log.info("Neo4j 检索器构建完成");
+                } catch (Exception e) {
+                    log.warn("Neo4j 检索器构建失败，本次跳过图数据库检索，下次检索时重试", e);
+                }
+            }
+            return delegate;
+        }
+    }
+}
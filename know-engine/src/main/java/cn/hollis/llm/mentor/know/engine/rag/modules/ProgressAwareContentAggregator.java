@@ -2,6 +2,7 @@ package cn.hollis.llm.mentor.know.engine.rag.modules;
 
 import cn.hollis.llm.mentor.know.engine.chat.entity.ChatMessage;
 import cn.hollis.llm.mentor.know.engine.chat.service.ChatMessageService;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
 import com.alibaba.fastjson2.JSON;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.aggregator.ContentAggregator;
@@ -29,6 +30,8 @@ import static dev.langchain4j.rag.content.ContentMetadata.RERANKED_SCORE;
  *   <li>聚合前：{@code [PROGRESS]:正在排序筛选结果...}</li>
  *   <li>聚合后：{@code [PROGRESS]:正在生成回答...}（聚合完成后即将进入LLM生成阶段）</li>
  * </ol>
+ * <p>
+ * 查询元数据中携带 {@link ChatRequestContext} 时，进度回调和 assistant 消息ID均从上下文获取，此时本聚合器可作为单例复用。
  *
  * @see ContentAggregator
  */
@@ -41,6 +44,10 @@ public class ProgressAwareContentAggregator implements ContentAggregator {
     private final ChatMessageService chatMessageService;
 
 
+    public ProgressAwareContentAggregator(ContentAggregator delegate, ChatMessageService chatMessageService) {
+        this(delegate, null, null, chatMessageService);
+    }
+
     public ProgressAwareContentAggregator(ContentAggregator delegate, Consumer<String> progressCallback, String chatMessageId, ChatMessageService chatMessageService) {
         this.chatMessageService = chatMessageService;
         this.delegate = delegate;
@@ -50,10 +57,13 @@ public class ProgressAwareContentAggregator implements ContentAggregator {
 
     @Override
     public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        ChatRequestContext context = queryToContents.isEmpty() ? null : ChatRequestContext.from(queryToContents.keySet().iterator().next());
+        Consumer<String> progressCallback = context != null ? context::progress : this.progressCallback;
+        String chatMessageId = context != null ? context.getAssistantMessageId() : this.chatMessageId;
+
         // 发送进度：开始重排序/聚合
         if (progressCallback != null) {
             progressCallback.accept("[PROGRESS]:正在排序筛选结果...");
-            System.out.println("[PROGRESS]:正在排序筛选结果...");
         }
 
         List<Content> results = delegate.aggregate(queryToContents);
@@ -81,7 +91,6 @@ public class ProgressAwareContentAggregator implements ContentAggregator {
 
             if (progressCallback != null) {
                 progressCallback.accept("[REFERENCE]:" + JSON.toJSONString(ragReferences));
-                System.out.println("[REFERENCE]:" + JSON.toJSONString(ragReferences));
             }
         } catch (Exception e) {
             log.warn("RAG引用信息回写失败: assistantMsgId={}", chatMessageId, e);
@@ -91,7 +100,6 @@ public class ProgressAwareContentAggregator implements ContentAggregator {
         // 发送进度：聚合完成，即将进入LLM生成
         if (progressCallback != null) {
             progressCallback.accept("[PROGRESS]:正在生成回答...");
-            System.out.println("[PROGRESS]:正在生成回答...");
         }
 
         return results;
@@ -0,0 +1,58 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules;
+
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.ProgressAwareContentRetriever;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 推测检索结果检索器
+ * <p>
+ * 由 {@link KnowEngineQueryRouter} 在采纳推测检索结果时创建，检索时直接等待已经提前启动的检索任务，
+ * 推测检索失败时回退为同步调用原检索器。
+ *
+ * @see KnowEngineQueryRouter
+ */
+@Slf4j
+public class SpeculativeContentRetriever implements ContentRetriever {
+
+    /**
+     * 原检索器
+     */
+    private final ContentRetriever retriever;
+
+    /**
+     * 提前启动的检索任务
+     */
+    private final Future<List<Content>> speculation;
+
+    public SpeculativeContentRetriever(ContentRetriever retriever, Future<List<Content>> speculation) {
+        this.retriever = retriever;
+        this.speculation = speculation;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        if (retriever instanceof ProgressAwareContentRetriever progressAwareRetriever) {
+            progressAwareRetriever.notifyProgress(query);
+        }
+        try {
+            return speculation.get();
+        } catch (InterruptedException e) {
+            speculation.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("推测检索被中断", e);
+        } catch (ExecutionException e) {
+            log.warn("推测检索失败，回退为同步检索, query: {}", query.text(), e.getCause());
+            ContentRetriever target = retriever instanceof ProgressAwareContentRetriever progressAwareRetriever
+                    ? progressAwareRetriever.getDelegate()
+                    : retriever;
+            return target.retrieve(query);
+        }
+    }
+}
@@ -34,4 +34,17 @@ public class DocumentSplitterFactory {
 
         return null;
     }
+
+    /**
+     * 获取流式分割器，按标题切分（TITLE、SMART）的 Markdown 分割器支持逐行流式处理，其余类型返回 null
+     */
+    public static StreamingDocumentSplitter getStreamingInstance(DocumentSplitParam documentSplitParam) {
+        if (SplitType.TITLE.name().equals(documentSplitParam.splitType()) || SplitType.SMART.name().equals(documentSplitParam.splitType())) {
+            DocumentSplitter splitter = getInstance(documentSplitParam);
+            if (splitter instanceof StreamingDocumentSplitter streamingDocumentSplitter) {
+                return streamingDocumentSplitter;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,429 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
+
+import cn.hollis.llm.mentor.know.engine.infra.snowflake.BufferedIdGenerator;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.*;
+
+/**
+ * Markdown 标题切分引擎，{@link MarkdownHeaderParentTextSplitter} 和 {@link MarkdownHeaderBrotherTextSplitter} 共用
+ * <p>
+ * 单遍扫描，整体 O(n)：
+ * <ul>
+ *   <li>逐行读取，不对整个文档做 {@code split}，每遇到一个新标题输出上一段内容</li>
+ *   <li>聚合模式下只保留上一个分块，用 {@link StringBuilder} 追加内容，并记录最后一行是否为标题，无需重新切分已聚合的内容</li>
+ *   <li>父子分段模式下用标题栈（单调栈）维护每个级别最近的分块，父分块 O(1) 均摊获得，无需向前扫描</li>
+ * </ul>
+ * 两种分割器只在超出 chunkSize 时的处理方式不同，见 {@link OversizeStrategy}。
+ */
+public class MarkdownHeaderSplitEngine {
+
+    /**
+     * 超出 chunkSize 的分片的处理方式
+     */
+    public enum OversizeStrategy {
+        /**
+         * 保留完整分片（标记为跳过embedding）作为父分片，拆分后的分片通过 parentChunkId 指向它
+         */
+        PARENT,
+        /**
+         * 拆分后的同组分片共享同一个 brotherChunkId，并记录组内序号和总数
+         */
+        BROTHER
+    }
+
+    /**
+     * 每次预取的分段ID数量
+     */
+    private static final int ID_BLOCK_SIZE = 64;
+
+    /**
+     * 需要分割的标题列表，按标题标记长度倒序排列
+     */
+    private final List<HeaderType> headersToSplitOn;
+
+    /**
+     * 是否按行返回结果
+     */
+    private final boolean returnEachLine;
+
+    /**
+     * 是否剥离标题行本身
+     */
+    private final boolean stripHeaders;
+
+    /**
+     * 是否启用父子分段模式（仅聚合模式下生效）
+     */
+    private final boolean parentChildModel;
+
+    /**
+     * 每个分片的最大字符数，0表示不限制
+     */
+    private final int chunkSize;
+
+    /**
+     * 相邻分片之间的重叠字符数
+     */
+    private final int overlap;
+
+    private final OversizeStrategy oversizeStrategy;
+
+    /**
+     * @param headersToSplitOn 标题分割映射表，key为标题标记（如"#"、"##"），value为元数据中的键名
+     * @param returnEachLine   是否按行返回结果，false时会聚合相同元数据的行
+     * @param stripHeaders     是否在结果中移除标题行
+     * @param parentChildModel 是否启用父子分段模式，启用后聚合模式下会在元数据中添加parentChunkId
+     * @param chunkSize        每个分片的最大字符数，超出则按chunkSize再次切割，0表示不限制
+     * @param overlap          相邻分片之间的重叠字符数
+     * @param oversizeStrategy 超出 chunkSize 的分片的处理方式
+     */
+    public MarkdownHeaderSplitEngine(Map<String, String> headersToSplitOn, boolean returnEachLine, boolean stripHeaders,
+                                     boolean parentChildModel, int chunkSize, int overlap, OversizeStrategy oversizeStrategy) {
+        // 按标题标记长度倒序排列，确保优先匹配更长的标记（如"###"优先于"##"）
+        this.headersToSplitOn = headersToSplitOn.entrySet().stream()
+                .sorted(Comparator.comparingInt(e -> -e.getKey().length()))
+                .map(e -> new HeaderType(e.getKey(), e.getValue(), (int) e.getKey().chars().filter(ch -> ch == '#').count()))
+                .toList();
+        this.returnEachLine = returnEachLine;
+        this.stripHeaders = stripHeaders;
+        this.parentChildModel = parentChildModel;
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        this.oversizeStrategy = oversizeStrategy;
+    }
+
+    /**
+     * 切分文本
+     *
+     * @param text         待分割的文本
+     * @param baseMetadata 基础元数据，会被传递到每个分段中
+     * @param consumer     分段消费者
+     */
+    public void split(String text, Map<String, Object> baseMetadata, Consumer<TextSegment> consumer) {
+        split(lines(text), baseMetadata, consumer);
+    }
+
+    /**
+     * 逐行切分
+     *
+     * @param lines        待分割的文本行
+     * @param baseMetadata 基础元数据，会被传递到每个分段中
+     * @param consumer     分段消费者，每产生一个分段调用一次
+     */
+    public void split(Iterator<String> lines, Map<String, Object> baseMetadata, Consumer<TextSegment> consumer) {
+        // 一次切分内按块预取分段ID，避免每个分段都竞争全局ID生成器
+        BufferedIdGenerator ids = new BufferedIdGenerator(ID_BLOCK_SIZE);
+        Consumer<Chunk> chunkConsumer = chunkSize > 0
+                ? chunk -> splitByChunkSize(chunk, consumer, ids)
+                : chunk -> consumer.accept(chunk.toTextSegment());
+        ChunkAggregator aggregator = new ChunkAggregator(chunkConsumer);
+
+        List<String> currentContent = new ArrayList<>();
+        Map<String, Object> initialMetadata = new HashMap<>(baseMetadata);
+        // 当前段落的标题元数据，只在遇到标题后更新
+        Map<String, Object> currentMetadata = new HashMap<>(baseMetadata);
+        Deque<Header> headerStack = new ArrayDeque<>();  // 标题栈，用于追踪当前的标题层级结构
+
+        boolean inCodeBlock = false;  // 是否在代码块中
+        String openingFence = "";     // 代码块的开始标记
+
+        while (lines.hasNext()) {
+            String strippedLine = lines.next().trim();
+            // 跳过文档中所有空行
+            if (strippedLine.isEmpty()) {
+                continue;
+            }
+
+            // 处理代码块标记，代码块内的内容不作为标题处理
+            if (!inCodeBlock) {
+                if (strippedLine.startsWith("```")) {
+                    inCodeBlock = true;
+                    openingFence = "```";
+                } else if (strippedLine.startsWith("~~~")) {
+                    inCodeBlock = true;
+                    openingFence = "~~~";
+                }
+            } else if (strippedLine.startsWith(openingFence)) {
+                inCodeBlock = false;
+                openingFence = "";
+            }
+
+            // 代码块内的内容直接添加，不做标题检测
+            if (inCodeBlock) {
+                currentContent.add(strippedLine);
+                continue;
+            }
+
+            HeaderType headerType = matchHeader(strippedLine);
+            if (headerType == null) {
+                currentContent.add(strippedLine);
+                continue;
+            }
+
+            if (headerType.name() != null) {
+                // 维护标题栈：移除所有级别大于等于当前级别的标题，如从### 回退到 ##
+                while (!headerStack.isEmpty() && headerStack.peek().level() >= headerType.level()) {
+                    initialMetadata.remove(headerStack.pop().name());
+                }
+
+                // 将当前标题加入栈，并更新元数据
+                Header header = new Header(headerType.level(), headerType.name(), strippedLine.substring(headerType.sep().length()).trim());
+                headerStack.push(header);
+                initialMetadata.put(header.name(), header.data());
+                initialMetadata.put(HEADER_LEVEL, header.level());
+                // 为每个分段生成唯一ID，用于后续建立父子关系
+                initialMetadata.put(CHUNK_ID, ids.nextIdStr());
+            }
+
+            // 遇到新标题时，输出之前累积的内容
+            if (!currentContent.isEmpty()) {
+                aggregator.add(currentContent, currentMetadata);
+                currentContent.clear();
+            }
+
+            // 根据stripHeaders配置决定是否保留标题行
+            if (!stripHeaders) {
+                currentContent.add(strippedLine);
+            }
+
+            // 更新当前元数据为最新的标题信息
+            currentMetadata = new HashMap<>(initialMetadata);
+        }
+
+        // 处理最后累积的内容
+        if (!currentContent.isEmpty()) {
+            aggregator.add(currentContent, currentMetadata);
+        }
+        aggregator.flush();
+    }
+
+    private HeaderType matchHeader(String strippedLine) {
+        for (HeaderType headerType : headersToSplitOn) {
+            String sep = headerType.sep();
+            if (strippedLine.startsWith(sep) && (strippedLine.length() == sep.length() || strippedLine.charAt(sep.length()) == ' ')) {
+                return headerType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 分块聚合器
+     * <p>
+     * 逐行模式下每段直接输出；聚合模式下将具有相同元数据的段合并为一个分块，只保留上一个分块，
+     * 遇到不能合并的新段时输出上一个分块。
+     */
+    private class ChunkAggregator {
+
+        private final Consumer<Chunk> consumer;
+
+        /**
+         * 聚合模式下尚未输出的上一个分块
+         */
+        private Chunk last;
+
+        /**
+         * 父子分段模式下已输出分块的标题栈，栈内标题级别严格递增，栈顶即为最近的分块
+         */
+        private final Deque<ParentCandidate> parentStack = new ArrayDeque<>();
+
+        private ChunkAggregator(Consumer<Chunk> consumer) {
+            this.consumer = consumer;
+        }
+
+        private void add(List<String> lines, Map<String, Object> metadata) {
+            Chunk chunk = new Chunk(String.join("\n", lines), new HashMap<>(metadata), lines.getLast().startsWith("#"));
+            if (returnEachLine) {
+                // 逐行模式：保持每段独立
+                consumer.accept(chunk);
+                return;
+            }
+
+            // 情况1：元数据相同，直接合并到上一个分块
+            // 情况2：元数据不同但上一个分块以标题结尾且未剥离标题，则也合并，这样可以将标题和其下的第一段内容合并在一起
+            if (last != null && (last.metadata.equals(chunk.metadata)
+                    || (last.metadata.size() < chunk.metadata.size() && last.endsWithHeader && !stripHeaders))) {
+                last.append(chunk);
+            }
+            // 情况3：创建新分块
+            else {
+                flush();
+                last = chunk;
+            }
+        }
+
+        private void flush() {
+            if (last == null) {
+                return;
+            }
+            if (parentChildModel) {
+                linkParent(last);
+            }
+            consumer.accept(last);
+            last = null;
+        }
+
+        /**
+         * 为非顶级标题的分块设置父分块：之前最近的一个级别更低的分块
+         */
+        private void linkParent(Chunk chunk) {
+            Integer headerLevel = (Integer) chunk.metadata.get(HEADER_LEVEL);
+            // 无标题的分块既没有父分块，也不作为父分块
+            if (headerLevel == null) {
+                return;
+            }
+            while (!parentStack.isEmpty() && parentStack.peek().headerLevel() >= headerLevel) {
+                parentStack.pop();
+            }
+            if (headerLevel > 1 && !parentStack.isEmpty()) {
+                chunk.metadata.put(PARENT_CHUNK_ID, parentStack.peek().chunkId());
+            }
+            parentStack.push(new ParentCandidate(headerLevel, chunk.metadata.get(CHUNK_ID)));
+        }
+    }
+
+    /**
+     * 对超出 chunkSize 的分片进行二次切割，未超出的保持不变
+     */
+    private void splitByChunkSize(Chunk chunk, Consumer<TextSegment> consumer, BufferedIdGenerator ids) {
+        String content = chunk.content();
+        if (content.length() <= chunkSize) {
+            consumer.accept(chunk.toTextSegment());
+            return;
+        }
+
+        String groupId = ids.nextIdStr();
+        if (oversizeStrategy == OversizeStrategy.PARENT) {
+            // 保留完整分片，标记为跳过embedding
+            Map<String, Object> fullMetadata = new HashMap<>(chunk.metadata);
+            fullMetadata.put(CHUNK_ID, groupId);
+            fullMetadata.put(SKIP_EMBEDDING, 1);
+            consumer.accept(new TextSegment(content, Metadata.from(fullMetadata)));
+        }
+
+        List<Map<String, Object>> subMetadataList = new ArrayList<>();
+        List<String> subContents = new ArrayList<>();
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(start + chunkSize, content.length());
+            Map<String, Object> subMetadata = new HashMap<>(chunk.metadata);
+            subMetadata.put(CHUNK_ID, ids.nextIdStr());
+            subMetadata.put(oversizeStrategy == OversizeStrategy.PARENT ? PARENT_CHUNK_ID : BROTHER_CHUNK_ID, groupId);
+            subMetadataList.add(subMetadata);
+            subContents.add(content.substring(start, end));
+
+            if (end == content.length()) {
+                break;
+            }
+            // 下一片的起始位置 = 当前片的结束位置 - overlap
+            start = end - Math.min(overlap, end);
+        }
+
+        int total = subContents.size();
+        for (int i = 0; i < total; i++) {
+            Map<String, Object> subMetadata = subMetadataList.get(i);
+            if (oversizeStrategy == OversizeStrategy.BROTHER) {
+                // 记录 brotherChunkIndex 和 brotherChunkTotal，方便后续按序拼接
+                subMetadata.put(BROTHER_CHUNK_INDEX, i + 1);
+                subMetadata.put(BROTHER_CHUNK_TOTAL, total);
+            }
+            consumer.accept(new TextSegment(subContents.get(i), Metadata.from(subMetadata)));
+        }
+    }
+
+    /**
+     * 按 '\n' 逐行迭代文本，不生成整篇文档的行数组
+     */
+    static Iterator<String> lines(String text) {
+        return new Iterator<>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position <= text.length();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int end = text.indexOf('\n', position);
+                if (end < 0) {
+                    end = text.length();
+                }
+                String line = text.substring(position, end);
+                position = end + 1;
+                return line;
+            }
+        };
+    }
+
+    /**
+     * 标题类型
+     *
+     * @param sep   标题标记，如"#"、"##"
+     * @param name  元数据中的键名
+     * @param level 标题级别（#的个数）
+     */
+    private record HeaderType(String sep, String name, int level) {
+    }
+
+    /**
+     * Markdown标题
+     *
+     * @param level 标题级别（1-6）
+     * @param name  元数据中的键名
+     * @param data  标题文本内容（不含#标记）
+     */
+    private record Header(int level, String name, String data) {
+    }
+
+    /**
+     * 可作为父分块的已输出分块
+     *
+     * @param headerLevel 标题级别
+     * @param chunkId     分块ID
+     */
+    private record ParentCandidate(int headerLevel, Object chunkId) {
+    }
+
+    /**
+     * 聚合中的分块
+     */
+    private static final class Chunk {
+
+        private final StringBuilder content;
+
+        private final Map<String, Object> metadata;
+
+        /**
+         * 最后一行是否为标题行
+         */
+        private boolean endsWithHeader;
+
+        private Chunk(String content, Map<String, Object> metadata, boolean endsWithHeader) {
+            this.content = new StringBuilder(content);
+            this.metadata = metadata;
+            this.endsWithHeader = endsWithHeader;
+        }
+
+        private void append(Chunk other) {
+            content.append("  \n").append(other.content);
+            endsWithHeader = other.endsWithHeader;
+        }
+
+        private String content() {
+            return content.toString();
+        }
+
+        private TextSegment toTextSegment() {
+            return new TextSegment(content.toString(), Metadata.from(metadata));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
 
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
+import cn.hollis.llm.mentor.know.engine.rag.modules.LazyNeo4jContentRetriever;
 import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jText2CypherRetriever;
 import dev.langchain4j.experimental.rag.content.retriever.sql.SqlDatabaseContentRetriever;
 import dev.langchain4j.rag.content.Content;
@@ -18,6 +20,7 @@ import java.util.function.Consumer;
  * 在委托执行 {@link ContentRetriever#retrieve} 前发送进度通知，
  * 用于流式返回前端当前处理阶段，减少用户等待焦虑。
  * <p>
+ * 查询元数据中携带 {@link ChatRequestContext} 时优先通过上下文发送进度，此时本检索器可作为单例复用。
  *
  * @see ContentAggregator
  */
@@ -38,38 +41,66 @@ public class ProgressAwareContentRetriever implements ContentRetriever {
         this.progressCallback = progressCallback;
     }
 
+    public ProgressAwareContentRetriever(ContentRetriever delegate) {
+        this(delegate, null);
+    }
+
     @Override
     public List<Content> retrieve(Query query) {
-        if (progressCallback != null) {
+        notifyProgress(query);
+        return delegate.retrieve(query);
+    }
+
+    /**
+     * 发送检索进度通知
+     * <p>
+     * 推测执行的检索结果被采纳时，由 {@link cn.hollis.llm.mentor.know.engine.rag.modules.SpeculativeContentRetriever} 单独调用，
+     * 保证进度消息在路由决策之后才发出。
+     */
+    public void notifyProgress(Query query) {
+        ChatRequestContext context = ChatRequestContext.from(query);
+        if (context != null) {
+            switch (delegate) {
+                case SqlDatabaseContentRetriever sqlDatabaseContentRetriever ->
+                        context.progressOnce("sql", "[PROGRESS]:正在检索数据库内容...");
+                case Neo4jText2CypherRetriever neo4jText2CypherRetriever ->
+                        context.progressOnce("neo4j", "[PROGRESS]:正在检索图数据库内容...");
+                case LazyNeo4jContentRetriever lazyNeo4jContentRetriever ->
+                        context.progressOnce("neo4j", "[PROGRESS]:正在检索图数据库内容...");
+                case AbstractElasticsearchEmbeddingStore abstractElasticsearchEmbeddingStore ->
+                        context.progressOnce("embedding", "[PROGRESS]:正在检索知识库内容...");
+                case null, default -> context.progressOnce("embedding", "[PROGRESS]:正在检索文档内容...");
+            }
+        } else if (progressCallback != null) {
 
             switch (delegate) {
                 case SqlDatabaseContentRetriever sqlDatabaseContentRetriever -> {
                     if (sqlProgressSent.compareAndSet(false, true)) {
                         progressCallback.accept("[PROGRESS]:正在检索数据库内容...");
-                        System.out.println("[PROGRESS]:正在检索数据库内容...");
                     }
                 }
                 case Neo4jText2CypherRetriever neo4jText2CypherRetriever -> {
                     if (neo4jProgressSent.compareAndSet(false, true)) {
                         progressCallback.accept("[PROGRESS]:正在检索图数据库内容...");
-                        System.out.println("[PROGRESS]:正在检索图数据库内容...");
+                    }
+                }
+                case LazyNeo4jContentRetriever lazyNeo4jContentRetriever -> {
+                    if (neo4jProgressSent.compareAndSet(false, true)) {
+                        progressCallback.accept("[PROGRESS]:正在检索图数据库内容...");
                     }
                 }
                 case AbstractElasticsearchEmbeddingStore abstractElasticsearchEmbeddingStore -> {
                     if (embeddingProgressSent.compareAndSet(false, true)) {
                         progressCallback.accept("[PROGRESS]:正在检索知识库内容...");
-                        System.out.println("[PROGRESS]:正在检索知识库内容...");
                     }
                 }
                 case null, default -> {
                     if (embeddingProgressSent.compareAndSet(false, true)) {
                         progressCallback.accept("[PROGRESS]:正在检索文档内容...");
-                        System.out.println("[PROGRESS]:正在检索文档内容...");
                     }
                 }
             }
         }
-        return delegate.retrieve(query);
     }
 
     public ContentRetriever getDelegate() {
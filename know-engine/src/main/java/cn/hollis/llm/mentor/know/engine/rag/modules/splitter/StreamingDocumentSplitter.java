@@ -0,0 +1,25 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.BufferedReader;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 流式文档分割器
+ * <p>
+ * 逐行读取文档内容并增量输出分段，不需要把整个文档读入内存，适用于 MinerU 导出的超大 Markdown 文件。
+ * 内存占用只与当前正在聚合的章节大小有关，与文档总大小无关。
+ */
+public interface StreamingDocumentSplitter {
+
+    /**
+     * 逐行读取文档并增量输出分段
+     *
+     * @param reader       文档内容
+     * @param baseMetadata 基础元数据，会被传递到每个分段中
+     * @param consumer     分段消费者，每产生一个分段调用一次
+     */
+    void split(BufferedReader reader, Map<String, Object> baseMetadata, Consumer<TextSegment> consumer);
+}
@@ -12,11 +12,15 @@ CREATE TABLE `knowledge_document` (
     `doc_url`       VARCHAR(2048) NULL     COMMENT '文档URL',
     `converted_doc_url` VARCHAR(2048) NULL  COMMENT '转换后的文档URL',
     `expire_date`   DATE          NULL     COMMENT '文档失效日期',
-    `status`        VARCHAR(32)   NOT NULL COMMENT '状态：INIT, UPLOADED, CONVERTING, CONVERTED, CHUNKED, VECTOR_STORED',
+    `status`        VARCHAR(32)   NOT NULL COMMENT '状态：INIT, UPLOADED, CONVERTING, CONVERT_FAILED, CONVERTED, CHUNKED, VECTOR_STORED',
     `accessible_by` VARCHAR(1024) NULL     COMMENT '可见范围',
     `description`   VARCHAR(512)  NULL     COMMENT '文档描述',
     `knowledge_base_type` VARCHAR(32) NULL COMMENT '知识库类型：DOCUMENT_SEARCH, DATA_QUERY',
     `extension`     TEXT          NULL     COMMENT '扩展字段，保存JSON字符串',
+    `retry_count`   INT           NOT NULL DEFAULT 0 COMMENT '向量化补偿重试次数',
+    `next_retry_at` DATETIME      NULL     COMMENT '下次允许补偿的时间',
+    `lease_owner`   VARCHAR(64)   NULL     COMMENT '补偿任务租约持有者',
+    `lease_expire_at` DATETIME    NULL     COMMENT '补偿任务租约过期时间',
     `created_at`    DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at`    DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '修改时间',
     `lock_version` INT           NOT NULL DEFAULT 0 COMMENT '乐观锁版本号',
@@ -26,6 +30,8 @@ CREATE TABLE `knowledge_document` (
     INDEX `idx_status` (`status`),
     -- 复合索引：状态+文档ID，优化分页查询性能
     INDEX `idx_status_doc_id` (`status`, `doc_id`),
+    -- 补偿任务按状态+下次重试时间扫描待补偿文档
+    INDEX `idx_status_next_retry` (`status`, `next_retry_at`),
     -- 创建时间索引，优化按时间排序查询
     INDEX `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT = '知识文档表';
@@ -110,3 +116,11 @@ CREATE TABLE `chat_message` (
     INDEX `idx_conversation_id` (`conversation_id`),
     INDEX `idx_create_time` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT = 'AI对话消息表';
+
+-- 已有库升级：向量化补偿任务的重试与租约字段
+-- ALTER TABLE `knowledge_document`
+--     ADD COLUMN `retry_count`     INT         NOT NULL DEFAULT 0 COMMENT '向量化补偿重试次数' AFTER `extension`,
+--     ADD COLUMN `next_retry_at`   DATETIME    NULL     COMMENT '下次允许补偿的时间' AFTER `retry_count`,
+--     ADD COLUMN `lease_owner`     VARCHAR(64) NULL     COMMENT '补偿任务租约持有者' AFTER `next_retry_at`,
+--     ADD COLUMN `lease_expire_at` DATETIME    NULL     COMMENT '补偿任务租约过期时间' AFTER `lease_owner`,
+--     ADD INDEX `idx_status_next_retry` (`status`, `next_retry_at`);
@@ -0,0 +1,74 @@
+package cn.hollis.llm.mentor.know.engine.ai.cache;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LshVectorIndexTest {
+
+    private static final int DIMENSION = 256;
+
+    @Test
+    public void testNearestFindsSimilarVector() {
+        Random random = new Random(1);
+        LshVectorIndex index = new LshVectorIndex(8, 8);
+        float[] target = randomUnitVector(random);
+        index.add("target", target);
+        for (int i = 0; i < 200; i++) {
+            index.add("noise-" + i, randomUnitVector(random));
+        }
+
+        // 在目标向量上叠加小扰动，余弦相似度仍然很高
+        float[] query = target.clone();
+        for (int i = 0; i < query.length; i++) {
+            query[i] += (float) (random.nextGaussian() * 0.01);
+        }
+        normalize(query);
+
+        LshVectorIndex.Match match = index.nearest(query);
+        assertNotNull(match);
+        assertEquals("target", match.key());
+        assertTrue(match.similarity() > 0.95);
+    }
+
+    @Test
+    public void testRemove() {
+        Random random = new Random(2);
+        LshVectorIndex index = new LshVectorIndex(4, 6);
+        float[] vector = randomUnitVector(random);
+        index.add("a", vector);
+        assertEquals(1, index.size());
+
+        index.remove("a");
+        assertEquals(0, index.size());
+        assertNull(index.nearest(vector));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("我的车多久保养一次", SemanticCacheService.normalize(" 我的车，多久保养一次？ "));
+        assertEquals("teslamodel3续航", SemanticCacheService.normalize("Ｔｅｓｌａ Model 3 续航!"));
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (vector[i] / norm);
+        }
+    }
+}
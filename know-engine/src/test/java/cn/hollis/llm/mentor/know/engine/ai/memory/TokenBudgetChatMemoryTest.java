@@ -0,0 +1,77 @@
+package cn.hollis.llm.mentor.know.engine.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TokenBudgetChatMemoryTest {
+
+    /**
+     * 按字符数估算 token，便于构造超出预算的消息
+     */
+    private static final TokenCountEstimator CHAR_ESTIMATOR = new TokenCountEstimator() {
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return text.length();
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            return switch (message) {
+                case UserMessage user -> user.singleText().length();
+                case AiMessage ai -> ai.text().length();
+                case SystemMessage system -> system.text().length();
+                default -> 0;
+            };
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int count = 0;
+            for (ChatMessage message : messages) {
+                count += estimateTokenCountInMessage(message);
+            }
+            return count;
+        }
+    };
+
+    @Test
+    public void testEvictsOldestTurnsFirst() {
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory("c1", 10, CHAR_ESTIMATOR, new InMemoryChatMemoryStore());
+        memory.add(UserMessage.from("q1q1"));
+        memory.add(AiMessage.from("a1a1"));
+        memory.add(UserMessage.from("q2q2"));
+
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(2, messages.size());
+        assertEquals(AiMessage.from("a1a1"), messages.get(0));
+        assertEquals(UserMessage.from("q2q2"), messages.get(1));
+    }
+
+    @Test
+    public void testOversizedUserMessageIsNeverEvicted() {
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory("c1", 10, CHAR_ESTIMATOR, new InMemoryChatMemoryStore());
+        memory.add(SystemMessage.from("sys"));
+        memory.add(UserMessage.from("q1"));
+        memory.add(AiMessage.from("a1"));
+        memory.add(UserMessage.from("x".repeat(50)));
+
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(2, messages.size());
+        assertEquals(SystemMessage.from("sys"), messages.get(0));
+        assertEquals(UserMessage.from("x".repeat(50)), messages.get(1));
+
+        // 本轮回答同样保留
+        memory.add(AiMessage.from("answer"));
+        assertEquals(AiMessage.from("answer"), memory.messages().getLast());
+        assertEquals(3, memory.messages().size());
+    }
+}
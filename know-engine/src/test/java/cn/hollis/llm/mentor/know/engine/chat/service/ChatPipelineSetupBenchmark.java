@@ -0,0 +1,160 @@
+package cn.hollis.llm.mentor.know.engine.chat.service;
+
+import cn.hollis.llm.mentor.know.engine.ai.constant.KnowEngineIntent;
+import cn.hollis.llm.mentor.know.engine.ai.service.KnowEngineChatAiService;
+import cn.hollis.llm.mentor.know.engine.rag.model.ChatRequestContext;
+import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineElasticsearchContentRetriever;
+import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryRouter;
+import cn.hollis.llm.mentor.know.engine.rag.modules.KnowEngineQueryTransformer;
+import cn.hollis.llm.mentor.know.engine.rag.modules.ProgressAwareContentAggregator;
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.ProgressAwareContentRetriever;
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.input.PromptTemplate;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.content.aggregator.ReRankingContentAggregator;
+import dev.langchain4j.rag.content.injector.DefaultContentInjector;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.elasticsearch.ElasticsearchContentRetriever;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchConfigurationFullText;
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchConfigurationKnn;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static cn.hollis.llm.mentor.know.engine.rag.config.ElasticSearchConfiguration.INDEX_NAME;
+
+/**
+ * RAG 管道单次请求构建成本基准测试
+ * <p>
+ * 对比改造前（每次请求重新构建检索器、聚合器、检索增强器和 AI 服务代理）
+ * 与改造后（管道启动时构建，每次请求只创建 {@link ChatRequestContext}）的单次请求开销。
+ * <p>
+ * 模型均为不发起网络调用的桩实现；SQL 和 Neo4j 检索器构建时需要连接真实数据源，未计入对比，
+ * 因此改造前的实际开销比这里测得的更高。
+ * <p>
+ * 运行方式：直接执行 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatPipelineSetupBenchmark {
+
+    private static final String PROMPT = "{{userMessage}}\n{{contents}}";
+
+    private ChatModel chatModel;
+
+    private StreamingChatModel streamingChatModel;
+
+    private EmbeddingModel embeddingModel;
+
+    private ScoringModel scoringModel;
+
+    private RestClient restClient;
+
+    private KnowEngineChatAiService prebuiltChatAiService;
+
+    @Setup
+    public void setup() {
+        chatModel = new ChatModel() {
+        };
+        streamingChatModel = new StreamingChatModel() {
+        };
+        embeddingModel = segments -> Response.from(List.of());
+        scoringModel = (segments, query) -> Response.from(segments.stream().map(segment -> 0.0).toList());
+        restClient = RestClient.builder(HttpHost.create("http://127.0.0.1:9200")).build();
+        prebuiltChatAiService = buildPipeline(null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        restClient.close();
+    }
+
+    /**
+     * 改造前：每次请求重新构建整条管道
+     */
+    @Benchmark
+    public KnowEngineChatAiService perRequestPipeline() {
+        Consumer<String> callback = msg -> {
+        };
+        return buildPipeline("user-message-id", "assistant-message-id", callback);
+    }
+
+    /**
+     * 改造后：管道已预构建，每次请求只创建请求上下文
+     */
+    @Benchmark
+    public InvocationParameters prebuiltPipeline() {
+        Consumer<String> callback = msg -> {
+        };
+        ChatRequestContext requestContext = new ChatRequestContext("user-message-id", "assistant-message-id",
+                KnowEngineIntent.CAR_OTHER_QUERY, callback);
+        return requestContext.toInvocationParameters();
+    }
+
+    private KnowEngineChatAiService buildPipeline(String userMessageId, String assistantMessageId, Consumer<String> callback) {
+        KnowEngineQueryTransformer queryTransformer = new KnowEngineQueryTransformer(chatModel, userMessageId, callback);
+
+        ContentRetriever embeddingRetriever = new ProgressAwareContentRetriever(KnowEngineElasticsearchContentRetriever.builder()
+                .configuration(ElasticsearchConfigurationKnn.builder().build())
+                .maxResults(5)
+                .minScore(0.5)
+                .embeddingModel(embeddingModel)
+                .restClient(restClient)
+                .indexName(INDEX_NAME)
+                .build(), callback);
+
+        ContentRetriever fullTextRetriever = new ProgressAwareContentRetriever(ElasticsearchContentRetriever.builder()
+                .configuration(ElasticsearchConfigurationFullText.builder().build())
+                .restClient(restClient)
+                .indexName(INDEX_NAME)
+                .maxResults(5)
+                .build(), callback);
+
+        ProgressAwareContentAggregator contentAggregator = new ProgressAwareContentAggregator(
+                ReRankingContentAggregator.builder()
+                        .scoringModel(scoringModel)
+                        .maxResults(5)
+                        .querySelector(queryToContents -> queryToContents.keySet().iterator().next())
+                        .build(),
+                callback, assistantMessageId, null);
+
+        DefaultRetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
+                .queryRouter(new KnowEngineQueryRouter(List.of(embeddingRetriever, fullTextRetriever), chatModel, callback))
+                .queryTransformer(queryTransformer)
+                .contentAggregator(contentAggregator)
+                .contentInjector(new DefaultContentInjector(PromptTemplate.from(PROMPT)))
+                .build();
+
+        return AiServices.builder(KnowEngineChatAiService.class)
+                .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
+                .chatMemoryProvider(memoryId -> MessageWindowChatMemory.builder().id(memoryId).maxMessages(10).build())
+                .retrievalAugmentor(retrievalAugmentor)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChatPipelineSetupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,34 @@
+package cn.hollis.llm.mentor.know.engine.document.pipeline;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExcelColumnTypesTest {
+
+    @Test
+    public void testInfer() {
+        assertEquals(ExcelColumnTypes.BIGINT, ExcelColumnTypes.infer(List.of("1", "-20", "", "300")));
+        assertEquals("DECIMAL(22,2)", ExcelColumnTypes.infer(List.of("1", "2.5", "3.25")));
+        assertEquals(ExcelColumnTypes.DATE, ExcelColumnTypes.infer(List.of("2025-01-23", "2024-02-29")));
+        assertEquals(ExcelColumnTypes.DATETIME, ExcelColumnTypes.infer(List.of("2025-01-23 10:00:00")));
+        // 前导零、非法日期按字符串处理
+        assertEquals(ExcelColumnTypes.VARCHAR, ExcelColumnTypes.infer(List.of("00123", "456")));
+        assertEquals(ExcelColumnTypes.VARCHAR, ExcelColumnTypes.infer(List.of("2025-02-30")));
+        assertEquals(ExcelColumnTypes.VARCHAR, ExcelColumnTypes.infer(List.of("", "")));
+        assertEquals(ExcelColumnTypes.TEXT, ExcelColumnTypes.infer(List.of("a".repeat(ExcelColumnTypes.VARCHAR_LENGTH + 1))));
+    }
+
+    @Test
+    public void testAccepts() {
+        assertTrue(ExcelColumnTypes.accepts(ExcelColumnTypes.BIGINT, ""));
+        assertTrue(ExcelColumnTypes.accepts(ExcelColumnTypes.BIGINT, "42"));
+        assertFalse(ExcelColumnTypes.accepts(ExcelColumnTypes.BIGINT, "4.2"));
+        assertTrue(ExcelColumnTypes.accepts("DECIMAL(22,2)", "4.256"));
+        assertFalse(ExcelColumnTypes.accepts(ExcelColumnTypes.DATE, "N/A"));
+        assertFalse(ExcelColumnTypes.accepts(ExcelColumnTypes.VARCHAR, "a".repeat(ExcelColumnTypes.VARCHAR_LENGTH + 1)));
+        assertEquals(ExcelColumnTypes.TEXT, ExcelColumnTypes.widen("a".repeat(ExcelColumnTypes.VARCHAR_LENGTH + 1)));
+    }
+}
@@ -0,0 +1,112 @@
+package cn.hollis.llm.mentor.know.engine.document.pipeline;
+
+import cn.hollis.llm.mentor.know.engine.document.entity.KnowledgeSegment;
+import cn.hollis.llm.mentor.know.engine.document.service.KnowledgeSegmentService;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class SegmentEmbeddingPipelineTest {
+
+    private static final int SEGMENT_COUNT = 50;
+
+    private static final int PAGE_SIZE = 20;
+
+    private KnowledgeSegmentService knowledgeSegmentService;
+
+    private ElasticsearchEmbeddingStore elasticsearchEmbeddingStore;
+
+    private OpenAiEmbeddingModel openAiEmbeddingModel;
+
+    private SegmentEmbeddingPipeline pipeline;
+
+    @BeforeClass
+    public static void initTableInfo() {
+        // LambdaQueryWrapper 解析列名依赖实体的 TableInfo
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), KnowledgeSegment.class);
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        knowledgeSegmentService = mock(KnowledgeSegmentService.class);
+        elasticsearchEmbeddingStore = mock(ElasticsearchEmbeddingStore.class);
+        openAiEmbeddingModel = mock(OpenAiEmbeddingModel.class);
+
+        AtomicInteger nextId = new AtomicInteger(1);
+        when(knowledgeSegmentService.page(any(Page.class), any())).thenAnswer(invocation -> {
+            Page<KnowledgeSegment> page = invocation.getArgument(0);
+            List<KnowledgeSegment> records = new ArrayList<>();
+            while (records.size() < PAGE_SIZE && nextId.get() <= SEGMENT_COUNT) {
+                KnowledgeSegment segment = new KnowledgeSegment();
+                segment.setId((long) nextId.getAndIncrement());
+                segment.setText("segment");
+                segment.setMetadata("{}");
+                records.add(segment);
+            }
+            page.setRecords(records);
+            return page;
+        });
+        when(openAiEmbeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            List<Embedding> embeddings = segments.stream().map(s -> Embedding.from(new float[]{1f})).toList();
+            return Response.from(embeddings);
+        });
+        when(knowledgeSegmentService.updateBatchById(anyList())).thenReturn(true);
+
+        pipeline = new SegmentEmbeddingPipeline();
+        ReflectionTestUtils.setField(pipeline, "knowledgeSegmentService", knowledgeSegmentService);
+        ReflectionTestUtils.setField(pipeline, "elasticsearchEmbeddingStore", elasticsearchEmbeddingStore);
+        ReflectionTestUtils.setField(pipeline, "openAiEmbeddingModel", openAiEmbeddingModel);
+        ReflectionTestUtils.setField(pipeline, "pageSize", PAGE_SIZE);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 2);
+        ReflectionTestUtils.setField(pipeline, "concurrency", 4);
+        // 队列容量小于并发数，写入阶段失败后上游必然阻塞在满队列上
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1);
+    }
+
+    @Test(timeout = 10_000)
+    public void testRunStoresAllSegments() {
+        when(elasticsearchEmbeddingStore.addAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Embedding> embeddings = invocation.getArgument(0);
+            return embeddings.stream().map(e -> "embedding").toList();
+        });
+
+        SegmentEmbeddingPipeline.Result result = pipeline.run(1L);
+
+        assertEquals(SEGMENT_COUNT, result.segmentCount());
+    }
+
+    @Test(timeout = 10_000)
+    public void testStoreFailureAbortsWithoutDeadlock() {
+        when(elasticsearchEmbeddingStore.addAll(anyList(), anyList())).thenThrow(new IllegalStateException("es down"));
+
+        try {
+            pipeline.run(1L);
+            fail("写入阶段失败时应抛出异常");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("es down", e.getCause().getMessage());
+        }
+        verify(knowledgeSegmentService, never()).updateBatchById(anyList());
+    }
+}
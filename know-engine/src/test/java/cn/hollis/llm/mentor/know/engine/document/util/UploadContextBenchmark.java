@@ -0,0 +1,156 @@
+package cn.hollis.llm.mentor.know.engine.document.util;
+
+import org.apache.tika.Tika;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传读取路径基准测试
+ * <p>
+ * 模拟落盘的 multipart 上传文件（后缀名无法识别、需要逐个类型做内容检测的最坏情况），对比：
+ * <ul>
+ *   <li>legacy：重构前每个类型检测都重新打开文件做一次 Tika 检测，上传 MinIO 读一遍，异步转换前再复制一遍到临时文件</li>
+ *   <li>uploadContext：打开一次，文件头检测一次，上传的同时写入临时文件</li>
+ * </ul>
+ * MinIO 上传以读到空输出流代替，只比较本地读写开销。运行方式：直接执行 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UploadContextBenchmark {
+
+    private static final Tika TIKA = new Tika();
+
+    @Param({"100"})
+    private int fileSizeMb;
+
+    private Path source;
+
+    private MultipartFile file;
+
+    @Setup
+    public void setup() throws IOException {
+        source = Files.createTempFile("upload-benchmark-", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        Random random = new Random(42);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(source))) {
+            for (int i = 0; i < fileSizeMb; i++) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+        file = new DiskMultipartFile(source, "upload.bin");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public long legacy() throws IOException {
+        // PDF / Excel / Word / Markdown / TXT 各检测一次
+        String mimeType = null;
+        for (int i = 0; i < 5; i++) {
+            try (InputStream is = file.getInputStream()) {
+                mimeType = TIKA.detect(is);
+            }
+        }
+        long uploaded;
+        try (InputStream is = file.getInputStream()) {
+            uploaded = is.transferTo(OutputStream.nullOutputStream());
+        }
+        Path spool = Files.createTempFile("mineru-source-", ".tmp");
+        try (InputStream is = file.getInputStream()) {
+            Files.copy(is, spool, StandardCopyOption.REPLACE_EXISTING);
+            return uploaded + Files.size(spool) + mimeType.length();
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    @Benchmark
+    public long uploadContext() throws IOException {
+        try (UploadContext upload = UploadContext.open(file, file.getOriginalFilename())) {
+            long uploaded;
+            try (InputStream is = upload.openUploadStream(true)) {
+                uploaded = is.transferTo(OutputStream.nullOutputStream());
+            }
+            Path spool = upload.takeSpoolFile();
+            try {
+                return uploaded + Files.size(spool) + (upload.getFileType() == null ? 0 : 1);
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+    }
+
+    /**
+     * 落盘的 multipart 文件，与 Servlet 容器超过内存阈值后的行为一致
+     */
+    private record DiskMultipartFile(Path path, String originalFilename) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UploadContextBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
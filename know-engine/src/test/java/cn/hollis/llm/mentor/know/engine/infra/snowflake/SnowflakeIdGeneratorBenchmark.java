@@ -0,0 +1,90 @@
+package cn.hollis.llm.mentor.know.engine.infra.snowflake;
+
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.MarkdownHeaderParentTextSplitter;
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.SyntheticMarkdown;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ID 生成器多线程基准测试
+ * <p>
+ * 8 个线程并发取ID，对比：
+ * <ul>
+ *   <li>legacyNextId：重构前 synchronized + 自旋等待下一毫秒的实现</li>
+ *   <li>nextId：CAS 逐个取</li>
+ *   <li>bufferedNextId：每个线程按 64 个一块预取</li>
+ *   <li>splitDocument：并发切分合成 Markdown 文档，覆盖切分时生成 chunkId 的热点路径</li>
+ * </ul>
+ * 运行方式：直接执行 main 方法
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class SnowflakeIdGeneratorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+
+        private final LegacySnowflakeIdGenerator legacy = new LegacySnowflakeIdGenerator(1);
+
+        private final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+
+        private Document document;
+
+        @Setup
+        public void setup() {
+            document = Document.from(SyntheticMarkdown.generate(1_000, 42));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private BufferedIdGenerator buffered;
+
+        private MarkdownHeaderParentTextSplitter splitter;
+
+        @Setup
+        public void setup(SharedState shared) {
+            buffered = new BufferedIdGenerator(shared.generator, 64);
+            splitter = new MarkdownHeaderParentTextSplitter(200, 20);
+        }
+    }
+
+    @Benchmark
+    public long legacyNextId(SharedState shared) {
+        return shared.legacy.nextId();
+    }
+
+    @Benchmark
+    public long nextId(SharedState shared) {
+        return shared.generator.nextId();
+    }
+
+    @Benchmark
+    public long bufferedNextId(ThreadState state) {
+        return state.buffered.nextId();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<TextSegment> splitDocument(SharedState shared, ThreadState state) {
+        return state.splitter.split(shared.document);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnowflakeIdGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package cn.hollis.llm.mentor.know.engine.infra.snowflake;
+
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.MarkdownHeaderParentTextSplitter;
+import cn.hollis.llm.mentor.know.engine.rag.modules.splitter.SyntheticMarkdown;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.CHUNK_ID;
+import static org.junit.Assert.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        int idsPerThread = 100_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(threadIndex -> {
+            // 一半线程逐个取，一半线程按块取，两种方式共享同一个状态
+            if (threadIndex % 2 == 0) {
+                long previous = -1;
+                for (int i = 0; i < idsPerThread; i++) {
+                    long id = generator.nextId();
+                    assertTrue("同一线程内ID应单调递增", id > previous);
+                    previous = id;
+                    ids.add(id);
+                }
+            } else {
+                BufferedIdGenerator buffered = new BufferedIdGenerator(generator, 64);
+                for (int i = 0; i < idsPerThread; i++) {
+                    ids.add(buffered.nextId());
+                }
+            }
+        });
+
+        // 序列号溢出时进位到下一毫秒而不是等待，总数仍然不重复
+        assertEquals(THREADS * idsPerThread, ids.size());
+    }
+
+    @Test
+    public void testIdLayout() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1023);
+        IdBlock block = generator.nextIdBlock(3);
+        long first = block.nextId();
+        assertEquals(1023, (first >>> 12) & 1023);
+        assertEquals(first + 1, block.nextId());
+        assertEquals(first + 2, block.nextId());
+        assertFalse(block.hasNext());
+
+        generator.updateWorkerId(5);
+        assertEquals(5, (generator.nextId() >>> 12) & 1023);
+    }
+
+    @Test
+    public void testConcurrentSplitChunkIdsAreUnique() throws Exception {
+        Document document = Document.from(SyntheticMarkdown.generate(2_000, 7));
+        Set<Object> chunkIds = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(threadIndex -> {
+            MarkdownHeaderParentTextSplitter splitter = new MarkdownHeaderParentTextSplitter(200, 20);
+            for (int round = 0; round < 5; round++) {
+                // 同一次切分中同一标题下的分段共享 chunkId，不同次切分之间不能重复
+                Set<Object> runIds = new HashSet<>();
+                for (TextSegment segment : splitter.split(document)) {
+                    Object chunkId = segment.metadata().toMap().get(CHUNK_ID);
+                    if (chunkId != null) {
+                        runIds.add(chunkId);
+                    }
+                }
+                assertFalse(runIds.isEmpty());
+                for (Object chunkId : runIds) {
+                    assertTrue("chunkId 重复: " + chunkId, chunkIds.add(chunkId));
+                }
+            }
+        });
+    }
+
+    private interface ThreadTask {
+        void run(int threadIndex) throws Exception;
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int threadIndex = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(threadIndex);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package cn.hollis.llm.mentor.know.engine.rag.model.reranker;
+
+import cn.hollis.llm.mentor.know.engine.rag.config.RerankEngineProperties;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.onnx.OnnxScoringModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重排序 CPU 基准测试
+ * <p>
+ * 每次调用模拟一次对话请求：1 个问题 + {@value #CANDIDATES} 个长度不一的候选分段，对比：
+ * <ul>
+ *   <li>inline：重构前在请求线程上直接调用 OnnxScoringModel</li>
+ *   <li>engine：{@link RerankEngine} 跨请求组批 + 按长度分桶</li>
+ * </ul>
+ * pairsPerSecond 报告每秒处理的 query/passage 对数，requestLatency 报告单次请求延迟分布（看 p0.99）。
+ * main 方法依次以 1 / 4 / 16 个并发线程运行。
+ * <p>
+ * 运行前需要把 BGE-RERANKER 模型文件放到 resources/model/bge-reranker-model 目录下。
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class RerankEngineBenchmark {
+
+    private static final int CANDIDATES = 20;
+
+    private static final String QUERY = "知识库文档上传后多久可以被检索到？";
+
+    private static final String SENTENCE = "文档上传后会先解析为 Markdown，再按标题切分成分段并写入向量库和全文索引。";
+
+    @State(Scope.Benchmark)
+    public static class ModelState {
+
+        private OnnxScoringModel inline;
+
+        private RerankEngine engine;
+
+        private List<TextSegment> candidates;
+
+        @Setup
+        public void setup() {
+            String modelPath = BgeScoringModel.modelPath();
+            String tokenizerPath = BgeScoringModel.tokenizerPath();
+            inline = new OnnxScoringModel(modelPath, tokenizerPath, 8192);
+            engine = new RerankEngine(modelPath, tokenizerPath, new RerankEngineProperties());
+
+            // 候选分段长度从一句到几十句不等，模拟真实召回结果
+            Random random = new Random(42);
+            candidates = new ArrayList<>();
+            for (int i = 0; i < CANDIDATES; i++) {
+                candidates.add(TextSegment.from(SENTENCE.repeat(1 + random.nextInt(i % 4 == 0 ? 40 : 6))));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            engine.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CANDIDATES)
+    public Response<List<Double>> pairsPerSecondInline(ModelState state) {
+        return state.inline.scoreAll(state.candidates, QUERY);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CANDIDATES)
+    public Response<List<Double>> pairsPerSecondEngine(ModelState state) {
+        return state.engine.scoreAll(state.candidates, QUERY);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Response<List<Double>> requestLatencyInline(ModelState state) {
+        return state.inline.scoreAll(state.candidates, QUERY);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Response<List<Double>> requestLatencyEngine(ModelState state) {
+        return state.engine.scoreAll(state.candidates, QUERY);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 4, 16}) {
+            new Runner(new OptionsBuilder()
+                    .include(RerankEngineBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
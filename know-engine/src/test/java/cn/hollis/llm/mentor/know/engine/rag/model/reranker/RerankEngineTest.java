@@ -0,0 +1,68 @@
+package cn.hollis.llm.mentor.know.engine.rag.model.reranker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class RerankEngineTest {
+
+    @Test
+    public void testBucketizeGroupsByLength() {
+        List<RerankEngine.PendingPair> pairs = new ArrayList<>();
+        pairs.add(pair(600));
+        pairs.add(pair(30));
+        pairs.add(pair(100));
+        pairs.add(pair(50));
+        pairs.add(pair(120));
+
+        List<List<RerankEngine.PendingPair>> batches = RerankEngine.bucketize(pairs, 32, 16384);
+
+        // 64 / 128 / 1024 三个桶，批内按长度升序
+        assertEquals(3, batches.size());
+        assertEquals(List.of(30, 50), lengths(batches.get(0)));
+        assertEquals(List.of(100, 120), lengths(batches.get(1)));
+        assertEquals(List.of(600), lengths(batches.get(2)));
+    }
+
+    @Test
+    public void testBucketizeRespectsBatchLimits() {
+        List<RerankEngine.PendingPair> pairs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pairs.add(pair(500));
+        }
+        pairs.add(pair(9000));
+
+        // 每批最多 4 条、padding 后不超过 1000 token：500 长度的 pair 每批只能放 2 条
+        List<List<RerankEngine.PendingPair>> batches = RerankEngine.bucketize(pairs, 4, 1000);
+        assertEquals(6, batches.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, batches.get(i).size());
+        }
+        // 超长的 pair 单独成批
+        assertEquals(List.of(9000), lengths(batches.get(5)));
+
+        batches = RerankEngine.bucketize(pairs.subList(0, 10), 4, 16384);
+        assertEquals(List.of(4, 4, 2), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    public void testBucketizeSkipsCancelledPairs() {
+        RerankEngine.PendingPair cancelled = pair(10);
+        cancelled.score().cancel(false);
+        List<List<RerankEngine.PendingPair>> batches = RerankEngine.bucketize(List.of(cancelled, pair(20)), 32, 16384);
+        assertEquals(1, batches.size());
+        assertEquals(List.of(20), lengths(batches.get(0)));
+    }
+
+    private static RerankEngine.PendingPair pair(int length) {
+        return new RerankEngine.PendingPair(new long[length], new long[length], new long[length], new CompletableFuture<>());
+    }
+
+    private static List<Integer> lengths(List<RerankEngine.PendingPair> batch) {
+        return batch.stream().map(RerankEngine.PendingPair::length).toList();
+    }
+}
@@ -6,8 +6,18 @@ import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.segment.TextSegment;
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.CHUNK_ID;
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.PARENT_CHUNK_ID;
+import static org.junit.Assert.assertEquals;
 
 public class MarkdownHeaderParentTextSplitterTest {
 
@@ -30,4 +40,35 @@ public class MarkdownHeaderParentTextSplitterTest {
         }
 
     }
+
+    @Test
+    public void testStreamingSplitMatchesDocumentSplit() throws Exception {
+        String resource = "MinerU_markdown_r7-product-manual-20250123_2028781865782407168.md";
+        MarkdownHeaderParentTextSplitter splitter = new MarkdownHeaderParentTextSplitter(1000, 80);
+
+        List<TextSegment> expected;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+            expected = splitter.split(new TextDocumentParser().parse(inputStream));
+        }
+
+        List<TextSegment> actual = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            splitter.split(reader, new HashMap<>(), actual::add);
+        }
+
+        // chunkId 为雪花算法生成，不参与比较
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).text(), actual.get(i).text());
+            assertEquals(withoutIds(expected.get(i)), withoutIds(actual.get(i)));
+        }
+    }
+
+    private static Map<String, Object> withoutIds(TextSegment segment) {
+        Map<String, Object> metadata = new HashMap<>(segment.metadata().toMap());
+        metadata.remove(CHUNK_ID);
+        metadata.remove(PARENT_CHUNK_ID);
+        return metadata;
+    }
 }
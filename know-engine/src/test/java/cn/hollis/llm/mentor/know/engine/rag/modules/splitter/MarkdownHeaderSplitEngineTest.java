@@ -0,0 +1,102 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static cn.hollis.llm.mentor.know.engine.rag.constant.MetadataKeyConstant.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 单遍切分引擎与重构前实现的 golden 输出对比测试
+ * <p>
+ * chunkId 等为雪花算法生成且生成顺序不同，对比前按在输出中首次出现的顺序统一替换为序号，
+ * 这样既忽略了具体取值，又能校验父子、兄弟关系指向的是同一个分片。
+ */
+public class MarkdownHeaderSplitEngineTest {
+
+    private static final List<String> ID_KEYS = List.of(CHUNK_ID, PARENT_CHUNK_ID, BROTHER_CHUNK_ID);
+
+    private static final Map<String, String> HEADERS = Map.of(
+            "#", "title",
+            "##", "subtitle",
+            "###", "subsubtitle",
+            "####", "subsubsubtitle",
+            "#####", "subsubsubsubtitle",
+            "######", "subsubsubsubsubtitle");
+
+    @Test
+    public void testParentSplitterMatchesLegacy() throws IOException {
+        for (String text : inputs()) {
+            assertSameOutput(new LegacyMarkdownHeaderParentTextSplitter(1000, 80), new MarkdownHeaderParentTextSplitter(1000, 80), text);
+            assertSameOutput(new LegacyMarkdownHeaderParentTextSplitter(HEADERS, false, false, 300, 30),
+                    new MarkdownHeaderParentTextSplitter(HEADERS, false, false, 300, 30), text);
+            assertSameOutput(new LegacyMarkdownHeaderParentTextSplitter(HEADERS, false, true),
+                    new MarkdownHeaderParentTextSplitter(HEADERS, false, true), text);
+        }
+    }
+
+    @Test
+    public void testBrotherSplitterMatchesLegacy() throws IOException {
+        for (String text : inputs()) {
+            assertSameOutput(new LegacyMarkdownHeaderBrotherTextSplitter(1000, 80), new MarkdownHeaderBrotherTextSplitter(1000, 80), text);
+            assertSameOutput(new LegacyMarkdownHeaderBrotherTextSplitter(HEADERS, false, false, true, 300, 30),
+                    new MarkdownHeaderBrotherTextSplitter(HEADERS, false, false, true, 300, 30), text);
+            assertSameOutput(new LegacyMarkdownHeaderBrotherTextSplitter(HEADERS, false, false, true),
+                    new MarkdownHeaderBrotherTextSplitter(HEADERS, false, false, true), text);
+            assertSameOutput(new LegacyMarkdownHeaderBrotherTextSplitter(HEADERS, true, true, false, 200, 0),
+                    new MarkdownHeaderBrotherTextSplitter(HEADERS, true, true, false, 200, 0), text);
+        }
+    }
+
+    private List<String> inputs() throws IOException {
+        List<String> inputs = new ArrayList<>();
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("MinerU_markdown_r7-product-manual-20250123_2028781865782407168.md")) {
+            inputs.add(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        inputs.add(SyntheticMarkdown.generate(2000, 42));
+        inputs.add(SyntheticMarkdown.generate(200, 7));
+        inputs.add("没有标题的文档\n\n第二段");
+        inputs.add("#");
+        inputs.add("### 从三级标题开始\n内容\n# 一级标题\n## 二级标题\n#### 四级标题\n内容\n## 另一个二级标题");
+        return inputs;
+    }
+
+    private static void assertSameOutput(DocumentSplitter legacy, DocumentSplitter engine, String text) {
+        List<TextSegment> expected = legacy.split(Document.from(text));
+        List<TextSegment> actual = engine.split(Document.from(text));
+
+        assertEquals(expected.size(), actual.size());
+        List<Map<String, Object>> expectedMetadata = canonicalize(expected);
+        List<Map<String, Object>> actualMetadata = canonicalize(actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("text of segment " + i, expected.get(i).text(), actual.get(i).text());
+            assertEquals("metadata of segment " + i, expectedMetadata.get(i), actualMetadata.get(i));
+        }
+    }
+
+    /**
+     * 把各分片元数据中的 ID 按首次出现顺序替换为序号
+     */
+    private static List<Map<String, Object>> canonicalize(List<TextSegment> segments) {
+        Map<Object, Integer> ordinals = new HashMap<>();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            Map<String, Object> metadata = new HashMap<>(segment.metadata().toMap());
+            for (String key : ID_KEYS) {
+                Object id = metadata.get(key);
+                if (id != null) {
+                    metadata.put(key, ordinals.computeIfAbsent(id, k -> ordinals.size()));
+                }
+            }
+            result.add(metadata);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown 标题切分基准测试
+ * <p>
+ * 在包含 10k 个标题的合成文档上，对比重构前的实现与单遍切分引擎：
+ * <ul>
+ *   <li>eachLine：默认的逐段输出模式（DocumentSplitterFactory 使用的模式）</li>
+ *   <li>aggregate：聚合模式 + 父子分段，重构前在这里会反复切分已聚合内容并向前扫描父分块</li>
+ * </ul>
+ * 运行方式：直接执行 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownHeaderSplitterBenchmark {
+
+    private static final Map<String, String> HEADERS = Map.of(
+            "#", "title",
+            "##", "subtitle",
+            "###", "subsubtitle",
+            "####", "subsubsubtitle",
+            "#####", "subsubsubsubtitle",
+            "######", "subsubsubsubsubtitle");
+
+    @Param({"eachLine", "aggregate"})
+    private String mode;
+
+    private Document document;
+
+    private LegacyMarkdownHeaderParentTextSplitter legacyParent;
+
+    private MarkdownHeaderParentTextSplitter parent;
+
+    private LegacyMarkdownHeaderBrotherTextSplitter legacyBrother;
+
+    private MarkdownHeaderBrotherTextSplitter brother;
+
+    @Setup
+    public void setup() {
+        document = Document.from(SyntheticMarkdown.generate(10_000, 42));
+        boolean eachLine = "eachLine".equals(mode);
+        legacyParent = new LegacyMarkdownHeaderParentTextSplitter(HEADERS, eachLine, false, 1000, 80);
+        parent = new MarkdownHeaderParentTextSplitter(HEADERS, eachLine, false, 1000, 80);
+        legacyBrother = new LegacyMarkdownHeaderBrotherTextSplitter(HEADERS, eachLine, false, true, 1000, 80);
+        brother = new MarkdownHeaderBrotherTextSplitter(HEADERS, eachLine, false, true, 1000, 80);
+    }
+
+    @Benchmark
+    public List<TextSegment> legacyParent() {
+        return legacyParent.split(document);
+    }
+
+    @Benchmark
+    public List<TextSegment> parent() {
+        return parent.split(document);
+    }
+
+    @Benchmark
+    public List<TextSegment> legacyBrother() {
+        return legacyBrother.split(document);
+    }
+
+    @Benchmark
+    public List<TextSegment> brother() {
+        return brother.split(document);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MarkdownHeaderSplitterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
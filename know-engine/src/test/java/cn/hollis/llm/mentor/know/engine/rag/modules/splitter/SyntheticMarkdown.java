@@ -0,0 +1,53 @@
+package cn.hollis.llm.mentor.know.engine.rag.modules.splitter;
+
+import java.util.Random;
+
+/**
+ * 生成合成的 Markdown 文档，用于切分器的对比测试和基准测试
+ * <p>
+ * 文档包含随机跳跃的标题层级、长短不一的段落、空行、代码块中的伪标题、"#"开头但不是标题的行以及空标题。
+ */
+public final class SyntheticMarkdown {
+
+    private SyntheticMarkdown() {
+    }
+
+    public static String generate(int headers, long seed) {
+        Random random = new Random(seed);
+        StringBuilder markdown = new StringBuilder();
+        markdown.append("前言内容，出现在第一个标题之前\n\n");
+        int level = 1;
+        for (int i = 0; i < headers; i++) {
+            // 层级可以向下跳多级，向上每次最多一级
+            level = random.nextInt(4) == 0 ? 1 + random.nextInt(level) : Math.min(6, level + random.nextInt(2));
+            if (random.nextInt(50) == 0) {
+                markdown.append("#".repeat(level)).append('\n');
+            } else {
+                markdown.append("#".repeat(level)).append(" 第").append(i).append("节 标题").append('\n');
+            }
+
+            int paragraphs = random.nextInt(4);
+            for (int p = 0; p < paragraphs; p++) {
+                markdown.append(paragraph(random, 20 + random.nextInt(400))).append('\n');
+                if (random.nextBoolean()) {
+                    markdown.append('\n');
+                }
+            }
+            if (random.nextInt(20) == 0) {
+                markdown.append("```java\n# 代码块中的注释不是标题\n\nint a = 1;\n```\n");
+            }
+            if (random.nextInt(30) == 0) {
+                markdown.append("#话题标签不是标题\n");
+            }
+        }
+        return markdown.toString();
+    }
+
+    private static String paragraph(Random random, int length) {
+        StringBuilder paragraph = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            paragraph.append((char) ('一' + random.nextInt(500)));
+        }
+        return paragraph.toString();
+    }
+}
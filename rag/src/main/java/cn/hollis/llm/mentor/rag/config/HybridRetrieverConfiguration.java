@@ -0,0 +1,60 @@
+package cn.hollis.llm.mentor.rag.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 混合检索配置
+ * 1 关键词 / 向量两路检索共用的有界线程池
+ * 2 重排序接口共用的 HTTP 客户端（JDK HttpClient 内部维护连接池，复用 keep-alive 连接）
+ */
+@Configuration
+public class HybridRetrieverConfiguration {
+
+    // 检索线程数
+    @Value("${rag.hybrid.search-threads:16}")
+    private int searchThreads;
+
+    // 检索任务队列长度，队列满时由调用线程执行
+    @Value("${rag.hybrid.search-queue-capacity:256}")
+    private int searchQueueCapacity;
+
+    // 重排序接口连接超时
+    @Value("${rag.rerank.connect-timeout-millis:2000}")
+    private long rerankConnectTimeoutMillis;
+
+    // 重排序接口读取超时，超时后回退到融合排序结果
+    @Value("${rag.rerank.read-timeout-millis:3000}")
+    private long rerankReadTimeoutMillis;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService hybridSearchExecutor() {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(searchThreads, searchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(searchQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "hybrid-search-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Bean
+    public RestClient rerankRestClient() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(rerankConnectTimeoutMillis))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(rerankReadTimeoutMillis));
+        return RestClient.builder().requestFactory(requestFactory).build();
+    }
+}
@@ -4,7 +4,8 @@ import cn.hollis.llm.mentor.rag.embedding.EmbeddingService;
 import cn.hollis.llm.mentor.rag.es.ElasticSearchService;
 import cn.hollis.llm.mentor.rag.es.EsDocumentChunk;
 import cn.hollis.llm.mentor.rag.reader.DocumentReaderFactory;
-import cn.hollis.llm.mentor.rag.rerank.RerankUtil;
+import cn.hollis.llm.mentor.rag.retriever.HybridRetriever;
+import cn.hollis.llm.mentor.rag.retriever.RetrievedChunk;
 import com.alibaba.cloud.ai.transformer.splitter.RecursiveCharacterTextSplitter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatModel;
@@ -34,6 +35,9 @@ public class RagHybridController {
     @Autowired
     private ElasticSearchService elasticSearchService;
 
+    @Autowired
+    private HybridRetriever hybridRetriever;
+
     @Autowired
     private ChatModel chatModel;
 
@@ -90,16 +94,8 @@ public class RagHybridController {
     //混合检索
     @RequestMapping("searchFromHybrid")
     public List<String> searchFromHybrid(String keyword) throws Exception {
-        // 关键词检索
-        List<EsDocumentChunk> esDocs = elasticSearchService.searchByKeyword(keyword);
-        log.info("esDocs: {}", esDocs);
-
-        // 向量检索
-        List<Document> vectorDocs = embeddingService.similaritySearch(keyword);
-        log.info("vectorDocs: {}", vectorDocs);
-
-        // 重排序
-        List<String> result = RerankUtil.rerankFusion(vectorDocs, esDocs, keyword, 5);
+        // 关键词检索与向量检索并发执行，融合后重排序
+        List<String> result = hybridRetriever.retrieve(keyword, 5).stream().map(RetrievedChunk::content).toList();
         log.info("result: {}", result);
         return result;
     }
@@ -118,9 +114,7 @@ public class RagHybridController {
         log.info("newQuestion: {}", newQuestion);
 
         //混合检索
-        List<EsDocumentChunk> esDocs = elasticSearchService.searchByKeyword(newQuestion);
-        List<Document> vectorDocs = embeddingService.similaritySearch(newQuestion);
-        List<String> result = RerankUtil.rerankFusion(vectorDocs, esDocs, newQuestion, 5);
+        List<String> result = hybridRetriever.retrieve(newQuestion, 5).stream().map(RetrievedChunk::content).toList();
 
         String prompt = """
                 请根据以下文档内容，回答用户的问题。
@@ -4,8 +4,11 @@ import cn.hollis.llm.mentor.rag.es.EsDocumentChunk;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +18,11 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * ElasticSearch 文档管理服务
@@ -23,10 +30,11 @@ import java.util.List;
  * 负责 RAG 场景下文档索引初始化 写入和检索
  * 主要能力如下
  * 1 服务启动时自动检查并创建索引
- * 2 支持单条与批量文档写入
+ * 2 支持单条与批量文档写入，批量写入通过 {@link EsBulkIndexer} 异步分批提交
  * 3 支持基于 IK 分词器的中文关键词检索
  *
  * 写入阶段使用 ik_max_word 查询阶段默认使用 ik_smart
+ * 写入默认不强制 refresh，可通过 rag.es.refresh 配置为 wait_for
  */
 @Service
 @Slf4j
@@ -35,6 +43,9 @@ public class ElasticSearchService {
     @Autowired
     private ElasticsearchClient client;
 
+    @Autowired
+    private EsBulkIndexer bulkIndexer;
+
     // JSON 序列化工具
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -138,12 +149,16 @@ public class ElasticSearchService {
 
         String docJson = mapper.writeValueAsString(doc);
 
-        IndexRequest<EsDocumentChunk> request = IndexRequest.of(b -> b
-                .index(INDEX_NAME)
-                .id(doc.getId())
-                .withJson(new StringReader(docJson))
-                .refresh(Refresh.True)
-        );
+        Refresh refresh = bulkIndexer.refreshPolicy();
+        IndexRequest<EsDocumentChunk> request = IndexRequest.of(b -> {
+            b.index(INDEX_NAME)
+                    .id(doc.getId())
+                    .withJson(new StringReader(docJson));
+            if (refresh != null) {
+                b.refresh(refresh);
+            }
+            return b;
+        });
 
         client.index(request);
         log.debug("Indexed doc id={}", doc.getId());
@@ -151,39 +166,97 @@ public class ElasticSearchService {
 
     /**
      * 批量写入
+     * 文档交给异步写入器按批提交，方法在全部文档写入完成（或最终失败）后返回
      */
     public void bulkIndex(List<EsDocumentChunk> docs) throws Exception {
+        bulkIndex(docs, false);
+    }
+
+    /**
+     * 批量写入
+     *
+     * @param noRefresh 为 true 时忽略配置的 refresh 策略
+     */
+    private void bulkIndex(List<EsDocumentChunk> docs, boolean noRefresh) {
         if (docs == null || docs.isEmpty()) {
             return;
         }
 
-        BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
-
+        List<CompletableFuture<Void>> futures = new ArrayList<>(docs.size());
         for (EsDocumentChunk doc : docs) {
-            bulkBuilder.operations(op -> op
-                    .index(idx -> idx
-                            .index(INDEX_NAME)
-                            .id(doc.getId())
-                            .document(doc)
-                    )
-            );
+            futures.add(bulkIndexer.index(INDEX_NAME, doc, noRefresh));
         }
+        // 不等攒满一批或刷新间隔，立即提交剩余操作
+        bulkIndexer.flush();
 
-        bulkBuilder.refresh(Refresh.True);
-
-        BulkResponse response = client.bulk(bulkBuilder.build());
-        if (response.errors()) {
-            log.error("Bulk indexing completed with failures");
-            response.items().forEach(item -> {
-                if (item.error() != null) {
-                    log.error("Failed to index doc {}: {}", item.id(), item.error().reason());
-                }
-            });
+        int failed = 0;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            log.error("Bulk indexing completed with {} failures out of {}", failed, docs.size());
         } else {
             log.info("Successfully indexed {} documents", docs.size());
         }
     }
 
+    /**
+     * 重建模式批量写入
+     * 写入期间临时关闭 refresh 并把副本数设为 0，写完后恢复原设置并执行一次 refresh
+     * 适用于全量导入，导入期间新文档不可见
+     */
+    public void reindex(List<EsDocumentChunk> docs) throws Exception {
+        Map<String, String> original = currentIndexSettings();
+        log.info("Entering reindex mode for [{}], original settings: {}", INDEX_NAME, original);
+        Map<String, String> bulkSettings = new LinkedHashMap<>();
+        bulkSettings.put("refresh_interval", "-1");
+        bulkSettings.put("number_of_replicas", "0");
+        putIndexSettings(bulkSettings);
+        try {
+            // refresh_interval 为 -1 时 wait_for 请求不会返回，重建期间的写入一律不带 refresh，结束时统一 refresh 一次
+            bulkIndex(docs, true);
+        } finally {
+            // 原来未显式设置的项恢复为 null，即索引默认值
+            putIndexSettings(original);
+            client.indices().refresh(r -> r.index(INDEX_NAME));
+            log.info("Exited reindex mode for [{}]", INDEX_NAME);
+        }
+    }
+
+    /**
+     * 读取当前的 refresh_interval 与 number_of_replicas，未显式设置时值为 null
+     */
+    private Map<String, String> currentIndexSettings() throws IOException {
+        IndexState state = client.indices().getSettings(g -> g.index(INDEX_NAME)).get(INDEX_NAME);
+        IndexSettings settings = state == null ? null : state.settings();
+        // 响应中的配置项位于 index 节点下
+        if (settings != null && settings.index() != null) {
+            settings = settings.index();
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        String refreshInterval = null;
+        if (settings != null && settings.refreshInterval() != null) {
+            refreshInterval = settings.refreshInterval().isTime()
+                    ? settings.refreshInterval().time()
+                    : String.valueOf(settings.refreshInterval().offset());
+        }
+        result.put("refresh_interval", refreshInterval);
+        result.put("number_of_replicas", settings == null ? null : settings.numberOfReplicas());
+        return result;
+    }
+
+    private void putIndexSettings(Map<String, String> settings) throws IOException {
+        String settingsJson = mapper.writeValueAsString(Map.of("index", settings));
+        client.indices().putSettings(p -> p
+                .index(INDEX_NAME)
+                .withJson(new StringReader(settingsJson))
+        );
+    }
+
     /**
      * 判断索引是否存在
      */
@@ -205,6 +278,21 @@ public class ElasticSearchService {
      * useSmartAnalyzer 为 true 时走 content.smart 字段
      */
     public List<EsDocumentChunk> searchByKeyword(String keyword, int size, boolean useSmartAnalyzer) throws Exception {
+        List<EsDocumentChunk> result = new ArrayList<>();
+        searchHitsByKeyword(keyword, size, useSmartAnalyzer).forEach(hit -> {
+            if (hit.source() != null) {
+                result.add(hit.source());
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 中文关键词检索
+     * 返回带 BM25 分数的原始命中结果，供混合检索做分数融合
+     */
+    public List<Hit<EsDocumentChunk>> searchHitsByKeyword(String keyword, int size, boolean useSmartAnalyzer) throws Exception {
         String field = useSmartAnalyzer ? FIELD_CONTENT + ".smart" : FIELD_CONTENT;
 
         SearchRequest request = SearchRequest.of(b -> b
@@ -219,14 +307,6 @@ public class ElasticSearchService {
         );
 
         SearchResponse<EsDocumentChunk> response = client.search(request, EsDocumentChunk.class);
-
-        List<EsDocumentChunk> result = new ArrayList<>();
-        response.hits().hits().forEach(hit -> {
-            if (hit.source() != null) {
-                result.add(hit.source());
-            }
-        });
-
-        return result;
+        return response.hits().hits();
     }
 }
@@ -0,0 +1,255 @@
+package cn.hollis.llm.mentor.rag.es;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ES 异步批量写入器
+ *
+ * 基于 BulkIngester 实现
+ * 1 按操作条数 / 请求字节数 / 时间间隔自动切批提交，不再把整个列表拼成一个无上限的 BulkRequest
+ * 2 同时在途的 bulk 请求数有上限，达到上限时 add 阻塞，形成背压
+ * 3 429 / 5xx 的失败条目按指数退避重新加入队列，超过最大次数后放弃
+ * 4 refresh 策略可配置，默认不触发 refresh，由索引的 refresh_interval 决定何时可见；
+ *   重建索引时可强制不触发 refresh，此时写入走一个独立的不带 refresh 参数的 ingester
+ */
+@Component
+@Slf4j
+public class EsBulkIndexer {
+
+    @Autowired
+    private ElasticsearchClient client;
+
+    // 单个 bulk 请求的最大操作数
+    @Value("${rag.es.bulk.max-operations:1000}")
+    private int maxOperations;
+
+    // 单个 bulk 请求的最大字节数
+    @Value("${rag.es.bulk.max-size-bytes:5242880}")
+    private long maxSizeBytes;
+
+    // 同时在途的 bulk 请求数
+    @Value("${rag.es.bulk.max-concurrent-requests:2}")
+    private int maxConcurrentRequests;
+
+    // 未攒满一批时的最长等待时间
+    @Value("${rag.es.bulk.flush-interval-millis:1000}")
+    private long flushIntervalMillis;
+
+    // 单条文档的最大写入次数
+    @Value("${rag.es.bulk.max-attempts:5}")
+    private int maxAttempts;
+
+    // 重试退避的基础时间
+    @Value("${rag.es.bulk.backoff-base-millis:200}")
+    private long backoffBaseMillis;
+
+    // 重试退避的最大时间
+    @Value("${rag.es.bulk.backoff-max-millis:10000}")
+    private long backoffMaxMillis;
+
+    // refresh 策略：none 不触发 refresh；wait_for 等到下一次 refresh 后再返回
+    @Value("${rag.es.refresh:none}")
+    private String refresh;
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "es-bulk-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile BulkIngester<PendingOperation> ingester;
+
+    // 强制不触发 refresh 的 ingester，仅在配置了 refresh 策略时单独创建
+    private volatile BulkIngester<PendingOperation> noRefreshIngester;
+
+    /**
+     * 写入策略对应的 Refresh 参数，none 时返回 null（不携带 refresh 参数）
+     */
+    public Refresh refreshPolicy() {
+        return "wait_for".equalsIgnoreCase(refresh) ? Refresh.WaitFor : null;
+    }
+
+    /**
+     * 异步写入单条文档
+     *
+     * @return 写入成功或最终失败时完成
+     */
+    public CompletableFuture<Void> index(String indexName, EsDocumentChunk doc) {
+        return index(indexName, doc, false);
+    }
+
+    /**
+     * 异步写入单条文档
+     *
+     * @param noRefresh 为 true 时忽略配置的 refresh 策略，用于关闭了 refresh_interval 的重建场景，
+     *                  否则 wait_for 请求要等到下一次 refresh 才返回，而此时不会有 refresh
+     * @return 写入成功或最终失败时完成
+     */
+    public CompletableFuture<Void> index(String indexName, EsDocumentChunk doc, boolean noRefresh) {
+        PendingOperation operation = new PendingOperation(indexName, doc, new CompletableFuture<>(), noRefresh);
+        submit(operation);
+        return operation.done();
+    }
+
+    /**
+     * 立即提交已缓冲的操作，不等待结果
+     */
+    public void flush() {
+        if (ingester != null) {
+            ingester.flush();
+        }
+        if (noRefreshIngester != null) {
+            noRefreshIngester.flush();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        // close 会提交剩余操作并等待在途请求完成
+        if (ingester != null) {
+            ingester.close();
+        }
+        if (noRefreshIngester != null) {
+            noRefreshIngester.close();
+        }
+        retryScheduler.shutdownNow();
+    }
+
+    private void submit(PendingOperation operation) {
+        EsDocumentChunk doc = operation.doc();
+        BulkOperation bulkOperation = BulkOperation.of(op -> op
+                .index(idx -> idx
+                        .index(operation.indexName())
+                        .id(doc.getId())
+                        .document(doc)
+                )
+        );
+        ingester(operation.noRefresh()).add(bulkOperation, operation);
+    }
+
+    private BulkIngester<PendingOperation> ingester(boolean noRefresh) {
+        Refresh refreshPolicy = refreshPolicy();
+        if (noRefresh && refreshPolicy != null) {
+            if (noRefreshIngester == null) {
+                synchronized (this) {
+                    if (noRefreshIngester == null) {
+                        noRefreshIngester = newIngester(null);
+                    }
+                }
+            }
+            return noRefreshIngester;
+        }
+        if (ingester == null) {
+            synchronized (this) {
+                if (ingester == null) {
+                    ingester = newIngester(refreshPolicy);
+                }
+            }
+        }
+        return ingester;
+    }
+
+    private BulkIngester<PendingOperation> newIngester(Refresh refreshPolicy) {
+        return BulkIngester.of(b -> {
+            b.client(client)
+                    .maxOperations(maxOperations)
+                    .maxSize(maxSizeBytes)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .flushInterval(flushIntervalMillis, TimeUnit.MILLISECONDS)
+                    .listener(new RetryingListener());
+            if (refreshPolicy != null) {
+                b.globalSettings(s -> s.refresh(refreshPolicy));
+            }
+            return b;
+        });
+    }
+
+    /**
+     * 处理 bulk 结果：成功的条目完成 future，可重试的失败条目延后重新加入
+     */
+    private class RetryingListener implements BulkListener<PendingOperation> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<PendingOperation> contexts) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingOperation> contexts, BulkResponse response) {
+            List<BulkResponseItem> items = response.items();
+            int failed = 0;
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                PendingOperation operation = contexts.get(i);
+                if (item.error() == null) {
+                    operation.done().complete(null);
+                } else {
+                    failed++;
+                    retryOrFail(operation, item.status() == 429 || item.status() >= 500,
+                            new IllegalStateException(item.error().type() + ": " + item.error().reason()));
+                }
+            }
+            if (failed > 0) {
+                log.warn("Bulk request {} completed with {} failures out of {}", executionId, failed, items.size());
+            } else {
+                log.debug("Bulk request {} indexed {} documents", executionId, items.size());
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<PendingOperation> contexts, Throwable failure) {
+            log.warn("Bulk request {} failed, {} operations: {}", executionId, contexts.size(), failure.toString());
+            contexts.forEach(operation -> retryOrFail(operation, true, failure));
+        }
+    }
+
+    private void retryOrFail(PendingOperation operation, boolean retryable, Throwable cause) {
+        int attempt = operation.attempt();
+        if (!retryable || attempt + 1 >= maxAttempts || retryScheduler.isShutdown()) {
+            log.error("Failed to index doc {} after {} attempts: {}", operation.doc().getId(), attempt + 1, cause.getMessage());
+            operation.done().completeExceptionally(cause);
+            return;
+        }
+        long delay = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt, 20));
+        // 不能在回调线程里直接 add，在途请求已满时会阻塞回调线程
+        retryScheduler.schedule(() -> {
+            try {
+                submit(operation.retried());
+            } catch (Exception e) {
+                operation.done().completeExceptionally(e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 待写入的文档，attempt 从 0 开始
+     */
+    private record PendingOperation(String indexName, EsDocumentChunk doc, CompletableFuture<Void> done,
+                                    boolean noRefresh, int attempt) {
+
+        private PendingOperation(String indexName, EsDocumentChunk doc, CompletableFuture<Void> done, boolean noRefresh) {
+            this(indexName, doc, done, noRefresh, 0);
+        }
+
+        private PendingOperation retried() {
+            return new PendingOperation(indexName, doc, done, noRefresh, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package cn.hollis.llm.mentor.rag.rerank;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.*;
+
+/**
+ * DashScope gte-rerank-v2 重排序客户端
+ *
+ * 与 {@link RerankUtil#rerankFusion} 的区别
+ * 1 复用同一个带连接池的 RestClient，不再每次调用创建 RestTemplate
+ * 2 API Key 从配置读取
+ * 3 不要求接口回传文档原文，结果按接口返回的 index 映射回候选列表
+ */
+@Component
+@Slf4j
+public class RerankClient {
+
+    @Autowired
+    @Qualifier("rerankRestClient")
+    private RestClient rerankRestClient;
+
+    @Value("${rag.rerank.url:https://dashscope.aliyuncs.com/api/v1/services/rerank/text-rerank/text-rerank}")
+    private String url;
+
+    @Value("${rag.rerank.model:gte-rerank-v2}")
+    private String model;
+
+    @Value("${rag.rerank.api-key:${spring.ai.dashscope.api-key:}}")
+    private String apiKey;
+
+    /**
+     * 对候选文本打分
+     *
+     * @param query     用户查询
+     * @param documents 候选文本
+     * @param topN      返回条数
+     * @return 按相关性降序排列的结果，index 为候选文本在 documents 中的下标
+     */
+    @SuppressWarnings("unchecked")
+    public List<RerankResult> rerank(String query, List<String> documents, int topN) {
+        if (documents.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Object> requestBody = Map.of(
+                "model", model,
+                "input", Map.of("query", query, "documents", documents),
+                "parameters", Map.of(
+                        "return_documents", false,
+                        "top_n", Math.min(topN, documents.size()),
+                        "instruct", "Given a web search query, retrieve relevant passages that answer the query."));
+
+        Map<String, Object> responseBody = rerankRestClient.post()
+                .uri(url)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestBody)
+                .retrieve()
+                .body(Map.class);
+        if (responseBody == null || !(responseBody.get("output") instanceof Map<?, ?> output)) {
+            throw new IllegalStateException("重排序API响应格式异常，缺少output字段: " + responseBody);
+        }
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) output.get("results");
+        if (items == null) {
+            return Collections.emptyList();
+        }
+        List<RerankResult> results = new ArrayList<>(items.size());
+        for (Map<String, Object> item : items) {
+            int index = ((Number) item.get("index")).intValue();
+            // 兼容不同版本接口的分数字段命名
+            Object score = item.containsKey("relevance_score") ? item.get("relevance_score") : item.get("score");
+            results.add(new RerankResult(index, score == null ? 0.0 : ((Number) score).doubleValue()));
+        }
+        return results;
+    }
+
+    /**
+     * 重排序结果
+     *
+     * @param index 候选文本下标
+     * @param score 相关性分数
+     */
+    public record RerankResult(int index, double score) {
+    }
+}
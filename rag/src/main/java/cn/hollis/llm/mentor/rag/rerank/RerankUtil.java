@@ -138,7 +138,7 @@ public class RerankUtil {
      *   <li>合并两路召回结果，按 docId 去重（向量侧内容优先保留）。</li>
      *   <li>将合并后的文本列表连同 query 一起发送至 DashScope 重排序接口。</li>
      *   <li>接口按相关性分数降序返回 top_n 条结果。</li>
-     *   <li>解析响应，提取文本内容，同时通过文本反查 chunkId 用于日志记录。</li>
+     *   <li>解析响应，提取文本内容，同时通过返回的 index 映射 chunkId 用于日志记录。</li>
      * </ol>
      *
      * <h3>接口说明</h3>
@@ -159,7 +159,7 @@ public class RerankUtil {
      */
     @SuppressWarnings("unchecked")
     public static List<String> rerankFusion(List<Document> vectorDocs, List<EsDocumentChunk> keywordDocs, String query, int topK) throws Exception {
-        // 使用 LinkedHashMap 保持合并时的插入顺序，便于后续通过文本反查 chunkId
+        // 使用 LinkedHashMap 保持合并时的插入顺序，便于后续按接口返回的 index 映射 chunkId
         // Key: docId（ES/向量库中的唯一标识），Value: 文档文本内容
         Map<String, String> idToContent = new LinkedHashMap<>();
         // Key: docId，Value: chunkId（原始文档分片 ID），仅用于日志定位，不影响排序
@@ -185,6 +185,7 @@ public class RerankUtil {
 
         // 候选集为空时短路返回，避免无效的外部 API 调用
         List<String> documents = new ArrayList<>(idToContent.values());
+        List<String> docIds = new ArrayList<>(idToContent.keySet());
         if (documents.isEmpty()) {
             log.info("没有检索到任何文档，无需调用重排序模型");
             return Collections.emptyList();
@@ -273,14 +274,10 @@ public class RerankUtil {
             if (text != null) {
                 result.add(text);
 
-                // 通过文本内容反查 docId，再映射到 chunkId，用于定位该片段的原始来源
-                // 注意：若存在内容完全相同的不同片段，此处会命中第一个匹配项
+                // 接口返回的 index 即候选文本在 documents 中的下标，按下标映射回 docId 与 chunkId
                 String matchedChunkId = "unknown";
-                for (Map.Entry<String, String> entry : idToContent.entrySet()) {
-                    if (entry.getValue().equals(text)) {
-                        matchedChunkId = idToChunkId.getOrDefault(entry.getKey(), "unknown");
-                        break;
-                    }
+                if (item.get("index") instanceof Number index && index.intValue() < docIds.size()) {
+                    matchedChunkId = idToChunkId.getOrDefault(docIds.get(index.intValue()), "unknown");
                 }
 
                 rankLogs.add(String.format("排名 %d: chunkId=%s, 分数=%.4f", i + 1, matchedChunkId, score != null ? score : 0.0));
@@ -0,0 +1,276 @@
+package cn.hollis.llm.mentor.rag.retriever;
+
+import cn.hollis.llm.mentor.rag.embedding.EmbeddingService;
+import cn.hollis.llm.mentor.rag.es.ElasticSearchService;
+import cn.hollis.llm.mentor.rag.es.EsDocumentChunk;
+import cn.hollis.llm.mentor.rag.rerank.RerankClient;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 混合检索服务
+ *
+ * 主流程如下
+ * 1 关键词检索（ES BM25）与向量检索并发执行，各自有独立超时，某一路超时或失败时只使用另一路结果
+ * 2 两路结果按文档 ID 合并，使用 RRF 或加权分数融合
+ * 3 融合后的候选集交给重排序模型精排，重排序失败或超时时直接返回融合排序结果
+ *
+ * 重排序结果通过接口返回的 index 映射回候选集，不再按文本内容逐个比较
+ */
+@Service
+@Slf4j
+public class HybridRetriever {
+
+    /**
+     * 融合策略
+     */
+    public enum FusionStrategy {
+        // 按排名融合，只使用名次
+        RRF,
+        // 按分数融合，两路分数各自做 min-max 归一化后加权求和
+        WEIGHTED
+    }
+
+    @Autowired
+    private ElasticSearchService elasticSearchService;
+
+    @Autowired
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private RerankClient rerankClient;
+
+    @Autowired
+    @Qualifier("hybridSearchExecutor")
+    private ExecutorService hybridSearchExecutor;
+
+    // 每一路召回的候选数量
+    @Value("${rag.hybrid.candidate-size:20}")
+    private int candidateSize;
+
+    // 关键词检索超时
+    @Value("${rag.hybrid.keyword-timeout-millis:800}")
+    private long keywordTimeoutMillis;
+
+    // 向量检索超时（包含 query 向量化）
+    @Value("${rag.hybrid.vector-timeout-millis:1500}")
+    private long vectorTimeoutMillis;
+
+    // 向量检索相似度阈值
+    @Value("${rag.hybrid.similarity-threshold:0.5}")
+    private double similarityThreshold;
+
+    @Value("${rag.hybrid.fusion:RRF}")
+    private FusionStrategy fusion;
+
+    // RRF 平滑常数
+    @Value("${rag.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    // 加权融合时关键词检索的权重
+    @Value("${rag.hybrid.keyword-weight:0.4}")
+    private double keywordWeight;
+
+    // 加权融合时向量检索的权重
+    @Value("${rag.hybrid.vector-weight:0.6}")
+    private double vectorWeight;
+
+    // 是否启用重排序
+    @Value("${rag.hybrid.rerank-enabled:true}")
+    private boolean rerankEnabled;
+
+    // 送入重排序的最大候选数量
+    @Value("${rag.hybrid.rerank-candidates:20}")
+    private int rerankCandidates;
+
+    /**
+     * 混合检索
+     *
+     * @param query 查询语句
+     * @param topK  返回数量
+     * @return 按相关性降序排列的文档片段
+     */
+    public List<RetrievedChunk> retrieve(String query, int topK) {
+        // 两路并发检索，超时或异常时该路返回空列表
+        CompletableFuture<List<Hit<EsDocumentChunk>>> keywordFuture = searchAsync("关键词检索",
+                () -> {
+                    try {
+                        return elasticSearchService.searchHitsByKeyword(query, candidateSize, false);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, keywordTimeoutMillis);
+        CompletableFuture<List<Document>> vectorFuture = searchAsync("向量检索",
+                () -> embeddingService.similaritySearch(SearchRequest.builder()
+                        .query(query)
+                        .topK(candidateSize)
+                        .similarityThreshold(similarityThreshold)
+                        .build()), vectorTimeoutMillis);
+
+        List<Candidate> fused = fuse(keywordFuture.join(), vectorFuture.join());
+        if (fused.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!rerankEnabled) {
+            return toChunks(fused, topK);
+        }
+        return rerank(query, fused, topK);
+    }
+
+    private <T> CompletableFuture<List<T>> searchAsync(String source, Supplier<List<T>> search, long timeoutMillis) {
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(search, hybridSearchExecutor)
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((result, e) -> {
+                    if (e != null) {
+                        log.warn("{}失败，忽略该路结果，耗时 {}ms: {}", source,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.toString());
+                        return Collections.<T>emptyList();
+                    }
+                    log.debug("{}完成，命中 {} 条，耗时 {}ms", source, result.size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return result;
+                });
+    }
+
+    /**
+     * 按文档 ID 合并两路结果并计算融合分数，返回按融合分数降序排列的候选集
+     */
+    private List<Candidate> fuse(List<Hit<EsDocumentChunk>> keywordHits, List<Document> vectorDocs) {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+
+        // 向量侧先放入，同一 ID 的内容以向量侧为准
+        double[] vectorScores = new double[vectorDocs.size()];
+        for (int i = 0; i < vectorDocs.size(); i++) {
+            Document doc = vectorDocs.get(i);
+            vectorScores[i] = doc.getScore() == null ? 0.0 : doc.getScore();
+            Candidate candidate = candidates.computeIfAbsent(doc.getId(), id -> new Candidate(id, doc.getText(), doc.getMetadata()));
+            candidate.vectorRank = i + 1;
+        }
+
+        List<Hit<EsDocumentChunk>> keywordDocs = keywordHits.stream().filter(hit -> hit.source() != null).toList();
+        double[] keywordScores = new double[keywordDocs.size()];
+        for (int i = 0; i < keywordDocs.size(); i++) {
+            Hit<EsDocumentChunk> hit = keywordDocs.get(i);
+            EsDocumentChunk doc = hit.source();
+            String id = doc.getId() != null ? doc.getId() : hit.id();
+            keywordScores[i] = hit.score() == null ? 0.0 : hit.score();
+            Candidate candidate = candidates.computeIfAbsent(id, key -> new Candidate(key, doc.getContent(), doc.getMetadata()));
+            candidate.keywordRank = i + 1;
+        }
+
+        // 计算融合分数
+        for (Candidate candidate : candidates.values()) {
+            if (fusion == FusionStrategy.WEIGHTED) {
+                double score = 0.0;
+                if (candidate.vectorRank > 0) {
+                    score += vectorWeight * normalize(vectorScores, candidate.vectorRank - 1);
+                }
+                if (candidate.keywordRank > 0) {
+                    score += keywordWeight * normalize(keywordScores, candidate.keywordRank - 1);
+                }
+                candidate.score = score;
+            } else {
+                // RRF_Score(d) = Σ 1 / (k + rank_i(d))，两路都命中的文档分数叠加
+                double score = 0.0;
+                if (candidate.vectorRank > 0) {
+                    score += 1.0 / (rrfK + candidate.vectorRank);
+                }
+                if (candidate.keywordRank > 0) {
+                    score += 1.0 / (rrfK + candidate.keywordRank);
+                }
+                candidate.score = score;
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(candidates.values());
+        sorted.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.score).reversed());
+        log.info("混合检索融合完成，策略: {}，关键词 {} 条，向量 {} 条，合并后 {} 条",
+                fusion, keywordDocs.size(), vectorDocs.size(), sorted.size());
+        return sorted;
+    }
+
+    /**
+     * min-max 归一化，同一路所有分数相同时视为满分
+     */
+    private static double normalize(double[] scores, int index) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double score : scores) {
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+        return max > min ? (scores[index] - min) / (max - min) : 1.0;
+    }
+
+    /**
+     * 对融合后的前 rerankCandidates 条做精排，失败或超时时回退到融合排序结果
+     */
+    private List<RetrievedChunk> rerank(String query, List<Candidate> fused, int topK) {
+        List<Candidate> candidates = fused.subList(0, Math.min(rerankCandidates, fused.size()));
+        List<String> texts = candidates.stream().map(candidate -> candidate.content).toList();
+        long start = System.nanoTime();
+        try {
+            List<RerankClient.RerankResult> results = rerankClient.rerank(query, texts, topK);
+            List<RetrievedChunk> chunks = new ArrayList<>(results.size());
+            for (RerankClient.RerankResult result : results) {
+                if (result.index() < 0 || result.index() >= candidates.size()) {
+                    continue;
+                }
+                Candidate candidate = candidates.get(result.index());
+                chunks.add(new RetrievedChunk(candidate.id, candidate.content, candidate.metadata, result.score()));
+            }
+            log.info("重排序完成，候选 {} 条，返回 {} 条，耗时 {}ms", candidates.size(), chunks.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return chunks;
+        } catch (Exception e) {
+            log.warn("重排序失败，回退到 {} 融合结果，耗时 {}ms: {}", fusion,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.toString());
+            return toChunks(fused, topK);
+        }
+    }
+
+    private static List<RetrievedChunk> toChunks(List<Candidate> candidates, int topK) {
+        return candidates.stream()
+                .limit(topK)
+                .map(candidate -> new RetrievedChunk(candidate.id, candidate.content, candidate.metadata, candidate.score))
+                .toList();
+    }
+
+    /**
+     * 融合候选，rank 从 1 开始，0 表示未被该路召回
+     */
+    private static final class Candidate {
+
+        private final String id;
+
+        private final String content;
+
+        private final Map<String, Object> metadata;
+
+        private int vectorRank;
+
+        private int keywordRank;
+
+        private double score;
+
+        private Candidate(String id, String content, Map<String, Object> metadata) {
+            this.id = id;
+            this.content = content;
+            this.metadata = metadata;
+        }
+    }
+}
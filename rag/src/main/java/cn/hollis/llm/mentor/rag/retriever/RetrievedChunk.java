@@ -0,0 +1,14 @@
+package cn.hollis.llm.mentor.rag.retriever;
+
+import java.util.Map;
+
+/**
+ * 混合检索结果
+ *
+ * @param id       文档片段ID（ES 与向量库共用）
+ * @param content  文本内容
+ * @param metadata 元数据
+ * @param score    最终排序分数：重排序成功时为模型相关性分数，否则为融合分数
+ */
+public record RetrievedChunk(String id, String content, Map<String, Object> metadata, double score) {
+}